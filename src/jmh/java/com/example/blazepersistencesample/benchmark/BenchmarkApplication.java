@@ -0,0 +1,52 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.blazepersistencesample.BlazePersistenceSampleApplication;
+
+/**
+ * ベンチマーク用に、log4jdbc を経由しない組み込み H2（PostgreSQL モード）でアプリケーションを起動する。
+ * <p>
+ * H2 はデータが変わっていなければ同じクエリーの前回の結果を再利用するため、{@code OPTIMIZE_REUSE_RESULTS=0} で無効にして毎回実行させる。
+ */
+final class BenchmarkApplication {
+
+	private static final String[] DEFAULT_ARGS = {
+			"--spring.datasource.driver-class-name=org.h2.Driver",
+			"--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=0",
+			"--spring.jpa.show-sql=false",
+			"--logging.level.root=WARN" };
+
+	private BenchmarkApplication() {
+	}
+
+	/**
+	 * @param args 既定値を上書きするプロパティ（{@code --key=value} 形式）。同じキーの既定値は使わない
+	 */
+	static ConfigurableApplicationContext start(final String... args) {
+		List<String> allArgs = new ArrayList<>();
+		for (String defaultArg : DEFAULT_ARGS) {
+			if (Arrays.stream(args).noneMatch(arg -> keyOf(arg).equals(keyOf(defaultArg)))) {
+				allArgs.add(defaultArg);
+			}
+		}
+		allArgs.addAll(Arrays.asList(args));
+
+		// @formatter:off
+		return new SpringApplicationBuilder(BlazePersistenceSampleApplication.class)
+				.web(WebApplicationType.NONE)
+				.run(allArgs.toArray(new String[0]));
+		// @formatter:on
+	}
+
+	private static String keyOf(final String arg) {
+		final int separator = arg.indexOf('=');
+		return separator < 0 ? arg : arg.substring(0, separator);
+	}
+}
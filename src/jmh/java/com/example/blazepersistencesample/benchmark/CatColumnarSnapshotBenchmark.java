@@ -0,0 +1,182 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+
+import org.hibernate.CacheMode;
+import org.hibernate.annotations.QueryHints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.analytics.CatAnalyticsRow;
+import com.example.blazepersistencesample.infrastructure.jpa.analytics.CatAnalyticsSnapshotService;
+import com.example.blazepersistencesample.infrastructure.jpa.analytics.CatColumnarSnapshot;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 年齢のヒストグラムと仔猫の多い猫の上位を、列指向のスナップショット・猫のエンティティのリスト・SQL で求める時間を比較する。
+ * <p>
+ * 準備の際に、1 匹あたりのバイト数を表示する。スナップショットは配列の大きさから求め、エンティティのリストはリストを捨てる前後の
+ * GC 後の使用量の差で測る。
+ * {@code distinctNames} が 0 のときは、すべての猫の名前が異なる。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatColumnarSnapshotBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", "-XX:+UseSerialGC" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatColumnarSnapshotBenchmark {
+
+	private static final int TOP = 10;
+
+	@Param({ "200000" })
+	private int noOfCats;
+
+	@Param({ "0", "1000" })
+	private int distinctNames;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	private CatColumnarSnapshot snapshot;
+
+	private List<Cat> cats;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 2, distinctNames);
+
+		snapshot = context.getBean(CatAnalyticsSnapshotService.class).refresh();
+		cats = loadCats();
+
+		// 読み込む前後では H2 が使うメモリーも増減するため、読み込んだリストを捨てる前後で測る
+		List<Cat> measured = loadCats();
+		final long withEntities = usedHeap();
+		final int size = measured.size();
+		measured = null;
+		final long withoutEntities = usedHeap();
+
+		// @formatter:off
+		System.out.printf("%nbytes per cat: snapshot=%.1f, entities=%.1f%n",
+				(double) snapshot.estimatedBytes() / snapshot.size(),
+				(double) (withEntities - withoutEntities) / size);
+		// @formatter:on
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public long[] snapshotAgeHistogram() {
+		return snapshot.ageHistogram();
+	}
+
+	@Benchmark
+	public Map<Integer, Long> entityAgeHistogram() {
+		return cats.parallelStream().collect(Collectors.groupingByConcurrent(Cat::getAge, Collectors.counting()));
+	}
+
+	@Benchmark
+	public List<Tuple> sqlAgeHistogram() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Tuple.class)
+				.from(Cat.class, "c")
+				.select("c.age")
+				.select("COUNT(c.id)")
+				.groupBy("c.age")
+				.getResultList());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<CatAnalyticsRow> snapshotTopByKittenCount() {
+		return snapshot.topByKittenCount(TOP);
+	}
+
+	@Benchmark
+	public List<Cat> entityTopByKittenCount() {
+		// @formatter:off
+		return cats.parallelStream()
+				.sorted((left, right) -> left.getKittenCount().equals(right.getKittenCount())
+						? left.getId().compareTo(right.getId())
+						: right.getKittenCount().compareTo(left.getKittenCount()))
+				.limit(TOP)
+				.collect(Collectors.toList());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<Tuple> sqlTopByKittenCount() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Tuple.class)
+				.from(Cat.class, "c")
+				.select("c.id")
+				.select("c.name")
+				.select("c.age")
+				.select("c.kittenCount")
+				.orderByDesc("c.kittenCount")
+				.orderByAsc("c.id")
+				.setMaxResults(TOP)
+				.getResultList());
+		// @formatter:on
+	}
+
+	private List<Cat> loadCats() {
+		// 第 2 レベル キャッシュに載せると、非同期の追い出しが測定値に混ざるため、キャッシュを使わない
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Cat.class)
+				.from(Cat.class, "c")
+				.getQuery()
+				.setHint(QueryHints.CACHE_MODE, CacheMode.IGNORE)
+				.getResultList());
+		// @formatter:on
+	}
+
+	private static long usedHeap() {
+		final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
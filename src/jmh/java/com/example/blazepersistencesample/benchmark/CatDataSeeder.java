@@ -0,0 +1,53 @@
+package com.example.blazepersistencesample.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * H2 の {@code SYSTEM_RANGE} を使い、JPA を経由せずにベンチマーク用のデータを一括投入する。
+ * <p>
+ * 猫 ID 1～N は {@code kittensPerCat} 分木を成し、猫 c（c ≧ 2）は猫 {@code (c - 2) / kittensPerCat + 1} の仔猫になる。
+ * 仔猫の匹数（{@code kitten_count}）も木の形から計算して投入する。
+ * 飼い主は猫 10 匹につき 1 人で、先頭から 3 匹ずつ飼っている。
+ * 猫の名前は {@code distinctNames} 種類を繰り返す（0 のときはすべて異なる）。
+ * 投入後、以降の JPA による登録と ID が重複しないようにシーケンスを進める。
+ */
+@RequiredArgsConstructor
+final class CatDataSeeder {
+
+	static final int CATS_PER_PERSON = 10;
+
+	static final int KITTENS_PER_PERSON = 3;
+
+	private final JdbcTemplate jdbcTemplate;
+
+	void seed(final int noOfCats, final int kittensPerCat) {
+		seed(noOfCats, kittensPerCat, 0);
+	}
+
+	void seed(final int noOfCats, final int kittensPerCat, final int distinctNames) {
+		final int noOfPersons = noOfCats / CATS_PER_PERSON;
+		// @formatter:off
+		jdbcTemplate.update(
+				"insert into person (id, name) select x, 'Person' || x from system_range(1, ?)",
+				noOfPersons);
+
+		// 猫 x の仔猫は猫 (x - 1) * k + 2 ～ x * k + 1 のうち N 以下のもの。親猫は ID の小さい順に先に登録される
+		jdbcTemplate.update(
+				"insert into cat (id, name, age, kitten_count, parent_id, owner_id)"
+						+ " select x, 'Cat' || case when ? > 0 then mod(x, ?) else x end, mod(x, 39), greatest(0, least(?, x * ? + 1) - (x - 1) * ? - 1),"
+						+ " case when ? > 0 and x >= 2 then (x - 2) / ? + 1 end,"
+						+ " case when x <= ? then (x - 1) / ? + 1 end"
+						+ " from system_range(1, ?)",
+				distinctNames, Math.max(distinctNames, 1),
+				noOfCats, kittensPerCat, kittensPerCat,
+				kittensPerCat, Math.max(kittensPerCat, 1),
+				noOfPersons * KITTENS_PER_PERSON, KITTENS_PER_PERSON,
+				noOfCats);
+		// @formatter:on
+
+		jdbcTemplate.execute("alter sequence cat_seq restart with " + (noOfCats + 1));
+		jdbcTemplate.execute("alter sequence person_seq restart with " + (noOfPersons + 1));
+	}
+}
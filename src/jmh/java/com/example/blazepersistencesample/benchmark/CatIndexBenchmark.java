@@ -0,0 +1,120 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 年齢の範囲で絞り込み、名前順に並べるクエリーと、名前の前方一致を、{@code Cat} に宣言したインデックスの有無で比較する。
+ * <p>
+ * {@code indexes=none} では、名前・年齢のインデックス（{@code idx_cat_name_id}・{@code idx_cat_age_id}・
+ * {@code idx_cat_age_kitten_count}）を削除してから計測する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatIndexBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatIndexBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+
+	@Param({ "1000000" })
+	private int noOfCats;
+
+	@Param({ "declared", "none" })
+	private String indexes;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		new CatDataSeeder(jdbcTemplate).seed(noOfCats, 2);
+		if ("none".equals(indexes)) {
+			jdbcTemplate.execute("drop index idx_cat_name_id");
+			jdbcTemplate.execute("drop index idx_cat_age_id");
+			jdbcTemplate.execute("drop index idx_cat_age_kitten_count");
+		}
+		jdbcTemplate.execute("analyze");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Cat> ageRangeOrderedByNameFirstPage() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Cat.class, "c")
+				.where("c.age").betweenExpression("5").andExpression("10")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.setMaxResults(PAGE_SIZE)
+				.getResultList());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<Long> ageRangeOrderedByNameIds() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Long.class)
+				.from(Cat.class, "c")
+				.select("c.id")
+				.where("c.age").betweenExpression("5").andExpression("10")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.getResultList());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<Cat> namePrefix() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Cat.class, "c")
+				.where("c.name").like().value("Cat12345%").noEscape()
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.getResultList());
+		// @formatter:on
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.ingest.BulkIngestService;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+
+/**
+ * 猫 N 匹の登録にかかる時間を、{@code saveAllAndFlush} と {@link BulkIngestService} で比較する。
+ * <p>
+ * {@code batchSize=1} は JDBC バッチなし・ID を 1 件ずつ採番する従来の設定に相当する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatIngestBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class CatIngestBenchmark {
+
+	@Param({ "10000" })
+	private int noOfCats;
+
+	@Param({ "1", "50" })
+	private int batchSize;
+
+	private ConfigurableApplicationContext context;
+
+	private JpaCatRepository repository;
+
+	private BulkIngestService ingestService;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private TransactionTemplate tx;
+
+	private List<Cat> cats;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		// @formatter:off
+		context = BenchmarkApplication.start(
+				"--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize,
+				"--spring.jpa.properties.blaze-persistence-sample.id.increment-size=" + batchSize);
+		// @formatter:on
+
+		repository = context.getBean(JpaCatRepository.class);
+		ingestService = context.getBean(BulkIngestService.class);
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+		tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+	}
+
+	@Setup(Level.Iteration)
+	public void prepareCats() {
+		jdbcTemplate.update("delete from cat");
+
+		cats = new ArrayList<>(noOfCats);
+		for (int i = 1; i <= noOfCats; i++) {
+			cats.add(Cat.builder().name("Cat" + i).age(i % 39).build());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Cat> saveAllAndFlush() {
+		return tx.execute(status -> repository.saveAllAndFlush(cats));
+	}
+
+	@Benchmark
+	public long bulkIngest() {
+		return ingestService.ingestCats(cats);
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 「年齢が 5～10 歳・2 匹以上の仔猫がいる猫」の絞り込みを、{@code SIZE(c.kittens)} の相関副問い合わせと
+ * 仔猫の匹数の列（{@code c.kittenCount}、インデックス {@code idx_cat_age_kitten_count}）で比較する。
+ * <p>
+ * 取得件数の影響を除くため、どちらも該当件数だけを数える。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatKittenCountBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatKittenCountBenchmark {
+
+	@Param({ "1000000" })
+	private int noOfCats;
+
+	@Param({ "2" })
+	private int kittensPerCat;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, kittensPerCat);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Long sizeSubquery() {
+		return countAge5to10With2OrMoreKittens("SIZE(c.kittens)");
+	}
+
+	@Benchmark
+	public Long kittenCountColumn() {
+		return countAge5to10With2OrMoreKittens("c.kittenCount");
+	}
+
+	private Long countAge5to10With2OrMoreKittens(final String kittenCountExpression) {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Long.class)
+				.from(Cat.class, "c")
+				.select("COUNT(c.id)")
+				.where("c.age").betweenExpression("5").andExpression("10")
+				.where(kittenCountExpression).geExpression("2")
+				.getSingleResult());
+		// @formatter:on
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.PagedList;
+import com.blazebit.persistence.PaginatedCriteriaBuilder;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatPagedListFetcher;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatSortOrder;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.PageCount;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * 総件数付きのページの取得にかかる時間の分布（p99 など）を、ページと総件数を順に取得する場合と同時に取得する場合で比較する。
+ * <p>
+ * 順に取得する場合は、総件数を別の COUNT クエリーで数える（{@code withInlineCountQuery(false)}）。
+ * H2 では、総件数をページのクエリーの副問い合わせで数える既定の方法だと、副問い合わせが OFFSET までの行ごとに評価されるため比較しない。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatPagedListAsyncBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatPagedListAsyncBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+
+	@Param({ "1000000" })
+	private int noOfCats;
+
+	private ConfigurableApplicationContext context;
+
+	private CatPagedListFetcher fetcher;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	private Function<EntityManager, PaginatedCriteriaBuilder<CatView>> query;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		fetcher = context.getBean(CatPagedListFetcher.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		final CriteriaBuilderFactory cbf = context.getBean(CriteriaBuilderFactory.class);
+		final EntityViewManager evm = context.getBean(EntityViewManager.class);
+		// 名前順の途中のページと、年齢で絞り込んだ総件数
+		// @formatter:off
+		query = entityManager -> evm.applySetting(
+				EntityViewSetting.create(CatView.class, noOfCats / 4, PAGE_SIZE),
+				CatSortOrder.NAME.applyTo(cbf.create(entityManager, Cat.class, "c"), "c")
+					.where("c.age").ge(5));
+		// @formatter:on
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public PagedList<CatView> sequential() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> fetcher.getResultList(
+				query.apply(em).withInlineCountQuery(false),
+				PageCount.exact()));
+		// @formatter:on
+	}
+
+	@Benchmark
+	public PagedList<CatView> concurrent() {
+		return fetcher.getResultListAsync(query, PageCount.exact()).join();
+	}
+}
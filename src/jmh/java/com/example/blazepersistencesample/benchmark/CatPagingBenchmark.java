@@ -0,0 +1,117 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.PaginatedCriteriaBuilder;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatKeysetPagingService;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatSortOrder;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * OFFSET によるページングとキーセット ページングで、N ページ目の取得にかかる時間を比較する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatPagingBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatPagingBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+
+	@Param({ "100000" })
+	private int noOfCats;
+
+	@Param({ "1", "500", "4900" })
+	private int pageNumber;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private EntityViewManager evm;
+
+	private TransactionTemplate readOnlyTx;
+
+	private CatKeysetPagingService pagingService;
+
+	private String tokenOfPreviousPage;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		evm = context.getBean(EntityViewManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+		pagingService = context.getBean(CatKeysetPagingService.class);
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 0);
+
+		if (pageNumber > 1) {
+			tokenOfPreviousPage = pagingService
+					.pageAt(CatView.class, CatSortOrder.NAME, (pageNumber - 2) * PAGE_SIZE, PAGE_SIZE)
+					.getNextToken();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<CatView> offsetPaging() {
+		return readOnlyTx.execute(status -> {
+			CriteriaBuilder<Cat> cb = CatSortOrder.NAME.applyTo(cbf.create(em, Cat.class, "c"), "c");
+			// @formatter:off
+			EntityViewSetting<CatView, PaginatedCriteriaBuilder<CatView>> setting = EntityViewSetting
+					.create(CatView.class, (pageNumber - 1) * PAGE_SIZE, PAGE_SIZE);
+			return evm.applySetting(setting, cb)
+					.withCountQuery(false)
+					.getResultList();
+			// @formatter:on
+		});
+	}
+
+	@Benchmark
+	public List<CatView> keysetPaging() {
+		if (pageNumber == 1) {
+			return pagingService.firstPage(CatView.class, CatSortOrder.NAME, PAGE_SIZE).getContent();
+		}
+		return pagingService.nextPage(CatView.class, tokenOfPreviousPage).getContent();
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.partition.CatPartitionedScanner;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * 全件を対象にした処理を、{@link CatPartitionedScanner} のスレッド数を変えて比較する。{@code threads=1} が従来の 1 クエリー・1 コネクションに相当する。
+ * <p>
+ * {@code aggregate} は範囲ごとに集計してから結果を合算し、{@code forEachOrdered} は全件の射影を ID の昇順に読み込む。
+ * CPU のコア数より多いスレッドを指定しても速くはならない。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatPartitionedScanBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatPartitionedScanBenchmark {
+
+	/** {@code forEachOrdered} で、スレッド 1 つあたりに割り当てる範囲の数 */
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	@Param({ "1000000" })
+	private int noOfCats;
+
+	@Param({ "1", "2", "4" })
+	private int threads;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private CatPartitionedScanner scanner;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start("--blaze-persistence-sample.partition.threads=" + threads);
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		scanner = context.getBean(CatPartitionedScanner.class);
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public long aggregate() {
+		// @formatter:off
+		final List<Long> sums = scanner.scan(threads, range -> range.applyTo(cbf.create(em, Long.class)
+				.from(Cat.class, "c"), "c")
+				.select("SUM(c.age * c.kittenCount)")
+				.getSingleResult());
+		// @formatter:on
+		return sums.stream().mapToLong(Long::longValue).sum();
+	}
+
+	@Benchmark
+	public long forEachOrdered(final Blackhole blackhole) {
+		return scanner.forEachOrdered(CatView.class, threads * PARTITIONS_PER_THREAD, blackhole::consume);
+	}
+}
@@ -0,0 +1,140 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.PagedList;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * テスト（{@code _01_Getting_started}・{@code _03_From_clause}）で扱っているクエリーのスループットを計測する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatQueryBenchmark -p noOfCats=1000000"}
+ * <p>
+ * 既定で GC プロファイラー（{@code -prof gc}）が有効になり、{@code gc.alloc.rate.norm} に 1 操作あたりの割り当て量が出力される。
+ * 全件取得系のベンチマークは件数に比例してヒープを使うため、500 万件で計測する場合は {@code -jvmArgsAppend -Xmx8g} などを併せて指定する。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatQueryBenchmark {
+
+	private static final int PAGE_SIZE = 10;
+
+	@Param({ "10000" })
+	private int noOfCats;
+
+	@Param({ "2", "10" })
+	private int kittensPerCat;
+
+	private ConfigurableApplicationContext context;
+
+	private JpaCatRepository repository;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityViewManager evm;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		repository = context.getBean(JpaCatRepository.class);
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		evm = context.getBean(EntityViewManager.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, kittensPerCat);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Cat> jpaFindAll() {
+		return readOnlyTx.execute(status -> repository.findAll());
+	}
+
+	@Benchmark
+	public List<Cat> criteriaBuilderGetResultList() {
+		return readOnlyTx.execute(status -> cbf.create(em, Cat.class).getResultList());
+	}
+
+	@Benchmark
+	public List<CatView> entityViewGetResultList() {
+		return readOnlyTx.execute(status -> {
+			CriteriaBuilder<Cat> cb = cbf.create(em, Cat.class);
+			return evm.applySetting(EntityViewSetting.create(CatView.class), cb).getResultList();
+		});
+	}
+
+	@Benchmark
+	public PagedList<Cat> page() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Cat.class, "c")
+				.orderByAsc("c.id")
+				.page(noOfCats / 2, PAGE_SIZE)
+				.getResultList());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<Cat> kittenCountFilter() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Cat.class, "c")
+				.where("c.age").betweenExpression("5").andExpression("10")
+				.where("c.kittenCount").geExpression("2")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.getResultList());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<Cat> personKittens() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Cat.class)
+				.from(Person.class, "person")
+				.select("person.kittens")
+				.getResultList());
+		// @formatter:on
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.summary.CatStatistic;
+import com.example.blazepersistencesample.infrastructure.jpa.summary.CatStatisticsRequest;
+import com.example.blazepersistencesample.infrastructure.jpa.summary.CatStatisticsRow;
+import com.example.blazepersistencesample.infrastructure.jpa.summary.CatSummaryService;
+
+/**
+ * 年齢ごとの猫の匹数・仔猫の匹数の平均と、飼い猫の匹数の区分ごとの飼い主の人数を求める時間を、集計済みの表と GROUP BY で比較する。
+ * <p>
+ * {@code summaryAfterUpdate} は、猫 1 匹の年齢を変更し、差分を {@link CatSummaryService#refresh()} で集計し直してから
+ * 集計済みの表で集計する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="CatSummaryBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CatSummaryBenchmark {
+
+	private static final CatStatisticsRequest CATS_PER_AGE = CatStatisticsRequest.of(CatStatistic.CATS_PER_AGE);
+
+	private static final CatStatisticsRequest AVERAGE_KITTENS_PER_AGE = CatStatisticsRequest
+			.of(CatStatistic.AVERAGE_KITTENS_PER_AGE);
+
+	private static final CatStatisticsRequest OWNERS_PER_BUCKET = CatStatisticsRequest
+			.of(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET);
+
+	@Param({ "200000" })
+	private int noOfCats;
+
+	private ConfigurableApplicationContext context;
+
+	private CatSummaryService service;
+
+	private EntityManager em;
+
+	private TransactionTemplate tx;
+
+	private long nextId;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		service = context.getBean(CatSummaryService.class);
+		em = context.getBean(EntityManager.class);
+		tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 2);
+		// SQL で投入した猫はエンティティのイベントで記録されないため、すべて集計し直しておく
+		service.requestRebuild();
+		service.refresh();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<CatStatisticsRow> summaryCatsPerAge() {
+		return service.query(CATS_PER_AGE);
+	}
+
+	@Benchmark
+	public List<CatStatisticsRow> rawCatsPerAge() {
+		return service.queryRaw(CATS_PER_AGE);
+	}
+
+	@Benchmark
+	public List<CatStatisticsRow> summaryAverageKittensPerAge() {
+		return service.query(AVERAGE_KITTENS_PER_AGE);
+	}
+
+	@Benchmark
+	public List<CatStatisticsRow> rawAverageKittensPerAge() {
+		return service.queryRaw(AVERAGE_KITTENS_PER_AGE);
+	}
+
+	@Benchmark
+	public List<CatStatisticsRow> summaryOwnersPerBucket() {
+		return service.query(OWNERS_PER_BUCKET);
+	}
+
+	@Benchmark
+	public List<CatStatisticsRow> rawOwnersPerBucket() {
+		return service.queryRaw(OWNERS_PER_BUCKET);
+	}
+
+	@Benchmark
+	public List<CatStatisticsRow> summaryAfterUpdate() {
+		final long id = nextId++ % noOfCats + 1;
+		tx.executeWithoutResult(status -> {
+			final Cat cat = em.find(Cat.class, id);
+			cat.setAge((cat.getAge() + 1) % 39);
+		});
+		service.refresh();
+		return service.query(CATS_PER_AGE);
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 子・孫の 2 世代に {@code fanOut} 匹ずつ仔猫がいる猫の {@code hashCode}・{@code toString} の時間を計測する。
+ * <p>
+ * {@code deepHashCode} は、以前の Lombok {@code @Data} と同じく仔猫をたどってハッシュ値を計算した場合の比較用。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="EntityHashCodeBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class EntityHashCodeBenchmark {
+
+	private static final int GENERATIONS = 2;
+
+	@Param({ "0", "10", "100" })
+	private int fanOut;
+
+	private Cat cat;
+
+	@Setup
+	public void setup() {
+		cat = newCat(1L, GENERATIONS);
+	}
+
+	@Benchmark
+	public int idHashCode() {
+		return cat.hashCode();
+	}
+
+	@Benchmark
+	public int deepHashCode() {
+		return deepHashCode(cat);
+	}
+
+	@Benchmark
+	public String associationFreeToString() {
+		return cat.toString();
+	}
+
+	private Cat newCat(final long id, final int generations) {
+		Set<Cat> kittens = new HashSet<>();
+		if (generations > 0) {
+			for (int i = 1; i <= fanOut; i++) {
+				kittens.add(newCat(id * (fanOut + 1) + i, generations - 1));
+			}
+		}
+		// @formatter:off
+		return Cat.builder()
+				.id(id)
+				.name("Cat" + id)
+				.age((int) (id % 39))
+				.kittens(kittens)
+				.kittenCount(kittens.size())
+				.build();
+		// @formatter:on
+	}
+
+	private static int deepHashCode(final Cat cat) {
+		int kittensHashCode = 0;
+		for (Cat kitten : cat.getKittens()) {
+			kittensHashCode += deepHashCode(kitten);
+		}
+		return Objects.hash(cat.getId(), cat.getName(), cat.getAge(), cat.getKittenCount(), kittensHashCode);
+	}
+}
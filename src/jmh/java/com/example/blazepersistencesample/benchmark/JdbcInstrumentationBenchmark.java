@@ -0,0 +1,106 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jdbc.JdbcInstrumentationConfiguration;
+
+/**
+ * JDBC ドライバーを直接使う場合（{@code raw}）、log4jdbc の {@code DriverSpy} を経由する場合（{@code spy}）、
+ * {@link JdbcInstrumentationConfiguration} で計測する場合（{@code instrumented}）の、1 文あたりの時間と割り当て量を比較する。
+ * <p>
+ * {@code spy} は本番と同じくログを出力しない設定（{@code jdbc} ロガーを {@code OFF}）で計測する。
+ * 既定で GC プロファイラー（{@code -prof gc}）が有効になり、{@code gc.alloc.rate.norm} に 1 操作あたりの割り当て量が出力される。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="JdbcInstrumentationBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JdbcInstrumentationBenchmark {
+
+	@Param({ "10000" })
+	private int noOfCats;
+
+	@Param({ "raw", "spy", "instrumented" })
+	private String driver;
+
+	private ConfigurableApplicationContext context;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private long minId;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		switch (driver) {
+		case "raw":
+			context = BenchmarkApplication.start("--blaze-persistence-sample.jdbc.instrumentation.enabled=false");
+			break;
+		case "spy":
+			// @formatter:off
+			context = BenchmarkApplication.start(
+					"--spring.datasource.driver-class-name=net.sf.log4jdbc.sql.jdbcapi.DriverSpy",
+					"--spring.datasource.url=jdbc:log4jdbc:h2:mem:benchmark;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=0",
+					"--logging.level.jdbc=OFF",
+					"--blaze-persistence-sample.jdbc.instrumentation.enabled=false");
+			// @formatter:on
+			break;
+		case "instrumented":
+			context = BenchmarkApplication.start();
+			break;
+		default:
+			throw new IllegalArgumentException("unknown driver: " + driver);
+		}
+
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+		new CatDataSeeder(jdbcTemplate).seed(noOfCats, 2);
+		minId = jdbcTemplate.queryForObject("select min(id) from cat", Long.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public String selectById() {
+		final long id = minId + ThreadLocalRandom.current().nextInt(noOfCats);
+		return jdbcTemplate.queryForObject("select name from cat where id = ?", String.class, id);
+	}
+
+	@Benchmark
+	public List<String> selectPage() {
+		final long from = minId + ThreadLocalRandom.current().nextInt(noOfCats - 20);
+		// @formatter:off
+		return jdbcTemplate.queryForList("select name from cat where id >= ? order by id limit 20", String.class,
+				from);
+		// @formatter:on
+	}
+
+	@Benchmark
+	public int updateById() {
+		final long id = minId + ThreadLocalRandom.current().nextInt(noOfCats);
+		return jdbcTemplate.update("update cat set age = age where id = ?", id);
+	}
+}
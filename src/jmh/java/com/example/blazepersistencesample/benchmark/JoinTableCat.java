@@ -0,0 +1,70 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.Set;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import com.example.blazepersistencesample.infrastructure.jpa.id.PooledSequenceGenerator;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * 外部キーへ移行する前の {@code Cat} と同じく、仔猫を結合テーブル（{@code join_table_cat_kittens}）で関連付ける比較用のエンティティ。
+ * 列・インデックスは移行前の {@code cat} テーブルに合わせている。ベンチマークのクラスパスにだけ存在する。
+ */
+@Entity
+// @formatter:off
+@Table(indexes = {
+		@Index(name = "idx_join_table_cat_name_id", columnList = "name, id"),
+		@Index(name = "idx_join_table_cat_age_id", columnList = "age, id"),
+		@Index(name = "idx_join_table_cat_age_kitten_count", columnList = "age, kittenCount")
+})
+// @formatter:on
+@Getter
+@Setter
+@NoArgsConstructor
+public class JoinTableCat {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "join_table_cat_seq")
+	@GenericGenerator(name = "join_table_cat_seq", strategy = PooledSequenceGenerator.STRATEGY, parameters = {
+			@Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "join_table_cat_seq") })
+	private Long id;
+
+	@NotEmpty
+	@NotNull
+	private String name;
+
+	@NotNull
+	@Min(0)
+	private Integer age;
+
+	@OneToMany
+	private Set<JoinTableCat> kittens;
+
+	@NotNull
+	@Min(0)
+	private Integer kittenCount;
+
+	JoinTableCat(final String name, final Integer age, final Set<JoinTableCat> kittens) {
+		this.name = name;
+		this.age = age;
+		this.kittens = kittens;
+		this.kittenCount = kittens == null ? 0 : kittens.size();
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 登録済みの仔猫 {@code kittens} 匹から {@code HashSet} を作る時間を計測する（{@code CatTestUtility#initializeKittens}、
+ * 仔猫のコレクションの読み込みと同じ操作）。
+ * <p>
+ * {@code constantHashSet} は、以前の {@code Cat#hashCode()} と同じくクラスごとの固定値をハッシュ値にした場合の比較用。
+ * すべての仔猫が同じバケットに入るため、匹数の 2 乗に比例して遅くなる。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="KittenSetBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class KittenSetBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	private int kittens;
+
+	private List<Cat> kittenList;
+
+	private List<ConstantHashCat> constantHashList;
+
+	@Setup
+	public void setup() {
+		kittenList = new ArrayList<>(kittens);
+		constantHashList = new ArrayList<>(kittens);
+		for (long id = 1; id <= kittens; id++) {
+			final Cat kitten = Cat.builder().id(id).name("Kitten" + id).age(0).kittenCount(0).build();
+			kittenList.add(kitten);
+			constantHashList.add(new ConstantHashCat(kitten));
+		}
+	}
+
+	@Benchmark
+	public Set<Cat> idHashSet() {
+		return new HashSet<>(kittenList);
+	}
+
+	@Benchmark
+	public Set<ConstantHashCat> constantHashSet() {
+		return new HashSet<>(constantHashList);
+	}
+
+	@RequiredArgsConstructor
+	private static final class ConstantHashCat {
+
+		private final Cat cat;
+
+		@Override
+		public boolean equals(final Object other) {
+			return other instanceof ConstantHashCat && cat.equals(((ConstantHashCat) other).cat);
+		}
+
+		@Override
+		public int hashCode() {
+			return Cat.class.hashCode();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 仔猫の取得のスループットを、外部キー（{@link Cat}）と結合テーブル（{@link JoinTableCat}）で比較する。
+ * <p>
+ * 親猫 {@value #NO_OF_PARENTS} 匹と仔猫の組を取得する（結合テーブル側には同じ形のデータを SQL で投入する）。
+ * 関連の結合だけを比べるため、エンティティではなく ID と名前を射影で取得する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="KittensMappingFetchBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KittensMappingFetchBenchmark {
+
+	private static final int NO_OF_PARENTS = 1000;
+
+	@Param({ "100000" })
+	private int noOfCats;
+
+	@Param({ "5" })
+	private int kittensPerCat;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		new CatDataSeeder(jdbcTemplate).seed(noOfCats, kittensPerCat);
+		// 同じ形のデータを結合テーブル側にも投入する
+		jdbcTemplate.update("insert into join_table_cat (id, name, age, kitten_count) select id, name, age, kitten_count from cat");
+		jdbcTemplate.update(
+				"insert into join_table_cat_kittens (join_table_cat_id, kittens_id) select parent_id, id from cat where parent_id is not null");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Object[]> foreignKeyKittens() {
+		return readOnlyTx.execute(status -> selectKittens(Cat.class));
+	}
+
+	@Benchmark
+	public List<Object[]> joinTableKittens() {
+		return readOnlyTx.execute(status -> selectKittens(JoinTableCat.class));
+	}
+
+	private List<Object[]> selectKittens(final Class<?> entityClass) {
+		// @formatter:off
+		return cbf.create(em, Object[].class)
+				.from(entityClass, "c")
+				.innerJoin("c.kittens", "kitten")
+				.select("c.id")
+				.select("kitten.id")
+				.select("kitten.name")
+				.where("c.id").le((long) NO_OF_PARENTS)
+				.getResultList();
+		// @formatter:on
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 親猫と仔猫の登録にかかる時間を、仔猫の外部キー（{@link Cat}）と結合テーブル（{@link JoinTableCat}）で比較する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="KittensMappingInsertBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class KittensMappingInsertBenchmark {
+
+	@Param({ "1000" })
+	private int noOfParents;
+
+	@Param({ "5" })
+	private int kittensPerParent;
+
+	private ConfigurableApplicationContext context;
+
+	private EntityManager em;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private TransactionTemplate tx;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		em = context.getBean(EntityManager.class);
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+		tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+	}
+
+	@Setup(Level.Iteration)
+	public void deleteCats() {
+		jdbcTemplate.update("update cat set parent_id = null");
+		jdbcTemplate.update("delete from cat");
+		jdbcTemplate.update("delete from join_table_cat_kittens");
+		jdbcTemplate.update("delete from join_table_cat");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int foreignKey() {
+		return tx.execute(status -> {
+			for (int i = 1; i <= noOfParents; i++) {
+				Set<Cat> kittens = new HashSet<>();
+				for (int j = 1; j <= kittensPerParent; j++) {
+					Cat kitten = Cat.builder().name("Cat" + i + " Jr." + j).age(0).build();
+					em.persist(kitten);
+					kittens.add(kitten);
+				}
+				em.persist(Cat.builder().name("Cat" + i).age(i % 39).kittens(kittens).build());
+			}
+			em.flush();
+			em.clear();
+			return noOfParents;
+		});
+	}
+
+	@Benchmark
+	public int joinTable() {
+		return tx.execute(status -> {
+			for (int i = 1; i <= noOfParents; i++) {
+				Set<JoinTableCat> kittens = new HashSet<>();
+				for (int j = 1; j <= kittensPerParent; j++) {
+					JoinTableCat kitten = new JoinTableCat("Cat" + i + " Jr." + j, 0, null);
+					em.persist(kitten);
+					kittens.add(kitten);
+				}
+				em.persist(new JoinTableCat("Cat" + i, i % 39, kittens));
+			}
+			em.flush();
+			em.clear();
+			return noOfParents;
+		});
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.cache.QueryResultCache;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * 年齢・仔猫の匹数で絞り込むクエリーと名前順の先頭ページを、{@link QueryResultCache} の有無で比較する。
+ * <p>
+ * 絞り込みの年齢は {@code distinctAges} 通りの中から無作為に選ぶ。計測の終了時に、ヒット率と追い出し件数を標準出力に出力する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="QueryResultCacheBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryResultCacheBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+
+	@Param({ "100000" })
+	private int noOfCats;
+
+	@Param({ "30" })
+	private int distinctAges;
+
+	@Param({ "true", "false" })
+	private boolean cached;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityViewManager evm;
+
+	private EntityManager em;
+
+	private QueryResultCache resultCache;
+
+	private TransactionTemplate readOnlyTx;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		evm = context.getBean(EntityViewManager.class);
+		em = context.getBean(EntityManager.class);
+		resultCache = context.getBean(QueryResultCache.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (cached) {
+			System.out.printf("%nresult cache: %s, weighted size %d bytes%n", resultCache.stats(),
+					resultCache.weightedSize());
+		}
+		context.close();
+	}
+
+	@Benchmark
+	public List<String> kittenCountFilter() {
+		final int age = ThreadLocalRandom.current().nextInt(distinctAges);
+		// @formatter:off
+		return readOnlyTx.execute(status -> getResultList(cbf.create(em, String.class)
+				.from(Cat.class, "c")
+				.select("c.name")
+				.where("c.age").eq(age)
+				.where("SIZE(c.kittens)").ge(2)
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.setMaxResults(PAGE_SIZE)));
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<CatView> firstPage() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> getResultList(evm.applySetting(
+				EntityViewSetting.create(CatView.class),
+				cbf.create(em, Cat.class, "c").orderByAsc("c.name").orderByAsc("c.id"))
+				.setMaxResults(PAGE_SIZE)));
+		// @formatter:on
+	}
+
+	private <T> List<T> getResultList(final CriteriaBuilder<T> builder) {
+		return cached ? resultCache.getResultList(builder, Cat.class) : builder.getResultList();
+	}
+}
@@ -0,0 +1,137 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.template.QueryTemplate;
+import com.example.blazepersistencesample.infrastructure.jpa.template.QueryTemplateFactory;
+
+/**
+ * 呼び出しのたびに {@code CriteriaBuilder} を組み立てる場合と、起動時に組み立てた {@link QueryTemplate} を使う場合で、
+ * 1 回の呼び出しにかかる時間と割り当て量を比較する。
+ * <p>
+ * クエリー自体のコストが目立たないよう、猫の数は少なくし、取得件数も絞っている。
+ * 既定で GC プロファイラー（{@code -prof gc}）が有効になり、{@code gc.alloc.rate.norm} に 1 操作あたりの割り当て量が出力される。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="QueryTemplateBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryTemplateBenchmark {
+
+	private static final int PAGE_SIZE = 10;
+
+	@Param({ "1000" })
+	private int noOfCats;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	private QueryTemplate<String> kittenCountFilter;
+
+	private QueryTemplate<Object[]> idBounds;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		final QueryTemplateFactory templates = context.getBean(QueryTemplateFactory.class);
+		// @formatter:off
+		kittenCountFilter = templates.create(String.class, cb -> cb
+				.from(Cat.class, "c")
+				.select("c.name")
+				.where("c.age").betweenExpression(":minAge").andExpression(":maxAge")
+				.where("SIZE(c.kittens)").geExpression(":minKittens")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.setMaxResults(PAGE_SIZE));
+		idBounds = templates.create(Object[].class, cb -> cb
+				.from(Cat.class, "c")
+				.select("MIN(c.id)")
+				.select("MAX(c.id)"));
+		// @formatter:on
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 2);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<String> kittenCountFilterBuilder() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, String.class)
+				.from(Cat.class, "c")
+				.select("c.name")
+				.where("c.age").between(5).and(10)
+				.where("SIZE(c.kittens)").ge(2)
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.setMaxResults(PAGE_SIZE)
+				.getResultList());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public List<String> kittenCountFilterTemplate() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> kittenCountFilter.getResultList(em,
+				Map.of("minAge", 5, "maxAge", 10, "minKittens", 2)));
+		// @formatter:on
+	}
+
+	@Benchmark
+	public Object[] idBoundsBuilder() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Object[].class)
+				.from(Cat.class, "c")
+				.select("MIN(c.id)")
+				.select("MAX(c.id)")
+				.getSingleResult());
+		// @formatter:on
+	}
+
+	@Benchmark
+	public Object[] idBoundsTemplate() {
+		return readOnlyTx.execute(status -> idBounds.getSingleResult(em));
+	}
+}
@@ -0,0 +1,145 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jdbc.routing.ReadWriteRoutingDataSource;
+import com.example.blazepersistencesample.infrastructure.jdbc.routing.Replica;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 読み取り専用トランザクションの Blaze-Persistence のクエリーを 4 スレッドで実行し、レプリカの数ごとのスループットを比較する。
+ * <p>
+ * プライマリーとレプリカは、それぞれ別の組み込み H2 データベースで、コネクション プールは 2 本ずつにしている。
+ * レプリカは、投入したプライマリーの内容をそのまま複製する。レプリカが 0 であれば、すべてプライマリーで実行する。
+ * データベースのサーバーが別々でないため、CPU のコア数以上には伸びない。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="ReplicaRoutingBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class ReplicaRoutingBenchmark {
+
+	private static final int POOL_SIZE = 2;
+
+	@Param({ "100000" })
+	private int noOfCats;
+
+	@Param({ "0", "1", "2" })
+	private int replicas;
+
+	private ConfigurableApplicationContext context;
+
+	private CriteriaBuilderFactory cbf;
+
+	private EntityManager em;
+
+	private TransactionTemplate readOnlyTx;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		final StringJoiner replicaUrls = new StringJoiner(",");
+		for (int i = 1; i <= replicas; i++) {
+			replicaUrls.add("jdbc:h2:mem:benchmark-replica-" + i
+					+ ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE;OPTIMIZE_REUSE_RESULTS=0");
+		}
+		// @formatter:off
+		context = replicas == 0
+				? BenchmarkApplication.start("--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE)
+				: BenchmarkApplication.start(
+						"--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+						"--blaze-persistence-sample.datasource.replica-urls=" + replicaUrls,
+						"--blaze-persistence-sample.datasource.replica-pool-size=" + POOL_SIZE);
+		// @formatter:on
+
+		cbf = context.getBean(CriteriaBuilderFactory.class);
+		em = context.getBean(EntityManager.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		new CatDataSeeder(context.getBean(JdbcTemplate.class)).seed(noOfCats, 2);
+		if (replicas > 0) {
+			final ReadWriteRoutingDataSource routing = context.getBean(DataSource.class)
+					.unwrap(ReadWriteRoutingDataSource.class);
+			replicate(routing);
+			routing.checkReplicas();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Tuple> countByAge() {
+		// @formatter:off
+		return readOnlyTx.execute(status -> cbf.create(em, Tuple.class)
+				.from(Cat.class, "c")
+				.select("c.age")
+				.select("COUNT(c.id)")
+				.where("c.kittenCount").ge(1)
+				.groupBy("c.age")
+				.getResultList());
+		// @formatter:on
+	}
+
+	/**
+	 * プライマリーの内容をスクリプトに書き出し、各レプリカで実行する。
+	 */
+	private static void replicate(final ReadWriteRoutingDataSource routing) throws Exception {
+		final Path script = Files.createTempFile("benchmark-replica", ".sql");
+		try {
+			runScript(routing.getPrimary(), "SCRIPT TO ?", script);
+			for (final Replica replica : routing.getReplicas()) {
+				runScript(replica.getDataSource(), "RUNSCRIPT FROM ?", script);
+			}
+		} finally {
+			Files.deleteIfExists(script);
+		}
+	}
+
+	private static void runScript(final DataSource dataSource, final String sql, final Path script)
+			throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(sql)) {
+			statement.setString(1, script.toString());
+			statement.execute();
+		}
+	}
+}
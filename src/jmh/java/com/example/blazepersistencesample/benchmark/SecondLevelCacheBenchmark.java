@@ -0,0 +1,110 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jpa.cache.SecondLevelCacheStatistics;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatKeysetPage;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatKeysetPagingService;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatSortOrder;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * 2 次キャッシュ・クエリー キャッシュの有無で、よく参照される猫の取得と先頭ページの取得を比較する。
+ * <p>
+ * {@code findHotCat} は {@code hotCats} 匹の中から無作為に 1 匹を、仔猫とともにトランザクションごとに読み込む。
+ * 計測の終了時に、領域ごとのヒット率を標準出力に出力する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="SecondLevelCacheBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SecondLevelCacheBenchmark {
+
+	private static final int PAGE_SIZE = 20;
+
+	@Param({ "100000" })
+	private int noOfCats;
+
+	@Param({ "1000" })
+	private int hotCats;
+
+	@Param({ "true", "false" })
+	private boolean cacheEnabled;
+
+	private ConfigurableApplicationContext context;
+
+	private EntityManager em;
+
+	private CatKeysetPagingService pagingService;
+
+	private TransactionTemplate readOnlyTx;
+
+	private long minId;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		// 終了時にヒット率を出力するため、統計を集める
+		// @formatter:off
+		context = BenchmarkApplication.start(
+				"--blaze-persistence-sample.cache.enabled=" + cacheEnabled,
+				"--blaze-persistence-sample.cache.statistics.enabled=true");
+		// @formatter:on
+
+		em = context.getBean(EntityManager.class);
+		pagingService = context.getBean(CatKeysetPagingService.class);
+		readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTx.setReadOnly(true);
+
+		final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		new CatDataSeeder(jdbcTemplate).seed(noOfCats, 2);
+		minId = jdbcTemplate.queryForObject("select min(id) from cat", Long.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (cacheEnabled) {
+			context.getBean(SecondLevelCacheStatistics.class).regions().forEach(region -> System.out.printf(
+					"%n%s: hit ratio %.3f (hits %d, misses %d, puts %d)", region.getRegionName(),
+					region.getHitRatio(), region.getHitCount(), region.getMissCount(), region.getPutCount()));
+			System.out.println();
+		}
+		context.close();
+	}
+
+	@Benchmark
+	public int findHotCat() {
+		final long id = minId + ThreadLocalRandom.current().nextInt(hotCats);
+		return readOnlyTx.execute(status -> em.find(Cat.class, id).getKittens().size());
+	}
+
+	@Benchmark
+	public CatKeysetPage<CatView> firstPage() {
+		return readOnlyTx.execute(status -> pagingService.firstPage(CatView.class, CatSortOrder.NAME, PAGE_SIZE));
+	}
+}
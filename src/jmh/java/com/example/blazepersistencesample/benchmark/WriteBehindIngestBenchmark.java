@@ -0,0 +1,80 @@
+package com.example.blazepersistencesample.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.ingest.WriteBehindIngestService;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+
+/**
+ * 16 の呼び出し元が猫を 1 匹ずつ登録し、コミットを待つ場合のスループットを、呼び出し元ごとの {@code saveAndFlush} と
+ * {@link WriteBehindIngestService} で比較する。
+ * <p>
+ * 実行方法: {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="WriteBehindIngestBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+public class WriteBehindIngestBenchmark {
+
+	private ConfigurableApplicationContext context;
+
+	private JpaCatRepository repository;
+
+	private WriteBehindIngestService writeBehind;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		context = BenchmarkApplication.start();
+
+		repository = context.getBean(JpaCatRepository.class);
+		writeBehind = context.getBean(WriteBehindIngestService.class);
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+	}
+
+	@TearDown(Level.Iteration)
+	public void deleteCats() {
+		jdbcTemplate.update("delete from cat");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Cat saveAndFlush() {
+		return repository.saveAndFlush(newCat());
+	}
+
+	@Benchmark
+	public Cat writeBehind() {
+		return writeBehind.submitCat(newCat()).join();
+	}
+
+	private static Cat newCat() {
+		return Cat.builder().name("Cat").age(3).build();
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.Value;
+
+/**
+ * 準備済みの文に設定されたパラメーターの値。
+ * <p>
+ * 値を保持するのは、値をそのまま再現できる設定メソッド（{@code setInt}・{@code setString}・{@code setNull} など）だけで、
+ * ストリーム・LOB・{@code Calendar} 付きの設定メソッドで設定されたパラメーターは {@code null}（不明）のままになる。
+ * {@code setNull} で設定された値は {@link Null} で表す。
+ */
+final class CapturedParameters {
+
+	private CapturedParameters() {
+	}
+
+	/**
+	 * {@code parameters} の {@code index} 番目（1 から）に {@code value} を設定する。足りなければ拡張した配列を返す。
+	 */
+	static Object[] set(final Object[] parameters, final int index, final Object value) {
+		Object[] result = parameters;
+		if (result == null) {
+			result = new Object[Math.max(index, 8)];
+		} else if (result.length < index) {
+			result = Arrays.copyOf(result, Math.max(index, result.length * 2));
+		}
+		result[index - 1] = value;
+		return result;
+	}
+
+	/**
+	 * 1～{@code count} 番目のパラメーターの値を、すべて再現できるか。
+	 */
+	static boolean isReplayable(final Object[] parameters, final int count) {
+		if (count == 0) {
+			return true;
+		}
+		if (parameters == null || parameters.length < count) {
+			return false;
+		}
+		return Arrays.stream(parameters, 0, count).allMatch(Objects::nonNull);
+	}
+
+	static void bind(final PreparedStatement statement, final Object[] parameters, final int count)
+			throws SQLException {
+		for (int i = 0; i < count; i++) {
+			if (parameters[i] instanceof Null) {
+				statement.setNull(i + 1, ((Null) parameters[i]).getSqlType());
+			} else {
+				statement.setObject(i + 1, parameters[i]);
+			}
+		}
+	}
+
+	/**
+	 * 値を伏せ、型（文字列・バイト列は長さも）だけを表す。値が不明なパラメーターは {@code ?} とする。
+	 */
+	static List<String> redact(final Object[] parameters) {
+		if (parameters == null) {
+			return Collections.emptyList();
+		}
+		// 配列は拡張のため余分に確保されているため、末尾の不明な要素は除く
+		int length = parameters.length;
+		while (length > 0 && parameters[length - 1] == null) {
+			length--;
+		}
+		List<String> redacted = new ArrayList<>(length);
+		for (int i = 0; i < length; i++) {
+			final Object parameter = parameters[i];
+			if (parameter == null) {
+				redacted.add("?");
+			} else if (parameter instanceof Null) {
+				redacted.add("null");
+			} else if (parameter instanceof CharSequence) {
+				redacted.add("String(" + ((CharSequence) parameter).length() + ")");
+			} else if (parameter instanceof byte[]) {
+				redacted.add("byte[" + ((byte[]) parameter).length + "]");
+			} else {
+				redacted.add(parameter.getClass().getSimpleName());
+			}
+		}
+		return redacted;
+	}
+
+	/**
+	 * {@link PreparedStatement#setNull(int, int)} で設定された値。
+	 */
+	@Value
+	static class Null {
+
+		int sqlType;
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.example.blazepersistencesample.infrastructure.jdbc.JdbcMetrics.QueryShape;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Delegate;
+
+/**
+ * 読み進めた行数を数え、最後まで読んだとき、または閉じたときに 1 度だけ記録する。
+ */
+@RequiredArgsConstructor
+class CountingResultSet implements ResultSet {
+
+	@Delegate(excludes = Counting.class)
+	private final ResultSet delegate;
+
+	private final QueryShape shape;
+
+	private long rows;
+
+	private boolean recorded;
+
+	/**
+	 * @param shape 行数の記録先。{@code null} なら {@code resultSet} をそのまま返す
+	 */
+	static ResultSet wrap(final ResultSet resultSet, final QueryShape shape) {
+		return shape == null ? resultSet : new CountingResultSet(resultSet, shape);
+	}
+
+	@Override
+	public boolean next() throws SQLException {
+		final boolean hasNext = delegate.next();
+		if (hasNext) {
+			rows++;
+		} else {
+			record();
+		}
+		return hasNext;
+	}
+
+	@Override
+	public void close() throws SQLException {
+		record();
+		delegate.close();
+	}
+
+	private void record() {
+		if (!recorded) {
+			recorded = true;
+			shape.recordRows(rows);
+		}
+	}
+
+	private interface Counting {
+
+		boolean next() throws SQLException;
+
+		void close() throws SQLException;
+	}
+}
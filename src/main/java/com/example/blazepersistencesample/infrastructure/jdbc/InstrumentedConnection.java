@@ -0,0 +1,104 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Delegate;
+
+/**
+ * 作成した文（{@link Statement}・{@link PreparedStatement}）の実行を記録する。ストアド プロシージャーの呼び出しは記録しない。
+ */
+@RequiredArgsConstructor
+class InstrumentedConnection implements Connection {
+
+	@Delegate(excludes = StatementFactory.class)
+	private final Connection delegate;
+
+	private final JdbcMetrics metrics;
+
+	@Override
+	public Statement createStatement() throws SQLException {
+		return new InstrumentedStatement(delegate.createStatement(), metrics);
+	}
+
+	@Override
+	public Statement createStatement(final int resultSetType, final int resultSetConcurrency)
+			throws SQLException {
+		return new InstrumentedStatement(delegate.createStatement(resultSetType, resultSetConcurrency), metrics);
+	}
+
+	@Override
+	public Statement createStatement(final int resultSetType, final int resultSetConcurrency,
+			final int resultSetHoldability) throws SQLException {
+		// @formatter:off
+		return new InstrumentedStatement(
+				delegate.createStatement(resultSetType, resultSetConcurrency, resultSetHoldability), metrics);
+		// @formatter:on
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(final String sql) throws SQLException {
+		return new InstrumentedPreparedStatement(delegate.prepareStatement(sql), sql, metrics);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(final String sql, final int resultSetType,
+			final int resultSetConcurrency) throws SQLException {
+		// @formatter:off
+		return new InstrumentedPreparedStatement(
+				delegate.prepareStatement(sql, resultSetType, resultSetConcurrency), sql, metrics);
+		// @formatter:on
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(final String sql, final int resultSetType,
+			final int resultSetConcurrency, final int resultSetHoldability) throws SQLException {
+		// @formatter:off
+		return new InstrumentedPreparedStatement(
+				delegate.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability), sql,
+				metrics);
+		// @formatter:on
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(final String sql, final int autoGeneratedKeys) throws SQLException {
+		return new InstrumentedPreparedStatement(delegate.prepareStatement(sql, autoGeneratedKeys), sql, metrics);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(final String sql, final int[] columnIndexes) throws SQLException {
+		return new InstrumentedPreparedStatement(delegate.prepareStatement(sql, columnIndexes), sql, metrics);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(final String sql, final String[] columnNames) throws SQLException {
+		return new InstrumentedPreparedStatement(delegate.prepareStatement(sql, columnNames), sql, metrics);
+	}
+
+	private interface StatementFactory {
+
+		Statement createStatement() throws SQLException;
+
+		Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException;
+
+		Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+				throws SQLException;
+
+		PreparedStatement prepareStatement(String sql) throws SQLException;
+
+		PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+				throws SQLException;
+
+		PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency,
+				int resultSetHoldability) throws SQLException;
+
+		PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException;
+
+		PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException;
+
+		PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException;
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * コネクションの取得時間を記録し、取得したコネクションの文の実行を {@link JdbcMetrics} に記録する。
+ * <p>
+ * 包んだデータ ソースが {@link Closeable}（コネクション プールなど）であれば、コンテキストの終了時に一緒に閉じる。
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements Closeable {
+
+	private final JdbcMetrics metrics;
+
+	public InstrumentedDataSource(final DataSource targetDataSource, final JdbcMetrics metrics) {
+		super(targetDataSource);
+		this.metrics = metrics;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		final long start = System.nanoTime();
+		final Connection connection = super.getConnection();
+		metrics.recordAcquisition(start);
+		return new InstrumentedConnection(connection, metrics);
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password) throws SQLException {
+		final long start = System.nanoTime();
+		final Connection connection = super.getConnection(username, password);
+		metrics.recordAcquisition(start);
+		return new InstrumentedConnection(connection, metrics);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (getTargetDataSource() instanceof Closeable) {
+			((Closeable) getTargetDataSource()).close();
+		}
+	}
+}
@@ -0,0 +1,308 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Delegate;
+
+/**
+ * 準備済みの文の、実行時間・行数を記録する。{@link #execute()} の結果セットの行数は記録しない。
+ * <p>
+ * {@link JdbcMetrics#isCapturingParameters()} のときは、設定されたパラメーターを {@link CapturedParameters} として保持し、
+ * 遅いクエリーの通知に渡す。
+ */
+@RequiredArgsConstructor
+class InstrumentedPreparedStatement implements PreparedStatement {
+
+	@Delegate(excludes = Execution.class)
+	private final PreparedStatement delegate;
+
+	private final String sql;
+
+	private final JdbcMetrics metrics;
+
+	private Object[] parameters;
+
+	@Override
+	public ResultSet executeQuery() throws SQLException {
+		final long start = System.nanoTime();
+		final ResultSet resultSet = delegate.executeQuery();
+		return CountingResultSet.wrap(resultSet, metrics.recordQuery(sql, start, parameters));
+	}
+
+	@Override
+	public int executeUpdate() throws SQLException {
+		final long start = System.nanoTime();
+		final int rows = delegate.executeUpdate();
+		metrics.recordUpdate(sql, start, parameters, rows);
+		return rows;
+	}
+
+	@Override
+	public long executeLargeUpdate() throws SQLException {
+		final long start = System.nanoTime();
+		final long rows = delegate.executeLargeUpdate();
+		metrics.recordUpdate(sql, start, parameters, rows);
+		return rows;
+	}
+
+	@Override
+	public boolean execute() throws SQLException {
+		final long start = System.nanoTime();
+		final boolean hasResultSet = delegate.execute();
+		if (hasResultSet) {
+			metrics.recordQuery(sql, start, parameters);
+		} else {
+			metrics.recordUpdate(sql, start, parameters, delegate.getUpdateCount());
+		}
+		return hasResultSet;
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		final long start = System.nanoTime();
+		final int[] counts = delegate.executeBatch();
+		metrics.recordUpdate(sql, start, InstrumentedStatement.sum(counts));
+		return counts;
+	}
+
+	@Override
+	public long[] executeLargeBatch() throws SQLException {
+		final long start = System.nanoTime();
+		final long[] counts = delegate.executeLargeBatch();
+		metrics.recordUpdate(sql, start, InstrumentedStatement.sum(counts));
+		return counts;
+	}
+
+	@Override
+	public void setNull(final int parameterIndex, final int sqlType) throws SQLException {
+		delegate.setNull(parameterIndex, sqlType);
+		captureNull(parameterIndex, sqlType);
+	}
+
+	@Override
+	public void setNull(final int parameterIndex, final int sqlType, final String typeName) throws SQLException {
+		delegate.setNull(parameterIndex, sqlType, typeName);
+		captureNull(parameterIndex, sqlType);
+	}
+
+	@Override
+	public void setBoolean(final int parameterIndex, final boolean x) throws SQLException {
+		delegate.setBoolean(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setByte(final int parameterIndex, final byte x) throws SQLException {
+		delegate.setByte(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setShort(final int parameterIndex, final short x) throws SQLException {
+		delegate.setShort(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setInt(final int parameterIndex, final int x) throws SQLException {
+		delegate.setInt(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setLong(final int parameterIndex, final long x) throws SQLException {
+		delegate.setLong(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setFloat(final int parameterIndex, final float x) throws SQLException {
+		delegate.setFloat(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setDouble(final int parameterIndex, final double x) throws SQLException {
+		delegate.setDouble(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setBigDecimal(final int parameterIndex, final BigDecimal x) throws SQLException {
+		delegate.setBigDecimal(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setString(final int parameterIndex, final String x) throws SQLException {
+		delegate.setString(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setNString(final int parameterIndex, final String value) throws SQLException {
+		delegate.setNString(parameterIndex, value);
+		capture(parameterIndex, value);
+	}
+
+	@Override
+	public void setBytes(final int parameterIndex, final byte[] x) throws SQLException {
+		delegate.setBytes(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setDate(final int parameterIndex, final Date x) throws SQLException {
+		delegate.setDate(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setTime(final int parameterIndex, final Time x) throws SQLException {
+		delegate.setTime(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setTimestamp(final int parameterIndex, final Timestamp x) throws SQLException {
+		delegate.setTimestamp(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setObject(final int parameterIndex, final Object x) throws SQLException {
+		delegate.setObject(parameterIndex, x);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void setObject(final int parameterIndex, final Object x, final int targetSqlType) throws SQLException {
+		delegate.setObject(parameterIndex, x, targetSqlType);
+		capture(parameterIndex, x);
+	}
+
+	@Override
+	public void clearParameters() throws SQLException {
+		delegate.clearParameters();
+		parameters = null;
+	}
+
+	// 保持しないときに値をボクシングしないよう、基本型ごとに保持するかを先に判定する
+
+	private void captureNull(final int parameterIndex, final int sqlType) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, new CapturedParameters.Null(sqlType));
+		}
+	}
+
+	private void capture(final int parameterIndex, final boolean value) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, Boolean.valueOf(value));
+		}
+	}
+
+	private void capture(final int parameterIndex, final byte value) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, Byte.valueOf(value));
+		}
+	}
+
+	private void capture(final int parameterIndex, final short value) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, Short.valueOf(value));
+		}
+	}
+
+	private void capture(final int parameterIndex, final int value) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, Integer.valueOf(value));
+		}
+	}
+
+	private void capture(final int parameterIndex, final long value) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, Long.valueOf(value));
+		}
+	}
+
+	private void capture(final int parameterIndex, final float value) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, Float.valueOf(value));
+		}
+	}
+
+	private void capture(final int parameterIndex, final double value) {
+		if (metrics.isCapturingParameters()) {
+			capture(parameterIndex, Double.valueOf(value));
+		}
+	}
+
+	private void capture(final int parameterIndex, final Object value) {
+		if (metrics.isCapturingParameters()) {
+			parameters = CapturedParameters.set(parameters, parameterIndex, value);
+		}
+	}
+
+	/**
+	 * 記録のために置き換えるメソッド。
+	 */
+	private interface Execution {
+
+		ResultSet executeQuery() throws SQLException;
+
+		int executeUpdate() throws SQLException;
+
+		long executeLargeUpdate() throws SQLException;
+
+		boolean execute() throws SQLException;
+
+		int[] executeBatch() throws SQLException;
+
+		long[] executeLargeBatch() throws SQLException;
+
+		void setNull(int parameterIndex, int sqlType) throws SQLException;
+
+		void setNull(int parameterIndex, int sqlType, String typeName) throws SQLException;
+
+		void setBoolean(int parameterIndex, boolean x) throws SQLException;
+
+		void setByte(int parameterIndex, byte x) throws SQLException;
+
+		void setShort(int parameterIndex, short x) throws SQLException;
+
+		void setInt(int parameterIndex, int x) throws SQLException;
+
+		void setLong(int parameterIndex, long x) throws SQLException;
+
+		void setFloat(int parameterIndex, float x) throws SQLException;
+
+		void setDouble(int parameterIndex, double x) throws SQLException;
+
+		void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException;
+
+		void setString(int parameterIndex, String x) throws SQLException;
+
+		void setNString(int parameterIndex, String value) throws SQLException;
+
+		void setBytes(int parameterIndex, byte[] x) throws SQLException;
+
+		void setDate(int parameterIndex, Date x) throws SQLException;
+
+		void setTime(int parameterIndex, Time x) throws SQLException;
+
+		void setTimestamp(int parameterIndex, Timestamp x) throws SQLException;
+
+		void setObject(int parameterIndex, Object x) throws SQLException;
+
+		void setObject(int parameterIndex, Object x, int targetSqlType) throws SQLException;
+
+		void clearParameters() throws SQLException;
+	}
+}
@@ -0,0 +1,237 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.Delegate;
+
+/**
+ * SQL を指定して実行する文の、実行時間・行数を記録する。
+ * <p>
+ * バッチは最初に追加した SQL の形として記録する。{@link #execute(String)} の結果セットの行数は記録しない。
+ */
+@RequiredArgsConstructor
+class InstrumentedStatement implements Statement {
+
+	@Delegate(excludes = Execution.class)
+	private final Statement delegate;
+
+	private final JdbcMetrics metrics;
+
+	private String batchSql;
+
+	@Override
+	public ResultSet executeQuery(final String sql) throws SQLException {
+		final long start = System.nanoTime();
+		final ResultSet resultSet = delegate.executeQuery(sql);
+		return CountingResultSet.wrap(resultSet, metrics.recordQuery(sql, start));
+	}
+
+	@Override
+	public int executeUpdate(final String sql) throws SQLException {
+		final long start = System.nanoTime();
+		final int rows = delegate.executeUpdate(sql);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public int executeUpdate(final String sql, final int autoGeneratedKeys) throws SQLException {
+		final long start = System.nanoTime();
+		final int rows = delegate.executeUpdate(sql, autoGeneratedKeys);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public int executeUpdate(final String sql, final int[] columnIndexes) throws SQLException {
+		final long start = System.nanoTime();
+		final int rows = delegate.executeUpdate(sql, columnIndexes);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public int executeUpdate(final String sql, final String[] columnNames) throws SQLException {
+		final long start = System.nanoTime();
+		final int rows = delegate.executeUpdate(sql, columnNames);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public long executeLargeUpdate(final String sql) throws SQLException {
+		final long start = System.nanoTime();
+		final long rows = delegate.executeLargeUpdate(sql);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public long executeLargeUpdate(final String sql, final int autoGeneratedKeys) throws SQLException {
+		final long start = System.nanoTime();
+		final long rows = delegate.executeLargeUpdate(sql, autoGeneratedKeys);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public long executeLargeUpdate(final String sql, final int[] columnIndexes) throws SQLException {
+		final long start = System.nanoTime();
+		final long rows = delegate.executeLargeUpdate(sql, columnIndexes);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public long executeLargeUpdate(final String sql, final String[] columnNames) throws SQLException {
+		final long start = System.nanoTime();
+		final long rows = delegate.executeLargeUpdate(sql, columnNames);
+		metrics.recordUpdate(sql, start, rows);
+		return rows;
+	}
+
+	@Override
+	public boolean execute(final String sql) throws SQLException {
+		final long start = System.nanoTime();
+		final boolean hasResultSet = delegate.execute(sql);
+		recordExecute(sql, start, hasResultSet);
+		return hasResultSet;
+	}
+
+	@Override
+	public boolean execute(final String sql, final int autoGeneratedKeys) throws SQLException {
+		final long start = System.nanoTime();
+		final boolean hasResultSet = delegate.execute(sql, autoGeneratedKeys);
+		recordExecute(sql, start, hasResultSet);
+		return hasResultSet;
+	}
+
+	@Override
+	public boolean execute(final String sql, final int[] columnIndexes) throws SQLException {
+		final long start = System.nanoTime();
+		final boolean hasResultSet = delegate.execute(sql, columnIndexes);
+		recordExecute(sql, start, hasResultSet);
+		return hasResultSet;
+	}
+
+	@Override
+	public boolean execute(final String sql, final String[] columnNames) throws SQLException {
+		final long start = System.nanoTime();
+		final boolean hasResultSet = delegate.execute(sql, columnNames);
+		recordExecute(sql, start, hasResultSet);
+		return hasResultSet;
+	}
+
+	@Override
+	public void addBatch(final String sql) throws SQLException {
+		delegate.addBatch(sql);
+		if (batchSql == null) {
+			batchSql = sql;
+		}
+	}
+
+	@Override
+	public void clearBatch() throws SQLException {
+		delegate.clearBatch();
+		batchSql = null;
+	}
+
+	@Override
+	public int[] executeBatch() throws SQLException {
+		final long start = System.nanoTime();
+		final int[] counts = delegate.executeBatch();
+		metrics.recordUpdate(batchSqlOrOther(), start, sum(counts));
+		batchSql = null;
+		return counts;
+	}
+
+	@Override
+	public long[] executeLargeBatch() throws SQLException {
+		final long start = System.nanoTime();
+		final long[] counts = delegate.executeLargeBatch();
+		metrics.recordUpdate(batchSqlOrOther(), start, sum(counts));
+		batchSql = null;
+		return counts;
+	}
+
+	private void recordExecute(final String sql, final long start, final boolean hasResultSet)
+			throws SQLException {
+		if (hasResultSet) {
+			metrics.recordQuery(sql, start);
+		} else {
+			metrics.recordUpdate(sql, start, delegate.getUpdateCount());
+		}
+	}
+
+	private String batchSqlOrOther() {
+		return batchSql != null ? batchSql : JdbcMetrics.OTHER;
+	}
+
+	/**
+	 * バッチの更新件数の合計。件数が不明（{@link Statement#SUCCESS_NO_INFO}）な文を含む場合は -1。
+	 */
+	static long sum(final int[] counts) {
+		long sum = 0;
+		for (int count : counts) {
+			if (count < 0) {
+				return -1;
+			}
+			sum += count;
+		}
+		return sum;
+	}
+
+	static long sum(final long[] counts) {
+		long sum = 0;
+		for (long count : counts) {
+			if (count < 0) {
+				return -1;
+			}
+			sum += count;
+		}
+		return sum;
+	}
+
+	/**
+	 * 記録のために置き換えるメソッド。
+	 */
+	private interface Execution {
+
+		ResultSet executeQuery(String sql) throws SQLException;
+
+		int executeUpdate(String sql) throws SQLException;
+
+		int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException;
+
+		int executeUpdate(String sql, int[] columnIndexes) throws SQLException;
+
+		int executeUpdate(String sql, String[] columnNames) throws SQLException;
+
+		long executeLargeUpdate(String sql) throws SQLException;
+
+		long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException;
+
+		long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException;
+
+		long executeLargeUpdate(String sql, String[] columnNames) throws SQLException;
+
+		boolean execute(String sql) throws SQLException;
+
+		boolean execute(String sql, int autoGeneratedKeys) throws SQLException;
+
+		boolean execute(String sql, int[] columnIndexes) throws SQLException;
+
+		boolean execute(String sql, String[] columnNames) throws SQLException;
+
+		void addBatch(String sql) throws SQLException;
+
+		void clearBatch() throws SQLException;
+
+		int[] executeBatch() throws SQLException;
+
+		long[] executeLargeBatch() throws SQLException;
+	}
+}
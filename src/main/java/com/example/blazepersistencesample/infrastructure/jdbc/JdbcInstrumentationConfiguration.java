@@ -0,0 +1,68 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+/**
+ * データ ソースを {@link InstrumentedDataSource} で包み、JDBC の実行を Micrometer に記録する。
+ * <p>
+ * {@code blaze-persistence-sample.jdbc.instrumentation.enabled=false} で無効にすると、データ ソースは包まれず、
+ * 記録のための処理は一切実行されない。
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "blaze-persistence-sample.jdbc.instrumentation.enabled", matchIfMissing = true)
+public class JdbcInstrumentationConfiguration {
+
+	private static final String PREFIX = "blaze-persistence-sample.jdbc.instrumentation.";
+
+	private static final String SLOW_QUERY_ENABLED = "blaze-persistence-sample.slow-query.enabled";
+
+	private static final String CAPTURE_PARAMETERS = "blaze-persistence-sample.slow-query.capture-parameters";
+
+	/**
+	 * {@link BeanPostProcessor} はプレースホルダーの解決より先に作られることがあるため、設定は包むときに {@link Environment} から読む。
+	 * {@link SlowQueryListener}（{@link SlowQueryDetector}）はデータ ソースに依存するため、最初の遅いクエリーで取得する。
+	 * パラメーターは、すべての準備済みの文で値を保持する負荷がかかるため、{@link SlowQueryDetector} が有効で、
+	 * {@code blaze-persistence-sample.slow-query.capture-parameters=true} のときだけ保持する。保持しなければ
+	 * 遅いクエリーの実行計画は取得されない。
+	 */
+	@Bean
+	public static BeanPostProcessor instrumentedDataSourcePostProcessor(
+			final ObjectProvider<MeterRegistry> meterRegistry, final ObjectProvider<SlowQueryListener> slowQueryListener,
+			final Environment environment) {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+				if (!(bean instanceof DataSource) || bean instanceof InstrumentedDataSource) {
+					return bean;
+				}
+				final Binder binder = Binder.get(environment);
+				// @formatter:off
+				final JdbcMetrics metrics = new JdbcMetrics(
+						meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+						binder.bind(PREFIX + "sample-rate", Double.class).orElse(1.0),
+						binder.bind(PREFIX + "slow-query-threshold", Duration.class).orElse(Duration.ofSeconds(1)),
+						binder.bind(PREFIX + "max-query-shapes", Integer.class).orElse(500),
+						binder.bind(SLOW_QUERY_ENABLED, Boolean.class).orElse(true)
+								&& binder.bind(CAPTURE_PARAMETERS, Boolean.class).orElse(false),
+						() -> slowQueryListener.getIfAvailable(() -> SlowQueryListener.NONE),
+						binder.bind(PREFIX + "percentile-histogram", Boolean.class).orElse(false));
+				// @formatter:on
+				return new InstrumentedDataSource((DataSource) bean, metrics);
+			}
+		};
+	}
+}
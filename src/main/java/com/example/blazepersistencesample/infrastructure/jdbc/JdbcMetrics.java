@@ -0,0 +1,303 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JDBC の実行時間・件数とコネクションの取得時間を、Micrometer に記録する。
+ * <p>
+ * 実行時間は SQL 文字列（クエリーの形）ごとに {@value #QUERY} に、取得・更新した行数は {@value #ROWS} に記録する。
+ * どちらも {@code sampleRate} の割合の実行だけを記録する。パーセンタイルのヒストグラムは形ごとに数十のバケットを作るため、
+ * {@code percentileHistogram} を指定したときだけ公開する。実行時間が {@code slowQueryThreshold} 以上のクエリーは、
+ * 抽出に関係なく {@value #SLOW_QUERIES} に数え、警告として出力して {@link SlowQueryListener} に通知する。
+ * <p>
+ * クエリーの形は SQL 文字列そのもので、Hibernate が生成する SQL はパラメーターが {@code ?} のため形ごとに 1 つになる。
+ * タグ {@value #SQL_ID} には、空白をまとめた SQL 全体のハッシュ値（{@link #sqlIdOf(String)}）を付け、SQL そのものは
+ * {@link #queryShapes()} とデバッグ ログで引けるようにする。リテラルを埋め込んだ SQL で形が増え続けないよう、
+ * {@code maxQueryShapes} を超えた形はまとめて {@value #OTHER} として記録する。
+ * 実行時の処理は文字列をキーにしたメーターの検索と {@link System#nanoTime()} だけで、オブジェクトを割り当てない。
+ */
+@Slf4j
+public class JdbcMetrics {
+
+	public static final String QUERY = "jdbc.query";
+
+	public static final String ROWS = "jdbc.query.rows";
+
+	public static final String SLOW_QUERIES = "jdbc.query.slow";
+
+	public static final String CONNECTION_ACQUIRE = "jdbc.connection.acquire";
+
+	/** クエリーの形を表すタグ */
+	public static final String SQL_ID = "sql.id";
+
+	/** 上限を超えたクエリーの形の、{@value #SQL_ID} タグの値 */
+	public static final String OTHER = "other";
+
+	/** {@value #SQL_ID} に使う、SHA-256 の先頭のバイト数 */
+	private static final int SQL_ID_BYTES = 8;
+
+	private final MeterRegistry registry;
+
+	private final double sampleRate;
+
+	private final long slowQueryThresholdNanos;
+
+	private final int maxQueryShapes;
+
+	private final boolean captureParameters;
+
+	private final boolean percentileHistogram;
+
+	private final Supplier<? extends SlowQueryListener> slowQueryListener;
+
+	private final Timer connectionAcquire;
+
+	private final Map<String, QueryShape> shapes = new ConcurrentHashMap<>();
+
+	private final QueryShape otherShape;
+
+	/**
+	 * @param sampleRate 実行時間・行数を記録する実行の割合（0～1）
+	 * @param slowQueryThreshold この時間以上かかったクエリーを遅いクエリーとする
+	 * @param maxQueryShapes 個別に記録するクエリーの形の上限
+	 */
+	public JdbcMetrics(final MeterRegistry registry, final double sampleRate, final Duration slowQueryThreshold,
+			final int maxQueryShapes) {
+		this(registry, sampleRate, slowQueryThreshold, maxQueryShapes, false, () -> SlowQueryListener.NONE, false);
+	}
+
+	/**
+	 * @param captureParameters 準備済みの文に設定されたパラメーターを保持して、{@code slowQueryListener} に渡すか
+	 * @param slowQueryListener 最初の遅いクエリーで 1 度だけ呼ばれ、以降は同じ通知先を使う
+	 * @param percentileHistogram 実行時間のパーセンタイルのヒストグラムを公開するか
+	 */
+	public JdbcMetrics(final MeterRegistry registry, final double sampleRate, final Duration slowQueryThreshold,
+			final int maxQueryShapes, final boolean captureParameters,
+			final Supplier<? extends SlowQueryListener> slowQueryListener, final boolean percentileHistogram) {
+		if (sampleRate < 0 || sampleRate > 1) {
+			throw new IllegalArgumentException("sampleRate must be between 0 and 1: " + sampleRate);
+		}
+		if (maxQueryShapes <= 0) {
+			throw new IllegalArgumentException("maxQueryShapes must be positive: " + maxQueryShapes);
+		}
+		this.registry = registry;
+		this.sampleRate = sampleRate;
+		this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+		this.maxQueryShapes = maxQueryShapes;
+		this.captureParameters = captureParameters;
+		this.percentileHistogram = percentileHistogram;
+		this.slowQueryListener = new Supplier<SlowQueryListener>() {
+
+			private volatile SlowQueryListener listener;
+
+			@Override
+			public SlowQueryListener get() {
+				if (listener == null) {
+					listener = slowQueryListener.get();
+				}
+				return listener;
+			}
+		};
+		// @formatter:off
+		this.connectionAcquire = Timer.builder(CONNECTION_ACQUIRE)
+				.description("Time to acquire a JDBC connection from the data source")
+				.register(registry);
+		// @formatter:on
+		this.otherShape = new QueryShape(OTHER, OTHER, OTHER);
+	}
+
+	void recordAcquisition(final long startNanos) {
+		connectionAcquire.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+	}
+
+	boolean isCapturingParameters() {
+		return captureParameters;
+	}
+
+	QueryShape recordQuery(final String sql, final long startNanos) {
+		return recordQuery(sql, startNanos, null);
+	}
+
+	/**
+	 * 結果セットを返すクエリーの実行時間を記録する。
+	 *
+	 * @param parameters 設定されたパラメーター。取得していなければ {@code null}
+	 * @return 抽出された実行であれば、取得した行数の記録先。抽出されなければ {@code null}
+	 */
+	QueryShape recordQuery(final String sql, final long startNanos, final Object[] parameters) {
+		final long elapsed = System.nanoTime() - startNanos;
+		final boolean sampled = isSampled();
+		if (!sampled && elapsed < slowQueryThresholdNanos) {
+			return null;
+		}
+
+		final QueryShape shape = shapeOf(sql);
+		if (elapsed >= slowQueryThresholdNanos) {
+			shape.slowQueries.increment();
+			log.warn("Slow query ({} ms): {}", TimeUnit.NANOSECONDS.toMillis(elapsed), sql);
+			notifySlowQuery(sql, elapsed, parameters);
+		}
+		if (!sampled) {
+			return null;
+		}
+		shape.timer.record(elapsed, TimeUnit.NANOSECONDS);
+		return shape;
+	}
+
+	private void notifySlowQuery(final String sql, final long elapsed, final Object[] parameters) {
+		try {
+			slowQueryListener.get().onSlowQuery(sql, elapsed, parameters);
+		} catch (RuntimeException e) {
+			log.warn("Failed to notify slow query: {}", sql, e);
+		}
+	}
+
+	/**
+	 * 更新の実行時間と、更新した行数を記録する。
+	 */
+	void recordUpdate(final String sql, final long startNanos, final long rows) {
+		recordUpdate(sql, startNanos, null, rows);
+	}
+
+	void recordUpdate(final String sql, final long startNanos, final Object[] parameters, final long rows) {
+		final QueryShape shape = recordQuery(sql, startNanos, parameters);
+		if (shape != null) {
+			shape.recordRows(rows);
+		}
+	}
+
+	/**
+	 * 個別に記録しているクエリーの形の数。
+	 */
+	public int queryShapeCount() {
+		return shapes.size();
+	}
+
+	/**
+	 * 個別に記録しているクエリーの形の、{@value #SQL_ID} タグの値から、空白をまとめた SQL を引く。
+	 */
+	public Map<String, String> queryShapes() {
+		final Map<String, String> sqlById = new HashMap<>();
+		shapes.values().forEach(shape -> sqlById.put(shape.sqlId, shape.sql));
+		return sqlById;
+	}
+
+	/**
+	 * SQL の空白をまとめ、SHA-256 の先頭 {@value #SQL_ID_BYTES} バイトを 16 進数にする。
+	 */
+	public static String sqlIdOf(final String sql) {
+		final byte[] digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256").digest(normalize(sql).getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			// すべての Java 実装が SHA-256 を提供する
+			throw new IllegalStateException(e);
+		}
+		final StringBuilder sqlId = new StringBuilder(SQL_ID_BYTES * 2);
+		for (int i = 0; i < SQL_ID_BYTES; i++) {
+			sqlId.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+		}
+		return sqlId.toString();
+	}
+
+	private boolean isSampled() {
+		return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+	}
+
+	private QueryShape shapeOf(final String sql) {
+		final QueryShape shape = shapes.get(sql);
+		if (shape != null) {
+			return shape;
+		}
+		if (shapes.size() >= maxQueryShapes) {
+			return otherShape;
+		}
+		return shapes.computeIfAbsent(sql, key -> {
+			final QueryShape created = new QueryShape(sqlIdOf(key), normalize(key), operationOf(key));
+			log.debug("Query shape {}: {}", created.sqlId, created.sql);
+			return created;
+		});
+	}
+
+	private static String normalize(final String sql) {
+		return sql.trim().replaceAll("\\s+", " ");
+	}
+
+	private static String operationOf(final String sql) {
+		final String trimmed = sql.trim();
+		final int end = trimmed.indexOf(' ');
+		final String keyword = (end < 0 ? trimmed : trimmed.substring(0, end)).toLowerCase(Locale.ROOT);
+		switch (keyword) {
+		case "select":
+		case "with":
+		case "insert":
+		case "update":
+		case "delete":
+		case "merge":
+			return keyword;
+		default:
+			return OTHER;
+		}
+	}
+
+	/**
+	 * クエリーの形 1 つ分のメーター。
+	 */
+	final class QueryShape {
+
+		private final String sqlId;
+
+		private final String sql;
+
+		private final Timer timer;
+
+		private final DistributionSummary rows;
+
+		private final Counter slowQueries;
+
+		private QueryShape(final String sqlId, final String sql, final String operation) {
+			this.sqlId = sqlId;
+			this.sql = sql;
+			final Tags tags = Tags.of(SQL_ID, sqlId, "operation", operation);
+			// @formatter:off
+			this.timer = Timer.builder(QUERY)
+					.description("JDBC statement execution time per query shape")
+					.tags(tags)
+					.publishPercentileHistogram(percentileHistogram)
+					.register(registry);
+			this.rows = DistributionSummary.builder(ROWS)
+					.description("Rows returned or affected per JDBC execution")
+					.baseUnit("rows")
+					.tags(tags)
+					.register(registry);
+			this.slowQueries = Counter.builder(SLOW_QUERIES)
+					.description("JDBC executions slower than the slow query threshold")
+					.tags(tags)
+					.register(registry);
+			// @formatter:on
+		}
+
+		void recordRows(final long count) {
+			if (count >= 0) {
+				rows.record(count);
+			}
+		}
+	}
+}
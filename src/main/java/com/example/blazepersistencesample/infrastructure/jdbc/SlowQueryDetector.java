@@ -0,0 +1,258 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 遅いクエリーを SQL（クエリーの形）ごとに集計し、実行計画（{@code EXPLAIN}）を取得する。
+ * <p>
+ * 通知を受けたスレッドではパラメーターを複製して専用のスレッドに渡すだけで、集計と {@code EXPLAIN} は専用のスレッドで行う。
+ * 専用のスレッドが追いつかず待ち行列があふれた通知は捨て、{@link #droppedCount()} に数える。
+ * <p>
+ * {@code EXPLAIN} を実行するのは、H2・PostgreSQL に対する {@code SELECT}（{@code WITH}）だけで、記録の対象にならないよう
+ * {@link InstrumentedDataSource} の内側のデータ ソースで実行する。パラメーターはクエリーと同じ値を設定するため、
+ * 値を再現できないパラメーターがあるか、パラメーターを保持していなければ（{@code slow-query.capture-parameters}）
+ * 実行計画は取得しない。同じ形の実行計画は {@code explainInterval} に 1 度だけ取得し直す。
+ * 集計結果のパラメーターは値を伏せて型だけを保持する。
+ */
+@Component
+@ConditionalOnProperty(name = "blaze-persistence-sample.slow-query.enabled", matchIfMissing = true)
+@Slf4j
+public class SlowQueryDetector implements SlowQueryListener, DisposableBean {
+
+	private final DataSource dataSource;
+
+	private final Duration explainInterval;
+
+	private final int maxQueryShapes;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private Clock clock = Clock.systemUTC();
+
+	private volatile Boolean explainSupported;
+
+	@Autowired
+	public SlowQueryDetector(final DataSource dataSource,
+			@Value("${blaze-persistence-sample.slow-query.explain-interval:10m}") final Duration explainInterval,
+			@Value("${blaze-persistence-sample.slow-query.max-query-shapes:100}") final int maxQueryShapes,
+			@Value("${blaze-persistence-sample.slow-query.queue-capacity:100}") final int queueCapacity) {
+		if (maxQueryShapes <= 0) {
+			throw new IllegalArgumentException("maxQueryShapes must be positive: " + maxQueryShapes);
+		}
+		this.dataSource = dataSource instanceof InstrumentedDataSource
+				? ((InstrumentedDataSource) dataSource).getTargetDataSource()
+				: dataSource;
+		this.explainInterval = explainInterval;
+		this.maxQueryShapes = maxQueryShapes;
+		// @formatter:off
+		this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				new CustomizableThreadFactory("slow-query-explain-"),
+				(task, executor) -> dropped.incrementAndGet());
+		// @formatter:on
+	}
+
+	SlowQueryDetector(final DataSource dataSource, final Duration explainInterval, final int maxQueryShapes,
+			final int queueCapacity, final Clock clock) {
+		this(dataSource, explainInterval, maxQueryShapes, queueCapacity);
+		this.clock = clock;
+	}
+
+	@Override
+	public void onSlowQuery(final String sql, final long elapsedNanos, final Object[] parameters) {
+		final Object[] copied = parameters == null ? null : Arrays.copyOf(parameters, parameters.length);
+		final Instant seenAt = clock.instant();
+		executor.execute(() -> record(sql, elapsedNanos, copied, seenAt));
+	}
+
+	/**
+	 * 合計の実行時間が長い順に、上位 {@code limit} 件の形の集計結果を返す。
+	 */
+	public List<SlowQuerySummary> topOffenders(final int limit) {
+		// @formatter:off
+		return entries.values().stream()
+				.sorted(Comparator.comparingLong(Entry::getTotalNanos).reversed())
+				.limit(limit)
+				.map(Entry::toSummary)
+				.collect(Collectors.toList());
+		// @formatter:on
+	}
+
+	/**
+	 * 待ち行列があふれて捨てた通知の数。
+	 */
+	public long droppedCount() {
+		return dropped.get();
+	}
+
+	public void reset() {
+		executor.execute(entries::clear);
+	}
+
+	/**
+	 * それまでに受けた通知の処理が終わるまで待つ。
+	 */
+	void awaitIdle() throws InterruptedException, ExecutionException, TimeoutException {
+		executor.submit(() -> {
+		}).get(10, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 専用のスレッドだけで呼ばれる。
+	 */
+	private void record(final String sql, final long elapsedNanos, final Object[] parameters, final Instant seenAt) {
+		Entry entry = entries.get(sql);
+		if (entry == null) {
+			if (entries.size() >= maxQueryShapes) {
+				evictLeastTotal();
+			}
+			entry = new Entry(sql);
+			entries.put(sql, entry);
+		}
+		entry.record(elapsedNanos, CapturedParameters.redact(parameters), seenAt);
+
+		if (isExplainable(sql) && entry.isPlanStale(seenAt)) {
+			entry.plan = explain(sql, parameters);
+			entry.planCapturedAt = seenAt;
+		}
+	}
+
+	private void evictLeastTotal() {
+		// @formatter:off
+		entries.values().stream()
+				.min(Comparator.comparingLong(Entry::getTotalNanos))
+				.ifPresent(least -> entries.remove(least.sql));
+		// @formatter:on
+	}
+
+	private boolean isExplainable(final String sql) {
+		final String head = sql.trim().toLowerCase(Locale.ROOT);
+		return (head.startsWith("select") || head.startsWith("with")) && isExplainSupported();
+	}
+
+	private boolean isExplainSupported() {
+		if (explainSupported == null) {
+			try (Connection connection = dataSource.getConnection()) {
+				final String product = connection.getMetaData().getDatabaseProductName();
+				explainSupported = "H2".equals(product) || "PostgreSQL".equals(product);
+			} catch (SQLException e) {
+				log.warn("Failed to determine database product for EXPLAIN", e);
+				return false;
+			}
+		}
+		return explainSupported;
+	}
+
+	private String explain(final String sql, final Object[] parameters) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+			final int count = statement.getParameterMetaData().getParameterCount();
+			if (!CapturedParameters.isReplayable(parameters, count)) {
+				log.debug("Skip EXPLAIN because parameters were not captured: {}", sql);
+				return null;
+			}
+			CapturedParameters.bind(statement, parameters, count);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				final StringJoiner plan = new StringJoiner("\n");
+				while (resultSet.next()) {
+					plan.add(resultSet.getString(1));
+				}
+				return plan.toString();
+			}
+		} catch (SQLException e) {
+			log.warn("Failed to EXPLAIN slow query: {}", sql, e);
+			return null;
+		}
+	}
+
+	/**
+	 * 形 1 つ分の集計。専用のスレッドだけが更新する。
+	 */
+	private final class Entry {
+
+		private final String sql;
+
+		private volatile long count;
+
+		private volatile long totalNanos;
+
+		private volatile long maxNanos;
+
+		private volatile Instant lastSeen;
+
+		private volatile List<String> parameters;
+
+		private volatile String plan;
+
+		private volatile Instant planCapturedAt;
+
+		private Entry(final String sql) {
+			this.sql = sql;
+		}
+
+		private void record(final long elapsedNanos, final List<String> redacted, final Instant seenAt) {
+			count++;
+			totalNanos += elapsedNanos;
+			maxNanos = Math.max(maxNanos, elapsedNanos);
+			lastSeen = seenAt;
+			parameters = redacted;
+		}
+
+		private boolean isPlanStale(final Instant now) {
+			return planCapturedAt == null || !planCapturedAt.plus(explainInterval).isAfter(now);
+		}
+
+		private long getTotalNanos() {
+			return totalNanos;
+		}
+
+		private SlowQuerySummary toSummary() {
+			// @formatter:off
+			return new SlowQuerySummary(sql, count,
+					TimeUnit.NANOSECONDS.toMillis(totalNanos),
+					TimeUnit.NANOSECONDS.toMillis(maxNanos),
+					lastSeen, parameters, plan);
+			// @formatter:on
+		}
+	}
+}
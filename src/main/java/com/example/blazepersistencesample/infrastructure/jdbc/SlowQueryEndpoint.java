@@ -0,0 +1,36 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 遅いクエリーの上位を {@code /actuator/slowqueries} で返す。{@code DELETE} で集計を消去する。
+ */
+@Component
+@ConditionalOnProperty(name = "blaze-persistence-sample.slow-query.enabled", matchIfMissing = true)
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+
+	private static final int DEFAULT_LIMIT = 10;
+
+	private final SlowQueryDetector detector;
+
+	@ReadOperation
+	public List<SlowQuerySummary> slowQueries(@Nullable final Integer limit) {
+		return detector.topOffenders(limit != null ? limit : DEFAULT_LIMIT);
+	}
+
+	@DeleteOperation
+	public void reset() {
+		detector.reset();
+	}
+}
@@ -0,0 +1,17 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+/**
+ * しきい値以上かかったクエリーの通知を受ける。クエリーを実行したスレッドで呼ばれるため、時間のかかる処理は別のスレッドで行う。
+ */
+@FunctionalInterface
+public interface SlowQueryListener {
+
+	SlowQueryListener NONE = (sql, elapsedNanos, parameters) -> {
+	};
+
+	/**
+	 * @param parameters 設定されたパラメーター（添字 0 が 1 番目）。取得していなければ {@code null}。
+	 *            呼び出し後に文の実行に再利用されるため、保持する場合は複製する
+	 */
+	void onSlowQuery(String sql, long elapsedNanos, Object[] parameters);
+}
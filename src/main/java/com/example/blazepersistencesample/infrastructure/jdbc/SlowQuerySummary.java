@@ -0,0 +1,29 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import java.time.Instant;
+import java.util.List;
+
+import lombok.Value;
+
+/**
+ * 遅いクエリーの、形ごとの集計結果。
+ */
+@Value
+public class SlowQuerySummary {
+
+	String sql;
+
+	long count;
+
+	long totalTimeMillis;
+
+	long maxTimeMillis;
+
+	Instant lastSeen;
+
+	/** 直近の実行のパラメーターの型（値は伏せる） */
+	List<String> parameters;
+
+	/** 実行計画。取得できなければ {@code null} */
+	String plan;
+}
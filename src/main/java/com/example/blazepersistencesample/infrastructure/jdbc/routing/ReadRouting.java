@@ -0,0 +1,53 @@
+package com.example.blazepersistencesample.infrastructure.jdbc.routing;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 読み取り専用トランザクションのクエリーが、どれだけ古いレプリカを読んでよいかの指定。
+ * <p>
+ * 指定はスレッドごとで、コネクションを取得する時点（トランザクションの最初のクエリー）に有効なものが使われる。
+ * 指定がなければ {@code blaze-persistence-sample.datasource.max-staleness} に従う。
+ */
+public final class ReadRouting {
+
+	private static final ThreadLocal<Duration> MAX_STALENESS = new ThreadLocal<>();
+
+	private ReadRouting() {
+	}
+
+	/**
+	 * 遅延が {@code maxStaleness} 以下のレプリカを読んでよいとして {@code action} を実行する。
+	 * 0 以下であれば、読み取り専用トランザクションでもプライマリーを読む。
+	 */
+	public static <T> T withMaxStaleness(final Duration maxStaleness, final Supplier<T> action) {
+		Objects.requireNonNull(maxStaleness, "maxStaleness");
+
+		final Duration previous = MAX_STALENESS.get();
+		MAX_STALENESS.set(maxStaleness);
+		try {
+			return action.get();
+		} finally {
+			if (previous == null) {
+				MAX_STALENESS.remove();
+			} else {
+				MAX_STALENESS.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * 直前の書き込みを必ず読む必要がある読み取りを、プライマリーで実行する。
+	 */
+	public static <T> T primary(final Supplier<T> action) {
+		return withMaxStaleness(Duration.ZERO, action);
+	}
+
+	/**
+	 * @return 指定がなければ {@code null}
+	 */
+	static Duration currentMaxStaleness() {
+		return MAX_STALENESS.get();
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.blazepersistencesample.infrastructure.jdbc.routing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * {@code blaze-persistence-sample.datasource.replica-urls} にレプリカが指定されていれば、データ ソースを
+ * {@link ReadWriteRoutingDataSource} にして、読み取り専用トランザクションをレプリカで実行する。
+ * <p>
+ * プライマリーは {@code spring.datasource.*} の設定で作る。レプリカのユーザー名とパスワードはプライマリーと同じで、
+ * プールは {@code replica-pool-size} ごとに読み取り専用で作る。起動時にレプリカに接続できなくても失敗せず、
+ * 接続できるまでプライマリーを読む。コンテキストの終了時には、すべてのプールを閉じる。
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "blaze-persistence-sample.datasource.replica-urls")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReadWriteRoutingConfiguration {
+
+	@Bean
+	public DataSource dataSource(final DataSourceProperties properties, final Environment environment,
+			final ObjectProvider<ReplicationLagProbe> lagProbe,
+			@Value("${blaze-persistence-sample.datasource.replica-urls}") final String[] replicaUrls,
+			@Value("${blaze-persistence-sample.datasource.replica-pool-size:10}") final int replicaPoolSize,
+			@Value("${blaze-persistence-sample.datasource.max-staleness:5s}") final Duration maxStaleness,
+			@Value("${blaze-persistence-sample.datasource.lag-check-interval:1s}") final Duration lagCheckInterval,
+			@Value("${blaze-persistence-sample.datasource.retry-interval:10s}") final Duration retryInterval) {
+		final HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+		final List<Replica> replicas = new ArrayList<>(replicaUrls.length);
+		for (int i = 0; i < replicaUrls.length; i++) {
+			final String url = replicaUrls[i].trim();
+			final String name = "replica-" + (i + 1);
+
+			final HikariDataSource replica = new HikariDataSource();
+			replica.setPoolName(name);
+			replica.setJdbcUrl(url);
+			replica.setUsername(properties.determineUsername());
+			replica.setPassword(properties.determinePassword());
+			replica.setMaximumPoolSize(replicaPoolSize);
+			replica.setReadOnly(true);
+			replica.setInitializationFailTimeout(-1);
+
+			// @formatter:off
+			replicas.add(new Replica(name, replica,
+					lagProbe.getIfAvailable(() -> ReplicationLagProbe.forUrl(url)),
+					lagCheckInterval, retryInterval));
+			// @formatter:on
+		}
+		return new ReadWriteRoutingDataSource(primary, replicas, maxStaleness);
+	}
+}
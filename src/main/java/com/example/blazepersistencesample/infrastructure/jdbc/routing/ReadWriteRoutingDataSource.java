@@ -0,0 +1,145 @@
+package com.example.blazepersistencesample.infrastructure.jdbc.routing;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 読み取り専用トランザクションのコネクションをレプリカから、それ以外をプライマリーから取得する。
+ * <p>
+ * トランザクションが読み取り専用かは開始した後でないと分からないため、実際のコネクションは最初のクエリーまで取得しない
+ * （{@link LazyConnectionDataSourceProxy}）。レプリカは順番に使い、障害中のものと、遅延が許容範囲
+ * （{@link ReadRouting} の指定、なければ {@code defaultMaxStaleness}）を超えたものは飛ばす。
+ * 使えるレプリカがなければプライマリーから取得する。
+ * <p>
+ * レプリカの遅延は、ルーティングするスレッドではなく、専用のスレッドで各レプリカの {@code lagCheckInterval} ごとに調べる。
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+	private final Router router;
+
+	private final ScheduledExecutorService lagChecker;
+
+	public ReadWriteRoutingDataSource(final DataSource primary, final List<Replica> replicas,
+			final Duration defaultMaxStaleness) {
+		this(new Router(primary, new ArrayList<>(replicas), defaultMaxStaleness));
+	}
+
+	private ReadWriteRoutingDataSource(final Router router) {
+		super(router);
+		this.router = router;
+
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("replica-lag-");
+		threadFactory.setDaemon(true);
+		this.lagChecker = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		for (Replica replica : router.replicas) {
+			final long interval = Math.max(1, replica.getLagCheckInterval().toMillis());
+			lagChecker.scheduleWithFixedDelay(replica::checkLag, 0, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public DataSource getPrimary() {
+		return router.primary;
+	}
+
+	public List<Replica> getReplicas() {
+		return router.replicas;
+	}
+
+	/**
+	 * すべてのレプリカの遅延を、呼び出したスレッドですぐに調べ直す。
+	 */
+	public void checkReplicas() {
+		router.replicas.forEach(Replica::checkLag);
+	}
+
+	/**
+	 * 遅延の調査を止め、プライマリーとレプリカのデータ ソースのうち、{@link Closeable} なもの（コネクション プール）を閉じる。
+	 */
+	@Override
+	public void close() {
+		lagChecker.shutdownNow();
+		closeIfPossible(router.primary);
+		router.replicas.forEach(replica -> closeIfPossible(replica.getDataSource()));
+	}
+
+	private static void closeIfPossible(final DataSource dataSource) {
+		if (dataSource instanceof Closeable) {
+			try {
+				((Closeable) dataSource).close();
+			} catch (Exception e) {
+				// 閉じられなくても、ほかのデータ ソースは閉じる
+			}
+		}
+	}
+
+	@Slf4j
+	private static final class Router extends AbstractDataSource {
+
+		private final DataSource primary;
+
+		private final List<Replica> replicas;
+
+		private final Duration defaultMaxStaleness;
+
+		private final AtomicInteger next = new AtomicInteger();
+
+		private Router(final DataSource primary, final List<Replica> replicas, final Duration defaultMaxStaleness) {
+			this.primary = primary;
+			this.replicas = replicas;
+			this.defaultMaxStaleness = defaultMaxStaleness;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+				return primary.getConnection();
+			}
+
+			final Duration hint = ReadRouting.currentMaxStaleness();
+			final Duration maxStaleness = hint != null ? hint : defaultMaxStaleness;
+			if (maxStaleness.isNegative() || maxStaleness.isZero()) {
+				return primary.getConnection();
+			}
+
+			final int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+			for (int i = 0; i < replicas.size(); i++) {
+				final Replica replica = replicas.get((start + i) % replicas.size());
+				if (!replica.isAvailable(maxStaleness)) {
+					continue;
+				}
+				try {
+					return replica.getConnection();
+				} catch (SQLException e) {
+					// 障害中として記録済み。次のレプリカを試す
+				}
+			}
+			log.debug("No replica within {} is available, reading from the primary", maxStaleness);
+			return primary.getConnection();
+		}
+
+		/**
+		 * レプリカのプールはプライマリーのユーザーで作るため、ユーザーを指定したコネクションは常にプライマリーから取得する。
+		 */
+		@Override
+		public Connection getConnection(final String username, final String password) throws SQLException {
+			return primary.getConnection(username, password);
+		}
+	}
+}
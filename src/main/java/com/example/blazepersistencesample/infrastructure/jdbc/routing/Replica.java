@@ -0,0 +1,91 @@
+package com.example.blazepersistencesample.infrastructure.jdbc.routing;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * レプリカ 1 つ分のデータ ソースと、直近に調べた遅延・障害の状態。
+ * <p>
+ * 遅延は {@link ReadWriteRoutingDataSource} が {@code lagCheckInterval} ごとにバックグラウンドで調べ、ルーティングでは
+ * 直近に調べた結果だけを読む。まだ一度も調べていないレプリカは使わない。コネクションを取得できなかったレプリカは、
+ * {@code retryInterval} の間は使わず、その後の遅延の調査で復旧を確かめる。
+ */
+@Slf4j
+public class Replica {
+
+	@Getter
+	private final String name;
+
+	@Getter
+	private final DataSource dataSource;
+
+	private final ReplicationLagProbe lagProbe;
+
+	@Getter(AccessLevel.PACKAGE)
+	private final Duration lagCheckInterval;
+
+	private final long retryIntervalNanos;
+
+	private volatile Duration lag = Duration.ZERO;
+
+	private volatile boolean lagChecked;
+
+	private volatile long downUntil;
+
+	private volatile boolean down;
+
+	public Replica(final String name, final DataSource dataSource, final ReplicationLagProbe lagProbe,
+			final Duration lagCheckInterval, final Duration retryInterval) {
+		this.name = name;
+		this.dataSource = dataSource;
+		this.lagProbe = lagProbe;
+		this.lagCheckInterval = lagCheckInterval;
+		this.retryIntervalNanos = retryInterval.toNanos();
+	}
+
+	/**
+	 * 遅延を調べたことがあり、障害中でなく、遅延が {@code maxStaleness} 以下であれば使える。
+	 */
+	boolean isAvailable(final Duration maxStaleness) {
+		return lagChecked && !down && lag.compareTo(maxStaleness) <= 0;
+	}
+
+	Connection getConnection() throws SQLException {
+		try {
+			return dataSource.getConnection();
+		} catch (SQLException e) {
+			markDown(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * 遅延を調べ直す。障害中は、再試行の間隔が過ぎるまで調べない。
+	 */
+	void checkLag() {
+		if (down && System.nanoTime() - downUntil < 0) {
+			return;
+		}
+		try (Connection connection = dataSource.getConnection()) {
+			lag = lagProbe.lagOf(connection);
+			down = false;
+		} catch (SQLException | RuntimeException e) {
+			// スケジューラーで繰り返し調べるため、例外は投げずに障害中として記録する
+			markDown(e);
+		}
+		lagChecked = true;
+	}
+
+	private void markDown(final Exception cause) {
+		log.warn("Replica {} is unavailable for {} ms: {}", name, retryIntervalNanos / 1_000_000, cause.getMessage());
+		downUntil = System.nanoTime() + retryIntervalNanos;
+		down = true;
+	}
+}
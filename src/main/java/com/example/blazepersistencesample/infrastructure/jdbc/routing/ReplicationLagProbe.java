@@ -0,0 +1,40 @@
+package com.example.blazepersistencesample.infrastructure.jdbc.routing;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * レプリカが、プライマリーからどれだけ遅れているかを調べる。
+ */
+@FunctionalInterface
+public interface ReplicationLagProbe {
+
+	/** 遅延を調べる方法がないデータベース（H2 など）。常に遅延なしとする */
+	ReplicationLagProbe NONE = connection -> Duration.ZERO;
+
+	/**
+	 * PostgreSQL のストリーミング レプリケーションで、最後に適用したトランザクションからの経過時間。
+	 * <p>
+	 * 受信した WAL をすべて適用済みなら遅延なしとする（プライマリーで更新がない間も経過時間は増え続けるため）。
+	 * プライマリーとの接続が切れて WAL が届かない遅れは検出できない。
+	 */
+	ReplicationLagProbe POSTGRESQL = connection -> {
+		try (Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("select case"
+						+ " when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+						+ " else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0)"
+						+ " end")) {
+			resultSet.next();
+			return Duration.ofMillis((long) (resultSet.getDouble(1) * 1000));
+		}
+	};
+
+	Duration lagOf(Connection connection) throws SQLException;
+
+	static ReplicationLagProbe forUrl(final String url) {
+		return url != null && url.startsWith("jdbc:postgresql:") ? POSTGRESQL : NONE;
+	}
+}
@@ -12,6 +12,14 @@ import org.springframework.context.annotation.Scope;
 import com.blazebit.persistence.Criteria;
 import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.blazebit.persistence.spi.CriteriaBuilderConfiguration;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViews;
+import com.blazebit.persistence.view.spi.EntityViewConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChangeDispatcher;
+import com.example.blazepersistencesample.infrastructure.jpa.template.QueryTemplateFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatWithKittenCountView;
+import com.example.blazepersistencesample.infrastructure.jpa.view.PersonView;
 
 @Configuration
 public class BlazePersistenceConfiguration {
@@ -27,4 +35,26 @@ public class BlazePersistenceConfiguration {
 
 		return config.createCriteriaBuilderFactory(entityManagerFactory);
 	}
+
+	@Bean
+	@Scope(ConfigurableBeanFactory.SCOPE_SINGLETON)
+	@Lazy(false)
+	public EntityViewManager createEntityViewManager(final CriteriaBuilderFactory cbf) {
+		EntityViewConfiguration config = EntityViews.createDefaultConfiguration();
+		config.addEntityView(CatView.class);
+		config.addEntityView(CatWithKittenCountView.class);
+		config.addEntityView(PersonView.class);
+
+		return config.createEntityViewManager(cbf);
+	}
+
+	@Bean
+	public QueryTemplateFactory queryTemplateFactory(final CriteriaBuilderFactory cbf) {
+		return new QueryTemplateFactory(cbf, entityManagerFactory);
+	}
+
+	@Bean
+	public EntityChangeDispatcher entityChangeDispatcher() {
+		return new EntityChangeDispatcher(entityManagerFactory);
+	}
 }
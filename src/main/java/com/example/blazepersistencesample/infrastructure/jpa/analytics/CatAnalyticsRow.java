@@ -0,0 +1,18 @@
+package com.example.blazepersistencesample.infrastructure.jpa.analytics;
+
+import lombok.Value;
+
+/**
+ * {@link CatColumnarSnapshot} の 1 匹分の列の値。
+ */
+@Value
+public class CatAnalyticsRow {
+
+	long id;
+
+	String name;
+
+	int age;
+
+	int kittenCount;
+}
@@ -0,0 +1,264 @@
+package com.example.blazepersistencesample.infrastructure.jpa.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkModifiedEvent;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChangeDispatcher;
+
+/**
+ * 猫の属性を {@link CatColumnarSnapshot} に読み込み、集計をデータベースに問い合わせずにメモリー上で行う。
+ * <p>
+ * 最初の {@link #refresh()} ではすべての猫を ID 順に読み込む。以降は、エンティティとして登録・更新・削除された猫（コミット後）の
+ * ID だけを記録しておき、次の {@link #refresh()} でその猫だけを読み直して新しいスナップショットを作る。
+ * {@link CatBulkModifiedEvent} では、更新した猫がわかればその猫だけを、わからなければすべて読み込み直す。エンティティを経由しない SQL で猫を変更した場合は反映されない。
+ * <p>
+ * 名前の辞書（{@link NameDictionary}）は追記するだけのため、名前を変更・削除した猫の古い名前は、すべて読み込み直すまで辞書に残る。
+ */
+@Component
+public class CatAnalyticsSnapshotService {
+
+	/** すべて読み込むときに、キーセット ページングで 1 回に読む件数 */
+	private static final int LOAD_CHUNK_SIZE = 10_000;
+
+	/** 変更された猫を読み直すときに、IN 述語 1 つに並べる ID の数 */
+	private static final int IN_LIST_SIZE = 1_000;
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	private final EntityChangeDispatcher dispatcher;
+
+	private final TransactionTemplate readOnlyTx;
+
+	private final Set<Long> changedIds = ConcurrentHashMap.newKeySet();
+
+	private final AtomicBoolean reloadRequired = new AtomicBoolean(true);
+
+	private volatile CatColumnarSnapshot snapshot = CatColumnarSnapshot.EMPTY;
+
+	/** {@link #refresh()} の中でだけ変更する */
+	private NameDictionary names = new NameDictionary();
+
+	public CatAnalyticsSnapshotService(final CriteriaBuilderFactory cbf, final EntityManager em,
+			final EntityChangeDispatcher dispatcher, final PlatformTransactionManager transactionManager) {
+		this.cbf = cbf;
+		this.em = em;
+		this.dispatcher = dispatcher;
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+	}
+
+	@PostConstruct
+	void subscribe() {
+		// 仔猫の匹数の変更は親猫の更新として知らされるため、コレクションの変更では読み直さない
+		dispatcher.subscribe(Collections.singleton(Cat.class), (change, committed) -> {
+			if (committed && !change.isCollection()) {
+				changedIds.add((Long) change.getId());
+			}
+		});
+	}
+
+	/**
+	 * 直近の {@link #refresh()} で作ったスナップショット。まだなければ空。
+	 */
+	public CatColumnarSnapshot current() {
+		return snapshot;
+	}
+
+	/**
+	 * 前回から変更された猫を読み直し、新しいスナップショットを作る。変更がなければ、今のスナップショットを返す。
+	 */
+	public synchronized CatColumnarSnapshot refresh() {
+		if (reloadRequired.getAndSet(false)) {
+			// 読み込み中に変更された猫は、読み込んだ後にも記録が残り、次に読み直される
+			changedIds.clear();
+			snapshot = readOnlyTx.execute(status -> loadAll());
+			return snapshot;
+		}
+
+		final long[] ids = drainChangedIds();
+		if (ids.length > 0) {
+			snapshot = readOnlyTx.execute(status -> merge(snapshot, ids));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * 次の {@link #refresh()} で読み直す、変更された猫の件数。
+	 */
+	public int pendingChanges() {
+		return changedIds.size();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	void onBulkModified(final CatBulkModifiedEvent event) {
+		if (event.isTargeted()) {
+			changedIds.addAll(event.getCatIds());
+			return;
+		}
+		reloadRequired.set(true);
+	}
+
+	private CatColumnarSnapshot loadAll() {
+		names = new NameDictionary();
+
+		final Columns columns = new Columns(LOAD_CHUNK_SIZE);
+		Long lastId = null;
+		while (true) {
+			final CriteriaBuilder<Object[]> query = select();
+			if (lastId != null) {
+				query.where("c.id").gt(lastId);
+			}
+			// @formatter:off
+			final List<Object[]> rows = query
+					.orderByAsc("c.id")
+					.setMaxResults(LOAD_CHUNK_SIZE)
+					.getResultList();
+			// @formatter:on
+			rows.forEach(columns::add);
+			if (rows.size() < LOAD_CHUNK_SIZE) {
+				break;
+			}
+			lastId = (Long) rows.get(rows.size() - 1)[0];
+		}
+		return columns.build();
+	}
+
+	/**
+	 * 今のスナップショットと、読み直した猫を ID 順に突き合わせる。読み直せなかった猫は削除されている。
+	 */
+	private CatColumnarSnapshot merge(final CatColumnarSnapshot current, final long[] ids) {
+		final Map<Long, Object[]> rows = new HashMap<>();
+		for (int from = 0; from < ids.length; from += IN_LIST_SIZE) {
+			final List<Long> chunk = new ArrayList<>(IN_LIST_SIZE);
+			for (int i = from; i < Math.min(ids.length, from + IN_LIST_SIZE); i++) {
+				chunk.add(ids[i]);
+			}
+			select().where("c.id").in(chunk).getResultList().forEach(row -> rows.put((Long) row[0], row));
+		}
+
+		final Columns columns = new Columns(current.size() + rows.size());
+		int i = 0;
+		int j = 0;
+		while (i < current.size() || j < ids.length) {
+			final long currentId = i < current.size() ? current.idAt(i) : Long.MAX_VALUE;
+			final long changedId = j < ids.length ? ids[j] : Long.MAX_VALUE;
+			if (i < current.size() && (j >= ids.length || currentId < changedId)) {
+				columns.add(currentId, current.ageAt(i), current.kittenCountAt(i), current.nameCodeAt(i));
+				i++;
+				continue;
+			}
+			final Object[] row = rows.get(changedId);
+			if (row != null) {
+				columns.add(row);
+			}
+			if (currentId == changedId) {
+				i++;
+			}
+			j++;
+		}
+		return columns.build();
+	}
+
+	private CriteriaBuilder<Object[]> select() {
+		// @formatter:off
+		return cbf.create(em, Object[].class)
+				.from(Cat.class, "c")
+				.select("c.id")
+				.select("c.name")
+				.select("c.age")
+				.select("c.kittenCount");
+		// @formatter:on
+	}
+
+	private long[] drainChangedIds() {
+		final long[] ids = new long[changedIds.size()];
+		int size = 0;
+		for (Long id : changedIds) {
+			if (size == ids.length) {
+				break;
+			}
+			if (changedIds.remove(id)) {
+				ids[size++] = id;
+			}
+		}
+		final long[] drained = Arrays.copyOf(ids, size);
+		Arrays.sort(drained);
+		return drained;
+	}
+
+	/**
+	 * ID の昇順に行を追加する、伸長できる列。
+	 */
+	private final class Columns {
+
+		private long[] ids;
+
+		private int[] ages;
+
+		private int[] kittenCounts;
+
+		private int[] codes;
+
+		private int size;
+
+		private Columns(final int initialCapacity) {
+			final int capacity = Math.max(initialCapacity, 16);
+			this.ids = new long[capacity];
+			this.ages = new int[capacity];
+			this.kittenCounts = new int[capacity];
+			this.codes = new int[capacity];
+		}
+
+		private void add(final Object[] row) {
+			add((Long) row[0], (Integer) row[2], (Integer) row[3], names.encode((String) row[1]));
+		}
+
+		private void add(final long id, final int age, final int kittenCount, final int code) {
+			if (size == ids.length) {
+				final int capacity = size + (size >> 1);
+				ids = Arrays.copyOf(ids, capacity);
+				ages = Arrays.copyOf(ages, capacity);
+				kittenCounts = Arrays.copyOf(kittenCounts, capacity);
+				codes = Arrays.copyOf(codes, capacity);
+			}
+			ids[size] = id;
+			ages[size] = age;
+			kittenCounts[size] = kittenCount;
+			codes[size] = code;
+			size++;
+		}
+
+		private CatColumnarSnapshot build() {
+			// @formatter:off
+			return new CatColumnarSnapshot(
+					Arrays.copyOf(ids, size),
+					Arrays.copyOf(ages, size),
+					Arrays.copyOf(kittenCounts, size),
+					Arrays.copyOf(codes, size),
+					names.freeze(),
+					size);
+			// @formatter:on
+		}
+	}
+}
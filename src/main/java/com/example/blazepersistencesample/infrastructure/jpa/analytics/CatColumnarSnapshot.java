@@ -0,0 +1,214 @@
+package com.example.blazepersistencesample.infrastructure.jpa.analytics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * ある時点の猫の属性を、列ごとのプリミティブ型の配列で保持する。変更されない。
+ * <p>
+ * 行は ID の昇順に並ぶ。名前は {@link NameDictionary} の符号で保持する。
+ * 集計は行を {@value #CHUNK_SIZE} 件ずつに分け、共通の {@link java.util.concurrent.ForkJoinPool} で並列に走査する。
+ */
+public final class CatColumnarSnapshot {
+
+	static final int CHUNK_SIZE = 1 << 16;
+
+	static final CatColumnarSnapshot EMPTY = new CatColumnarSnapshot(new long[0], new int[0], new int[0], new int[0],
+			NameDictionary.Frozen.EMPTY, 0);
+
+	private final long[] ids;
+
+	private final int[] ages;
+
+	private final int[] kittenCounts;
+
+	private final int[] nameCodes;
+
+	private final NameDictionary.Frozen names;
+
+	private final int size;
+
+	/**
+	 * 配列は複製せずにそのまま保持するため、渡した後は変更しないこと。
+	 */
+	CatColumnarSnapshot(final long[] ids, final int[] ages, final int[] kittenCounts, final int[] nameCodes,
+			final NameDictionary.Frozen names, final int size) {
+		this.ids = ids;
+		this.ages = ages;
+		this.kittenCounts = kittenCounts;
+		this.nameCodes = nameCodes;
+		this.names = names;
+		this.size = size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return ID の猫の列の値。いなければ {@code null}
+	 */
+	public CatAnalyticsRow find(final long id) {
+		final int index = Arrays.binarySearch(ids, 0, size, id);
+		return index < 0 ? null : row(index);
+	}
+
+	/**
+	 * 年齢が {@code minAge} 以上 {@code maxAge} 以下の猫を数える。
+	 */
+	public long countByAgeBetween(final int minAge, final int maxAge) {
+		// @formatter:off
+		return chunks().mapToLong(chunk -> {
+			long count = 0;
+			for (int i = from(chunk), to = to(chunk); i < to; i++) {
+				if (ages[i] >= minAge && ages[i] <= maxAge) {
+					count++;
+				}
+			}
+			return count;
+		}).sum();
+		// @formatter:on
+	}
+
+	/**
+	 * 名前が {@code name} の猫を数える。名前ではなく辞書の符号で比較する。
+	 */
+	public long countByName(final String name) {
+		final int code = names.find(name);
+		if (code < 0) {
+			return 0;
+		}
+		// @formatter:off
+		return chunks().mapToLong(chunk -> {
+			long count = 0;
+			for (int i = from(chunk), to = to(chunk); i < to; i++) {
+				if (nameCodes[i] == code) {
+					count++;
+				}
+			}
+			return count;
+		}).sum();
+		// @formatter:on
+	}
+
+	/**
+	 * @return 添字の年齢の猫の匹数
+	 */
+	public long[] ageHistogram() {
+		return histogram(ages);
+	}
+
+	/**
+	 * @return 添字の匹数の仔猫がいる猫の匹数
+	 */
+	public long[] kittenCountHistogram() {
+		return histogram(kittenCounts);
+	}
+
+	/**
+	 * 仔猫の多い順（同数なら ID の昇順）に {@code limit} 匹まで返す。
+	 */
+	public List<CatAnalyticsRow> topByKittenCount(final int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException("limit must be positive: " + limit);
+		}
+		final Comparator<Integer> order = Comparator.<Integer> comparingInt(i -> kittenCounts[i]).reversed()
+				.thenComparingLong(i -> ids[i]);
+
+		// 範囲ごとに上位を選び、最後にまとめて並べる
+		// @formatter:off
+		final List<Integer> candidates = chunks().mapToObj(chunk -> {
+			final PriorityQueue<Integer> top = new PriorityQueue<>(limit, order.reversed());
+			for (int i = from(chunk), to = to(chunk); i < to; i++) {
+				if (top.size() < limit) {
+					top.offer(i);
+				} else if (ranksBefore(i, top.peek())) {
+					top.poll();
+					top.offer(i);
+				}
+			}
+			return new ArrayList<>(top);
+		}).flatMap(List::stream).collect(Collectors.toList());
+
+		return candidates.stream()
+				.sorted(order)
+				.limit(limit)
+				.map(this::row)
+				.collect(Collectors.toList());
+		// @formatter:on
+	}
+
+	/**
+	 * 保持している配列のおおよそのバイト数（辞書を含む）。
+	 */
+	public long estimatedBytes() {
+		return 16L + 8L * ids.length + 3 * (16L + 4L * ages.length) + names.estimatedBytes();
+	}
+
+	long idAt(final int index) {
+		return ids[index];
+	}
+
+	int ageAt(final int index) {
+		return ages[index];
+	}
+
+	int kittenCountAt(final int index) {
+		return kittenCounts[index];
+	}
+
+	int nameCodeAt(final int index) {
+		return nameCodes[index];
+	}
+
+	private boolean ranksBefore(final int index, final int other) {
+		return kittenCounts[index] > kittenCounts[other]
+				|| kittenCounts[index] == kittenCounts[other] && ids[index] < ids[other];
+	}
+
+	private CatAnalyticsRow row(final int index) {
+		return new CatAnalyticsRow(ids[index], names.decode(nameCodes[index]), ages[index], kittenCounts[index]);
+	}
+
+	private long[] histogram(final int[] column) {
+		// @formatter:off
+		final int max = chunks().map(chunk -> {
+			int chunkMax = -1;
+			for (int i = from(chunk), to = to(chunk); i < to; i++) {
+				chunkMax = Math.max(chunkMax, column[i]);
+			}
+			return chunkMax;
+		}).max().orElse(-1);
+
+		return chunks().mapToObj(chunk -> {
+			final long[] counts = new long[max + 1];
+			for (int i = from(chunk), to = to(chunk); i < to; i++) {
+				counts[column[i]]++;
+			}
+			return counts;
+		}).reduce((left, right) -> {
+			for (int i = 0; i < left.length; i++) {
+				left[i] += right[i];
+			}
+			return left;
+		}).orElseGet(() -> new long[0]);
+		// @formatter:on
+	}
+
+	private IntStream chunks() {
+		return IntStream.range(0, (size + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel();
+	}
+
+	private static int from(final int chunk) {
+		return chunk * CHUNK_SIZE;
+	}
+
+	private int to(final int chunk) {
+		return Math.min(size, (chunk + 1) * CHUNK_SIZE);
+	}
+}
@@ -0,0 +1,149 @@
+package com.example.blazepersistencesample.infrastructure.jpa.analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 猫の名前の辞書。名前に 0 からの連番（符号）を振り、UTF-8 のバイト列をつなげた 1 つの配列に保持する。
+ * <p>
+ * 追記するだけで、既存の符号とバイト列は変更しない。そのため {@link #freeze()} で取り出した時点の辞書は、その後に追記されても
+ * 同じ配列を共有したまま読める（配列を伸長するときは新しい配列に複製する）。
+ * 符号を引く索引は、名前の {@link String} を保持しないように、符号を格納するオープン アドレス法のハッシュ表にしている。
+ * 追記はスレッド セーフではない。
+ */
+final class NameDictionary {
+
+	private byte[] bytes = new byte[1024];
+
+	/** 符号 i の名前は {@code offsets[i]} から {@code offsets[i + 1]} の手前まで */
+	private int[] offsets = new int[64];
+
+	private int size;
+
+	/** 符号 + 1。0 は空き */
+	private int[] table = new int[128];
+
+	/**
+	 * @return 名前の符号。なければ追記する
+	 */
+	int encode(final String name) {
+		final byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+		final int mask = table.length - 1;
+		for (int slot = hash(utf8) & mask;; slot = (slot + 1) & mask) {
+			final int entry = table[slot];
+			if (entry == 0) {
+				final int code = append(utf8);
+				table[slot] = code + 1;
+				if (size * 2 > table.length) {
+					rehash();
+				}
+				return code;
+			}
+			if (matches(bytes, offsets, entry - 1, utf8)) {
+				return entry - 1;
+			}
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * 今の辞書を、追記の影響を受けない読み取り専用の辞書として返す。
+	 */
+	Frozen freeze() {
+		return new Frozen(bytes, offsets, size);
+	}
+
+	private int append(final byte[] utf8) {
+		final int start = offsets[size];
+		if (start + utf8.length > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + utf8.length));
+		}
+		if (size + 2 > offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		System.arraycopy(utf8, 0, bytes, start, utf8.length);
+		offsets[size + 1] = start + utf8.length;
+		return size++;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		final int mask = table.length - 1;
+		for (int code = 0; code < size; code++) {
+			int slot = hash(bytes, offsets[code], offsets[code + 1]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = code + 1;
+		}
+	}
+
+	private static int hash(final byte[] utf8) {
+		return hash(utf8, 0, utf8.length);
+	}
+
+	private static int hash(final byte[] source, final int from, final int to) {
+		int hash = 1;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + source[i];
+		}
+		// 連番のような名前でも下位ビットが偏らないようにかき混ぜる
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean matches(final byte[] bytes, final int[] offsets, final int code, final byte[] utf8) {
+		final int from = offsets[code];
+		return Arrays.equals(bytes, from, offsets[code + 1], utf8, 0, utf8.length);
+	}
+
+	/**
+	 * ある時点の辞書。変更されない。
+	 */
+	static final class Frozen {
+
+		static final Frozen EMPTY = new NameDictionary().freeze();
+
+		private final byte[] bytes;
+
+		private final int[] offsets;
+
+		private final int size;
+
+		private Frozen(final byte[] bytes, final int[] offsets, final int size) {
+			this.bytes = bytes;
+			this.offsets = offsets;
+			this.size = size;
+		}
+
+		int size() {
+			return size;
+		}
+
+		String decode(final int code) {
+			return new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * @return 名前の符号。なければ -1
+		 */
+		int find(final String name) {
+			final byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+			for (int code = 0; code < size; code++) {
+				if (matches(bytes, offsets, code, utf8)) {
+					return code;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * この時点までの名前が使っているバイト数（符号の索引を除く）。
+		 */
+		long estimatedBytes() {
+			return offsets[size] + 4L * (size + 1);
+		}
+	}
+}
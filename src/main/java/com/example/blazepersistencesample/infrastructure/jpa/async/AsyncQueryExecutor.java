@@ -0,0 +1,103 @@
+package com.example.blazepersistencesample.infrastructure.jpa.async;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 1 つの要求の中で互いに依存しないクエリー（ページと総件数など）を、別々のスレッド・コネクションで同時に実行する。
+ * <p>
+ * クエリーは専用のスレッドの読み取り専用トランザクションの中で実行するため、呼び出し元のトランザクションでまだコミットしていない
+ * 変更は見えない。また、クエリーごとに別のトランザクションのため、同時に実行したクエリー同士も同じ時点を読むとは限らない。
+ * 返したエンティティは管理対象から外れているため、読み込んでいない関連はたどれない。
+ * <p>
+ * 同時に使うコネクションはスレッド数（{@code blaze-persistence-sample.async.threads}）までに制限される。
+ * 実行待ちはスレッド数と {@code queue-capacity} の合計までで、それを超えると呼び出し元は空きを {@code acquire-timeout} まで待ち、
+ * 空かなければ {@link RejectedExecutionException} で失敗した {@link CompletableFuture} を返す。
+ */
+@Component
+public class AsyncQueryExecutor implements DisposableBean {
+
+	private final EntityManager em;
+
+	private final TransactionTemplate readOnlyTx;
+
+	private final ThreadPoolExecutor executor;
+
+	private final Semaphore permits;
+
+	private final long acquireTimeoutNanos;
+
+	public AsyncQueryExecutor(final EntityManager em, final PlatformTransactionManager transactionManager,
+			@Value("${blaze-persistence-sample.async.threads:4}") final int threads,
+			@Value("${blaze-persistence-sample.async.queue-capacity:16}") final int queueCapacity,
+			@Value("${blaze-persistence-sample.async.acquire-timeout:1s}") final Duration acquireTimeout) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		}
+		if (queueCapacity < 0) {
+			throw new IllegalArgumentException("queueCapacity must not be negative: " + queueCapacity);
+		}
+		this.em = em;
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+		// 許可を得たものだけを渡すため、待ち行列があふれることはない
+		// @formatter:off
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), new CustomizableThreadFactory("async-query-"));
+		// @formatter:on
+		this.permits = new Semaphore(threads + queueCapacity);
+		this.acquireTimeoutNanos = acquireTimeout.toNanos();
+	}
+
+	/**
+	 * {@code query} を専用のスレッドの読み取り専用トランザクションの中で実行する。
+	 * {@code query} には、そのトランザクションで使われる共有の {@link EntityManager} が渡される。
+	 */
+	public <T> CompletableFuture<T> submit(final Function<EntityManager, ? extends T> query) {
+		Objects.requireNonNull(query, "query");
+
+		try {
+			if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				return CompletableFuture.failedFuture(
+						new RejectedExecutionException("Too many queries waiting for execution"));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return CompletableFuture.failedFuture(
+					new RejectedExecutionException("Interrupted while waiting for execution", e));
+		}
+
+		try {
+			// @formatter:off
+			final CompletableFuture<T> future = CompletableFuture.supplyAsync(
+					() -> readOnlyTx.execute(status -> query.apply(em)), executor);
+			// @formatter:on
+			future.whenComplete((result, failure) -> permits.release());
+			return future;
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
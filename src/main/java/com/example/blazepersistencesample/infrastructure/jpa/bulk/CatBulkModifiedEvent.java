@@ -0,0 +1,60 @@
+package com.example.blazepersistencesample.infrastructure.jpa.bulk;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * {@link CatBulkOperations} などで猫の行を直接更新・削除したことを知らせる。
+ * <p>
+ * UPDATE・DELETE 文はエンティティのイベントを発生させないため、猫の件数や集計をキャッシュする側はこのイベントで破棄する。
+ * 更新した猫がわかる場合（{@link #isTargeted()}）は、その猫と、集計が変わる年齢・飼い主だけを知らせる。
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CatBulkModifiedEvent {
+
+	/** 更新・削除した猫の行数 */
+	int cats;
+
+	/** 更新した猫の ID。どの猫を更新したかわからなければ {@code null} */
+	Set<Long> catIds;
+
+	/** 猫の匹数・仔猫の匹数の集計が変わった年齢。{@link #catIds} が {@code null} なら {@code null} */
+	Set<Integer> ages;
+
+	/** 飼い猫が変わった飼い主の ID。{@link #catIds} が {@code null} なら {@code null} */
+	Set<Long> ownerIds;
+
+	/**
+	 * どの猫を更新・削除したかわからない。受け取る側は、猫に関するものをすべて破棄する。
+	 */
+	public CatBulkModifiedEvent(final int cats) {
+		this(cats, null, null, null);
+	}
+
+	/**
+	 * @param catIds 更新した猫の ID
+	 * @param ages 猫の匹数・仔猫の匹数の集計が変わった年齢
+	 * @param ownerIds 飼い猫が変わった飼い主の ID
+	 */
+	public static CatBulkModifiedEvent of(final Set<Long> catIds, final Set<Integer> ages, final Set<Long> ownerIds) {
+		// @formatter:off
+		return new CatBulkModifiedEvent(catIds.size(),
+				Collections.unmodifiableSet(catIds),
+				Collections.unmodifiableSet(ages),
+				Collections.unmodifiableSet(ownerIds));
+		// @formatter:on
+	}
+
+	/**
+	 * 更新した猫と、集計が変わる年齢・飼い主がわかるか。
+	 */
+	public boolean isTargeted() {
+		return Objects.nonNull(catIds);
+	}
+}
@@ -0,0 +1,172 @@
+package com.example.blazepersistencesample.infrastructure.jpa.bulk;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.AffectedCat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 猫をエンティティとして読み込まずに、UPDATE・DELETE 文 1 本ずつで一括更新・一括削除する。
+ * <p>
+ * 実行前に永続化コンテキストをフラッシュし、実行後はクリアする（データベースと食い違ったエンティティを残さないため）。
+ * 実行後は {@link CatBulkModifiedEvent} を発行する。
+ */
+@Component
+@RequiredArgsConstructor
+@Transactional
+public class CatBulkOperations {
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	/**
+	 * @return 更新した猫の行数
+	 */
+	public int incrementAge(final int years) {
+		em.flush();
+		// @formatter:off
+		int updated = cbf.update(em, Cat.class, "c")
+				.setExpression("age", "c.age + :years")
+				.setParameter("years", years)
+				.executeUpdate();
+		// @formatter:on
+		em.clear();
+		eventPublisher.publishEvent(new CatBulkModifiedEvent(updated));
+		return updated;
+	}
+
+	/**
+	 * 年齢が {@code minAge} 以上 {@code maxAge} 以下の猫だけ年齢を加算する。
+	 *
+	 * @return 更新した猫の行数
+	 */
+	public int incrementAge(final int years, final int minAge, final int maxAge) {
+		em.flush();
+		// @formatter:off
+		int updated = cbf.update(em, Cat.class, "c")
+				.setExpression("age", "c.age + :years")
+				.where("c.age").between(minAge).and(maxAge)
+				.setParameter("years", years)
+				.executeUpdate();
+		// @formatter:on
+		em.clear();
+		eventPublisher.publishEvent(new CatBulkModifiedEvent(updated));
+		return updated;
+	}
+
+	/**
+	 * 年齢が {@code age} より上の猫を、親猫・仔猫・飼い主との関連ごと削除する。
+	 * <p>
+	 * 仔猫を削除される親猫だけ、仔猫の匹数を数え直す。数え直す親猫は、UPDATE 文の CTE（{@link AffectedCat}）で
+	 * 削除する猫の {@code parent_id} から集める（H2 では CTE がサブクエリーとして展開される）。H2 は {@code WITH} 句の中の
+	 * DELETE 文（PostgreSQL の {@code WITH deleted AS (DELETE ... RETURNING parent_id)}）に対応していないため、
+	 * 削除とは別の文で数え直す。
+	 */
+	public CatDeletion deleteOlderThan(final int age) {
+		em.flush();
+		// 削除する猫が参照している飼い主と、削除する猫を参照している仔猫の外部キーを外してから削除する
+		// @formatter:off
+		int ownerLinks = cbf.update(em, Cat.class, "c")
+				.setExpression("ownerId", "NULL")
+				.where("c.ownerId").isNotNull()
+				.where("c.age").gt(age)
+				.executeUpdate();
+		// 親猫の外部キーを外す前に、残る親猫の匹数を、残る仔猫だけで数え直す
+		cbf.update(em, Cat.class, "c")
+				.with(AffectedCat.class)
+					.from(Cat.class, "deleted")
+					.bind("catId").select("deleted.parentId")
+					.where("deleted.age").gt(age)
+					.where("deleted.parentId").isNotNull()
+				.end()
+				.set("kittenCount")
+					.from(Cat.class, "kitten")
+					.select("COUNT(kitten.id)")
+					.where("kitten.parentId").eqExpression("c.id")
+					.where("kitten.age").le(age)
+				.end()
+				.where("c.id").in()
+					.from(AffectedCat.class, "affected")
+					.select("affected.catId")
+				.end()
+				.where("c.age").le(age)
+				.executeUpdate();
+		int kittenLinks = cbf.update(em, Cat.class, "c")
+				.setExpression("parentId", "NULL")
+				.where("c.parentId").isNotNull()
+				.whereOr()
+					.where("c.age").gt(age)
+					.where("c.parentId").in()
+						.from(Cat.class, "elder")
+						.select("elder.id")
+						.where("elder.age").gt(age)
+					.end()
+				.endOr()
+				.executeUpdate();
+		int cats = cbf.delete(em, Cat.class, "c")
+				.where("c.age").gt(age)
+				.executeUpdate();
+		// @formatter:on
+		em.clear();
+		eventPublisher.publishEvent(new CatBulkModifiedEvent(cats));
+		return new CatDeletion(cats, kittenLinks, ownerLinks);
+	}
+
+	/**
+	 * すべての猫を、親猫・仔猫・飼い主との関連ごと削除する。飼い主は削除しない。
+	 */
+	public CatDeletion deleteAll() {
+		em.flush();
+		// @formatter:off
+		int ownerLinks = cbf.update(em, Cat.class, "c")
+				.setExpression("ownerId", "NULL")
+				.where("c.ownerId").isNotNull()
+				.executeUpdate();
+		int kittenLinks = cbf.update(em, Cat.class, "c")
+				.setExpression("parentId", "NULL")
+				.where("c.parentId").isNotNull()
+				.executeUpdate();
+		// @formatter:on
+		int cats = cbf.delete(em, Cat.class, "c").executeUpdate();
+		em.clear();
+		eventPublisher.publishEvent(new CatBulkModifiedEvent(cats));
+		return new CatDeletion(cats, kittenLinks, ownerLinks);
+	}
+
+	/**
+	 * すべての猫の仔猫の匹数（{@link Cat#getKittenCount()}）を関連から数え直し、食い違っている猫だけ更新する。
+	 * 猫ごとに仔猫を 2 回数えるため、関連を DML で直接変更した後の修復だけに使う。
+	 *
+	 * @return 更新した猫の行数
+	 */
+	public int recalculateKittenCounts() {
+		em.flush();
+		// @formatter:off
+		int updated = cbf.update(em, Cat.class, "c")
+				.set("kittenCount")
+					.from(Cat.class, "parent")
+					.select("COUNT(parent.kittens.id)")
+					.where("parent.id").eqExpression("c.id")
+				.end()
+				.where("c.kittenCount").notEq()
+					.from(Cat.class, "parent")
+					.select("COUNT(parent.kittens.id)")
+					.where("parent.id").eqExpression("c.id")
+				.end()
+				.executeUpdate();
+		// @formatter:on
+		em.clear();
+		eventPublisher.publishEvent(new CatBulkModifiedEvent(updated));
+		return updated;
+	}
+}
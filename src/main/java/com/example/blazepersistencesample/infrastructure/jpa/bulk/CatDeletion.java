@@ -0,0 +1,19 @@
+package com.example.blazepersistencesample.infrastructure.jpa.bulk;
+
+import lombok.Value;
+
+/**
+ * 一括削除で削除した行数。
+ */
+@Value
+public class CatDeletion {
+
+	/** 削除した猫の行数 */
+	int cats;
+
+	/** 外した親猫と仔猫の関連（仔猫の parent_id）の数 */
+	int kittenLinks;
+
+	/** 外した飼い主と飼い猫の関連（猫の owner_id）の数 */
+	int ownerLinks;
+}
@@ -0,0 +1,99 @@
+package com.example.blazepersistencesample.infrastructure.jpa.cache;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 仔猫・飼い猫のコレクションを変更したとき、追加・削除された猫を 2 次キャッシュから取り除く。
+ * <p>
+ * コレクションの変更は猫の行の外部キーを更新するが、猫のエンティティ自体は更新されないため、
+ * キャッシュした猫の {@link Cat#getParentId()}・{@link Cat#getOwnerId()} が古いまま残るのを防ぐ。
+ */
+@RequiredArgsConstructor
+public class CatLinkCacheEvictor implements PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+		PostCollectionRemoveEventListener {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient EntityManagerFactory entityManagerFactory;
+
+	@PostConstruct
+	void registerListeners() {
+		// @formatter:off
+		final EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry()
+				.getService(EventListenerRegistry.class);
+		// @formatter:on
+		registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+		registry.appendListeners(EventType.POST_COLLECTION_UPDATE, this);
+		registry.appendListeners(EventType.POST_COLLECTION_REMOVE, this);
+	}
+
+	@Override
+	public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+		evictElements(event);
+	}
+
+	@Override
+	public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+		evictElements(event);
+	}
+
+	@Override
+	public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+		evictElements(event);
+	}
+
+	/**
+	 * 変更後の要素と、変更前のスナップショットの要素（取り除かれた猫）を取り除く。
+	 */
+	private void evictElements(final AbstractCollectionEvent event) {
+		final PersistentCollection collection = event.getCollection();
+		final Cache cache = event.getSession().getFactory().getCache();
+		if (collection.wasInitialized()) {
+			evict(cache, (Collection<?>) collection);
+		}
+		evict(cache, snapshotElements(collection.getStoredSnapshot()));
+	}
+
+	private void evict(final Cache cache, final Collection<?> elements) {
+		for (Object element : elements) {
+			if (element instanceof Cat && Objects.nonNull(((Cat) element).getId())) {
+				cache.evictEntityData(Cat.class, ((Cat) element).getId());
+			}
+		}
+	}
+
+	private static Collection<?> snapshotElements(final Serializable snapshot) {
+		if (snapshot instanceof Map) {
+			return ((Map<?, ?>) snapshot).values();
+		}
+		if (snapshot instanceof Collection) {
+			return (Collection<?>) snapshot;
+		}
+		return Collections.emptyList();
+	}
+}
@@ -0,0 +1,325 @@
+package com.example.blazepersistencesample.infrastructure.jpa.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Parameter;
+import javax.persistence.metamodel.EntityType;
+
+import org.hibernate.engine.spi.ActionQueue;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkModifiedEvent;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChange;
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChangeDispatcher;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 読み取りの多い Blaze-Persistence のクエリーの結果を、クエリーの文字列とパラメーターの値ごとにアプリケーションで保持する。
+ * <p>
+ * 使うクエリーだけ {@link #getResultList(CriteriaBuilder, Class...)} で実行する（既定ではキャッシュしない）。
+ * 保持できるのは射影（エンティティ ビュー・スカラー値）の結果だけで、管理対象のエンティティは保持しない。
+ * 追い出しは Caffeine の W-TinyLFU で行い、結果の行数から見積もったメモリー使用量が上限を超えないようにする。
+ * <p>
+ * クエリーが参照するエンティティの型を呼び出し側が指定し、その型のテーブルが変更されたら（トランザクションの完了後・一括更新の後）
+ * 結果を無効にする。無効にした結果は、次に参照されたときにミスとして取り除く。エンティティを経由しない SQL による変更は検知しない。
+ * <p>
+ * 読み書きするトランザクションや、未コミットの変更があるトランザクションの中では、ロールバックされる変更を読んだ結果を保持しないよう、
+ * キャッシュを使わずにクエリーを実行する。ヒット・ミスの件数は Micrometer の {@value #METRIC_NAME} に、
+ * キャッシュを使わなかった件数は {@value #BYPASSES} に記録する。
+ */
+@Component
+public class QueryResultCache {
+
+	/** Caffeine のメトリクス（{@code cache.gets} など）の {@code cache} タグの値 */
+	public static final String METRIC_NAME = "query-result";
+
+	public static final String BYPASSES = "cache.bypasses";
+
+	/** キーの文字列以外に、エントリー 1 件あたりにかかるバイト数の見積もり */
+	private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+	private final EntityManagerFactory emf;
+
+	private final EntityChangeDispatcher dispatcher;
+
+	private final Counter bypasses;
+
+	private final Cache<Key, Entry> cache;
+
+	private final ConcurrentStatsCounter statsCounter = new ConcurrentStatsCounter();
+
+	private final Map<Class<?>, AtomicLong> generations = new ConcurrentHashMap<>();
+
+	private final Set<Class<?>> entityClasses;
+
+	public QueryResultCache(final EntityManagerFactory emf, final EntityChangeDispatcher dispatcher,
+			final ObjectProvider<MeterRegistry> meterRegistry,
+			@Value("${blaze-persistence-sample.result-cache.memory-budget:64MB}") final DataSize memoryBudget,
+			@Value("${blaze-persistence-sample.result-cache.estimated-row-size:128B}") final DataSize estimatedRowSize) {
+		if (memoryBudget.toBytes() <= 0) {
+			throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+		}
+		if (estimatedRowSize.toBytes() <= 0) {
+			throw new IllegalArgumentException("estimatedRowSize must be positive: " + estimatedRowSize);
+		}
+		this.emf = emf;
+		this.dispatcher = dispatcher;
+		final long rowSize = estimatedRowSize.toBytes();
+		// @formatter:off
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(memoryBudget.toBytes())
+				.<Key, Entry>weigher((key, entry) -> weigh(key, entry, rowSize))
+				.recordStats(() -> statsCounter)
+				.build();
+		this.entityClasses = emf.getMetamodel().getEntities().stream()
+				.map(EntityType::getJavaType)
+				.collect(Collectors.toSet());
+
+		final MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+		CaffeineCacheMetrics.monitor(registry, cache, METRIC_NAME);
+		this.bypasses = Counter.builder(BYPASSES)
+				.tag("cache", METRIC_NAME)
+				.description("Queries executed without the cache because the transaction may see uncommitted changes")
+				.register(registry);
+		// @formatter:on
+	}
+
+	@PostConstruct
+	void subscribe() {
+		// ロールバックされた場合も、そのトランザクションの中で読まれた結果が残らないよう無効にする
+		dispatcher.subscribe(entityClasses, (change, committed) -> invalidate(change));
+	}
+
+	/**
+	 * 保持している結果があればそれを、なければ {@code builder} を実行して結果を保持してから返す。呼び出し元のトランザクションの中で実行する。
+	 * 読み書きするトランザクションの中では、保持している結果を使わずに実行する。
+	 *
+	 * @param dependsOn クエリーが参照するエンティティの型（結合・副問い合わせで参照する型を含む）
+	 * @return 変更できないリスト
+	 * @throws IllegalArgumentException 結果に管理対象のエンティティが含まれる場合
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> getResultList(final CriteriaBuilder<T> builder, final Class<?>... dependsOn) {
+		if (dependsOn.length == 0) {
+			throw new IllegalArgumentException("dependsOn must not be empty");
+		}
+
+		if (!readsCommittedState()) {
+			bypasses.increment();
+			return Collections.unmodifiableList(builder.getResultList());
+		}
+
+		final Key key = Key.of(builder, dependsOn);
+		final Entry cached = cache.asMap().get(key);
+		if (Objects.nonNull(cached) && Arrays.equals(cached.generations, generationsOf(key.dependsOn))) {
+			statsCounter.recordHits(1);
+			return (List<T>) cached.rows;
+		}
+		statsCounter.recordMisses(1);
+		if (Objects.nonNull(cached)) {
+			cache.asMap().remove(key, cached);
+		}
+
+		// クエリーの実行中に無効にされた結果を保持しないよう、実行前の世代を記録する
+		final long[] generationsAtStart = generationsOf(key.dependsOn);
+		final long start = System.nanoTime();
+		final List<T> rows = builder.getResultList();
+		statsCounter.recordLoadSuccess(System.nanoTime() - start);
+
+		final List<T> unmodifiableRows = Collections.unmodifiableList(new ArrayList<>(rows));
+		requireNoEntities(unmodifiableRows);
+		cache.put(key, new Entry(unmodifiableRows, generationsAtStart));
+		return unmodifiableRows;
+	}
+
+	/**
+	 * {@code entityType} を参照するクエリーの結果をすべて無効にする。
+	 */
+	public void invalidate(final Class<?> entityType) {
+		generations.computeIfAbsent(entityType, type -> new AtomicLong()).incrementAndGet();
+	}
+
+	/**
+	 * 保持しているすべての結果を取り除く。
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * @return ヒット・ミス・追い出しの件数（無効にされていた結果の参照はミスに数え、キャッシュを使わなかった実行は数えない）
+	 */
+	public CacheStats stats() {
+		return statsCounter.snapshot();
+	}
+
+	/**
+	 * @return 保持している結果の件数の概算
+	 */
+	public long estimatedSize() {
+		return cache.estimatedSize();
+	}
+
+	/**
+	 * @return 保持している結果のメモリー使用量の見積もり（バイト）
+	 */
+	public long weightedSize() {
+		// @formatter:off
+		return cache.policy().eviction()
+				.map(eviction -> eviction.weightedSize().orElse(0L))
+				.orElse(0L);
+		// @formatter:on
+	}
+
+	/**
+	 * 追い出しなどの保留中の処理を実行する。
+	 */
+	void cleanUp() {
+		cache.cleanUp();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	void onBulkModified(final CatBulkModifiedEvent event) {
+		invalidate(Cat.class);
+	}
+
+	/**
+	 * コミット済みの状態だけを読むか。読み書きするトランザクションでは、フラッシュ済みで未コミットの変更を読むことがある。
+	 */
+	private boolean readsCommittedState() {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			return true;
+		}
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return false;
+		}
+		final EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+		if (Objects.isNull(em)) {
+			return true;
+		}
+		// 読み取り専用でも、エンティティを登録・変更していればフラッシュされうる
+		final ActionQueue actions = em.unwrap(SessionImplementor.class).getActionQueue();
+		return !actions.hasAnyQueuedActions() && !actions.hasAfterTransactionActions();
+	}
+
+	/**
+	 * 要素の型がわからないコレクションの変更では、すべての型の結果を無効にする。
+	 */
+	private void invalidate(final EntityChange change) {
+		if (Objects.isNull(change.getEntityType())) {
+			generations.keySet().forEach(this::invalidate);
+			return;
+		}
+		invalidate(change.getEntityType());
+	}
+
+	private long[] generationsOf(final List<Class<?>> types) {
+		long[] result = new long[types.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = generations.computeIfAbsent(types.get(i), type -> new AtomicLong()).get();
+		}
+		return result;
+	}
+
+	private void requireNoEntities(final List<?> rows) {
+		for (Object row : rows) {
+			final Object[] values = row instanceof Object[] ? (Object[]) row : new Object[] { row };
+			for (Object value : values) {
+				if (value instanceof HibernateProxy
+						|| (Objects.nonNull(value) && entityClasses.contains(value.getClass()))) {
+					throw new IllegalArgumentException(
+							"Managed entities must not be cached, select a projection instead: " + value.getClass());
+				}
+			}
+		}
+	}
+
+	private static int weigh(final Key key, final Entry entry, final long rowSize) {
+		final long bytes = ENTRY_OVERHEAD_BYTES + key.query.length() * 2L + entry.rows.size() * rowSize;
+		return (int) Math.min(Integer.MAX_VALUE, bytes);
+	}
+
+	/**
+	 * クエリーの文字列・パラメーターの値・取得範囲・参照するエンティティの型。
+	 */
+	@EqualsAndHashCode
+	static final class Key {
+
+		private final String query;
+
+		private final SortedMap<String, Object> parameters;
+
+		private final int firstResult;
+
+		private final int maxResults;
+
+		private final List<Class<?>> dependsOn;
+
+		private Key(final String query, final SortedMap<String, Object> parameters, final int firstResult,
+				final int maxResults, final List<Class<?>> dependsOn) {
+			this.query = query;
+			this.parameters = parameters;
+			this.firstResult = firstResult;
+			this.maxResults = maxResults;
+			this.dependsOn = dependsOn;
+		}
+
+		static Key of(final CriteriaBuilder<?> builder, final Class<?>... dependsOn) {
+			SortedMap<String, Object> parameters = new TreeMap<>();
+			for (Parameter<?> parameter : builder.getParameters()) {
+				parameters.put(parameter.getName(), builder.getParameterValue(parameter.getName()));
+			}
+			// @formatter:off
+			final List<Class<?>> types = Arrays.stream(dependsOn)
+					.distinct()
+					.sorted(Comparator.comparing(Class::getName))
+					.collect(Collectors.toList());
+			// @formatter:on
+			return new Key(builder.getQueryString(), parameters, builder.getFirstResult(), builder.getMaxResults(),
+					types);
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static final class Entry {
+
+		private final List<?> rows;
+
+		private final long[] generations;
+	}
+}
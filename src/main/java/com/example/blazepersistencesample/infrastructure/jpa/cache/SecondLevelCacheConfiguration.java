@@ -0,0 +1,115 @@
+package com.example.blazepersistencesample.infrastructure.jpa.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Properties;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.SharedCacheMode;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.github.benmanes.caffeine.jcache.CacheManagerImpl;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * 猫・飼い主と、その仔猫・飼い猫のコレクション、クエリー結果を Hibernate の 2 次キャッシュ（JCache・Caffeine）に保持する。
+ * <p>
+ * 領域ごとに件数の上限と書き込みからの保持期間を設け、設定していない領域は作らない（起動時にエラーにする）。
+ * キャッシュ マネージャーはアプリケーション コンテキストごとに作るため、同じ JVM の別のコンテキストとエントリーを共有しない。
+ * {@code blaze-persistence-sample.cache.enabled=false} で無効にできる。
+ * <p>
+ * Hibernate の統計（{@link SecondLevelCacheStatistics}）は、すべてのセッションの操作ごとに集計の負荷がかかるため、
+ * {@code blaze-persistence-sample.cache.statistics.enabled=true} を指定したときだけ集める。
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "blaze-persistence-sample.cache.enabled", matchIfMissing = true)
+public class SecondLevelCacheConfiguration {
+
+	public static final String QUERY_RESULTS_REGION = RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME;
+
+	public static final String UPDATE_TIMESTAMPS_REGION = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+
+	/** エンティティ・コレクションの領域 */
+	// @formatter:off
+	public static final List<String> DOMAIN_REGIONS = Arrays.asList(
+			Cat.class.getName(),
+			Cat.class.getName() + ".kittens",
+			Person.class.getName(),
+			Person.class.getName() + ".kittens");
+	// @formatter:on
+
+	@Bean(destroyMethod = "close")
+	public CacheManager secondLevelCacheManager(
+			@Value("${blaze-persistence-sample.cache.entity.max-size:10000}") final long entityMaxSize,
+			@Value("${blaze-persistence-sample.cache.entity.time-to-live:10m}") final Duration entityTimeToLive,
+			@Value("${blaze-persistence-sample.cache.query.max-size:1000}") final long queryMaxSize,
+			@Value("${blaze-persistence-sample.cache.query.time-to-live:5m}") final Duration queryTimeToLive) {
+
+		final CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+		final CacheManager cacheManager = new CacheManagerImpl(provider, provider.getDefaultURI(),
+				provider.getDefaultClassLoader(), new Properties());
+
+		for (String region : DOMAIN_REGIONS) {
+			cacheManager.createCache(region, bounded(entityMaxSize, entityTimeToLive));
+		}
+		cacheManager.createCache(QUERY_RESULTS_REGION, bounded(queryMaxSize, queryTimeToLive));
+		// 更新タイムスタンプを追い出すと古いクエリー結果が有効と判定されるため、上限・保持期間を設けない
+		cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, unbounded());
+		return cacheManager;
+	}
+
+	@Bean
+	public HibernatePropertiesCustomizer secondLevelCacheProperties(final CacheManager secondLevelCacheManager,
+			@Value("${blaze-persistence-sample.cache.statistics.enabled:false}") final boolean statisticsEnabled) {
+		return properties -> {
+			properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+			properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+			properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+			properties.put(AvailableSettings.JPA_SHARED_CACHE_MODE, SharedCacheMode.ENABLE_SELECTIVE);
+			properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+			properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+			// 領域ごとの統計（SecondLevelCacheStatistics）のため。セッションごとの統計はログに出さない
+			properties.put(AvailableSettings.GENERATE_STATISTICS, statisticsEnabled);
+			properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+		};
+	}
+
+	@Bean
+	public SecondLevelCacheStatistics secondLevelCacheStatistics(final EntityManagerFactory entityManagerFactory) {
+		return new SecondLevelCacheStatistics(entityManagerFactory);
+	}
+
+	@Bean
+	public CatLinkCacheEvictor catLinkCacheEvictor(final EntityManagerFactory entityManagerFactory) {
+		return new CatLinkCacheEvictor(entityManagerFactory);
+	}
+
+	private static CaffeineConfiguration<Object, Object> bounded(final long maxSize, final Duration timeToLive) {
+		CaffeineConfiguration<Object, Object> configuration = unbounded();
+		configuration.setMaximumSize(OptionalLong.of(maxSize));
+		configuration.setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()));
+		return configuration;
+	}
+
+	private static CaffeineConfiguration<Object, Object> unbounded() {
+		CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+		configuration.setStoreByValue(false);
+		return configuration;
+	}
+}
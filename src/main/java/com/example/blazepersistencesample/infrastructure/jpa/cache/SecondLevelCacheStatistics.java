@@ -0,0 +1,89 @@
+package com.example.blazepersistencesample.infrastructure.jpa.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+
+/**
+ * 2 次キャッシュの領域ごとのヒット・ミス・登録の件数。
+ * {@code blaze-persistence-sample.cache.statistics.enabled=true} でなければ集められず、すべて 0 になる。
+ */
+@RequiredArgsConstructor
+public class SecondLevelCacheStatistics {
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * @return 領域名の順に並んだ統計
+	 */
+	public List<CacheRegionSummary> regions() {
+		final Statistics statistics = statistics();
+		// クエリー結果の領域は getSecondLevelCacheRegionNames に含まれない
+		// @formatter:off
+		return Stream.concat(
+					Arrays.stream(statistics.getSecondLevelCacheRegionNames()),
+					Stream.of(SecondLevelCacheConfiguration.QUERY_RESULTS_REGION))
+				.distinct()
+				.sorted()
+				.map(regionName -> CacheRegionSummary.of(regionName, statistics.getCacheRegionStatistics(regionName)))
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+		// @formatter:on
+	}
+
+	public CacheRegionSummary region(final String regionName) {
+		return CacheRegionSummary.of(regionName, statistics().getCacheRegionStatistics(regionName));
+	}
+
+	public void clear() {
+		statistics().clear();
+	}
+
+	private Statistics statistics() {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Value
+	public static class CacheRegionSummary {
+
+		String regionName;
+
+		long hitCount;
+
+		long missCount;
+
+		long putCount;
+
+		static CacheRegionSummary of(final String regionName, final CacheRegionStatistics statistics) {
+			if (Objects.isNull(statistics)) {
+				return null;
+			}
+			// @formatter:off
+			return new CacheRegionSummary(
+					regionName,
+					statistics.getHitCount(),
+					statistics.getMissCount(),
+					statistics.getPutCount());
+			// @formatter:on
+		}
+
+		/**
+		 * @return ヒット率。参照されていなければ {@code 0}
+		 */
+		public double getHitRatio() {
+			final long requests = hitCount + missCount;
+			return requests == 0 ? 0 : (double) hitCount / requests;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import com.blazebit.persistence.CTE;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一括更新・一括削除の影響を受ける猫の ID を集める CTE（{@code WITH}）の 1 行。テーブルは作成されない。
+ */
+@CTE
+@Entity
+@Data
+@NoArgsConstructor
+public class AffectedCat {
+
+	@Id
+	private Long catId;
+}
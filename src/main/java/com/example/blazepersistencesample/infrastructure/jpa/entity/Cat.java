@@ -1,39 +1,108 @@
 package com.example.blazepersistencesample.infrastructure.jpa.entity;
 
+import java.util.Objects;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.Table;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import com.example.blazepersistencesample.infrastructure.jpa.id.PooledSequenceGenerator;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 @Entity
-@Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// キーセット ページングの並び順（CatSortOrder）と、年齢・仔猫の匹数による絞り込み、親猫・飼い主の外部キーに対応するインデックス
+// @formatter:off
+@Table(indexes = {
+		@Index(name = "idx_cat_name_id", columnList = "name, id"),
+		@Index(name = "idx_cat_age_id", columnList = "age, id"),
+		@Index(name = "idx_cat_age_kitten_count", columnList = "age, kittenCount"),
+		@Index(name = "idx_cat_parent_id", columnList = "parent_id"),
+		@Index(name = "idx_cat_owner_id", columnList = "owner_id")
+})
+// @formatter:on
+@Getter
+@Setter
+@ToString
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-public class Cat {
+public class Cat extends IdentifiedEntity {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cat_seq")
+	@GenericGenerator(name = "cat_seq", strategy = PooledSequenceGenerator.STRATEGY, parameters = {
+			@Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "cat_seq") })
 	private Long id;
 
 	@NotEmpty
+	@NotNull
 	private String name;
 
 	@NotNull
 	@Min(0)
 	private Integer age;
 
+	/** 仔猫。結合テーブルを使わず、仔猫の行の {@code parent_id} で親猫を参照する */
+	// toString で仔猫を読み込まない（N+1 になるため）
+	@ToString.Exclude
 	@OneToMany
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+	@JoinColumn(name = "parent_id", foreignKey = @ForeignKey(name = "fk_cat_parent"))
 	private Set<Cat> kittens;
+
+	/** 親猫の ID。{@link #kittens} の外部キーを、クエリーや一括更新から参照するための読み取り専用の属性 */
+	@Column(name = "parent_id", insertable = false, updatable = false)
+	private Long parentId;
+
+	/** 飼い主の ID。{@link Person#getKittens()} の外部キーを、クエリーや一括更新から参照するための読み取り専用の属性 */
+	@Column(name = "owner_id", insertable = false, updatable = false)
+	private Long ownerId;
+
+	/**
+	 * 仔猫の匹数。{@code SIZE(kittens)} の相関副問い合わせを避けるために、{@link #kittens} と同期して保持する。
+	 * <p>
+	 * 登録時と、フラッシュ時（{@link CatKittenCountInterceptor}）に自動で設定される。関連を DML で直接変更した場合は
+	 * {@code CatBulkOperations#recalculateKittenCounts()} で再計算する。
+	 */
+	@NotNull
+	@Min(0)
+	private Integer kittenCount;
+
+	@PrePersist
+	void syncKittenCount() {
+		if (Objects.isNull(kittens)) {
+			kittenCount = 0;
+		} else if (Hibernate.isInitialized(kittens)) {
+			// 読み込んでいない仔猫は変更されていないため、匹数もそのままでよい
+			kittenCount = kittens.size();
+		}
+	}
 }
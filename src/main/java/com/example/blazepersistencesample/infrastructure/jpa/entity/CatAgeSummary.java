@@ -0,0 +1,31 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 年齢ごとの猫の匹数と仔猫の匹数の合計を集計済みで保持する。猫のいない年齢の行はない。
+ * <p>
+ * {@code CatSummaryService} が猫の変更に合わせて、変更された年齢の行だけを集計し直す。
+ */
+@Entity
+@Getter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatAgeSummary {
+
+	@Id
+	private Integer age;
+
+	/** この年齢の猫の匹数 */
+	private Long catCount;
+
+	/** この年齢の猫の、仔猫の匹数（{@link Cat#getKittenCount()}）の合計 */
+	private Long kittenCount;
+}
@@ -0,0 +1,27 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import java.util.Iterator;
+
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * フラッシュの直前に、永続化コンテキスト内の猫の仔猫の匹数（{@link Cat#getKittenCount()}）を仔猫の関連に合わせる。
+ * <p>
+ * 仔猫の関連だけを変更した場合は JPA の {@code @PreUpdate} が呼ばれないため、Hibernate のインターセプターで同期する。
+ * {@code hibernate.session_factory.interceptor} に指定して使う。
+ */
+public class CatKittenCountInterceptor extends EmptyInterceptor {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void preFlush(final Iterator entities) {
+		while (entities.hasNext()) {
+			Object entity = entities.next();
+			if (entity instanceof Cat) {
+				((Cat) entity).syncKittenCount();
+			}
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import com.blazebit.persistence.CTE;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 猫の家系をたどる再帰 CTE（{@code WITH RECURSIVE}）の 1 行。テーブルは作成されない。
+ */
+@CTE
+@Entity
+@Data
+@NoArgsConstructor
+public class CatLineage {
+
+	/** たどり着いた猫の ID */
+	@Id
+	private Long catId;
+
+	/** 直前にたどった猫の ID。起点の猫では {@code null} */
+	private Long viaId;
+
+	/** 起点からの世代数。起点の猫は 0 */
+	private Integer depth;
+
+	/** 起点からたどった猫の ID を {@code /1/5/} の形で連ねたもの。循環の検出に使う */
+	private String path;
+}
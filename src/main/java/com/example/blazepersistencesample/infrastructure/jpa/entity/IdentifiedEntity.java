@@ -0,0 +1,41 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import java.util.Objects;
+
+import org.hibernate.Hibernate;
+
+/**
+ * ID で等価性を判定するエンティティ。
+ * <p>
+ * {@code equals}・{@code hashCode} はどちらも ID だけから計算するため、永続化コンテキストやプロキシーが異なっても、
+ * 等しいエンティティのハッシュ値は等しい。ID は登録時に採番されるため、登録の前後で等価性もハッシュ値も変わる。
+ * 未登録のエンティティを {@code HashSet} に入れる場合は、登録した後に作り直す。
+ */
+public abstract class IdentifiedEntity {
+
+	public abstract Long getId();
+
+	/**
+	 * ID が同じなら等しい。未登録（ID が {@code null}）のエンティティは自分自身とだけ等しい。
+	 */
+	@Override
+	public boolean equals(final Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (Objects.isNull(other) || Hibernate.getClass(this) != Hibernate.getClass(other)) {
+			return false;
+		}
+		// 遅延読み込みのプロキシーはフィールドが空のため、getter で参照する
+		return Objects.nonNull(getId()) && getId().equals(((IdentifiedEntity) other).getId());
+	}
+
+	/**
+	 * 未登録のエンティティはクラスごとの固定値を返す。関連はたどらない。
+	 */
+	@Override
+	public int hashCode() {
+		final Long id = getId();
+		return Objects.isNull(id) ? getClass().hashCode() : id.hashCode();
+	}
+}
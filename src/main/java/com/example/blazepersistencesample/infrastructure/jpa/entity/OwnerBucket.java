@@ -0,0 +1,26 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import com.blazebit.persistence.CTE;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 飼い主ごとの、飼い猫の匹数の区分を集める CTE（{@code WITH}）の 1 行。テーブルは作成されない。
+ */
+@CTE
+@Entity
+@Data
+@NoArgsConstructor
+public class OwnerBucket {
+
+	/** 飼い主（{@link Person}）の ID */
+	@Id
+	private Long ownerId;
+
+	/** 飼い猫の匹数の区分。上限以上の匹数は上限の区分になる */
+	private Integer bucket;
+}
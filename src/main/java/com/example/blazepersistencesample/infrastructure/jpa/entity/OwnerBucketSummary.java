@@ -0,0 +1,28 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 飼い猫の匹数の区分ごとの飼い主の人数を集計済みで保持する。飼い主のいない区分の行はない。
+ * <p>
+ * 区分は飼い猫の匹数で、上限（{@code CatSummaryService#MAX_BUCKET}）以上はまとめて上限の区分に数える。
+ */
+@Entity
+@Getter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class OwnerBucketSummary {
+
+	@Id
+	private Integer bucket;
+
+	/** この区分の飼い主の人数 */
+	private Long ownerCount;
+}
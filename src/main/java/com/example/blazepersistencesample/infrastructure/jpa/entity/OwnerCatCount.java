@@ -0,0 +1,27 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 飼い主ごとの飼い猫の匹数。{@link OwnerBucketSummary} を差分で更新するときに、変更前の匹数を引くために保持する。
+ */
+@Entity
+@Getter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class OwnerCatCount {
+
+	/** 飼い主（{@link Person}）の ID */
+	@Id
+	private Long ownerId;
+
+	/** 飼い猫（{@link Person#getKittens()}）の匹数 */
+	private Long catCount;
+}
@@ -2,32 +2,56 @@ package com.example.blazepersistencesample.infrastructure.jpa.entity;
 
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
 import javax.persistence.OneToMany;
 import javax.validation.constraints.NotEmpty;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import com.example.blazepersistencesample.infrastructure.jpa.id.PooledSequenceGenerator;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 @Entity
-@Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Getter
+@Setter
+@ToString
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-public class Person {
+public class Person extends IdentifiedEntity {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+	@GenericGenerator(name = "person_seq", strategy = PooledSequenceGenerator.STRATEGY, parameters = {
+			@Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "person_seq") })
 	private Long id;
 
 	@NotEmpty
 	private String name;
 
+	/** 飼い猫。結合テーブルを使わず、猫の行の {@code owner_id} で飼い主を参照する */
+	// toString で仔猫を読み込まない（N+1 になるため）
+	@ToString.Exclude
 	@OneToMany
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+	@JoinColumn(name = "owner_id", foreignKey = @ForeignKey(name = "fk_cat_owner"))
 	private Set<Cat> kittens;
 }
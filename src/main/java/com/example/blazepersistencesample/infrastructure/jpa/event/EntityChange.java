@@ -0,0 +1,83 @@
+package com.example.blazepersistencesample.infrastructure.jpa.event;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+import org.hibernate.persister.entity.EntityPersister;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * エンティティの登録・更新・削除、またはコレクションの変更。{@link EntityChangeDispatcher} がトランザクションの完了後に知らせる。
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class EntityChange {
+
+	public enum Kind {
+		INSERT, UPDATE, DELETE, COLLECTION
+	}
+
+	private final Kind kind;
+
+	/** 登録・更新・削除ではエンティティの型、コレクションの変更では要素の型（わからなければ {@code null}） */
+	private final Class<?> entityType;
+
+	/** エンティティの ID。コレクションの変更では、コレクションを持つエンティティの ID（わからなければ {@code null}） */
+	private final Serializable id;
+
+	/** コレクションのロール（{@code Person.kittens} なら {@code 完全修飾クラス名.kittens}）。コレクションの変更でなければ {@code null} */
+	private final String role;
+
+	@Getter(AccessLevel.NONE)
+	private final EntityPersister persister;
+
+	@Getter(AccessLevel.NONE)
+	private final Object[] oldState;
+
+	@Getter(AccessLevel.NONE)
+	private final Object[] state;
+
+	static EntityChange ofEntity(final Kind kind, final EntityPersister persister, final Serializable id,
+			final Object[] oldState, final Object[] state) {
+		return new EntityChange(kind, persister.getMappedClass(), id, null, persister, oldState, state);
+	}
+
+	static EntityChange ofCollection(final String role, final Class<?> elementType, final Serializable ownerId) {
+		return new EntityChange(Kind.COLLECTION, elementType, ownerId, role, null, null, null);
+	}
+
+	public boolean isCollection() {
+		return kind == Kind.COLLECTION;
+	}
+
+	/**
+	 * 変更前の属性の値がわかるか。登録ではわからず、更新では切り離されたエンティティをマージした場合などにわからない。
+	 */
+	public boolean hasOldState() {
+		return Objects.nonNull(oldState);
+	}
+
+	/**
+	 * @return 変更前の属性の値。登録、または変更前の値がわからなければ {@code null}
+	 */
+	public Object oldValue(final String property) {
+		return valueOf(oldState, property);
+	}
+
+	/**
+	 * @return 変更後の属性の値。削除なら {@code null}
+	 */
+	public Object newValue(final String property) {
+		return valueOf(state, property);
+	}
+
+	private Object valueOf(final Object[] values, final String property) {
+		if (Objects.isNull(values)) {
+			return null;
+		}
+		return values[persister.getEntityMetamodel().getPropertyIndex(property)];
+	}
+}
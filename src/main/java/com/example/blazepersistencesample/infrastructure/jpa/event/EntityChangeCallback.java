@@ -0,0 +1,15 @@
+package com.example.blazepersistencesample.infrastructure.jpa.event;
+
+/**
+ * {@link EntityChangeDispatcher} から、エンティティの変更を受け取る。
+ */
+@FunctionalInterface
+public interface EntityChangeCallback {
+
+	/**
+	 * 変更したトランザクションが完了した後に呼ばれる。呼び出し元のスレッドで呼ばれるため、重い処理は行わない。
+	 *
+	 * @param committed コミットされたか。{@code false} ならロールバックされ、変更はデータベースに残っていない
+	 */
+	void onCompleted(EntityChange change, boolean committed);
+}
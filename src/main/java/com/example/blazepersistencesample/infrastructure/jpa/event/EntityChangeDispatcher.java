@@ -0,0 +1,205 @@
+package com.example.blazepersistencesample.infrastructure.jpa.event;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.engine.spi.CollectionEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChange.Kind;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * エンティティの登録・更新・削除とコレクションの変更を、トランザクションの完了後に {@link EntityChangeCallback} へ知らせる。
+ * <p>
+ * Hibernate のリスナーを 1 つだけ登録し、{@link #subscribe(Collection, EntityChangeCallback)} した型の変更だけを、
+ * その型を購読したコールバックに知らせる。コレクションの変更は Hibernate ではフラッシュ時に通知されるため、
+ * トランザクションの完了まで遅らせてから知らせる。
+ * <p>
+ * エンティティを経由しない SQL（Blaze-Persistence の UPDATE・DELETE 文など）による変更は知らせない。
+ */
+@RequiredArgsConstructor
+public class EntityChangeDispatcher {
+
+	private final EntityManagerFactory emf;
+
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+	@PostConstruct
+	void registerListener() {
+		// @formatter:off
+		final EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+				.getServiceRegistry()
+				.getService(EventListenerRegistry.class);
+		// @formatter:on
+		final Listener listener = new Listener(this);
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+		registry.appendListeners(EventType.POST_COLLECTION_RECREATE, listener);
+		registry.appendListeners(EventType.POST_COLLECTION_UPDATE, listener);
+		registry.appendListeners(EventType.POST_COLLECTION_REMOVE, listener);
+	}
+
+	/**
+	 * @param entityTypes 変更を受け取るエンティティの型。コレクションの変更は要素の型で選ぶ
+	 */
+	public void subscribe(final Collection<? extends Class<?>> entityTypes, final EntityChangeCallback callback) {
+		if (entityTypes.isEmpty()) {
+			throw new IllegalArgumentException("entityTypes must not be empty");
+		}
+		subscriptions.add(new Subscription(new HashSet<>(entityTypes), callback));
+	}
+
+	private boolean isSubscribed(final Class<?> entityType) {
+		return subscriptions.stream().anyMatch(subscription -> subscription.entityTypes.contains(entityType));
+	}
+
+	/**
+	 * 要素の型がわからないコレクションの変更は、すべてのコールバックに知らせる。
+	 */
+	private void dispatch(final EntityChange change, final boolean committed) {
+		for (Subscription subscription : subscriptions) {
+			if (Objects.isNull(change.getEntityType()) || subscription.entityTypes.contains(change.getEntityType())) {
+				subscription.callback.onCompleted(change, committed);
+			}
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static final class Subscription {
+
+		private final Set<Class<?>> entityTypes;
+
+		private final EntityChangeCallback callback;
+	}
+
+	@RequiredArgsConstructor
+	private static final class Listener implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+			PostCommitDeleteEventListener, PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+			PostCollectionRemoveEventListener {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient EntityChangeDispatcher dispatcher;
+
+		@Override
+		public void onPostInsert(final PostInsertEvent event) {
+			dispatcher.dispatch(inserted(event), true);
+		}
+
+		@Override
+		public void onPostInsertCommitFailed(final PostInsertEvent event) {
+			dispatcher.dispatch(inserted(event), false);
+		}
+
+		@Override
+		public void onPostUpdate(final PostUpdateEvent event) {
+			dispatcher.dispatch(updated(event), true);
+		}
+
+		@Override
+		public void onPostUpdateCommitFailed(final PostUpdateEvent event) {
+			dispatcher.dispatch(updated(event), false);
+		}
+
+		@Override
+		public void onPostDelete(final PostDeleteEvent event) {
+			dispatcher.dispatch(deleted(event), true);
+		}
+
+		@Override
+		public void onPostDeleteCommitFailed(final PostDeleteEvent event) {
+			dispatcher.dispatch(deleted(event), false);
+		}
+
+		@Override
+		public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+			dispatchAfterCompletion(event);
+		}
+
+		@Override
+		public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+			dispatchAfterCompletion(event);
+		}
+
+		@Override
+		public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+			dispatchAfterCompletion(event);
+		}
+
+		@Override
+		public boolean requiresPostCommitHandling(final EntityPersister persister) {
+			return dispatcher.isSubscribed(persister.getMappedClass());
+		}
+
+		/**
+		 * {@link #requiresPostCommitHandling(EntityPersister)} を使う。
+		 */
+		@Deprecated
+		@Override
+		public boolean requiresPostCommitHanding(final EntityPersister persister) {
+			return requiresPostCommitHandling(persister);
+		}
+
+		private static EntityChange inserted(final PostInsertEvent event) {
+			return EntityChange.ofEntity(Kind.INSERT, event.getPersister(), event.getId(), null, event.getState());
+		}
+
+		private static EntityChange updated(final PostUpdateEvent event) {
+			// @formatter:off
+			return EntityChange.ofEntity(Kind.UPDATE, event.getPersister(), event.getId(), event.getOldState(),
+					event.getState());
+			// @formatter:on
+		}
+
+		private static EntityChange deleted(final PostDeleteEvent event) {
+			return EntityChange.ofEntity(Kind.DELETE, event.getPersister(), event.getId(), event.getDeletedState(), null);
+		}
+
+		private void dispatchAfterCompletion(final AbstractCollectionEvent event) {
+			// 登録直後のコレクションはロールを持たないため、永続化コンテキストのエントリーから要素の型を調べる
+			// @formatter:off
+			final CollectionEntry entry = event.getSession()
+					.getPersistenceContextInternal()
+					.getCollectionEntry(event.getCollection());
+			// @formatter:on
+			final CollectionPersister persister = Objects.isNull(entry) ? null
+					: Objects.nonNull(entry.getCurrentPersister()) ? entry.getCurrentPersister()
+							: entry.getLoadedPersister();
+			// @formatter:off
+			final EntityChange change = EntityChange.ofCollection(
+					Objects.isNull(persister) ? event.getCollection().getRole() : persister.getRole(),
+					Objects.isNull(persister) ? null : persister.getElementType().getReturnedClass(),
+					event.getAffectedOwnerIdOrNull());
+			// @formatter:on
+			event.getSession().getActionQueue().registerProcess(
+					(success, session) -> dispatcher.dispatch(change, success));
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.blazepersistencesample.infrastructure.jpa.export;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatSortOrder;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * すべての猫を、一覧（{@code List}）に溜めずにカーソルで 1 件ずつ読み進める。
+ * <p>
+ * 結果は永続化コンテキストで管理されない {@link CatView} の射影で返し、JDBC のフェッチ サイズ単位で読み込むため、
+ * 件数が増えてもメモリー使用量は一定に保たれる。射影がエンティティ型の属性を持つ場合に備え、一定件数ごとに永続化コンテキストもクリアする。
+ * カーソルはトランザクションの中でしか読めないため、{@code Stream} を返さずに 1 件ごとの処理を受け取る。
+ */
+@Service
+@Transactional(readOnly = true)
+public class CatStreamService {
+
+	private static final String ALIAS = "c";
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	private final EntityViewManager evm;
+
+	private final int fetchSize;
+
+	private final int clearInterval;
+
+	public CatStreamService(final CriteriaBuilderFactory cbf, final EntityManager em, final EntityViewManager evm,
+			@Value("${blaze-persistence-sample.export.fetch-size:1000}") final int fetchSize,
+			@Value("${blaze-persistence-sample.export.clear-interval:10000}") final int clearInterval) {
+		if (fetchSize <= 0) {
+			throw new IllegalArgumentException("fetchSize must be positive: " + fetchSize);
+		}
+		if (clearInterval <= 0) {
+			throw new IllegalArgumentException("clearInterval must be positive: " + clearInterval);
+		}
+		this.cbf = cbf;
+		this.em = em;
+		this.evm = evm;
+		this.fetchSize = fetchSize;
+		this.clearInterval = clearInterval;
+	}
+
+	/**
+	 * @param action 猫 1 件ごとの処理。引数の射影を呼び出しの後まで保持しないこと
+	 * @return 処理した猫の件数
+	 */
+	public <V extends CatView> long forEach(final Class<V> viewClass, final CatSortOrder sortOrder,
+			final Consumer<? super V> action) {
+		Objects.requireNonNull(sortOrder, "sortOrder");
+		Objects.requireNonNull(action, "action");
+
+		CriteriaBuilder<Cat> cb = sortOrder.applyTo(cbf.create(em, Cat.class, ALIAS), ALIAS);
+		// @formatter:off
+		TypedQuery<V> query = evm.applySetting(EntityViewSetting.create(viewClass), cb)
+				.getQuery()
+				.setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+				.setHint(QueryHints.HINT_READONLY, true);
+		// @formatter:on
+
+		long count = 0;
+		try (Stream<V> cats = query.getResultStream()) {
+			Iterator<V> iterator = cats.iterator();
+			while (iterator.hasNext()) {
+				action.accept(iterator.next());
+				if (++count % clearInterval == 0) {
+					em.clear();
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,101 @@
+package com.example.blazepersistencesample.infrastructure.jpa.fetch;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.template.QueryTemplate;
+import com.example.blazepersistencesample.infrastructure.jpa.template.QueryTemplateFactory;
+
+/**
+ * 飼い主・猫の仔猫（{@code kittens}）を、持ち主 1 件ごとではなく {@code IN} で絞り込んだ JOIN FETCH でまとめて読み込む。
+ * <p>
+ * 読み込んだ仔猫は、現在の永続化コンテキストで管理されている持ち主のコレクションにそのまま設定されるため、
+ * 呼び出し後に {@code getKittens()} を参照してもクエリーは発行されない。
+ * 持ち主 {@code chunkSize} 件ごとに 1 クエリーを発行し、初期化済みのコレクションは読み込み直さない。
+ * クエリーは起動時に {@link QueryTemplate} として組み立て、実行時には ID のパラメーターだけを設定する。
+ */
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class KittenPrefetcher {
+
+	private static final String OWNER_IDS = "ownerIds";
+
+	private final EntityManager em;
+
+	private final QueryTemplate<Person> personKittens;
+
+	private final QueryTemplate<Cat> catKittens;
+
+	private final int chunkSize;
+
+	public KittenPrefetcher(final QueryTemplateFactory templates, final EntityManager em,
+			@Value("${blaze-persistence-sample.fetch.prefetch-chunk-size:1000}") final int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		this.em = em;
+		this.personKittens = fetchKittensById(templates, Person.class);
+		this.catKittens = fetchKittensById(templates, Cat.class);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param persons 現在の永続化コンテキストで管理されている飼い主
+	 * @return 発行したクエリーの数
+	 */
+	public int prefetchPersonKittens(final Collection<Person> persons) {
+		return prefetch(personKittens, persons, Person::getId, Person::getKittens);
+	}
+
+	/**
+	 * @param cats 現在の永続化コンテキストで管理されている猫
+	 * @return 発行したクエリーの数
+	 */
+	public int prefetchCatKittens(final Collection<Cat> cats) {
+		return prefetch(catKittens, cats, Cat::getId, Cat::getKittens);
+	}
+
+	private <E> int prefetch(final QueryTemplate<E> template, final Collection<E> owners,
+			final Function<E, Long> idOf, final Function<E, Collection<Cat>> kittensOf) {
+		// @formatter:off
+		List<Long> ids = owners.stream()
+				.filter(owner -> !Hibernate.isInitialized(kittensOf.apply(owner)))
+				.map(idOf)
+				.filter(Objects::nonNull)
+				.distinct()
+				.collect(Collectors.toList());
+		// @formatter:on
+
+		int queries = 0;
+		for (int from = 0; from < ids.size(); from += chunkSize) {
+			template.getResultList(em,
+					Collections.singletonMap(OWNER_IDS, ids.subList(from, Math.min(from + chunkSize, ids.size()))));
+			queries++;
+		}
+		return queries;
+	}
+
+	private static <E> QueryTemplate<E> fetchKittensById(final QueryTemplateFactory templates,
+			final Class<E> ownerClass) {
+		// @formatter:off
+		return templates.create(ownerClass, cb -> cb
+				.from(ownerClass, "owner")
+				.fetch("owner.kittens")
+				.where("owner.id").inExpressions(":" + OWNER_IDS));
+		// @formatter:on
+	}
+}
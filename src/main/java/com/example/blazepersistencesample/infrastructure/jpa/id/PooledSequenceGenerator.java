@@ -0,0 +1,43 @@
+package com.example.blazepersistencesample.infrastructure.jpa.id;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * pooled-lo 最適化のシーケンスで ID を採番する。
+ * <p>
+ * 1 回のシーケンス呼び出しで複数個分（既定は {@value #DEFAULT_ALLOCATION_SIZE} 個）の ID を確保するため、INSERT ごとにシーケンスを読みに行かず、JDBC バッチも効く。
+ * 確保する個数は {@code spring.jpa.properties.blaze-persistence-sample.id.increment-size} で変更できる。
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+	public static final String STRATEGY = "com.example.blazepersistencesample.infrastructure.jpa.id.PooledSequenceGenerator";
+
+	public static final String INCREMENT_SIZE_SETTING = "blaze-persistence-sample.id.increment-size";
+
+	public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+	@Override
+	public void configure(final Type type, final Properties params, final ServiceRegistry serviceRegistry)
+			throws MappingException {
+
+		Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+		int incrementSize = ConfigurationHelper.getInt(INCREMENT_SIZE_SETTING, settings, DEFAULT_ALLOCATION_SIZE);
+		if (incrementSize <= 0) {
+			throw new MappingException(INCREMENT_SIZE_SETTING + " must be positive: " + incrementSize);
+		}
+
+		params.putIfAbsent(INCREMENT_PARAM, String.valueOf(incrementSize));
+		params.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+
+		super.configure(type, params, serviceRegistry);
+	}
+}
@@ -0,0 +1,128 @@
+package com.example.blazepersistencesample.infrastructure.jpa.ingest;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+
+/**
+ * 猫・飼い主を大量に登録する。
+ * <p>
+ * JDBC バッチ サイズと同じ件数ごとにフラッシュして永続化コンテキストをクリアするため、登録件数が増えてもメモリー使用量は一定に保たれる。
+ * 登録したエンティティは呼び出し後に管理対象外（detached）になる。
+ * <p>
+ * 仔猫は孫以降もたどり、親猫より先に登録する（親猫を登録した後にクリアされても、仔猫が未登録のまま残らないように）。
+ * 登録済み（ID あり）の猫は登録し直さないため、同じ猫が複数の親猫の仔猫や一覧に重複して現れても 1 度だけ登録して数える。
+ * 仔猫の {@code HashSet} は、仔猫の ID が採番された後に作り直す（ハッシュ値が ID から計算されるため）。
+ */
+@Service
+@Transactional
+public class BulkIngestService {
+
+	private final EntityManager em;
+
+	private final int chunkSize;
+
+	public BulkIngestService(final EntityManager em,
+			@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") final int chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		}
+		this.em = em;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * 未登録の仔猫・孫猫も併せて登録する。
+	 *
+	 * @return 登録した猫（仔猫・孫猫を含む）の件数
+	 */
+	public long ingestCats(final Iterable<Cat> cats) {
+		Chunk chunk = new Chunk();
+		for (Cat cat : cats) {
+			persistCat(cat, chunk);
+		}
+		chunk.flush();
+		return chunk.persisted;
+	}
+
+	/**
+	 * 未登録の飼い猫も併せて登録する。
+	 *
+	 * @return 登録した飼い主の件数
+	 */
+	public long ingestPersons(final Iterable<Person> persons) {
+		Chunk chunk = new Chunk();
+		long noOfPersons = 0;
+		for (Person person : persons) {
+			person.setKittens(persistKittens(person.getKittens(), chunk));
+			persist(person, chunk);
+			noOfPersons++;
+		}
+		chunk.flush();
+		return noOfPersons;
+	}
+
+	/**
+	 * 仔猫を先に登録してから、未登録の猫を登録する。
+	 */
+	private void persistCat(final Cat cat, final Chunk chunk) {
+		if (Objects.nonNull(cat.getId()) || !chunk.visiting.add(cat)) {
+			// 登録済みか、仔猫の関連が循環してたどっている途中の猫
+			return;
+		}
+		try {
+			cat.setKittens(persistKittens(cat.getKittens(), chunk));
+			persist(cat, chunk);
+		} finally {
+			chunk.visiting.remove(cat);
+		}
+	}
+
+	/**
+	 * @return 仔猫の ID で作り直した {@code HashSet}
+	 */
+	private Set<Cat> persistKittens(final Set<Cat> kittens, final Chunk chunk) {
+		if (Objects.isNull(kittens) || kittens.isEmpty()) {
+			return kittens;
+		}
+		for (Cat kitten : kittens) {
+			persistCat(kitten, chunk);
+		}
+		return new HashSet<>(kittens);
+	}
+
+	private void persist(final Object entity, final Chunk chunk) {
+		em.persist(entity);
+		chunk.persisted++;
+		if (++chunk.pending >= chunkSize) {
+			chunk.flush();
+		}
+	}
+
+	private final class Chunk {
+
+		private long persisted;
+
+		private int pending;
+
+		/** 仔猫をたどっている途中の猫。たどり終えた猫は ID で登録済みとわかるため、保持し続けない */
+		private final Set<Cat> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		private void flush() {
+			em.flush();
+			em.clear();
+			pending = 0;
+		}
+	}
+}
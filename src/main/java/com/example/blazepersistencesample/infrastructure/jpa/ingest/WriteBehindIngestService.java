@@ -0,0 +1,648 @@
+package com.example.blazepersistencesample.infrastructure.jpa.ingest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkModifiedEvent;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 多数の呼び出し元から 1 件ずつ届く猫・飼い主の登録と、飼い主・親猫との関連付けを待ち行列にため、少数の書き込みスレッドで
+ * まとめて 1 つのトランザクションで書き込む。
+ * <p>
+ * 受け付けると {@link CompletableFuture} を返し、書き込んだトランザクションのコミット後に完了する。
+ * 書き込みスレッドは、待ち行列にあるものを {@code batch-size} 件まで取り出して書き込むため、書き込み中に届いたものは次の
+ * トランザクションにまとめられる。まとめた書き込みが失敗した場合は、1 件ずつ別のトランザクションで書き直し、失敗したものだけを
+ * 失敗させる。書き直すのは、受け付けた時点の値から作り直したエンティティで、コミットした後に採番された ID を受け付けたエンティティに
+ * 戻す。複数の受け付けが同じ仔猫を共有していても、先に書き直したもので登録された仔猫は、後のものでは登録済みとして扱う。
+ * <p>
+ * 待ち行列は書き込み中のものを含めて {@code capacity} 件までで、それを超えると呼び出し元は空きを {@code acquire-timeout} まで待ち、
+ * 空かなければ {@link RejectedExecutionException} で失敗した {@link CompletableFuture} を返す。
+ * <p>
+ * 関連付けは UPDATE 文で書き込むため、コミット後に、更新した猫と集計が変わる年齢・飼い主を {@link CatBulkModifiedEvent} で知らせる。
+ * <p>
+ * 登録したエンティティは、完了後に管理対象外（detached）になる。受け付けた後、完了するまでは変更しないこと。
+ */
+@Slf4j
+@Component
+public class WriteBehindIngestService implements DisposableBean {
+
+	/** 待ち行列が空のとき、書き込みスレッドが次の受け付けを待つ最長の時間 */
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final BulkIngestService ingestService;
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final TransactionTemplate tx;
+
+	private final Queue<Entry<?>> queue = new ConcurrentLinkedQueue<>();
+
+	private final Semaphore permits;
+
+	private final int batchSize;
+
+	private final long acquireTimeoutNanos;
+
+	private final List<Thread> writers;
+
+	private final AtomicInteger idleWriters = new AtomicInteger();
+
+	private final AtomicInteger nextWriter = new AtomicInteger();
+
+	/** 受け付け（読み取りロック）と停止（書き込みロック）を排他し、停止後に待ち行列へ入るものをなくす */
+	private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+	private volatile boolean running = true;
+
+	public WriteBehindIngestService(final BulkIngestService ingestService, final CriteriaBuilderFactory cbf,
+			final EntityManager em, final ApplicationEventPublisher eventPublisher,
+			final PlatformTransactionManager transactionManager,
+			@Value("${blaze-persistence-sample.write-behind.writers:2}") final int writers,
+			@Value("${blaze-persistence-sample.write-behind.capacity:10000}") final int capacity,
+			@Value("${blaze-persistence-sample.write-behind.batch-size:1000}") final int batchSize,
+			@Value("${blaze-persistence-sample.write-behind.acquire-timeout:1s}") final Duration acquireTimeout) {
+		if (writers <= 0) {
+			throw new IllegalArgumentException("writers must be positive: " + writers);
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		}
+		this.ingestService = ingestService;
+		this.cbf = cbf;
+		this.em = em;
+		this.eventPublisher = eventPublisher;
+		this.tx = new TransactionTemplate(transactionManager);
+		this.permits = new Semaphore(capacity);
+		this.batchSize = batchSize;
+		this.acquireTimeoutNanos = acquireTimeout.toNanos();
+
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("write-behind-");
+		threadFactory.setDaemon(true);
+		this.writers = new ArrayList<>(writers);
+		for (int i = 0; i < writers; i++) {
+			this.writers.add(threadFactory.newThread(this::runWriter));
+		}
+		this.writers.forEach(Thread::start);
+	}
+
+	/**
+	 * 猫を、未登録の仔猫と併せて登録する。
+	 *
+	 * @return 登録した {@code cat} で完了する
+	 */
+	public CompletableFuture<Cat> submitCat(final Cat cat) {
+		Objects.requireNonNull(cat, "cat");
+		return submit(new CatEntry(cat));
+	}
+
+	/**
+	 * 飼い主を、未登録の飼い猫と併せて登録する。
+	 *
+	 * @return 登録した {@code person} で完了する
+	 */
+	public CompletableFuture<Person> submitPerson(final Person person) {
+		Objects.requireNonNull(person, "person");
+		return submit(new PersonEntry(person));
+	}
+
+	/**
+	 * 登録済みの猫の飼い主を {@code ownerId} にする。同じトランザクションにまとめられた同じ猫の関連付けは、後のものが有効になる。
+	 */
+	public CompletableFuture<Void> linkOwner(final long catId, final long ownerId) {
+		return submit(new LinkEntry(LinkType.OWNER, catId, ownerId));
+	}
+
+	/**
+	 * 登録済みの猫の親猫を {@code parentId} にし、前後の親猫の仔猫の匹数を合わせる。
+	 */
+	public CompletableFuture<Void> linkParent(final long kittenId, final long parentId) {
+		return submit(new LinkEntry(LinkType.PARENT, kittenId, parentId));
+	}
+
+	/**
+	 * 受け付けを止め、待ち行列に残っているものを書き込んでから書き込みスレッドを終了する。
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		runningLock.writeLock().lock();
+		try {
+			running = false;
+		} finally {
+			runningLock.writeLock().unlock();
+		}
+		// 停止までに受け付けたものは待ち行列にあり、書き込みスレッドが書き込んでから終了する
+		writers.forEach(LockSupport::unpark);
+		for (Thread writer : writers) {
+			writer.join();
+		}
+	}
+
+	private <T> CompletableFuture<T> submit(final Entry<T> entry) {
+		if (!running) {
+			return CompletableFuture.failedFuture(new RejectedExecutionException("Write-behind ingestion is shut down"));
+		}
+		try {
+			if (!permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				return CompletableFuture.failedFuture(
+						new RejectedExecutionException("Too many entries waiting to be written"));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return CompletableFuture.failedFuture(e);
+		}
+		runningLock.readLock().lock();
+		try {
+			// 空きを待つ間に停止された
+			if (!running) {
+				permits.release();
+				return CompletableFuture.failedFuture(new RejectedExecutionException("Write-behind ingestion is shut down"));
+			}
+			queue.offer(entry);
+		} finally {
+			runningLock.readLock().unlock();
+		}
+		if (idleWriters.get() > 0) {
+			LockSupport.unpark(writers.get(Math.floorMod(nextWriter.getAndIncrement(), writers.size())));
+		}
+		return entry.future;
+	}
+
+	private void runWriter() {
+		final List<Entry<?>> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			Entry<?> entry;
+			while (batch.size() < batchSize && (entry = queue.poll()) != null) {
+				batch.add(entry);
+			}
+			if (batch.isEmpty()) {
+				idle();
+				continue;
+			}
+			try {
+				write(batch);
+			} finally {
+				// 書き込み中のものも待ち行列の件数に数え、受け付けた件数が capacity を超えないようにする
+				permits.release(batch.size());
+			}
+			batch.clear();
+		}
+	}
+
+	private void idle() {
+		idleWriters.incrementAndGet();
+		try {
+			// 数え始めた後に受け付けたものは、ここで見つかるか、受け付けた側に起こされる
+			if (running && queue.isEmpty()) {
+				LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			}
+		} finally {
+			idleWriters.decrementAndGet();
+		}
+	}
+
+	private void write(final List<Entry<?>> entries) {
+		entries.forEach(Entry::beforeWrite);
+		try {
+			tx.executeWithoutResult(status -> {
+				final Batch batch = new Batch();
+				entries.forEach(entry -> entry.addTo(batch));
+				batch.write();
+			});
+		} catch (RuntimeException e) {
+			entries.forEach(Entry::restore);
+			if (entries.size() == 1) {
+				entries.get(0).future.completeExceptionally(e);
+				return;
+			}
+			log.warn("Failed to write {} entries in one transaction, retrying one by one: {}", entries.size(),
+					e.getMessage());
+			entries.forEach(this::rewrite);
+			return;
+		}
+		entries.forEach(Entry::complete);
+	}
+
+	/**
+	 * 受け付けた時点の値から作り直したエンティティを、1 件だけのトランザクションで書き直す。
+	 */
+	private void rewrite(final Entry<?> entry) {
+		final Copier copier = new Copier();
+		try {
+			tx.executeWithoutResult(status -> {
+				final Batch batch = new Batch();
+				entry.addCopyTo(batch, copier);
+				batch.write();
+			});
+		} catch (RuntimeException e) {
+			entry.future.completeExceptionally(e);
+			return;
+		}
+		copier.commit();
+		entry.commitCopy();
+		entry.complete();
+	}
+
+	private enum LinkType {
+		OWNER, PARENT
+	}
+
+	private abstract static class Entry<T> {
+
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		abstract void addTo(Batch batch);
+
+		/**
+		 * 受け付けた時点の値から作り直したエンティティを加える。
+		 */
+		void addCopyTo(final Batch batch, final Copier copier) {
+			addTo(batch);
+		}
+
+		/**
+		 * 書き込む前に、まだ登録されていない猫を覚える。
+		 */
+		void beforeWrite() {
+		}
+
+		/**
+		 * 失敗したトランザクションで採番された ID と、置き換えられた仔猫のコレクションを、書き込む前に戻す。
+		 */
+		void restore() {
+		}
+
+		/**
+		 * 作り直したエンティティがコミットされた後、採番された ID を受け付けたエンティティに戻す。
+		 */
+		void commitCopy() {
+		}
+
+		abstract T result();
+
+		private void complete() {
+			future.complete(result());
+		}
+	}
+
+	private static final class CatEntry extends Entry<Cat> {
+
+		private final Cat cat;
+
+		private final Snapshot snapshot = new Snapshot();
+
+		private CatEntry(final Cat cat) {
+			this.cat = cat;
+			snapshot.capture(cat);
+		}
+
+		@Override
+		void addTo(final Batch batch) {
+			batch.cats.add(cat);
+		}
+
+		@Override
+		void addCopyTo(final Batch batch, final Copier copier) {
+			batch.cats.add(copier.copy(cat, snapshot));
+		}
+
+		@Override
+		void beforeWrite() {
+			snapshot.beforeWrite();
+		}
+
+		@Override
+		void restore() {
+			snapshot.restore();
+		}
+
+		@Override
+		Cat result() {
+			return cat;
+		}
+	}
+
+	private static final class PersonEntry extends Entry<Person> {
+
+		private final Person person;
+
+		private final Long id;
+
+		private final String name;
+
+		private final Set<Cat> kittens;
+
+		private final Snapshot snapshot = new Snapshot();
+
+		private Person copy;
+
+		private PersonEntry(final Person person) {
+			this.person = person;
+			this.id = person.getId();
+			this.name = person.getName();
+			this.kittens = person.getKittens();
+			snapshot.captureAll(kittens);
+		}
+
+		@Override
+		void addTo(final Batch batch) {
+			batch.persons.add(person);
+		}
+
+		@Override
+		void addCopyTo(final Batch batch, final Copier copier) {
+			copy = Person.builder().id(id).name(name).kittens(copier.copyAll(kittens, snapshot)).build();
+			batch.persons.add(copy);
+		}
+
+		@Override
+		void beforeWrite() {
+			snapshot.beforeWrite();
+		}
+
+		@Override
+		void restore() {
+			person.setId(id);
+			person.setKittens(kittens);
+			snapshot.restore();
+		}
+
+		@Override
+		void commitCopy() {
+			person.setId(copy.getId());
+			person.setKittens(Objects.isNull(kittens) ? null : new HashSet<>(kittens));
+		}
+
+		@Override
+		Person result() {
+			return person;
+		}
+	}
+
+	private static final class LinkEntry extends Entry<Void> {
+
+		private final LinkType type;
+
+		private final long catId;
+
+		private final long targetId;
+
+		private LinkEntry(final LinkType type, final long catId, final long targetId) {
+			this.type = type;
+			this.catId = catId;
+			this.targetId = targetId;
+		}
+
+		@Override
+		void addTo(final Batch batch) {
+			(type == LinkType.OWNER ? batch.owners : batch.parents).put(catId, targetId);
+		}
+
+		@Override
+		Void result() {
+			return null;
+		}
+	}
+
+	/**
+	 * 受け付けた時点の、未登録の猫（仔猫・孫猫を含む）の値。
+	 */
+	private static final class Snapshot {
+
+		/** 猫 → 受け付けた時点の値。同じ猫を共有する受け付けごとに持つため、同一性で引く */
+		private final Map<Cat, CatValues> values = new IdentityHashMap<>();
+
+		/** 書き込む前に未登録だった猫。ほかの受け付けで登録された仔猫は含まない */
+		private final List<Cat> unsaved = new ArrayList<>();
+
+		private void capture(final Cat cat) {
+			if (Objects.nonNull(cat.getId()) || values.containsKey(cat)) {
+				return;
+			}
+			values.put(cat, new CatValues(cat.getName(), cat.getAge(), cat.getKittens()));
+			captureAll(cat.getKittens());
+		}
+
+		private void captureAll(final Set<Cat> kittens) {
+			if (Objects.nonNull(kittens)) {
+				kittens.forEach(this::capture);
+			}
+		}
+
+		private void beforeWrite() {
+			unsaved.clear();
+			values.keySet().stream().filter(cat -> Objects.isNull(cat.getId())).forEach(unsaved::add);
+		}
+
+		private void restore() {
+			unsaved.forEach(cat -> {
+				cat.setId(null);
+				cat.setKittens(values.get(cat).kittens);
+			});
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static final class CatValues {
+
+		private final String name;
+
+		private final Integer age;
+
+		private final Set<Cat> kittens;
+	}
+
+	/**
+	 * 1 件の書き直しで、受け付けた時点の値から作り直した猫。登録済みの猫は作り直さずにそのまま参照する。
+	 */
+	private static final class Copier {
+
+		/** 受け付けた猫 → 作り直した猫 */
+		private final Map<Cat, Cat> copies = new IdentityHashMap<>();
+
+		private Cat copy(final Cat cat, final Snapshot snapshot) {
+			if (Objects.nonNull(cat.getId())) {
+				// 受け付ける前から登録済みか、先に書き直した受け付けで登録された
+				return cat;
+			}
+			Cat copy = copies.get(cat);
+			if (Objects.isNull(copy)) {
+				final CatValues values = snapshot.values.get(cat);
+				copy = Cat.builder().name(values.name).age(values.age).build();
+				copies.put(cat, copy);
+				copy.setKittens(copyAll(values.kittens, snapshot));
+			}
+			return copy;
+		}
+
+		private Set<Cat> copyAll(final Set<Cat> kittens, final Snapshot snapshot) {
+			if (Objects.isNull(kittens)) {
+				return null;
+			}
+			final Set<Cat> copied = new HashSet<>();
+			kittens.forEach(kitten -> copied.add(copy(kitten, snapshot)));
+			return copied;
+		}
+
+		/**
+		 * 採番された ID を受け付けた猫に戻してから、ID で引けるように仔猫のコレクションを作り直す。
+		 */
+		private void commit() {
+			copies.forEach((cat, copy) -> {
+				cat.setId(copy.getId());
+				cat.setKittenCount(copy.getKittenCount());
+			});
+			copies.keySet().forEach(cat -> {
+				if (Objects.nonNull(cat.getKittens())) {
+					cat.setKittens(new HashSet<>(cat.getKittens()));
+				}
+			});
+		}
+	}
+
+	/**
+	 * 1 つのトランザクションで書き込む分。登録を先に、関連付けを後に書き込む。
+	 */
+	private final class Batch {
+
+		private final List<Cat> cats = new ArrayList<>();
+
+		private final List<Person> persons = new ArrayList<>();
+
+		/** 猫の ID → 飼い主の ID */
+		private final Map<Long, Long> owners = new LinkedHashMap<>();
+
+		/** 仔猫の ID → 親猫の ID */
+		private final Map<Long, Long> parents = new LinkedHashMap<>();
+
+		private void write() {
+			if (!cats.isEmpty()) {
+				ingestService.ingestCats(cats);
+			}
+			if (!persons.isEmpty()) {
+				ingestService.ingestPersons(persons);
+			}
+
+			if (owners.isEmpty() && parents.isEmpty()) {
+				return;
+			}
+			final Set<Long> catIds = new HashSet<>(owners.keySet());
+			catIds.addAll(parents.keySet());
+			final Set<Long> ownerIds = new HashSet<>();
+			if (!owners.isEmpty()) {
+				// 猫が移る前後の飼い主の匹数が変わる
+				ownerIds.addAll(owners.values());
+				ownerIds.addAll(select("c.ownerId", owners.keySet()));
+				link("ownerId", owners);
+			}
+			final Set<Integer> ages = new HashSet<>();
+			if (!parents.isEmpty()) {
+				// 仔猫が移る前後の親猫の匹数を合わせる
+				final Set<Long> affectedParents = new HashSet<>(parents.values());
+				affectedParents.addAll(select("c.parentId", parents.keySet()));
+				link("parentId", parents);
+				recalculateKittenCounts(affectedParents);
+				// 親猫の年齢ごとの、仔猫の匹数の合計が変わる
+				catIds.addAll(affectedParents);
+				// @formatter:off
+				ages.addAll(cbf.create(em, Integer.class)
+						.from(Cat.class, "c")
+						.select("c.age")
+						.where("c.id").in(affectedParents)
+						.distinct()
+						.getResultList());
+				// @formatter:on
+			}
+			em.clear();
+			eventPublisher.publishEvent(CatBulkModifiedEvent.of(catIds, ages, ownerIds));
+		}
+
+		/**
+		 * 関連付ける猫の、今の関連付け先の ID。
+		 */
+		private List<Long> select(final String attribute, final Set<Long> catIds) {
+			// @formatter:off
+			return cbf.create(em, Long.class)
+					.from(Cat.class, "c")
+					.select(attribute)
+					.where("c.id").in(catIds)
+					.where(attribute).isNotNull()
+					.getResultList();
+			// @formatter:on
+		}
+
+		/**
+		 * 関連付け先ごとに UPDATE 文 1 本で書き込む。
+		 */
+		private void link(final String attribute, final Map<Long, Long> links) {
+			final Map<Long, List<Long>> catsByTarget = new LinkedHashMap<>();
+			links.forEach((catId, targetId) -> catsByTarget.computeIfAbsent(targetId, id -> new ArrayList<>()).add(catId));
+
+			int updated = 0;
+			for (Map.Entry<Long, List<Long>> group : catsByTarget.entrySet()) {
+				// @formatter:off
+				updated += cbf.update(em, Cat.class, "c")
+						.set(attribute, group.getKey())
+						.where("c.id").in(group.getValue())
+						.executeUpdate();
+				// @formatter:on
+			}
+			if (updated != links.size()) {
+				throw new EntityNotFoundException("Some of cats " + links.keySet() + " do not exist");
+			}
+		}
+
+		private void recalculateKittenCounts(final Set<Long> parentIds) {
+			// @formatter:off
+			cbf.update(em, Cat.class, "c")
+					.set("kittenCount")
+						.from(Cat.class, "parent")
+						.select("COUNT(parent.kittens.id)")
+						.where("parent.id").eqExpression("c.id")
+					.end()
+					.where("c.id").in(parentIds)
+					.executeUpdate();
+			// @formatter:on
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.example.blazepersistencesample.infrastructure.jpa.lineage;
+
+import lombok.Value;
+
+/**
+ * 家系をたどって見つかった猫 1 匹。
+ */
+@Value
+public class CatLineageEntry {
+
+	Long id;
+
+	String name;
+
+	Integer age;
+
+	/** 直前にたどった猫（子孫なら親猫、祖先なら仔猫）の ID。起点の猫では {@code null} */
+	Long viaId;
+
+	/** 起点からの世代数。起点の猫は 0 */
+	Integer depth;
+}
@@ -0,0 +1,19 @@
+package com.example.blazepersistencesample.infrastructure.jpa.lineage;
+
+import lombok.Value;
+
+/**
+ * 家系の世代ごとの集計。
+ */
+@Value
+public class CatLineageLevel {
+
+	/** 起点からの世代数 */
+	Integer depth;
+
+	/** その世代の猫の匹数 */
+	Long noOfCats;
+
+	/** その世代の猫の年齢の平均 */
+	Double averageAge;
+}
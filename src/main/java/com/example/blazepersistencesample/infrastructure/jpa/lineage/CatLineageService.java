@@ -0,0 +1,128 @@
+package com.example.blazepersistencesample.infrastructure.jpa.lineage;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.CatLineage;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 仔猫（{@link Cat#getKittens()}）の関連をたどって、猫の子孫・祖先を再帰 CTE の 1 クエリーで取得する。
+ * <p>
+ * {@code getKittens()} を世代ごとに読み込む場合と異なり、家系の深さに関わらずデータベースとの往復は 1 回で済む。
+ * 再帰は {@code maxDepth} 世代で打ち切り、たどった経路にすでに含まれる猫には進まない（関連が循環していても終了する）。
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class CatLineageService {
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	/**
+	 * 起点の猫（世代数 0）と、{@code maxDepth} 世代下までの子孫を、世代数・ID の順で返す。
+	 */
+	public List<CatLineageEntry> descendants(final long catId, final int maxDepth) {
+		return entries(lineage(Direction.DESCENDANTS, catId, maxDepth));
+	}
+
+	/**
+	 * 起点の猫（世代数 0）と、{@code maxDepth} 世代上までの祖先を、世代数・ID の順で返す。
+	 */
+	public List<CatLineageEntry> ancestors(final long catId, final int maxDepth) {
+		return entries(lineage(Direction.ANCESTORS, catId, maxDepth));
+	}
+
+	/**
+	 * 起点の猫から {@code maxDepth} 世代下までの子孫を、世代ごとに集計する。
+	 */
+	public List<CatLineageLevel> descendantLevels(final long catId, final int maxDepth) {
+		// @formatter:off
+		return lineage(Direction.DESCENDANTS, catId, maxDepth)
+				.innerJoinOn(Cat.class, "c").on("c.id").eqExpression("l.catId").end()
+				.selectNew(CatLineageLevel.class)
+					.with("l.depth")
+					.with("COUNT(c.id)")
+					.with("AVG(c.age)")
+				.end()
+				.groupBy("l.depth")
+				.orderByAsc("l.depth")
+				.getResultList();
+		// @formatter:on
+	}
+
+	private List<CatLineageEntry> entries(final CriteriaBuilder<CatLineage> lineage) {
+		// @formatter:off
+		return lineage
+				.innerJoinOn(Cat.class, "c").on("c.id").eqExpression("l.catId").end()
+				.selectNew(CatLineageEntry.class)
+					.with("c.id")
+					.with("c.name")
+					.with("c.age")
+					.with("l.viaId")
+					.with("l.depth")
+				.end()
+				.orderByAsc("l.depth")
+				.orderByAsc("c.id")
+				.getResultList();
+		// @formatter:on
+	}
+
+	private CriteriaBuilder<CatLineage> lineage(final Direction direction, final long catId, final int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+		}
+
+		// @formatter:off
+		return cbf.create(em, CatLineage.class)
+				.withRecursive(CatLineage.class)
+					.from(Cat.class, "origin")
+					.bind("catId").select("origin.id")
+					.bind("viaId").select("NULL")
+					.bind("depth").select("0")
+					.bind("path").select("CONCAT('/', origin.id, '/')")
+					.where("origin.id").eq(catId)
+				.unionAll()
+					.from(CatLineage.class, "previous")
+					.from(Cat.class, "cat")
+					.bind("catId").select(direction.next)
+					.bind("viaId").select("previous.catId")
+					.bind("depth").select("previous.depth + 1")
+					.bind("path").select("CONCAT(previous.path, " + direction.next + ", '/')")
+					.where(direction.current).eqExpression("previous.catId")
+					.where(direction.next).isNotNull()
+					.where("previous.depth").lt(maxDepth)
+					// 経路にすでに含まれる猫には進まない
+					.where("LOCATE(CONCAT('/', " + direction.next + ", '/'), previous.path)").eqExpression("0")
+				.end()
+				.from(CatLineage.class, "l");
+		// @formatter:on
+	}
+
+	/**
+	 * 猫（cat）の親猫の外部キー（{@link Cat#getParentId()}）を、どちらからどちらへたどるか。
+	 */
+	@RequiredArgsConstructor
+	private enum Direction {
+
+		DESCENDANTS("cat.parentId", "cat.id"),
+
+		ANCESTORS("cat.id", "cat.parentId");
+
+		/** 直前にたどった猫の側 */
+		private final String current;
+
+		/** 次にたどる猫の側 */
+		private final String next;
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import java.util.List;
+import java.util.Objects;
+
+import lombok.Value;
+
+/**
+ * キーセット ページングの結果。前後のページへは {@link #getNextToken()}・{@link #getPreviousToken()} で移動する。
+ */
+@Value
+public class CatKeysetPage<T> {
+
+	List<T> content;
+
+	int firstResult;
+
+	int maxResults;
+
+	String nextToken;
+
+	String previousToken;
+
+	public boolean hasNext() {
+		return Objects.nonNull(nextToken);
+	}
+
+	public boolean hasPrevious() {
+		return Objects.nonNull(previousToken);
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import java.util.Objects;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.KeysetPage;
+import com.blazebit.persistence.PagedList;
+import com.blazebit.persistence.PaginatedCriteriaBuilder;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 猫の一覧をキーセット（シーク）方式でページングする。
+ * <p>
+ * 隣接するページへの移動は直前のページの先頭・末尾のキーで絞り込むため、OFFSET と異なりページ番号に比例して遅くならない。
+ * 総件数の COUNT クエリーも発行しない。結果はエンティティではなく {@link CatView} の射影で返す。
+ * 先頭のページは繰り返し参照されるため、クエリー キャッシュが有効であれば結果をキャッシュする。それ以外のページは、
+ * キーセット・位置ごとに別のエントリーになり再利用されにくいため、キャッシュしない。
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class CatKeysetPagingService {
+
+	private static final String ALIAS = "c";
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	private final EntityViewManager evm;
+
+	public <V extends CatView> CatKeysetPage<V> firstPage(final Class<V> viewClass, final CatSortOrder sortOrder,
+			final int pageSize) {
+		return pageAt(viewClass, sortOrder, 0, pageSize);
+	}
+
+	/**
+	 * 任意の位置のページを OFFSET で取得する。以降の前後の移動はキーセットで行える。
+	 */
+	public <V extends CatView> CatKeysetPage<V> pageAt(final Class<V> viewClass, final CatSortOrder sortOrder,
+			final int firstResult, final int pageSize) {
+		Objects.requireNonNull(sortOrder, "sortOrder");
+		if (firstResult < 0) {
+			throw new IllegalArgumentException("firstResult must not be negative: " + firstResult);
+		}
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+		}
+		return fetch(viewClass, sortOrder, null, firstResult, pageSize);
+	}
+
+	public <V extends CatView> CatKeysetPage<V> nextPage(final Class<V> viewClass, final String token) {
+		CatPageToken current = CatPageToken.decode(token);
+		// @formatter:off
+		return fetch(
+				viewClass,
+				current.getSortOrder(),
+				current.toKeysetPage(),
+				current.getFirstResult() + current.getMaxResults(),
+				current.getMaxResults());
+		// @formatter:on
+	}
+
+	public <V extends CatView> CatKeysetPage<V> previousPage(final Class<V> viewClass, final String token) {
+		CatPageToken current = CatPageToken.decode(token);
+		// @formatter:off
+		return fetch(
+				viewClass,
+				current.getSortOrder(),
+				current.toKeysetPage(),
+				Math.max(0, current.getFirstResult() - current.getMaxResults()),
+				current.getMaxResults());
+		// @formatter:on
+	}
+
+	private <V extends CatView> CatKeysetPage<V> fetch(final Class<V> viewClass, final CatSortOrder sortOrder,
+			final KeysetPage keysetPage, final int firstResult, final int maxResults) {
+
+		CriteriaBuilder<Cat> cb = sortOrder.applyTo(cbf.create(em, Cat.class, ALIAS), ALIAS);
+
+		// @formatter:off
+		EntityViewSetting<V, PaginatedCriteriaBuilder<V>> setting = EntityViewSetting
+				.create(viewClass, firstResult, maxResults)
+				.withKeysetPage(keysetPage);
+		PagedList<V> cats = evm.applySetting(setting, cb)
+				.setCacheable(Objects.isNull(keysetPage) && firstResult == 0)
+				.withKeysetExtraction(true)
+				.withCountQuery(false)
+				.getResultList();
+		// @formatter:on
+
+		// 取得したページの位置をトークンにする。空のページは直前のページのキーセットが返るため使わず、OFFSET で戻れるようにする
+		// @formatter:off
+		CatPageToken pageToken = cats.isEmpty() || Objects.isNull(cats.getKeysetPage())
+				? new CatPageToken(sortOrder, firstResult, maxResults, null, null)
+				: CatPageToken.of(sortOrder, cats.getKeysetPage());
+		// @formatter:on
+
+		String encoded = pageToken.encode();
+		String nextToken = cats.size() < maxResults ? null : encoded;
+		String previousToken = firstResult == 0 ? null : encoded;
+
+		return new CatKeysetPage<>(cats, firstResult, maxResults, nextToken, previousToken);
+	}
+}
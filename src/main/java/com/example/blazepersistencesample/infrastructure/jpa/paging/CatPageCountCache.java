@@ -0,0 +1,164 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.Parameter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.blazebit.persistence.PaginatedCriteriaBuilder;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkModifiedEvent;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChangeDispatcher;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 猫の OFFSET ページングの総件数を、COUNT クエリーとパラメーターごとに短い間だけ保持する。
+ * <p>
+ * 猫の登録・更新・削除と猫を要素とするコレクションの変更（トランザクションの完了後）、{@link CatBulkModifiedEvent} で、
+ * 保持している総件数をすべて破棄する。ロールバックされた場合も、フラッシュ済みの変更を数えた総件数が残らないよう破棄する。
+ * 破棄より前に数え始めた総件数は保持しないため、破棄と並行して数えた古い件数が残ることはない。
+ * エンティティを経由しない SQL で猫を変更した場合は、保持期間が過ぎるまで古い総件数が返る。
+ */
+@Component
+public class CatPageCountCache {
+
+	private final EntityChangeDispatcher dispatcher;
+
+	private final Duration timeToLive;
+
+	private final int maxEntries;
+
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+	private final AtomicLong generation = new AtomicLong();
+
+	private Clock clock = Clock.systemUTC();
+
+	@Autowired
+	public CatPageCountCache(final EntityChangeDispatcher dispatcher,
+			@Value("${blaze-persistence-sample.paging.count-cache.time-to-live:30s}") final Duration timeToLive,
+			@Value("${blaze-persistence-sample.paging.count-cache.max-entries:1000}") final int maxEntries) {
+		if (timeToLive.isNegative() || timeToLive.isZero()) {
+			throw new IllegalArgumentException("timeToLive must be positive: " + timeToLive);
+		}
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		}
+		this.dispatcher = dispatcher;
+		this.timeToLive = timeToLive;
+		this.maxEntries = maxEntries;
+	}
+
+	CatPageCountCache(final EntityChangeDispatcher dispatcher, final Duration timeToLive, final int maxEntries,
+			final Clock clock) {
+		this(dispatcher, timeToLive, maxEntries);
+		this.clock = clock;
+	}
+
+	@PostConstruct
+	void subscribe() {
+		dispatcher.subscribe(Collections.singleton(Cat.class), (change, committed) -> invalidateAll());
+	}
+
+	/**
+	 * @return 保持している総件数。保持していないか期限切れなら {@code null}
+	 */
+	public Long get(final Key key) {
+		final Entry entry = entries.get(key);
+		if (Objects.isNull(entry)) {
+			return null;
+		}
+		if (entry.isExpired(clock.millis())) {
+			entries.remove(key, entry);
+			return null;
+		}
+		return entry.totalSize;
+	}
+
+	/**
+	 * 数え始める前の {@link #generation()} を渡す。その後に破棄されていれば保持しない。
+	 */
+	public void put(final Key key, final long totalSize, final long generationAtStart) {
+		final long now = clock.millis();
+		if (entries.size() >= maxEntries) {
+			entries.values().removeIf(entry -> entry.isExpired(now));
+			if (entries.size() >= maxEntries) {
+				return;
+			}
+		}
+		entries.put(key, new Entry(totalSize, now + timeToLive.toMillis()));
+		// put と並行して破棄された場合に備え、破棄後の世代と食い違えば取り除く
+		if (generation.get() != generationAtStart) {
+			entries.remove(key);
+		}
+	}
+
+	public long generation() {
+		return generation.get();
+	}
+
+	public void invalidateAll() {
+		generation.incrementAndGet();
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	void onBulkModified(final CatBulkModifiedEvent event) {
+		invalidateAll();
+	}
+
+	/**
+	 * COUNT クエリーの文字列とパラメーターの値。
+	 */
+	@EqualsAndHashCode
+	public static final class Key {
+
+		private final String countQuery;
+
+		private final SortedMap<String, Object> parameters;
+
+		Key(final String countQuery, final SortedMap<String, Object> parameters) {
+			this.countQuery = countQuery;
+			this.parameters = parameters;
+		}
+
+		public static Key of(final PaginatedCriteriaBuilder<?> builder) {
+			SortedMap<String, Object> parameters = new TreeMap<>();
+			for (Parameter<?> parameter : builder.getParameters()) {
+				parameters.put(parameter.getName(), builder.getParameterValue(parameter.getName()));
+			}
+			return new Key(builder.getCountQueryString(), parameters);
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static final class Entry {
+
+		private final long totalSize;
+
+		private final long expiresAt;
+
+		boolean isExpired(final long now) {
+			return now >= expiresAt;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.Base64;
+import java.util.Objects;
+
+import com.blazebit.persistence.DefaultKeyset;
+import com.blazebit.persistence.DefaultKeysetPage;
+import com.blazebit.persistence.Keyset;
+import com.blazebit.persistence.KeysetPage;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * ページの位置（並び順・先頭位置・件数・先頭と末尾のキーセット）を、クライアントに渡す不透明な文字列に変換する。
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+final class CatPageToken {
+
+	private static final byte VERSION = 1;
+
+	private static final byte TYPE_NULL = 'N';
+	private static final byte TYPE_STRING = 'S';
+	private static final byte TYPE_INTEGER = 'I';
+	private static final byte TYPE_LONG = 'J';
+
+	private final CatSortOrder sortOrder;
+
+	private final int firstResult;
+
+	private final int maxResults;
+
+	private final Serializable[] lowest;
+
+	private final Serializable[] highest;
+
+	static CatPageToken of(final CatSortOrder sortOrder, final KeysetPage keysetPage) {
+		// @formatter:off
+		return new CatPageToken(
+				sortOrder,
+				keysetPage.getFirstResult(),
+				keysetPage.getMaxResults(),
+				tupleOf(keysetPage.getLowest()),
+				tupleOf(keysetPage.getHighest()));
+		// @formatter:on
+	}
+
+	private static Serializable[] tupleOf(final Keyset keyset) {
+		return Objects.isNull(keyset) ? null : keyset.getTuple();
+	}
+
+	/**
+	 * キーセットを持たない場合は {@code null} を返し、オフセットによるページングに切り替える。
+	 */
+	KeysetPage toKeysetPage() {
+		if (Objects.isNull(lowest) || Objects.isNull(highest)) {
+			return null;
+		}
+		return new DefaultKeysetPage(firstResult, maxResults, new DefaultKeyset(lowest), new DefaultKeyset(highest));
+	}
+
+	String encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			out.writeUTF(sortOrder.name());
+			out.writeInt(firstResult);
+			out.writeInt(maxResults);
+			writeTuple(out, lowest);
+			writeTuple(out, highest);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+	}
+
+	static CatPageToken decode(final String token) {
+		if (Objects.isNull(token) || token.isEmpty()) {
+			throw new IllegalArgumentException("Page token must not be empty");
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+			if (in.readByte() != VERSION) {
+				throw new IllegalArgumentException("Unsupported page token version");
+			}
+			CatSortOrder sortOrder = CatSortOrder.valueOf(in.readUTF());
+			int firstResult = in.readInt();
+			int maxResults = in.readInt();
+			if (firstResult < 0 || maxResults <= 0) {
+				throw new IllegalArgumentException("Malformed page token");
+			}
+			return new CatPageToken(sortOrder, firstResult, maxResults, readTuple(in), readTuple(in));
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Malformed page token", e);
+		}
+	}
+
+	private static void writeTuple(final DataOutputStream out, final Serializable[] tuple) throws IOException {
+		if (Objects.isNull(tuple)) {
+			out.writeShort(-1);
+			return;
+		}
+		out.writeShort(tuple.length);
+		for (Serializable value : tuple) {
+			if (Objects.isNull(value)) {
+				out.writeByte(TYPE_NULL);
+			} else if (value instanceof String) {
+				out.writeByte(TYPE_STRING);
+				out.writeUTF((String) value);
+			} else if (value instanceof Integer) {
+				out.writeByte(TYPE_INTEGER);
+				out.writeInt((Integer) value);
+			} else if (value instanceof Long) {
+				out.writeByte(TYPE_LONG);
+				out.writeLong((Long) value);
+			} else {
+				throw new IllegalStateException("Unsupported keyset value type: " + value.getClass().getName());
+			}
+		}
+	}
+
+	private static Serializable[] readTuple(final DataInputStream in) throws IOException {
+		int length = in.readShort();
+		if (length < 0) {
+			return null;
+		}
+		Serializable[] tuple = new Serializable[length];
+		for (int i = 0; i < length; i++) {
+			byte type = in.readByte();
+			switch (type) {
+			case TYPE_NULL:
+				tuple[i] = null;
+				break;
+			case TYPE_STRING:
+				tuple[i] = in.readUTF();
+				break;
+			case TYPE_INTEGER:
+				tuple[i] = in.readInt();
+				break;
+			case TYPE_LONG:
+				tuple[i] = in.readLong();
+				break;
+			default:
+				throw new IllegalArgumentException("Malformed page token");
+			}
+		}
+		return tuple;
+	}
+}
@@ -0,0 +1,110 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.stereotype.Component;
+
+import com.blazebit.persistence.PagedList;
+import com.blazebit.persistence.PaginatedCriteriaBuilder;
+import com.example.blazepersistencesample.infrastructure.jpa.async.AsyncQueryExecutor;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 猫の OFFSET ページングを、{@link PageCount} で指定した方法で総件数を求めて実行する。
+ * <p>
+ * 総件数の COUNT クエリーは絞り込みの条件に一致する行をすべて数えるため、件数が多いとページ自体の取得より重くなる。
+ * 表示に正確な総件数が要らなければ、数えない・上限まで数える・キャッシュした件数を使う、のいずれかを選ぶ。
+ * <p>
+ * {@link #getResultListAsync(Function, PageCount)} では、ページと総件数を {@link AsyncQueryExecutor} で同時に取得するため、
+ * 応答時間は両者の合計ではなく、遅いほうの時間に近くなる（すべて数える・キャッシュした件数を使う場合）。
+ */
+@Component
+@RequiredArgsConstructor
+public class CatPagedListFetcher {
+
+	private final CatPageCountCache countCache;
+
+	private final AsyncQueryExecutor asyncQueryExecutor;
+
+	/**
+	 * 呼び出し元のトランザクションの中で実行する。
+	 */
+	public <T> PagedList<T> getResultList(final PaginatedCriteriaBuilder<T> builder, final PageCount count) {
+		Objects.requireNonNull(count, "count");
+
+		switch (count.getMode()) {
+		case NONE:
+			return builder.withCountQuery(false).getResultList();
+		case BOUNDED:
+			return builder.withBoundedCount(count.getMaxCount()).getResultList();
+		case CACHED:
+			return getResultListWithCachedCount(builder);
+		case EXACT:
+		default:
+			return builder.getResultList();
+		}
+	}
+
+	/**
+	 * ページと総件数を、別々のコネクションで同時に取得する。{@code query} は {@link AsyncQueryExecutor} のスレッドで、
+	 * ページ用・総件数用に 1 度ずつ呼ばれる（数えない・上限まで数える場合は、ページ用の 1 度だけ）。
+	 * <p>
+	 * ページと総件数は別のトランザクションで取得するため、その間に猫が変更されると両者が食い違うことがある。
+	 */
+	public <T> CompletableFuture<PagedList<T>> getResultListAsync(
+			final Function<EntityManager, PaginatedCriteriaBuilder<T>> query, final PageCount count) {
+		Objects.requireNonNull(query, "query");
+		Objects.requireNonNull(count, "count");
+
+		switch (count.getMode()) {
+		case NONE:
+		case BOUNDED:
+			// 数えないか上限までしか数えないため、総件数を分けずにページと同じクエリーで取得する
+			return asyncQueryExecutor.submit(em -> getResultList(query.apply(em), count));
+		case CACHED:
+		case EXACT:
+		default:
+			// @formatter:off
+			final CompletableFuture<PagedList<T>> page = asyncQueryExecutor.submit(em -> query.apply(em)
+					.withCountQuery(false)
+					.getResultList());
+			// @formatter:on
+			final CompletableFuture<Long> totalSize = asyncQueryExecutor.submit(em -> count(query.apply(em), count));
+			return page.thenCombine(totalSize, CountedPagedList::new);
+		}
+	}
+
+	private long count(final PaginatedCriteriaBuilder<?> builder, final PageCount count) {
+		if (count.getMode() != PageCount.Mode.CACHED) {
+			return builder.getCountQuery().getSingleResult();
+		}
+
+		final CatPageCountCache.Key key = CatPageCountCache.Key.of(builder);
+		final Long cached = countCache.get(key);
+		if (Objects.nonNull(cached)) {
+			return cached;
+		}
+		final long generation = countCache.generation();
+		final long totalSize = builder.getCountQuery().getSingleResult();
+		countCache.put(key, totalSize, generation);
+		return totalSize;
+	}
+
+	private <T> PagedList<T> getResultListWithCachedCount(final PaginatedCriteriaBuilder<T> builder) {
+		final CatPageCountCache.Key key = CatPageCountCache.Key.of(builder);
+		final Long totalSize = countCache.get(key);
+		if (Objects.nonNull(totalSize)) {
+			return new CountedPagedList<>(builder.withCountQuery(false).getResultList(), totalSize);
+		}
+
+		final long generation = countCache.generation();
+		final PagedList<T> page = builder.getResultList();
+		countCache.put(key, page.getTotalSize(), generation);
+		return page;
+	}
+}
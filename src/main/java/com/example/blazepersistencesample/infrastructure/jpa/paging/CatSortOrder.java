@@ -0,0 +1,28 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import com.blazebit.persistence.OrderByBuilder;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * キーセット ページングで利用できる猫の並び順。末尾に必ず ID を付与して一意な順序にする。
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CatSortOrder {
+
+	NAME("name"),
+
+	AGE("age");
+
+	private final String attributeName;
+
+	public <X extends OrderByBuilder<X>> X applyTo(final X builder, final String alias) {
+		// @formatter:off
+		return builder
+				.orderByAsc(alias + "." + attributeName)
+				.orderByAsc(alias + ".id");
+		// @formatter:on
+	}
+}
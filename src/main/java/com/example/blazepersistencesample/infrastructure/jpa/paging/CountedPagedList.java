@@ -0,0 +1,64 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import java.util.AbstractList;
+
+import com.blazebit.persistence.KeysetPage;
+import com.blazebit.persistence.PagedList;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 総件数を数えずに取得したページに、別に求めた総件数を付ける。
+ */
+@RequiredArgsConstructor
+class CountedPagedList<T> extends AbstractList<T> implements PagedList<T> {
+
+	private final PagedList<T> page;
+
+	private final long totalSize;
+
+	@Override
+	public T get(final int index) {
+		return page.get(index);
+	}
+
+	@Override
+	public int size() {
+		return page.size();
+	}
+
+	@Override
+	public int getSize() {
+		return page.size();
+	}
+
+	@Override
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	@Override
+	public int getPage() {
+		return page.getFirstResult() / page.getMaxResults() + 1;
+	}
+
+	@Override
+	public int getTotalPages() {
+		return (int) Math.ceil(totalSize / (double) page.getMaxResults());
+	}
+
+	@Override
+	public int getFirstResult() {
+		return page.getFirstResult();
+	}
+
+	@Override
+	public int getMaxResults() {
+		return page.getMaxResults();
+	}
+
+	@Override
+	public KeysetPage getKeysetPage() {
+		return page.getKeysetPage();
+	}
+}
@@ -0,0 +1,69 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import com.blazebit.persistence.PagedList;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * OFFSET ページングで総件数（{@link PagedList#getTotalSize()}）をどう求めるか。
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PageCount {
+
+	private static final PageCount EXACT = new PageCount(Mode.EXACT, 0);
+
+	private static final PageCount NONE = new PageCount(Mode.NONE, 0);
+
+	private static final PageCount CACHED = new PageCount(Mode.CACHED, 0);
+
+	public enum Mode {
+
+		/** ページごとにすべて数える（Blaze-Persistence の既定）。データベースが対応していれば、ページを取得するクエリーの副問い合わせで数える */
+		EXACT,
+
+		/** 数えない。総件数は取得したページの末尾の位置（{@code firstResult + size}）になる */
+		NONE,
+
+		/** {@link PageCount#getMaxCount()} 件まで数える。総件数は上限と取得したページの末尾の位置の大きいほうを超えない */
+		BOUNDED,
+
+		/** 同じクエリー・パラメーターの総件数をしばらく再利用する（{@link CatPageCountCache}） */
+		CACHED
+	}
+
+	Mode mode;
+
+	long maxCount;
+
+	public static PageCount exact() {
+		return EXACT;
+	}
+
+	public static PageCount none() {
+		return NONE;
+	}
+
+	/**
+	 * 総件数が {@code maxCount} 件以上であれば、実際の総件数はそれより多いかもしれない（{@link #isTruncated(PagedList)}）。
+	 */
+	public static PageCount bounded(final long maxCount) {
+		if (maxCount <= 0) {
+			throw new IllegalArgumentException("maxCount must be positive: " + maxCount);
+		}
+		return new PageCount(Mode.BOUNDED, maxCount);
+	}
+
+	public static PageCount cached() {
+		return CACHED;
+	}
+
+	/**
+	 * 総件数を上限で打ち切った可能性があるか（「1000 件以上」と表示すべきか）。
+	 */
+	public boolean isTruncated(final PagedList<?> page) {
+		return mode == Mode.BOUNDED && page.getTotalSize() >= maxCount;
+	}
+}
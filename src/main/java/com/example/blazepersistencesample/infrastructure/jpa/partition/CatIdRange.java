@@ -0,0 +1,24 @@
+package com.example.blazepersistencesample.infrastructure.jpa.partition;
+
+import com.blazebit.persistence.WhereBuilder;
+
+import lombok.Value;
+
+/**
+ * 猫の ID の範囲（{@code fromInclusive} 以上 {@code toExclusive} 未満）。
+ */
+@Value
+public class CatIdRange {
+
+	long fromInclusive;
+
+	long toExclusive;
+
+	public <X extends WhereBuilder<X>> X applyTo(final X builder, final String alias) {
+		// @formatter:off
+		return builder
+				.where(alias + ".id").ge(fromInclusive)
+				.where(alias + ".id").lt(toExclusive);
+		// @formatter:on
+	}
+}
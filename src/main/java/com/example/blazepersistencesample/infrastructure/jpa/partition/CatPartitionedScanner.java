@@ -0,0 +1,213 @@
+package com.example.blazepersistencesample.infrastructure.jpa.partition;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.template.QueryTemplate;
+import com.example.blazepersistencesample.infrastructure.jpa.template.QueryTemplateFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * 猫の ID の範囲を分割し、範囲ごとのクエリーを並列に実行する。
+ * <p>
+ * 範囲ごとに専用のスレッドで読み取り専用トランザクションを開始するため、範囲ごとに別のコネクションが使われる。
+ * 同時に実行する範囲の数はスレッド数（{@code blaze-persistence-sample.partition.threads}）までに制限され、
+ * コネクション プールの最大サイズを超えないように設定する。1 回の呼び出しで同時に実行する範囲もスレッド数までで、
+ * 複数の呼び出しが重なって実行を待つ範囲が {@code blaze-persistence-sample.partition.queue-capacity} を超えると、
+ * {@link RejectedExecutionException} を投げる。
+ * <p>
+ * ID の範囲は最小値～最大値を等分するため、ID が連続して採番されていれば範囲ごとの件数もほぼ等しくなる。
+ */
+@Component
+public class CatPartitionedScanner implements DisposableBean {
+
+	private static final String ALIAS = "c";
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	private final EntityViewManager evm;
+
+	private final QueryTemplate<Object[]> idBounds;
+
+	private final TransactionTemplate readOnlyTx;
+
+	private final int threads;
+
+	private final ExecutorService executor;
+
+	public CatPartitionedScanner(final CriteriaBuilderFactory cbf, final EntityManager em,
+			final EntityViewManager evm, final QueryTemplateFactory templates,
+			final PlatformTransactionManager transactionManager,
+			@Value("${blaze-persistence-sample.partition.threads:4}") final int threads,
+			@Value("${blaze-persistence-sample.partition.queue-capacity:64}") final int queueCapacity) {
+		if (threads <= 0) {
+			throw new IllegalArgumentException("threads must be positive: " + threads);
+		}
+		if (queueCapacity <= 0) {
+			throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+		}
+		this.cbf = cbf;
+		this.em = em;
+		this.evm = evm;
+		// @formatter:off
+		this.idBounds = templates.create(Object[].class, cb -> cb
+				.from(Cat.class, ALIAS)
+				.select("MIN(" + ALIAS + ".id)")
+				.select("MAX(" + ALIAS + ".id)"));
+		// @formatter:on
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+		this.threads = threads;
+		// @formatter:off
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("cat-partition-"));
+		// @formatter:on
+	}
+
+	/**
+	 * 登録されている猫の ID の最小値～最大値を、最大 {@code partitions} 個の範囲に等分する。
+	 *
+	 * @return ID の昇順に並んだ範囲。猫が 1 匹もいなければ空
+	 */
+	public List<CatIdRange> split(final int partitions) {
+		if (partitions <= 0) {
+			throw new IllegalArgumentException("partitions must be positive: " + partitions);
+		}
+
+		final Object[] bounds = readOnlyTx.execute(status -> idBounds.getSingleResult(em));
+		if (bounds[0] == null) {
+			return Collections.emptyList();
+		}
+
+		final long min = (Long) bounds[0];
+		final long end = (Long) bounds[1] + 1;
+		final long width = Math.max(1, (end - min + partitions - 1) / partitions);
+		List<CatIdRange> ranges = new ArrayList<>(partitions);
+		for (long from = min; from < end; from += width) {
+			ranges.add(new CatIdRange(from, Math.min(from + width, end)));
+		}
+		return ranges;
+	}
+
+	/**
+	 * 範囲ごとに {@code task} を並列に実行する。{@code task} は範囲ごとの読み取り専用トランザクションの中で呼ばれる。
+	 * <p>
+	 * いずれかの範囲が失敗すると、実行中の範囲に割り込んで取り消す。
+	 *
+	 * @return 範囲の順（ID の昇順）に並んだ {@code task} の結果
+	 */
+	public <T> List<T> scan(final int partitions, final Function<CatIdRange, ? extends T> task) {
+		Objects.requireNonNull(task, "task");
+
+		final List<CatIdRange> ranges = split(partitions);
+		final List<T> results = new ArrayList<>(ranges.size());
+		runOrdered(ranges, task, results::add);
+		return results;
+	}
+
+	/**
+	 * すべての猫を ID の昇順に 1 件ずつ処理する。読み込みは範囲ごとに並列に行い、{@code action} は呼び出し元のスレッドで呼ぶ。
+	 * <p>
+	 * 読み込み済みで未処理の範囲はスレッド数の分までに制限されるため、{@code partitions} を大きくするほど使用メモリーは小さくなる。
+	 *
+	 * @return 処理した猫の件数
+	 */
+	public <V extends CatView> long forEachOrdered(final Class<V> viewClass, final int partitions,
+			final Consumer<? super V> action) {
+		Objects.requireNonNull(action, "action");
+
+		// @formatter:off
+		final Function<CatIdRange, List<V>> load = range -> evm.applySetting(
+				EntityViewSetting.create(viewClass),
+				range.applyTo(cbf.create(em, Cat.class, ALIAS), ALIAS).orderByAsc(ALIAS + ".id"))
+				.getResultList();
+		// @formatter:on
+
+		final long[] count = { 0 };
+		runOrdered(split(partitions), load, cats -> {
+			for (V cat : cats) {
+				action.accept(cat);
+				count[0]++;
+			}
+		});
+		return count[0];
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 範囲ごとの {@code task} を同時にスレッド数までずつ実行し、結果を範囲の順に呼び出し元のスレッドで {@code sink} に渡す。
+	 * <p>
+	 * 失敗した場合は実行中の範囲に割り込んで取り消し、{@code task} が投げた例外をそのまま投げる。
+	 */
+	private <T> void runOrdered(final List<CatIdRange> ranges, final Function<CatIdRange, ? extends T> task,
+			final Consumer<? super T> sink) {
+		final Deque<CatIdRange> pending = new ArrayDeque<>(ranges);
+		final Deque<Future<T>> inFlight = new ArrayDeque<>(threads);
+		boolean completed = false;
+		try {
+			while (!pending.isEmpty() || !inFlight.isEmpty()) {
+				while (!pending.isEmpty() && inFlight.size() < threads) {
+					final CatIdRange range = pending.poll();
+					// CompletableFuture#cancel は実行中のタスクに割り込まないため、FutureTask で実行する
+					inFlight.add(executor.submit(() -> readOnlyTx.execute(status -> task.apply(range))));
+				}
+				sink.accept(get(inFlight.poll()));
+			}
+			completed = true;
+		} finally {
+			if (!completed) {
+				inFlight.forEach(future -> future.cancel(true));
+			}
+		}
+	}
+
+	private static <T> T get(final Future<T> future) {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new CompletionException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		}
+	}
+}
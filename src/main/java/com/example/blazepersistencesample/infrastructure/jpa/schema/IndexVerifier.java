@@ -0,0 +1,190 @@
+package com.example.blazepersistencesample.infrastructure.jpa.schema;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.metamodel.EntityType;
+import javax.sql.DataSource;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * エンティティの {@code @Table(indexes = ...)} で宣言したインデックスが、実際のスキーマにあるかを起動時に確かめ、ないものを警告する。
+ * <p>
+ * 名前ではなく列で比べ、宣言した列を先頭に持つインデックスがあればよいとする（移行スクリプトで別の名前で作ったものや、
+ * 列を追加した広いインデックスでも、同じクエリーに使えるため）。列名は大文字・小文字と {@code _} を区別しない。
+ * {@code blaze-persistence-sample.schema.verify-indexes=false} で無効にする。
+ */
+@Component
+@ConditionalOnProperty(name = "blaze-persistence-sample.schema.verify-indexes", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class IndexVerifier {
+
+	private final EntityManagerFactory emf;
+
+	private final DataSource dataSource;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void verifyOnStartup() {
+		try {
+			final List<ExpectedIndex> missing = verify();
+			for (ExpectedIndex index : missing) {
+				log.warn("Missing index {} on {} ({})", index.getName(), index.getTable(),
+						String.join(", ", index.getColumns()));
+			}
+			if (missing.isEmpty()) {
+				log.info("All declared indexes exist");
+			}
+		} catch (SQLException e) {
+			log.warn("Failed to verify indexes", e);
+		}
+	}
+
+	/**
+	 * 宣言したインデックスのうち、実際のスキーマにないものを返す。
+	 */
+	public List<ExpectedIndex> verify() throws SQLException {
+		// @formatter:off
+		final Map<String, List<ExpectedIndex>> expectedByTable = expectedIndexes().stream()
+				.collect(Collectors.groupingBy(ExpectedIndex::getTable));
+		// @formatter:on
+
+		List<ExpectedIndex> missing = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection()) {
+			final DatabaseMetaData metaData = connection.getMetaData();
+			for (Map.Entry<String, List<ExpectedIndex>> entry : expectedByTable.entrySet()) {
+				final Collection<List<String>> actual = actualIndexes(metaData, entry.getKey());
+				for (ExpectedIndex expected : entry.getValue()) {
+					if (actual.stream().noneMatch(expected::isCoveredBy)) {
+						missing.add(expected);
+					}
+				}
+			}
+		}
+		return missing;
+	}
+
+	List<ExpectedIndex> expectedIndexes() {
+		final SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+		List<ExpectedIndex> expected = new ArrayList<>();
+		for (EntityType<?> entityType : emf.getMetamodel().getEntities()) {
+			final Table table = entityType.getJavaType().getAnnotation(Table.class);
+			if (table == null) {
+				continue;
+			}
+			// @formatter:off
+			final AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory.getMetamodel()
+					.entityPersister(entityType.getJavaType());
+			// @formatter:on
+			final String tableName = unqualified(persister.getTableName());
+			for (Index index : table.indexes()) {
+				// @formatter:off
+				final List<String> columns = Arrays.stream(index.columnList().split(","))
+						.map(String::trim)
+						.map(column -> columnOf(persister, column))
+						.collect(Collectors.toList());
+				// @formatter:on
+				expected.add(new ExpectedIndex(tableName, index.name(), columns));
+			}
+		}
+		return expected;
+	}
+
+	/**
+	 * {@code columnList} の要素は属性名か列名のため、属性であれば列名に変換する。
+	 */
+	private static String columnOf(final AbstractEntityPersister persister, final String name) {
+		try {
+			return persister.toColumns(name)[0];
+		} catch (MappingException e) {
+			return name;
+		}
+	}
+
+	/**
+	 * インデックスごとの列（順序どおり）。
+	 */
+	private static Collection<List<String>> actualIndexes(final DatabaseMetaData metaData, final String table)
+			throws SQLException {
+		Map<String, TreeMap<Short, String>> indexes = new TreeMap<>();
+		for (String candidate : Arrays.asList(table, table.toUpperCase(Locale.ROOT))) {
+			try (ResultSet resultSet = metaData.getIndexInfo(null, null, candidate, false, true)) {
+				while (resultSet.next()) {
+					final String indexName = resultSet.getString("INDEX_NAME");
+					final String column = resultSet.getString("COLUMN_NAME");
+					if (indexName == null || column == null) {
+						continue;
+					}
+					indexes.computeIfAbsent(indexName, key -> new TreeMap<>())
+							.put(resultSet.getShort("ORDINAL_POSITION"), column);
+				}
+			}
+			if (!indexes.isEmpty()) {
+				break;
+			}
+		}
+		// @formatter:off
+		return indexes.values().stream()
+				.map(columns -> new ArrayList<>(columns.values()))
+				.collect(Collectors.toList());
+		// @formatter:on
+	}
+
+	private static String unqualified(final String tableName) {
+		final int dot = tableName.lastIndexOf('.');
+		return dot < 0 ? tableName : tableName.substring(dot + 1);
+	}
+
+	/**
+	 * 宣言したインデックス。
+	 */
+	@Value
+	public static class ExpectedIndex {
+
+		String table;
+
+		String name;
+
+		List<String> columns;
+
+		boolean isCoveredBy(final List<String> actualColumns) {
+			if (actualColumns.size() < columns.size()) {
+				return false;
+			}
+			for (int i = 0; i < columns.size(); i++) {
+				if (!normalize(columns.get(i)).equals(normalize(actualColumns.get(i)))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static String normalize(final String column) {
+			return column.replace("_", "").replace("\"", "").toLowerCase(Locale.ROOT);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.blazepersistencesample.infrastructure.jpa.summary;
+
+/**
+ * {@link CatSummaryService} で求める集計。
+ */
+public enum CatStatistic {
+
+	/** 年齢ごとの猫の匹数 */
+	CATS_PER_AGE,
+
+	/** 年齢ごとの、仔猫の匹数の平均 */
+	AVERAGE_KITTENS_PER_AGE,
+
+	/** 飼い猫の匹数の区分ごとの飼い主の人数 */
+	OWNERS_PER_KITTEN_COUNT_BUCKET
+}
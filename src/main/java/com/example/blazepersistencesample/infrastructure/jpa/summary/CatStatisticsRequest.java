@@ -0,0 +1,27 @@
+package com.example.blazepersistencesample.infrastructure.jpa.summary;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * 集計の条件。{@code null} の条件は絞り込まない。
+ */
+@Value
+@Builder
+public class CatStatisticsRequest {
+
+	CatStatistic statistic;
+
+	/** 集計する猫の年齢の下限（含む） */
+	Integer minAge;
+
+	/** 集計する猫の年齢の上限（含む） */
+	Integer maxAge;
+
+	/** 集計する猫の飼い主の ID */
+	Long ownerId;
+
+	public static CatStatisticsRequest of(final CatStatistic statistic) {
+		return builder().statistic(statistic).build();
+	}
+}
@@ -0,0 +1,16 @@
+package com.example.blazepersistencesample.infrastructure.jpa.summary;
+
+import lombok.Value;
+
+/**
+ * 集計の 1 行。
+ */
+@Value
+public class CatStatisticsRow {
+
+	/** 年齢、または飼い猫の匹数の区分 */
+	int group;
+
+	/** 匹数・人数、または平均 */
+	double value;
+}
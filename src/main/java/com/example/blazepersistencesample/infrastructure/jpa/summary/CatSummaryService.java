@@ -0,0 +1,502 @@
+package com.example.blazepersistencesample.infrastructure.jpa.summary;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.FullSelectCTECriteriaBuilder;
+import com.blazebit.persistence.InsertCriteriaBuilder;
+import com.blazebit.persistence.JoinOnBuilder;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkModifiedEvent;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.CatAgeSummary;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.OwnerBucket;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.OwnerBucketSummary;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.OwnerCatCount;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChange;
+import com.example.blazepersistencesample.infrastructure.jpa.event.EntityChangeDispatcher;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 猫の集計を、集計済みの表（{@link CatAgeSummary}・{@link OwnerBucketSummary}）か猫・飼い主の表から求める。
+ * <p>
+ * 集計済みの表で答えられる条件（{@link #routesToSummary(CatStatisticsRequest)}）なら集計済みの表を、そうでなければ
+ * 猫・飼い主の表を GROUP BY する。集計済みの表は、{@code refresh-interval} ごとに別のスレッドで {@link #refresh()} して
+ * 溜まっている変更を反映するため、読み取りは最大でその間隔だけ古い。すべて集計し直すまでの間は、猫・飼い主の表を GROUP BY する。
+ * <p>
+ * 猫・飼い主がエンティティとして登録・更新・削除されると（コミット後）、変更前後の年齢と飼い主の ID を記録しておき、
+ * {@link #refresh()} でその年齢と飼い主の行だけを集計し直す。{@link CatBulkModifiedEvent} では、集計が変わる年齢・飼い主が
+ * わかればそれだけを、わからなければすべて集計し直す。エンティティを経由しない SQL で猫・飼い主を変更した場合は、
+ * {@link #requestRebuild()} を呼ぶ。
+ */
+@Slf4j
+@Component
+public class CatSummaryService implements DisposableBean {
+
+	/** 飼い猫の匹数の区分の上限。これ以上の匹数は、この区分に数える */
+	public static final int MAX_BUCKET = 5;
+
+	private static final String OWNED_CATS_ROLE = Person.class.getName() + ".kittens";
+
+	/** 変更された年齢・飼い主を集計し直すときに、IN 述語 1 つに並べる数 */
+	private static final int IN_LIST_SIZE = 1_000;
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManager em;
+
+	private final EntityChangeDispatcher dispatcher;
+
+	private final TransactionTemplate readOnlyTx;
+
+	/** 呼び出し元のトランザクションとは別のトランザクションで集計し直す */
+	private final TransactionTemplate refreshTx;
+
+	private final Set<Integer> changedAges = ConcurrentHashMap.newKeySet();
+
+	private final Set<Long> changedOwners = ConcurrentHashMap.newKeySet();
+
+	private final AtomicBoolean rebuildRequired = new AtomicBoolean(true);
+
+	/** すべて集計し直している間は、集計済みの表が古いか空のため読まない */
+	private volatile boolean rebuilding;
+
+	private final Duration refreshInterval;
+
+	private final ScheduledExecutorService scheduler;
+
+	public CatSummaryService(final CriteriaBuilderFactory cbf, final EntityManager em,
+			final EntityChangeDispatcher dispatcher, final PlatformTransactionManager transactionManager,
+			@Value("${blaze-persistence-sample.summary.refresh-interval:1s}") final Duration refreshInterval) {
+		if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+			throw new IllegalArgumentException("refreshInterval must be positive: " + refreshInterval);
+		}
+		this.cbf = cbf;
+		this.em = em;
+		this.dispatcher = dispatcher;
+		this.refreshInterval = refreshInterval;
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+		this.refreshTx = new TransactionTemplate(transactionManager);
+		this.refreshTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cat-summary-");
+		threadFactory.setDaemon(true);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+	}
+
+	@PostConstruct
+	void start() {
+		dispatcher.subscribe(Arrays.asList(Cat.class, Person.class), (change, committed) -> {
+			if (committed) {
+				record(change);
+			}
+		});
+		final long interval = refreshInterval.toMillis();
+		scheduler.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * 集計する。集計済みの表で答えられる条件なら、集計済みの表を読む（まだ反映していない変更は含まれない）。
+	 *
+	 * @return 年齢・区分の昇順
+	 */
+	public List<CatStatisticsRow> query(final CatStatisticsRequest request) {
+		if (!routesToSummary(request) || rebuildRequired.get() || rebuilding) {
+			return queryRaw(request);
+		}
+		return readOnlyTx.execute(status -> {
+			switch (request.getStatistic()) {
+			case CATS_PER_AGE:
+				return toRows(selectAgeSummary(request), row -> row.get(1, Long.class).doubleValue());
+			case AVERAGE_KITTENS_PER_AGE:
+				return toRows(selectAgeSummary(request), CatSummaryService::average);
+			default:
+				// @formatter:off
+				return toRows(cbf.create(em, Tuple.class)
+						.from(OwnerBucketSummary.class, "b")
+						.select("b.bucket")
+						.select("b.ownerCount")
+						.orderByAsc("b.bucket")
+						.getResultList(), row -> row.get(1, Long.class).doubleValue());
+				// @formatter:on
+			}
+		});
+	}
+
+	/**
+	 * 集計済みの表を使わずに、猫・飼い主の表を GROUP BY して集計する。
+	 *
+	 * @return 年齢・区分の昇順
+	 */
+	public List<CatStatisticsRow> queryRaw(final CatStatisticsRequest request) {
+		return readOnlyTx.execute(status -> {
+			switch (request.getStatistic()) {
+			case CATS_PER_AGE:
+				return toRows(selectRawAge(request), row -> row.get(1, Long.class).doubleValue());
+			case AVERAGE_KITTENS_PER_AGE:
+				return toRows(selectRawAge(request), CatSummaryService::average);
+			default:
+				return selectRawOwnerBuckets(request);
+			}
+		});
+	}
+
+	/**
+	 * 集計済みの表で答えられる条件か。年齢ごとの集計は飼い主で絞り込まない場合、区分ごとの集計は絞り込まない場合に答えられる。
+	 */
+	public boolean routesToSummary(final CatStatisticsRequest request) {
+		if (Objects.nonNull(request.getOwnerId())) {
+			return false;
+		}
+		if (request.getStatistic() == CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET) {
+			return Objects.isNull(request.getMinAge()) && Objects.isNull(request.getMaxAge());
+		}
+		return true;
+	}
+
+	/**
+	 * 記録した変更を集計済みの表に反映する。変更がなければ何もしない。{@code refresh-interval} ごとに呼ばれる。
+	 */
+	public synchronized void refresh() {
+		try {
+			if (rebuildRequired.get()) {
+				// 読み取りが古い集計済みの表に戻らないよう、印を外す前に集計し直し中にし、失敗したら集計し直すまで戻さない
+				rebuilding = true;
+				rebuildRequired.set(false);
+				// 集計中に変更された年齢・飼い主は、集計した後にも記録が残り、次に集計し直される
+				changedAges.clear();
+				changedOwners.clear();
+				refreshTx.executeWithoutResult(status -> rebuild());
+				rebuilding = false;
+				return;
+			}
+			final List<Integer> ages = drain(changedAges);
+			final List<Long> owners = drain(changedOwners);
+			if (!ages.isEmpty() || !owners.isEmpty()) {
+				refreshTx.executeWithoutResult(status -> {
+					refreshAges(ages);
+					refreshOwners(owners);
+				});
+			}
+		} catch (RuntimeException e) {
+			// 取り出した変更が失われるため、次はすべて集計し直す
+			rebuildRequired.set(true);
+			throw e;
+		}
+	}
+
+	/**
+	 * 次の {@link #refresh()} で、すべて集計し直す。それまでの集計は、猫・飼い主の表を GROUP BY する。
+	 */
+	public void requestRebuild() {
+		rebuildRequired.set(true);
+	}
+
+	/**
+	 * 次の {@link #refresh()} で集計し直す、変更された年齢と飼い主の数。
+	 */
+	public int pendingChanges() {
+		return changedAges.size() + changedOwners.size();
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	void onBulkModified(final CatBulkModifiedEvent event) {
+		if (event.isTargeted()) {
+			changedAges.addAll(event.getAges());
+			changedOwners.addAll(event.getOwnerIds());
+			return;
+		}
+		rebuildRequired.set(true);
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			log.warn("Failed to refresh cat summaries, rebuilding on the next run: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 猫・飼い主の変更を記録する。飼い猫の関連の変更は、飼い主の変更として記録する。
+	 */
+	private void record(final EntityChange change) {
+		if (change.isCollection()) {
+			if (OWNED_CATS_ROLE.equals(change.getRole()) && Objects.nonNull(change.getId())) {
+				changedOwners.add((Long) change.getId());
+			}
+			return;
+		}
+		if (Person.class.equals(change.getEntityType())) {
+			changedOwners.add((Long) change.getId());
+			return;
+		}
+		if (change.getKind() == EntityChange.Kind.UPDATE && !change.hasOldState()) {
+			// 変更前の年齢がわからない
+			rebuildRequired.set(true);
+			return;
+		}
+		for (Object age : new Object[] { change.oldValue("age"), change.newValue("age") }) {
+			if (Objects.nonNull(age)) {
+				changedAges.add((Integer) age);
+			}
+		}
+		for (Object owner : new Object[] { change.oldValue("ownerId"), change.newValue("ownerId") }) {
+			if (Objects.nonNull(owner)) {
+				changedOwners.add((Long) owner);
+			}
+		}
+	}
+
+	private void rebuild() {
+		cbf.delete(em, CatAgeSummary.class).executeUpdate();
+		cbf.delete(em, OwnerCatCount.class).executeUpdate();
+		cbf.delete(em, OwnerBucketSummary.class).executeUpdate();
+		insertAgeSummary(null);
+		insertOwnerCatCounts(null);
+
+		// @formatter:off
+		final List<Tuple> counts = cbf.create(em, Tuple.class)
+				.from(OwnerCatCount.class, "o")
+				.select("o.catCount")
+				.select("COUNT(o.ownerId)")
+				.groupBy("o.catCount")
+				.getResultList();
+		// @formatter:on
+		final Map<Integer, Long> deltas = new HashMap<>();
+		counts.forEach(row -> deltas.merge(bucket(row.get(0, Long.class)), row.get(1, Long.class), Long::sum));
+		applyBucketDeltas(deltas);
+	}
+
+	private void refreshAges(final List<Integer> ages) {
+		for (List<Integer> chunk : chunks(ages)) {
+			cbf.delete(em, CatAgeSummary.class, "s").where("s.age").in(chunk).executeUpdate();
+			insertAgeSummary(chunk);
+		}
+	}
+
+	/**
+	 * 飼い主ごとの匹数を集計し直し、区分ごとの人数に、変更前の区分の -1 と変更後の区分の +1 を足す。
+	 */
+	private void refreshOwners(final List<Long> owners) {
+		final Map<Integer, Long> deltas = new HashMap<>();
+		for (List<Long> chunk : chunks(owners)) {
+			selectOwnerCatCounts(chunk).forEach(count -> deltas.merge(bucket(count), -1L, Long::sum));
+			cbf.delete(em, OwnerCatCount.class, "o").where("o.ownerId").in(chunk).executeUpdate();
+			// 削除された飼い主の行は作られない
+			insertOwnerCatCounts(chunk);
+			selectOwnerCatCounts(chunk).forEach(count -> deltas.merge(bucket(count), 1L, Long::sum));
+		}
+		applyBucketDeltas(deltas);
+	}
+
+	private void insertAgeSummary(final Collection<Integer> ages) {
+		// @formatter:off
+		final InsertCriteriaBuilder<CatAgeSummary> insert = cbf.insert(em, CatAgeSummary.class)
+				.from(Cat.class, "c")
+				.bind("age").select("c.age")
+				.bind("catCount").select("COUNT(c.id)")
+				.bind("kittenCount").select("SUM(c.kittenCount)")
+				.groupBy("c.age");
+		// @formatter:on
+		if (Objects.nonNull(ages)) {
+			insert.where("c.age").in(ages);
+		}
+		insert.executeUpdate();
+	}
+
+	private void insertOwnerCatCounts(final Collection<Long> owners) {
+		// @formatter:off
+		final InsertCriteriaBuilder<OwnerCatCount> insert = cbf.insert(em, OwnerCatCount.class)
+				.from(Person.class, "p")
+				.bind("ownerId").select("p.id")
+				.bind("catCount").select("SIZE(p.kittens)");
+		// @formatter:on
+		if (Objects.nonNull(owners)) {
+			insert.where("p.id").in(owners);
+		}
+		insert.executeUpdate();
+	}
+
+	private List<Long> selectOwnerCatCounts(final Collection<Long> owners) {
+		// @formatter:off
+		return cbf.create(em, Long.class)
+				.from(OwnerCatCount.class, "o")
+				.select("o.catCount")
+				.where("o.ownerId").in(owners)
+				.getResultList();
+		// @formatter:on
+	}
+
+	private void applyBucketDeltas(final Map<Integer, Long> deltas) {
+		for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+			if (delta.getValue() == 0) {
+				continue;
+			}
+			// @formatter:off
+			final int updated = cbf.update(em, OwnerBucketSummary.class, "b")
+					.setExpression("ownerCount", "b.ownerCount + :delta")
+					.where("b.bucket").eq(delta.getKey())
+					.setParameter("delta", delta.getValue())
+					.executeUpdate();
+			// @formatter:on
+			if (updated == 0) {
+				em.persist(new OwnerBucketSummary(delta.getKey(), delta.getValue()));
+			}
+		}
+		em.flush();
+		cbf.delete(em, OwnerBucketSummary.class, "b").where("b.ownerCount").le(0L).executeUpdate();
+	}
+
+	private List<Tuple> selectAgeSummary(final CatStatisticsRequest request) {
+		// @formatter:off
+		final CriteriaBuilder<Tuple> query = cbf.create(em, Tuple.class)
+				.from(CatAgeSummary.class, "s")
+				.select("s.age")
+				.select("s.catCount")
+				.select("s.kittenCount")
+				.orderByAsc("s.age");
+		// @formatter:on
+		if (Objects.nonNull(request.getMinAge())) {
+			query.where("s.age").ge(request.getMinAge());
+		}
+		if (Objects.nonNull(request.getMaxAge())) {
+			query.where("s.age").le(request.getMaxAge());
+		}
+		return query.getResultList();
+	}
+
+	private List<Tuple> selectRawAge(final CatStatisticsRequest request) {
+		// @formatter:off
+		final CriteriaBuilder<Tuple> query = cbf.create(em, Tuple.class)
+				.from(Cat.class, "c")
+				.select("c.age")
+				.select("COUNT(c.id)")
+				.select("SUM(c.kittenCount)")
+				.groupBy("c.age")
+				.orderByAsc("c.age");
+		// @formatter:on
+		if (Objects.nonNull(request.getMinAge())) {
+			query.where("c.age").ge(request.getMinAge());
+		}
+		if (Objects.nonNull(request.getMaxAge())) {
+			query.where("c.age").le(request.getMaxAge());
+		}
+		if (Objects.nonNull(request.getOwnerId())) {
+			query.where("c.ownerId").eq(request.getOwnerId());
+		}
+		return query.getResultList();
+	}
+
+	/**
+	 * 飼い主ごとに、条件に合う飼い猫を数えて区分にし（{@link OwnerBucket}）、区分ごとに GROUP BY して数える。
+	 * 条件に合う飼い猫のいない飼い主は区分 0 に数える。
+	 */
+	private List<CatStatisticsRow> selectRawOwnerBuckets(final CatStatisticsRequest request) {
+		final String catCount = "COUNT(c.id)";
+		final CriteriaBuilder<Tuple> query = cbf.create(em, Tuple.class);
+		// @formatter:off
+		final FullSelectCTECriteriaBuilder<CriteriaBuilder<Tuple>> buckets = query.with(OwnerBucket.class)
+				.from(Person.class, "p")
+				.bind("ownerId").select("p.id")
+				.bind("bucket").select("CASE WHEN " + catCount + " > " + MAX_BUCKET + " THEN " + MAX_BUCKET
+						+ " ELSE " + catCount + " END")
+				.groupBy("p.id");
+		final JoinOnBuilder<FullSelectCTECriteriaBuilder<CriteriaBuilder<Tuple>>> cats = buckets
+				.leftJoinOn(Cat.class, "c")
+					.on("c.ownerId").eqExpression("p.id");
+		// @formatter:on
+		if (Objects.nonNull(request.getMinAge())) {
+			cats.on("c.age").ge(request.getMinAge());
+		}
+		if (Objects.nonNull(request.getMaxAge())) {
+			cats.on("c.age").le(request.getMaxAge());
+		}
+		cats.end();
+		if (Objects.nonNull(request.getOwnerId())) {
+			buckets.where("p.id").eq(request.getOwnerId());
+		}
+		buckets.end();
+
+		// @formatter:off
+		return toRows(query
+				.from(OwnerBucket.class, "o")
+				.select("o.bucket")
+				.select("COUNT(o.ownerId)")
+				.groupBy("o.bucket")
+				.orderByAsc("o.bucket")
+				.getResultList(), row -> row.get(1, Long.class).doubleValue());
+		// @formatter:on
+	}
+
+	private static double average(final Tuple row) {
+		return row.get(2, Long.class).doubleValue() / row.get(1, Long.class);
+	}
+
+	private static List<CatStatisticsRow> toRows(final List<Tuple> rows,
+			final ToDoubleFunction<Tuple> value) {
+		// @formatter:off
+		return rows.stream()
+				.map(row -> new CatStatisticsRow(row.get(0, Integer.class), value.applyAsDouble(row)))
+				.collect(Collectors.toList());
+		// @formatter:on
+	}
+
+	private static int bucket(final long catCount) {
+		return (int) Math.min(catCount, MAX_BUCKET);
+	}
+
+	private static <T> List<T> drain(final Set<T> changes) {
+		final List<T> drained = new ArrayList<>();
+		for (T change : changes) {
+			if (changes.remove(change)) {
+				drained.add(change);
+			}
+		}
+		return drained;
+	}
+
+	private static <T> List<List<T>> chunks(final List<T> values) {
+		final List<List<T>> chunks = new ArrayList<>();
+		for (int from = 0; from < values.size(); from += IN_LIST_SIZE) {
+			chunks.add(values.subList(from, Math.min(values.size(), from + IN_LIST_SIZE)));
+		}
+		return chunks;
+	}
+}
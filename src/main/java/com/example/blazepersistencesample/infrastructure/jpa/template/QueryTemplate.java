@@ -0,0 +1,90 @@
+package com.example.blazepersistencesample.infrastructure.jpa.template;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 組み立て済みの JPQL と、実行のたびに値を指定するパラメーター名の組。{@link QueryTemplateFactory} で作成する。
+ * <p>
+ * 実行時には JPQL の文字列からクエリーを作成してパラメーターを設定するだけで、
+ * {@code CriteriaBuilder} の組み立て・式の解析・JPQL の生成は行わない（JPQL の解析結果は Hibernate のクエリー プラン キャッシュが保持する）。
+ * 不変で、スレッド間で共有できる。
+ */
+@Getter
+@ToString(exclude = "fixedParameters")
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+public final class QueryTemplate<T> {
+
+	private final String queryString;
+
+	private final Class<T> resultClass;
+
+	/** 実行のたびに値を指定するパラメーターの名前 */
+	private final Set<String> parameterNames;
+
+	/** 組み立て時に値が指定されたパラメーター */
+	@Getter(AccessLevel.NONE)
+	private final Map<String, Object> fixedParameters;
+
+	/** 組み立て時に指定された取得開始位置。指定されていなければ 0 */
+	private final int firstResult;
+
+	/** 組み立て時に指定された最大件数。指定されていなければ {@link Integer#MAX_VALUE} */
+	private final int maxResults;
+
+	/**
+	 * {@code em} でクエリーを作成し、パラメーターを設定する。取得位置・ヒントなどは、返されたクエリーに追加で設定できる。
+	 *
+	 * @param parameters {@link #getParameterNames()} のすべての名前と値。過不足があれば {@link IllegalArgumentException}
+	 */
+	public TypedQuery<T> createQuery(final EntityManager em, final Map<String, ?> parameters) {
+		if (!parameterNames.equals(parameters.keySet())) {
+			throw new IllegalArgumentException(
+					"parameters must be " + parameterNames + ": " + new TreeSet<>(parameters.keySet()));
+		}
+
+		TypedQuery<T> query = em.createQuery(queryString, resultClass);
+		fixedParameters.forEach(query::setParameter);
+		parameters.forEach(query::setParameter);
+		if (firstResult > 0) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults < Integer.MAX_VALUE) {
+			query.setMaxResults(maxResults);
+		}
+		return query;
+	}
+
+	public List<T> getResultList(final EntityManager em, final Map<String, ?> parameters) {
+		return createQuery(em, parameters).getResultList();
+	}
+
+	public T getSingleResult(final EntityManager em, final Map<String, ?> parameters) {
+		return createQuery(em, parameters).getSingleResult();
+	}
+
+	/**
+	 * パラメーターのないクエリーの結果を取得する。
+	 */
+	public List<T> getResultList(final EntityManager em) {
+		return getResultList(em, Collections.emptyMap());
+	}
+
+	/**
+	 * パラメーターのないクエリーの結果を 1 件取得する。
+	 */
+	public T getSingleResult(final EntityManager em) {
+		return getSingleResult(em, Collections.emptyMap());
+	}
+}
@@ -0,0 +1,78 @@
+package com.example.blazepersistencesample.infrastructure.jpa.template;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Parameter;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.query.Query;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * {@link CriteriaBuilder} で組み立てたクエリーの形から {@link QueryTemplate} を作成する。
+ * <p>
+ * 起動時に 1 度だけ呼び出し、作成したテンプレートをフィールドに保持して使い回すことを想定している。
+ * 実行のたびに値を指定するパラメーターは、{@code betweenExpression(":minAge")} のように名前付きパラメーターの式で指定する。
+ * {@code eq(5)} のように値で指定したパラメーターは、その値に固定される。
+ * <p>
+ * エンティティ ビュー・{@code selectNew} の射影や CTE のように、Blaze-Persistence が結果の変換や SQL の書き換えを行うクエリーは、
+ * JPQL だけでは再現できないためテンプレートにできない。
+ */
+@RequiredArgsConstructor
+public class QueryTemplateFactory {
+
+	private final CriteriaBuilderFactory cbf;
+
+	private final EntityManagerFactory emf;
+
+	/**
+	 * @param shape {@code resultClass} の {@link CriteriaBuilder} に FROM 句・条件などを追加する。トランザクションの外で呼ばれる
+	 * @throws IllegalArgumentException 組み立てたクエリーが JPQL だけでは実行できない場合
+	 */
+	public <T> QueryTemplate<T> create(final Class<T> resultClass,
+			final Function<CriteriaBuilder<T>, ? extends CriteriaBuilder<T>> shape) {
+		EntityManager em = emf.createEntityManager();
+		try {
+			CriteriaBuilder<T> builder = shape.apply(cbf.create(em, resultClass));
+			TypedQuery<T> query = builder.getQuery();
+			if (!(query instanceof Query)) {
+				throw new IllegalArgumentException(
+						"query cannot be rendered as plain JPQL (" + query.getClass().getSimpleName() + "): "
+								+ builder.getQueryString());
+			}
+
+			Set<String> parameterNames = new TreeSet<>();
+			Map<String, Object> fixedParameters = new HashMap<>();
+			for (Parameter<?> parameter : query.getParameters()) {
+				if (query.isBound(parameter)) {
+					fixedParameters.put(parameter.getName(), query.getParameterValue(parameter.getName()));
+				} else {
+					parameterNames.add(parameter.getName());
+				}
+			}
+
+			// @formatter:off
+			return new QueryTemplate<>(
+					((Query<?>) query).getQueryString(),
+					resultClass,
+					Collections.unmodifiableSet(parameterNames),
+					Collections.unmodifiableMap(fixedParameters),
+					query.getFirstResult(),
+					query.getMaxResults());
+			// @formatter:on
+		} finally {
+			em.close();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.blazepersistencesample.infrastructure.jpa.view;
+
+import com.blazebit.persistence.view.EntityView;
+import com.blazebit.persistence.view.IdMapping;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 猫の一覧表示用の射影。仔猫のコレクションは含まない。
+ */
+@EntityView(Cat.class)
+public interface CatView {
+
+	@IdMapping
+	Long getId();
+
+	String getName();
+
+	Integer getAge();
+}
@@ -0,0 +1,15 @@
+package com.example.blazepersistencesample.infrastructure.jpa.view;
+
+import com.blazebit.persistence.view.EntityView;
+import com.blazebit.persistence.view.Mapping;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+/**
+ * 仔猫そのものではなく、仔猫の匹数だけを持つ射影。匹数は {@link Cat#getKittenCount()} の列から取得する。
+ */
+@EntityView(Cat.class)
+public interface CatWithKittenCountView extends CatView {
+
+	@Mapping("kittenCount")
+	Integer getKittenCount();
+}
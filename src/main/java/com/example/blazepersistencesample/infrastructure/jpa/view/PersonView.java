@@ -0,0 +1,18 @@
+package com.example.blazepersistencesample.infrastructure.jpa.view;
+
+import java.util.Set;
+
+import com.blazebit.persistence.view.EntityView;
+import com.blazebit.persistence.view.IdMapping;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+
+@EntityView(Person.class)
+public interface PersonView {
+
+	@IdMapping
+	Long getId();
+
+	String getName();
+
+	Set<CatView> getKittens();
+}
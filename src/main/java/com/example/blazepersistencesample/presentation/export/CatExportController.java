@@ -0,0 +1,56 @@
+package com.example.blazepersistencesample.presentation.export;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.blazepersistencesample.infrastructure.jpa.export.CatStreamService;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatSortOrder;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+import com.example.blazepersistencesample.presentation.export.CatExportFormat.RowWriter;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * すべての猫を NDJSON・CSV でダウンロードさせる。
+ * <p>
+ * 猫を読み込みながらレスポンスに書き出すため、件数が増えてもメモリー使用量は一定に保たれる。
+ * 例: {@code GET /cats/export?format=CSV&sort=AGE}
+ */
+@RestController
+@RequiredArgsConstructor
+public class CatExportController {
+
+	private final CatStreamService streamService;
+
+	@GetMapping("/cats/export")
+	public void export(@RequestParam(defaultValue = "NDJSON") final CatExportFormat format,
+			@RequestParam(defaultValue = "NAME") final CatSortOrder sort, final HttpServletResponse response)
+			throws IOException {
+
+		response.setContentType(format.getMediaType().toString());
+		// @formatter:off
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+				.filename("cats." + format.getFileExtension())
+				.build()
+				.toString());
+		// @formatter:on
+
+		try (RowWriter writer = format.open(response.getOutputStream())) {
+			streamService.forEach(CatView.class, sort, cat -> {
+				try {
+					writer.write(cat);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+	}
+}
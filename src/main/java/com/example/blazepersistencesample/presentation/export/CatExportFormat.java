@@ -0,0 +1,108 @@
+package com.example.blazepersistencesample.presentation.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.MediaType;
+
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 猫のエクスポートの形式。1 行に猫 1 匹を出力する。
+ */
+@Getter
+@RequiredArgsConstructor
+public enum CatExportFormat {
+
+	/** 改行区切りの JSON（1 行に 1 オブジェクト） */
+	NDJSON(new MediaType("application", "x-ndjson", StandardCharsets.UTF_8), "ndjson") {
+
+		private final JsonFactory jsonFactory = new JsonFactory();
+
+		@Override
+		public RowWriter open(final OutputStream out) throws IOException {
+			JsonGenerator generator = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+			generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+			return new RowWriter() {
+
+				@Override
+				public void write(final CatView cat) throws IOException {
+					generator.writeStartObject();
+					generator.writeNumberField("id", cat.getId());
+					generator.writeStringField("name", cat.getName());
+					generator.writeNumberField("age", cat.getAge());
+					generator.writeEndObject();
+				}
+
+				@Override
+				public void close() throws IOException {
+					generator.writeRaw('\n');
+					generator.close();
+				}
+			};
+		}
+	},
+
+	/** ヘッダー行付きの CSV（RFC 4180） */
+	CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv") {
+
+		@Override
+		public RowWriter open(final OutputStream out) throws IOException {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			writer.write("id,name,age\r\n");
+			return new RowWriter() {
+
+				@Override
+				public void write(final CatView cat) throws IOException {
+					writer.write(String.valueOf(cat.getId()));
+					writer.write(',');
+					writer.write(quote(cat.getName()));
+					writer.write(',');
+					writer.write(String.valueOf(cat.getAge()));
+					writer.write("\r\n");
+				}
+
+				@Override
+				public void close() throws IOException {
+					writer.close();
+				}
+			};
+		}
+
+		private String quote(final String value) {
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\r') < 0
+					&& value.indexOf('\n') < 0) {
+				return value;
+			}
+			return '"' + value.replace("\"", "\"\"") + '"';
+		}
+	};
+
+	private final MediaType mediaType;
+
+	private final String fileExtension;
+
+	/**
+	 * {@code out} に猫を書き出す。{@link RowWriter#close()} で {@code out} も閉じる。
+	 */
+	public abstract RowWriter open(OutputStream out) throws IOException;
+
+	public interface RowWriter extends AutoCloseable {
+
+		void write(CatView cat) throws IOException;
+
+		@Override
+		void close() throws IOException;
+	}
+}
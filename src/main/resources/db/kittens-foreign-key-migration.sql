@@ -0,0 +1,18 @@
+-- 仔猫・飼い猫の関連を、結合テーブル（cat_kittens・person_kittens）から猫の行の外部キー（parent_id・owner_id）へ移行する。
+-- 結合テーブルの kittens_id には一意制約があるため、猫ごとに親猫・飼い主はたかだか 1 件となる。
+-- H2（PostgreSQL モード）と PostgreSQL の両方で実行できる。
+
+alter table cat add column parent_id bigint;
+alter table cat add column owner_id bigint;
+
+update cat set parent_id = (select ck.cat_id from cat_kittens ck where ck.kittens_id = cat.id);
+update cat set owner_id = (select pk.person_id from person_kittens pk where pk.kittens_id = cat.id);
+
+alter table cat add constraint fk_cat_parent foreign key (parent_id) references cat;
+alter table cat add constraint fk_cat_owner foreign key (owner_id) references person;
+
+create index idx_cat_parent_id on cat (parent_id);
+create index idx_cat_owner_id on cat (owner_id);
+
+drop table cat_kittens;
+drop table person_kittens;
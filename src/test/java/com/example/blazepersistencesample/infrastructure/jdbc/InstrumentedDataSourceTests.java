@@ -0,0 +1,148 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		JdbcInstrumentationConfiguration.class, SimpleMeterRegistry.class })
+class InstrumentedDataSourceTests {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private SimpleMeterRegistry registry;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Test
+	@DisplayName("Hibernate が発行したクエリーの実行時間・行数とコネクションの取得時間を記録する")
+	void testRecordHibernateStatements() {
+
+		assertTrue(dataSource instanceof InstrumentedDataSource);
+
+		// @formatter:off
+		catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("タマ", 3, 0)
+				, catTestUtil.initializeCat("ミケ", 5, 0)
+				, catTestUtil.initializeCat("クロ", 10, 0)
+				));
+		// @formatter:on
+		assertEquals(3, bulkOperations.incrementAge(1));
+
+		final Timer updates = registry.get(JdbcMetrics.QUERY).tag("operation", "update").timer();
+		assertEquals(1, updates.count());
+		assertEquals(3, registry.get(JdbcMetrics.ROWS).tag("operation", "update").summary().totalAmount());
+		assertEquals(3, registry.get(JdbcMetrics.ROWS).tag("operation", "insert").summary().totalAmount());
+
+		final long selects = selectCount();
+		assertEquals(3, catRepository.findAll().stream().map(Cat::getName).count());
+		assertEquals(selects + 1, selectCount());
+
+		assertTrue(registry.get(JdbcMetrics.CONNECTION_ACQUIRE).timer().count() > 0);
+	}
+
+	@Test
+	@DisplayName("無効にすると、データ ソースを包まない")
+	void testDisabled() {
+
+		// @formatter:off
+		new ApplicationContextRunner()
+				.withPropertyValues("blaze-persistence-sample.jdbc.instrumentation.enabled=false")
+				.withUserConfiguration(JdbcInstrumentationConfiguration.class)
+				.withBean(DataSource.class, DriverManagerDataSource::new)
+				.run(context -> assertFalse(context.getBean(DataSource.class) instanceof InstrumentedDataSource));
+		new ApplicationContextRunner()
+				.withUserConfiguration(JdbcInstrumentationConfiguration.class)
+				.withBean(DataSource.class, DriverManagerDataSource::new)
+				.run(context -> assertTrue(context.getBean(DataSource.class) instanceof InstrumentedDataSource));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("準備済みの文のパラメーターは、指定したときだけ保持して遅いクエリーの通知に渡す")
+	void testCaptureParameters() {
+
+		// @formatter:off
+		final ApplicationContextRunner runner = new ApplicationContextRunner()
+				.withPropertyValues("blaze-persistence-sample.jdbc.instrumentation.slow-query-threshold=0ms")
+				.withUserConfiguration(JdbcInstrumentationConfiguration.class)
+				.withBean(DataSource.class, () -> new DriverManagerDataSource("jdbc:h2:mem:capture-parameters"))
+				.withBean(RecordingListener.class);
+		runner.run(context -> assertNull(slowQueryParameters(context)));
+		runner.withPropertyValues("blaze-persistence-sample.slow-query.capture-parameters=true")
+				.run(context -> {
+					final Object[] parameters = slowQueryParameters(context);
+					assertEquals(42, parameters[0]);
+					assertEquals("タマ", parameters[1]);
+				});
+		// @formatter:on
+	}
+
+	private static Object[] slowQueryParameters(final ApplicationContext context) throws SQLException {
+		try (Connection connection = context.getBean(DataSource.class).getConnection();
+				PreparedStatement statement = connection.prepareStatement("select ?, ?")) {
+			statement.setInt(1, 42);
+			statement.setString(2, "タマ");
+			statement.executeQuery().close();
+		}
+		final List<Object[]> notified = context.getBean(RecordingListener.class).parameters;
+		assertEquals(1, notified.size());
+		return notified.get(0);
+	}
+
+	static class RecordingListener implements SlowQueryListener {
+
+		private final List<Object[]> parameters = new ArrayList<>();
+
+		@Override
+		public void onSlowQuery(final String sql, final long elapsedNanos, final Object[] parameters) {
+			this.parameters.add(parameters == null ? null : parameters.clone());
+		}
+	}
+
+	private long selectCount() {
+		// @formatter:off
+		return registry.find(JdbcMetrics.QUERY).tag("operation", "select").timers().stream()
+				.mapToLong(Timer::count)
+				.sum();
+		// @formatter:on
+	}
+}
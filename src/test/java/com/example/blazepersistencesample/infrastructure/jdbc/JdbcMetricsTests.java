@@ -0,0 +1,128 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Meter.Id;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JdbcMetricsTests {
+
+	private static final String SELECT = "select c.id, c.name from cat c where c.age=?";
+
+	private static final String SELECT_ID = JdbcMetrics.sqlIdOf(SELECT);
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("クエリーの形ごとに実行時間と行数を記録する")
+	void testRecordPerShape() {
+
+		final JdbcMetrics metrics = new JdbcMetrics(registry, 1.0, Duration.ofSeconds(1), 10);
+
+		metrics.recordQuery(SELECT, System.nanoTime()).recordRows(3);
+		metrics.recordQuery(SELECT, System.nanoTime()).recordRows(5);
+		metrics.recordUpdate("update cat set age=age+? ", System.nanoTime(), 7);
+
+		assertEquals(2, registry.get(JdbcMetrics.QUERY).tag(JdbcMetrics.SQL_ID, SELECT_ID).tag("operation", "select").timer().count());
+		assertEquals(8, registry.get(JdbcMetrics.ROWS).tag(JdbcMetrics.SQL_ID, SELECT_ID).summary().totalAmount());
+		assertEquals(7, registry.get(JdbcMetrics.ROWS).tag("operation", "update").summary().totalAmount());
+		assertEquals(0, registry.get(JdbcMetrics.SLOW_QUERIES).tag(JdbcMetrics.SQL_ID, SELECT_ID).counter().count());
+	}
+
+	@Test
+	@DisplayName("しきい値以上かかったクエリーは、抽出されなくても遅いクエリーとして数える")
+	void testSlowQueryWithoutSampling() {
+
+		final JdbcMetrics metrics = new JdbcMetrics(registry, 0.0, Duration.ofMillis(10), 10);
+
+		assertNull(metrics.recordQuery(SELECT, System.nanoTime()));
+		assertNull(metrics.recordQuery(SELECT, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(20)));
+
+		assertEquals(1, registry.get(JdbcMetrics.SLOW_QUERIES).tag(JdbcMetrics.SQL_ID, SELECT_ID).counter().count());
+		assertEquals(0, registry.get(JdbcMetrics.QUERY).tag(JdbcMetrics.SQL_ID, SELECT_ID).timer().count());
+	}
+
+	@Test
+	@DisplayName("上限を超えたクエリーの形は other にまとめる")
+	void testMaxQueryShapes() {
+
+		final JdbcMetrics metrics = new JdbcMetrics(registry, 1.0, Duration.ofSeconds(1), 2);
+
+		for (int i = 0; i < 5; i++) {
+			assertNotNull(metrics.recordQuery("select * from cat where id=" + i, System.nanoTime()));
+		}
+
+		assertEquals(2, metrics.queryShapeCount());
+		assertEquals(3, registry.get(JdbcMetrics.QUERY).tag(JdbcMetrics.SQL_ID, JdbcMetrics.OTHER).timer().count());
+	}
+
+	@Test
+	@DisplayName("sql.id タグは空白をまとめた SQL から計算し、SQL は queryShapes で引ける")
+	void testNormalizeTag() {
+
+		final JdbcMetrics metrics = new JdbcMetrics(registry, 1.0, Duration.ofSeconds(1), 10);
+
+		metrics.recordQuery("\n    select\n        c.id\n    from\n        cat c", System.nanoTime());
+
+		final String sqlId = JdbcMetrics.sqlIdOf("select c.id from cat c");
+		assertEquals(1, registry.get(JdbcMetrics.QUERY).tag(JdbcMetrics.SQL_ID, sqlId).timer().count());
+		assertEquals(Collections.singletonMap(sqlId, "select c.id from cat c"), metrics.queryShapes());
+	}
+
+	@Test
+	@DisplayName("先頭が同じ長い SQL も、末尾が異なれば別の形として記録する")
+	void testLongSqlShapes() {
+
+		final JdbcMetrics metrics = new JdbcMetrics(registry, 1.0, Duration.ofSeconds(1), 10);
+		final String columns = String.join(", ", Collections.nCopies(100, "c.name"));
+
+		metrics.recordQuery("select " + columns + " from cat c where c.age=?", System.nanoTime());
+		metrics.recordQuery("select " + columns + " from cat c where c.id=?", System.nanoTime());
+
+		assertEquals(2, metrics.queryShapeCount());
+		assertEquals(2, registry.find(JdbcMetrics.QUERY).tag("operation", "select").timers().size());
+	}
+
+	@Test
+	@DisplayName("パーセンタイルのヒストグラムは指定したときだけ公開する")
+	void testPercentileHistogram() {
+
+		// SimpleMeterRegistry はヒストグラムのバケットを作らないため、登録時の設定を調べる
+		final Map<String, Boolean> histograms = new HashMap<>();
+		registry.config().meterFilter(new MeterFilter() {
+
+			@Override
+			public DistributionStatisticConfig configure(final Id id, final DistributionStatisticConfig config) {
+				if (JdbcMetrics.QUERY.equals(id.getName())) {
+					histograms.put(id.getTag(JdbcMetrics.SQL_ID), config.isPercentileHistogram());
+				}
+				return config;
+			}
+		});
+
+		new JdbcMetrics(registry, 1.0, Duration.ofSeconds(1), 10).recordQuery(SELECT, System.nanoTime());
+		assertFalse(histograms.get(SELECT_ID));
+
+		registry.clear();
+		// @formatter:off
+		new JdbcMetrics(registry, 1.0, Duration.ofSeconds(1), 10, false, () -> SlowQueryListener.NONE, true)
+				.recordQuery(SELECT, System.nanoTime());
+		// @formatter:on
+		assertTrue(histograms.get(SELECT_ID));
+	}
+}
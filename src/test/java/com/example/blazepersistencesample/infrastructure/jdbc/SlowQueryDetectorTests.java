@@ -0,0 +1,157 @@
+package com.example.blazepersistencesample.infrastructure.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// @formatter:off
+@DataJpaTest(properties = {
+		"blaze-persistence-sample.jdbc.instrumentation.slow-query-threshold=0ms",
+		"blaze-persistence-sample.slow-query.capture-parameters=true" })
+// @formatter:on
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		JdbcInstrumentationConfiguration.class, SlowQueryDetector.class, SlowQueryEndpoint.class,
+		SimpleMeterRegistry.class })
+class SlowQueryDetectorTests {
+
+	@Autowired
+	private SlowQueryDetector detector;
+
+	@Autowired
+	private SlowQueryEndpoint endpoint;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		// @formatter:off
+		catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("タマ", 3, 0)
+				, catTestUtil.initializeCat("ミケ", 5, 0)
+				, catTestUtil.initializeCat("クロ", 10, 0)
+				));
+		// @formatter:on
+		em.clear();
+		detector.reset();
+		detector.awaitIdle();
+	}
+
+	@Test
+	@DisplayName("Blaze-Persistence のクエリーの SQL と実行計画を取得し、パラメーターの値は伏せる")
+	void testCaptureBlazePersistenceQuery() throws Exception {
+
+		assertEquals(1, findByName("タマ").size());
+		detector.awaitIdle();
+
+		final SlowQuerySummary summary = findByNameSummary();
+		assertEquals(1, summary.getCount());
+		assertEquals(Collections.singletonList("String(2)"), summary.getParameters());
+		assertNotNull(summary.getPlan(), summary.getSql());
+		assertTrue(summary.getPlan().toLowerCase().contains("cat"), summary.getPlan());
+		assertTrue(summary.getLastSeen() != null);
+	}
+
+	@Test
+	@DisplayName("同じ形のクエリーはパラメーターの値が違ってもまとめて集計する")
+	void testAggregateByShape() throws Exception {
+
+		findByName("タマ");
+		findByName("ミケ");
+		findByName("存在しない猫");
+		detector.awaitIdle();
+
+		final SlowQuerySummary summary = findByNameSummary();
+		assertEquals(3, summary.getCount());
+		assertEquals(Collections.singletonList("String(6)"), summary.getParameters());
+		assertTrue(summary.getTotalTimeMillis() >= summary.getMaxTimeMillis());
+	}
+
+	@Test
+	@DisplayName("更新文は集計するが実行計画は取得しない")
+	void testNoPlanForUpdate() throws Exception {
+
+		assertEquals(3, bulkOperations.incrementAge(1));
+		detector.awaitIdle();
+
+		// @formatter:off
+		final SlowQuerySummary summary = detector.topOffenders(Integer.MAX_VALUE).stream()
+				.filter(s -> s.getSql().trim().toLowerCase().startsWith("update"))
+				.findFirst()
+				.orElseThrow(AssertionError::new);
+		// @formatter:on
+		assertNull(summary.getPlan());
+	}
+
+	@Test
+	@DisplayName("エンドポイントは合計の実行時間が長い順に上位を返し、削除で集計を消去する")
+	void testEndpoint() throws Exception {
+
+		findByName("タマ");
+		catRepository.findAll();
+		detector.awaitIdle();
+
+		final List<SlowQuerySummary> all = endpoint.slowQueries(null);
+		assertTrue(all.size() >= 2, all.toString());
+		for (int i = 1; i < all.size(); i++) {
+			assertTrue(all.get(i - 1).getTotalTimeMillis() >= all.get(i).getTotalTimeMillis());
+		}
+		assertEquals(1, endpoint.slowQueries(1).size());
+
+		endpoint.reset();
+		detector.awaitIdle();
+		assertTrue(endpoint.slowQueries(null).isEmpty());
+	}
+
+	private List<Cat> findByName(final String name) {
+		// @formatter:off
+		return cbf.create(em, Cat.class, "c")
+				.where("c.name").eq(name)
+				.getResultList();
+		// @formatter:on
+	}
+
+	private SlowQuerySummary findByNameSummary() {
+		// @formatter:off
+		return detector.topOffenders(Integer.MAX_VALUE).stream()
+				.filter(s -> s.getSql().contains("name=?"))
+				.findFirst()
+				.orElseThrow(AssertionError::new);
+		// @formatter:on
+	}
+}
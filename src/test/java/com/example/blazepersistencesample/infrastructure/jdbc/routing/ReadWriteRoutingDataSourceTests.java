@@ -0,0 +1,258 @@
+package com.example.blazepersistencesample.infrastructure.jdbc.routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+// @formatter:off
+@DataJpaTest(properties = {
+		"spring.datasource.driver-class-name=org.h2.Driver",
+		"spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"blaze-persistence-sample.datasource.replica-urls=jdbc:h2:mem:routing-replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"blaze-persistence-sample.datasource.lag-check-interval=1h" })
+// @formatter:on
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		ReadWriteRoutingConfiguration.class, ReadWriteRoutingDataSourceTests.LagConfiguration.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadWriteRoutingDataSourceTests {
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Autowired
+	private MutableLag lag;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		replicate();
+		routing().checkReplicas();
+	}
+
+	@AfterEach
+	void tearDown() {
+		lag.set(Duration.ZERO);
+		routing().checkReplicas();
+		catTestUtil.deleteAllCats();
+	}
+
+	@Test
+	@DisplayName("読み取り専用トランザクションはレプリカを、それ以外はプライマリーを読む")
+	void testReadOnlyReadsReplica() throws Exception {
+
+		catRepository.saveAndFlush(catTestUtil.initializeCat("タマ", 3, 0));
+
+		assertEquals(0L, countCats(true));
+		assertEquals(1L, countCats(false));
+
+		replicate();
+		assertEquals(1L, countCats(true));
+	}
+
+	@Test
+	@DisplayName("レプリカの遅延が許容範囲を超えるとプライマリーを読み、許容範囲はクエリーごとに指定できる")
+	void testMaxStaleness() {
+
+		catRepository.saveAndFlush(catTestUtil.initializeCat("タマ", 3, 0));
+		lag.set(Duration.ofSeconds(10));
+
+		// 遅延はバックグラウンドで調べるため、調べ直すまではレプリカを読む
+		assertEquals(0L, countCats(true));
+		routing().checkReplicas();
+
+		assertEquals(1L, countCats(true));
+		assertEquals(0L, ReadRouting.withMaxStaleness(Duration.ofMinutes(1), () -> countCats(true)));
+		assertEquals(0L, ReadRouting.withMaxStaleness(Duration.ofSeconds(10), () -> countCats(true)));
+		assertEquals(1L, ReadRouting.withMaxStaleness(Duration.ofSeconds(9), () -> countCats(true)));
+	}
+
+	@Test
+	@DisplayName("プライマリーを指定すると、読み取り専用トランザクションでもプライマリーを読む")
+	void testPrimary() {
+
+		catRepository.saveAndFlush(catTestUtil.initializeCat("タマ", 3, 0));
+
+		assertEquals(1L, ReadRouting.primary(() -> countCats(true)));
+		assertEquals(0L, countCats(true));
+	}
+
+	@Test
+	@DisplayName("接続できないレプリカは飛ばし、どのレプリカにも接続できなければプライマリーを読む")
+	void testFallback() throws Exception {
+
+		final DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routing-fallback-primary");
+		final DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:routing-fallback-replica");
+		final DataSource missing = new DriverManagerDataSource("jdbc:h2:mem:routing-fallback-missing;IFEXISTS=TRUE");
+
+		// @formatter:off
+		final ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, Arrays.asList(
+				replica(missing), replica(replica)), Duration.ofSeconds(5));
+		final ReadWriteRoutingDataSource noReplica = new ReadWriteRoutingDataSource(primary, Arrays.asList(
+				replica(missing)), Duration.ofSeconds(5));
+		// @formatter:on
+
+		try {
+			routing.checkReplicas();
+			noReplica.checkReplicas();
+
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+			try {
+				assertEquals("routing-fallback-replica", databaseName(routing));
+				assertEquals("routing-fallback-replica", databaseName(routing));
+				assertEquals("routing-fallback-primary", databaseName(noReplica));
+			} finally {
+				TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+			}
+			assertEquals("routing-fallback-primary", databaseName(routing));
+		} finally {
+			routing.close();
+			noReplica.close();
+		}
+	}
+
+	@Test
+	@DisplayName("ユーザーを指定したコネクションはプライマリーから取得する")
+	void testConnectionWithCredentials() throws Exception {
+
+		final DataSource primary = new DriverManagerDataSource("jdbc:h2:mem:routing-credentials-primary");
+		final DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:routing-credentials-replica");
+
+		try (ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary,
+				Arrays.asList(replica(replica)), Duration.ofSeconds(5))) {
+			routing.checkReplicas();
+
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+			try (Connection connection = routing.getConnection("sa", "");
+					Statement statement = connection.createStatement();
+					ResultSet resultSet = statement.executeQuery("CALL DATABASE()")) {
+				resultSet.next();
+				assertEquals("routing-credentials-primary", resultSet.getString(1).toLowerCase());
+			} finally {
+				TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+			}
+		}
+	}
+
+	private ReadWriteRoutingDataSource routing() {
+		return (ReadWriteRoutingDataSource) dataSource;
+	}
+
+	private long countCats(final boolean readOnly) {
+		final TransactionTemplate tx = new TransactionTemplate(transactionManager);
+		tx.setReadOnly(readOnly);
+		// @formatter:off
+		return tx.execute(status -> cbf.create(em, Long.class)
+				.from(Cat.class, "c")
+				.select("COUNT(c.id)")
+				.getSingleResult());
+		// @formatter:on
+	}
+
+	/**
+	 * プライマリーの内容をレプリカに複製する。
+	 */
+	private void replicate() throws SQLException {
+		final ReadWriteRoutingDataSource routing = routing();
+
+		final List<String> script = new ArrayList<>();
+		try (Connection connection = routing.getPrimary().getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("SCRIPT")) {
+			while (resultSet.next()) {
+				script.add(resultSet.getString(1));
+			}
+		}
+		try (Connection connection = routing.getReplicas().get(0).getDataSource().getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+			for (final String sql : script) {
+				statement.execute(sql);
+			}
+		}
+	}
+
+	private static Replica replica(final DataSource dataSource) {
+		return new Replica("test", dataSource, ReplicationLagProbe.NONE, Duration.ZERO, Duration.ofMinutes(1));
+	}
+
+	private static String databaseName(final DataSource dataSource) throws SQLException {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet resultSet = statement.executeQuery("CALL DATABASE()")) {
+			resultSet.next();
+			return resultSet.getString(1).toLowerCase();
+		}
+	}
+
+	static class MutableLag implements ReplicationLagProbe {
+
+		private volatile Duration lag = Duration.ZERO;
+
+		void set(final Duration lag) {
+			this.lag = lag;
+		}
+
+		@Override
+		public Duration lagOf(final Connection connection) {
+			return lag;
+		}
+	}
+
+	@TestConfiguration
+	static class LagConfiguration {
+
+		@Bean
+		MutableLag mutableLag() {
+			return new MutableLag();
+		}
+	}
+}
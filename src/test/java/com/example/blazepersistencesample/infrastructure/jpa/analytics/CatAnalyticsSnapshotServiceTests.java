@@ -0,0 +1,117 @@
+package com.example.blazepersistencesample.infrastructure.jpa.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		CatAnalyticsSnapshotService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatAnalyticsSnapshotServiceTests {
+
+	@Autowired
+	private CatAnalyticsSnapshotService service;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	private List<Cat> cats;
+
+	@BeforeEach
+	void setUp() {
+		// @formatter:off
+		cats = catRepository.saveAll(Arrays.asList(
+				catTestUtil.initializeCat("タマ", 3, 2)
+				, catTestUtil.initializeCat("ミケ", 5, 0)
+				, catTestUtil.initializeCat("クロ", 10, 1)
+				));
+		// @formatter:on
+	}
+
+	@AfterEach
+	void tearDown() {
+		catTestUtil.deleteAllCats();
+		service.refresh();
+	}
+
+	@Test
+	@DisplayName("すべての猫を読み込み、年齢・仔猫の匹数で集計する")
+	void testLoadAll() {
+
+		final CatColumnarSnapshot snapshot = service.refresh();
+
+		assertEquals(6, snapshot.size());
+		// 仔猫は 0 歳か 1 歳
+		assertEquals(3, snapshot.countByAgeBetween(0, 1));
+		assertEquals(2, snapshot.countByAgeBetween(2, 5));
+		assertEquals(1, snapshot.countByName("ミケ"));
+		assertEquals(1, snapshot.ageHistogram()[10]);
+		assertEquals(4, snapshot.kittenCountHistogram()[0]);
+		assertEquals("タマ", snapshot.topByKittenCount(1).get(0).getName());
+	}
+
+	@Test
+	@DisplayName("登録・更新・削除された猫だけを読み直して反映する")
+	void testIncrementalRefresh() {
+
+		final CatColumnarSnapshot before = service.refresh();
+		assertSame(before, service.refresh());
+
+		final Cat mike = cats.get(1);
+		mike.setAge(6);
+		catRepository.save(mike);
+		catRepository.save(catTestUtil.initializeCat("ブチ", 7, 0));
+		final Cat kuro = cats.get(2);
+		catRepository.delete(catRepository.findById(kuro.getKittens().iterator().next().getId()).orElseThrow());
+		assertEquals(3, service.pendingChanges());
+
+		final CatColumnarSnapshot after = service.refresh();
+		assertEquals(0, service.pendingChanges());
+		assertEquals(6, after.size());
+		assertEquals(6, after.find(mike.getId()).getAge());
+		assertEquals(1, after.countByName("ブチ"));
+		assertEquals(2, after.countByAgeBetween(0, 1));
+		assertEquals(6, before.size());
+		assertEquals(5, before.find(mike.getId()).getAge());
+	}
+
+	@Test
+	@DisplayName("一括更新の後は、すべて読み込み直す")
+	void testReloadAfterBulkOperation() {
+
+		service.refresh();
+
+		bulkOperations.incrementAge(1);
+
+		final CatColumnarSnapshot snapshot = service.refresh();
+		assertEquals(0, snapshot.countByAgeBetween(0, 0));
+		assertEquals(1, snapshot.countByAgeBetween(11, 11));
+		assertNull(snapshot.find(-1));
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.blazepersistencesample.infrastructure.jpa.analytics;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CatColumnarSnapshotTests {
+
+	/** 並列に走査する範囲が複数になり、最後の範囲が端数になる件数 */
+	private static final int SIZE = CatColumnarSnapshot.CHUNK_SIZE * 3 + 123;
+
+	private static final String[] NAMES = { "タマ", "ミケ", "クロ", "シロ" };
+
+	private final long[] ids = new long[SIZE];
+
+	private final int[] ages = new int[SIZE];
+
+	private final int[] kittenCounts = new int[SIZE];
+
+	private final int[] nameCodes = new int[SIZE];
+
+	private final CatColumnarSnapshot snapshot;
+
+	CatColumnarSnapshotTests() {
+		final NameDictionary dictionary = new NameDictionary();
+		Arrays.stream(NAMES).forEach(dictionary::encode);
+		final Random random = new Random(42);
+		for (int i = 0; i < SIZE; i++) {
+			ids[i] = i * 2L + 1;
+			ages[i] = random.nextInt(30);
+			kittenCounts[i] = random.nextInt(1000) == 0 ? 10 + random.nextInt(5) : random.nextInt(3);
+			nameCodes[i] = random.nextInt(NAMES.length);
+		}
+		snapshot = new CatColumnarSnapshot(ids.clone(), ages.clone(), kittenCounts.clone(), nameCodes.clone(),
+				dictionary.freeze(), SIZE);
+	}
+
+	@Test
+	@DisplayName("範囲・名前で数えた件数が、1 件ずつ数えた件数と一致する")
+	void testCount() {
+
+		assertEquals(IntStream.of(ages).filter(age -> age >= 5 && age <= 9).count(), snapshot.countByAgeBetween(5, 9));
+		assertEquals(IntStream.of(nameCodes).filter(code -> code == 2).count(), snapshot.countByName("クロ"));
+		assertEquals(0, snapshot.countByName("ブチ"));
+	}
+
+	@Test
+	@DisplayName("ヒストグラムが、1 件ずつ数えた件数と一致する")
+	void testHistogram() {
+
+		final long[] expected = new long[30];
+		IntStream.of(ages).forEach(age -> expected[age]++);
+
+		assertArrayEquals(expected, snapshot.ageHistogram());
+		assertEquals(SIZE, IntStream.range(0, snapshot.kittenCountHistogram().length)
+				.mapToLong(i -> snapshot.kittenCountHistogram()[i]).sum());
+		assertEquals(0, CatColumnarSnapshot.EMPTY.ageHistogram().length);
+	}
+
+	@Test
+	@DisplayName("仔猫の多い順・ID 順の上位が、全件を並べた上位と一致する")
+	void testTopByKittenCount() {
+
+		// @formatter:off
+		final List<Long> expected = IntStream.range(0, SIZE).boxed()
+				.sorted(Comparator.<Integer> comparingInt(i -> kittenCounts[i]).reversed()
+						.thenComparingLong(i -> ids[i]))
+				.limit(50)
+				.map(i -> ids[i])
+				.collect(Collectors.toList());
+		// @formatter:on
+
+		final List<CatAnalyticsRow> top = snapshot.topByKittenCount(50);
+		assertEquals(expected, top.stream().map(CatAnalyticsRow::getId).collect(Collectors.toList()));
+		assertEquals(snapshot.find(top.get(0).getId()), top.get(0));
+		assertNull(snapshot.find(2));
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.blazepersistencesample.infrastructure.jpa.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+
+@DataJpaTest(properties = { "blaze-persistence-sample.async.threads=2",
+		"blaze-persistence-sample.async.queue-capacity=0", "blaze-persistence-sample.async.acquire-timeout=100ms" })
+@Import(value = { BlazePersistenceConfiguration.class, AsyncQueryExecutor.class })
+class AsyncQueryExecutorTests {
+
+	@Autowired
+	private AsyncQueryExecutor executor;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Test
+	@DisplayName("クエリーを別々のスレッドの読み取り専用トランザクションで同時に実行する")
+	void testConcurrent() {
+
+		final CyclicBarrier barrier = new CyclicBarrier(2);
+		// @formatter:off
+		final CompletableFuture<Long> first = executor.submit(em -> {
+			await(barrier);
+			assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+			return cbf.create(em, Long.class).from(Cat.class, "c").select("COUNT(c.id)").getSingleResult();
+		});
+		final CompletableFuture<String> second = executor.submit(em -> {
+			await(barrier);
+			return Thread.currentThread().getName();
+		});
+		// @formatter:on
+
+		assertEquals(0L, first.join());
+		assertTrue(second.join().startsWith("async-query-"), second::join);
+	}
+
+	@Test
+	@DisplayName("実行待ちが上限に達すると、空くまで待ってから失敗させる")
+	void testBackPressure() throws Exception {
+
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(2);
+		// @formatter:off
+		final CompletableFuture<?> blocking = CompletableFuture.allOf(
+				executor.submit(em -> block(started, release)),
+				executor.submit(em -> block(started, release)));
+		// @formatter:on
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		final CompletableFuture<String> rejected = executor.submit(em -> "rejected");
+		final CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+		assertTrue(failure.getCause() instanceof RejectedExecutionException, failure::toString);
+
+		release.countDown();
+		blocking.join();
+		assertEquals("accepted", executor.submit(em -> "accepted").join());
+	}
+
+	private static void await(final CyclicBarrier barrier) {
+		try {
+			barrier.await(10, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String block(final CountDownLatch started, final CountDownLatch release) {
+		started.countDown();
+		try {
+			release.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return "blocked";
+	}
+}
@@ -0,0 +1,153 @@
+package com.example.blazepersistencesample.infrastructure.jpa.bulk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaPersonRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class })
+class CatBulkOperationsTests {
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Test
+	@DisplayName("すべての猫の年齢を 1 つの UPDATE 文で加算する")
+	void testIncrementAge() {
+
+		final int arbitraryCatListSize = 10;
+		catTestUtil.initializeNameOrderedList(arbitraryCatListSize);
+		final List<Integer> agesBefore = findAgesOrderById();
+
+		assertEquals(arbitraryCatListSize, bulkOperations.incrementAge(1));
+
+		// @formatter:off
+		assertEquals(agesBefore.stream().map(age -> age + 1).collect(Collectors.toList()),
+				findAgesOrderById());
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("年齢で絞り込んだ猫だけ年齢を加算する")
+	void testIncrementAgeBetween() {
+
+		// @formatter:off
+		catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("タマ", 3, 0)
+				, catTestUtil.initializeCat("ミケ", 5, 0)
+				, catTestUtil.initializeCat("クロ", 10, 0)
+				, catTestUtil.initializeCat("シロ", 11, 0)
+				));
+		// @formatter:on
+
+		assertEquals(2, bulkOperations.incrementAge(2, 5, 10));
+		assertEquals(Arrays.asList(3, 7, 12, 11), findAgesOrderById());
+	}
+
+	@Test
+	@DisplayName("一定の年齢より上の猫を、仔猫・飼い主との関連ごと削除する")
+	void testDeleteOlderThan() {
+
+		// 親猫が削除対象: 仔猫との関連 2 件
+		final Cat oldParent = catTestUtil.initializeCat("長老", 20, 2);
+		// 仔猫が削除対象: 仔猫との関連 1 件
+		final Cat oldKitten = catTestUtil.initializeCat("老猫", 30, 0);
+		// @formatter:off
+		final Cat youngParent = Cat.builder()
+				.name("若猫")
+				.age(2)
+				.kittens(new HashSet<>(Collections.singletonList(oldKitten)))
+				.build();
+		// @formatter:on
+		// 飼い猫が削除対象: 飼い主との関連 1 件
+		final Cat ownedOldCat = catTestUtil.initializeCat("ご隠居", 25, 0);
+		final Cat ownedYoungCat = catTestUtil.initializeCat("子猫", 1, 0);
+		catRepository.saveAllAndFlush(Arrays.asList(oldParent, oldKitten, youngParent, ownedOldCat, ownedYoungCat));
+		// @formatter:off
+		personRepository.saveAndFlush(Person.builder()
+				.name("陽葵")
+				.kittens(new HashSet<>(Arrays.asList(ownedOldCat, ownedYoungCat)))
+				.build());
+		// @formatter:on
+		final long noOfCatsBefore = catRepository.count();
+
+		final CatDeletion deletion = bulkOperations.deleteOlderThan(10);
+
+		assertEquals(new CatDeletion(3, 3, 1), deletion);
+		assertEquals(noOfCatsBefore - 3, catRepository.count());
+		// @formatter:off
+		final List<String> ownedCatNames = cbf.create(em, String.class)
+				.from(Person.class, "person")
+				.select("person.kittens.name")
+				.getResultList();
+		// @formatter:on
+		assertEquals(Collections.singletonList("子猫"), ownedCatNames);
+		// 仔猫を削除された親猫だけ匹数が変わる
+		assertEquals(0, catRepository.getById(youngParent.getId()).getKittenCount());
+	}
+
+	@Test
+	@DisplayName("すべての猫と関連を削除する")
+	void testDeleteAll() {
+
+		// @formatter:off
+		final List<Cat> cats = catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("ムギ", 3, 2)
+				, catTestUtil.initializeCat("ソラ", 4, 0)
+				));
+		personRepository.saveAndFlush(Person.builder()
+				.name("蒼")
+				.kittens(new HashSet<>(cats))
+				.build());
+		// @formatter:on
+
+		assertEquals(new CatDeletion(4, 2, 2), bulkOperations.deleteAll());
+		assertEquals(0, catRepository.count());
+		assertEquals(1, personRepository.count());
+	}
+
+	private List<Integer> findAgesOrderById() {
+		// @formatter:off
+		return cbf.create(em, Integer.class)
+				.from(Cat.class, "c")
+				.select("c.age")
+				.orderByAsc("c.id")
+				.getResultList();
+		// @formatter:on
+	}
+}
@@ -0,0 +1,290 @@
+package com.example.blazepersistencesample.infrastructure.jpa.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaPersonRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 結果の無効化はトランザクションの完了後に行われ、読み書きするトランザクションではキャッシュを使わないため、
+ * テストのトランザクションを使わずに、読み取り専用のトランザクションごとに実行する。
+ */
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+		"blaze-persistence-sample.result-cache.memory-budget=8KB",
+		"blaze-persistence-sample.result-cache.estimated-row-size=100B" })
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		QueryResultCache.class, SimpleMeterRegistry.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueryResultCacheTests {
+
+	@Autowired
+	private QueryResultCache resultCache;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityViewManager evm;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		// @formatter:off
+		catRepository.saveAll(Arrays.asList(
+				catTestUtil.initializeCat("3-牧野歴君", 5, 2)
+				, catTestUtil.initializeCat("2-きなこ", 6, 3)
+				, catTestUtil.initializeCat("1-さくら", 10, 2)
+				, catTestUtil.initializeCat("碧", 5, 1)
+				));
+		// @formatter:on
+		resultCache.invalidateAll();
+		statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@AfterEach
+	void tearDown() {
+		catTestUtil.deleteAllCats();
+		personRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("同じクエリー・パラメーターの結果は、データベースに問い合わせずに返す")
+	void testHit() {
+
+		final List<String> first = findNamesWithKittens(5, 10, 2);
+		final List<String> second = findNamesWithKittens(5, 10, 2);
+
+		assertEquals(Arrays.asList("1-さくら", "2-きなこ", "3-牧野歴君"), first);
+		assertSame(first, second);
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertEquals(1, resultCache.stats().hitCount());
+		assertEquals(1, resultCache.stats().missCount());
+
+		// パラメーターが異なれば別の結果
+		assertEquals(Arrays.asList("1-さくら", "2-きなこ"), findNamesWithKittens(6, 10, 2));
+		assertEquals(2, resultCache.stats().missCount());
+
+		// @formatter:off
+		assertEquals(1, meterRegistry.get("cache.gets")
+				.tag("cache", QueryResultCache.METRIC_NAME)
+				.tag("result", "hit")
+				.functionCounter().count());
+		assertEquals(2, meterRegistry.get("cache.gets")
+				.tag("cache", QueryResultCache.METRIC_NAME)
+				.tag("result", "miss")
+				.functionCounter().count());
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("読み書きするトランザクションの中では、保持している結果を使わず、結果も保持しない")
+	void testBypassInReadWriteTransaction() {
+
+		final List<String> cached = findNamesWithKittens(5, 10, 2);
+		final long misses = resultCache.stats().missCount();
+		final double bypasses = meterRegistry.get(QueryResultCache.BYPASSES).counter().count();
+
+		final List<List<String>> results = inTransaction(() -> {
+			catRepository.saveAndFlush(catTestUtil.initializeCat("0-モカ", 7, 2));
+			return Arrays.asList(queryNamesWithKittens(5, 10, 2), queryNamesWithKittens(5, 10, 2));
+		});
+
+		// 同じトランザクションで登録した猫が見える
+		assertEquals("0-モカ", results.get(0).get(0));
+		assertNotSame(results.get(0), results.get(1));
+		assertEquals(misses, resultCache.stats().missCount());
+		assertEquals(bypasses + 2, meterRegistry.get(QueryResultCache.BYPASSES).counter().count());
+		assertNotSame(cached, findNamesWithKittens(5, 10, 2));
+	}
+
+	@Test
+	@DisplayName("ロールバックされた場合も、変更されたエンティティを参照する結果を無効にする")
+	void testInvalidationOnRollback() {
+
+		final List<String> before = findNamesWithKittens(5, 10, 2);
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			catRepository.saveAndFlush(catTestUtil.initializeCat("0-モカ", 7, 2));
+			status.setRollbackOnly();
+		});
+
+		final List<String> after = findNamesWithKittens(5, 10, 2);
+		assertNotSame(before, after);
+		assertEquals(before, after);
+	}
+
+	@Test
+	@DisplayName("エンティティ ビューの射影の結果を保持する")
+	void testEntityView() {
+
+		final List<CatView> first = findCatViews();
+		final List<CatView> second = findCatViews();
+
+		assertSame(first, second);
+		assertEquals(4 + 8, second.size());
+		assertThrows(UnsupportedOperationException.class, () -> second.remove(0));
+	}
+
+	@Test
+	@DisplayName("管理対象のエンティティは保持しない")
+	void testRejectEntities() {
+
+		assertThrows(IllegalArgumentException.class,
+				() -> inReadOnlyTransaction(() -> resultCache.getResultList(cbf.create(em, Cat.class), Cat.class)));
+		assertEquals(0, resultCache.estimatedSize());
+	}
+
+	@Test
+	@DisplayName("猫のテーブルが変更されると、猫を参照する結果を無効にする")
+	void testInvalidation() {
+
+		final List<String> before = findNamesWithKittens(5, 10, 2);
+
+		// 飼い主だけの変更では無効にしない
+		personRepository.save(Person.builder().name("陽葵").build());
+		assertSame(before, findNamesWithKittens(5, 10, 2));
+
+		catRepository.save(catTestUtil.initializeCat("0-モカ", 7, 2));
+		final List<String> afterInsert = findNamesWithKittens(5, 10, 2);
+		assertEquals("0-モカ", afterInsert.get(0));
+
+		bulkOperations.incrementAge(10);
+		assertEquals(Arrays.asList(), findNamesWithKittens(5, 10, 2));
+	}
+
+	@Test
+	@DisplayName("飼い猫を変更すると、猫を参照する結果を無効にする")
+	void testCollectionInvalidation() {
+
+		final List<String> before = findOwnedCatNames();
+		assertEquals(Arrays.asList(), before);
+
+		// @formatter:off
+		inTransaction(() -> personRepository.save(Person.builder()
+				.name("蒼")
+				.kittens(new HashSet<>(catRepository.findAll()))
+				.build()));
+		// @formatter:on
+
+		assertNotSame(before, findOwnedCatNames());
+		assertEquals(4 + 8, findOwnedCatNames().size());
+	}
+
+	@Test
+	@DisplayName("見積もったメモリー使用量が上限を超えないよう、結果を追い出す")
+	void testEviction() {
+
+		for (int minAge = 0; minAge < 30; minAge++) {
+			findNamesWithKittens(minAge, 100, 0);
+		}
+		resultCache.cleanUp();
+
+		assertTrue(resultCache.stats().evictionCount() > 0);
+		assertTrue(resultCache.weightedSize() <= 8 * 1024, () -> "weightedSize=" + resultCache.weightedSize());
+	}
+
+	private List<String> findNamesWithKittens(final int minAge, final int maxAge, final int minKittens) {
+		return inReadOnlyTransaction(() -> queryNamesWithKittens(minAge, maxAge, minKittens));
+	}
+
+	private List<String> queryNamesWithKittens(final int minAge, final int maxAge, final int minKittens) {
+		// @formatter:off
+		return resultCache.getResultList(cbf.create(em, String.class)
+				.from(Cat.class, "c")
+				.select("c.name")
+				.where("c.age").between(minAge).and(maxAge)
+				.where("SIZE(c.kittens)").ge(minKittens)
+				.orderByAsc("c.name")
+				.orderByAsc("c.id"),
+				Cat.class);
+		// @formatter:on
+	}
+
+	private List<CatView> findCatViews() {
+		// @formatter:off
+		return inReadOnlyTransaction(() -> resultCache.getResultList(evm.applySetting(
+				EntityViewSetting.create(CatView.class),
+				cbf.create(em, Cat.class, "c").orderByAsc("c.name").orderByAsc("c.id")),
+				Cat.class));
+		// @formatter:on
+	}
+
+	private List<String> findOwnedCatNames() {
+		// @formatter:off
+		return inReadOnlyTransaction(() -> resultCache.getResultList(cbf.create(em, String.class)
+				.from(Person.class, "person")
+				.select("person.kittens.name"),
+				Cat.class, Person.class));
+		// @formatter:on
+	}
+
+	private <T> T inTransaction(final Supplier<T> action) {
+		return new TransactionTemplate(transactionManager).execute(status -> action.get());
+	}
+
+	private <T> T inReadOnlyTransaction(final Supplier<T> action) {
+		final TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+		readOnlyTx.setReadOnly(true);
+		return readOnlyTx.execute(status -> action.get());
+	}
+}
@@ -0,0 +1,246 @@
+package com.example.blazepersistencesample.infrastructure.jpa.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.cache.SecondLevelCacheStatistics.CacheRegionSummary;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatKeysetPagingService;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatSortOrder;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaPersonRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+
+/**
+ * 2 次キャッシュへの登録はコミット時に行われるため、テストのトランザクションを使わずにトランザクションごとに実行する。
+ */
+// @formatter:off
+@DataJpaTest(properties = {
+		"blaze-persistence-sample.cache.entity.max-size=500",
+		"blaze-persistence-sample.cache.statistics.enabled=true" })
+// @formatter:on
+@Import(value = { BlazePersistenceConfiguration.class, SecondLevelCacheConfiguration.class, CatTestUtility.class,
+		CatBulkOperations.class, CatKeysetPagingService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SecondLevelCacheTests {
+
+	private static final String CAT_REGION = Cat.class.getName();
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private CatKeysetPagingService pagingService;
+
+	@Autowired
+	private SecondLevelCacheStatistics cacheStatistics;
+
+	@Autowired
+	private CacheManager secondLevelCacheManager;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		em.getEntityManagerFactory().getCache().evictAll();
+	}
+
+	@AfterEach
+	void tearDown() {
+		catTestUtil.deleteAllCats();
+		personRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("一度読み込んだ猫は、別のトランザクションでもデータベースに問い合わせずに取得する")
+	void testEntityCache() {
+
+		final Long id = catRepository.save(catTestUtil.initializeCat("タマ", 3, 0)).getId();
+		em.getEntityManagerFactory().getCache().evictAll();
+		cacheStatistics.clear();
+
+		assertEquals("タマ", inTransaction(() -> em.find(Cat.class, id).getName()));
+		final long noOfStatements = statistics.getPrepareStatementCount();
+		assertEquals("タマ", inTransaction(() -> em.find(Cat.class, id).getName()));
+
+		assertEquals(noOfStatements, statistics.getPrepareStatementCount());
+		final CacheRegionSummary region = cacheStatistics.region(CAT_REGION);
+		assertEquals(1, region.getHitCount());
+		assertEquals(1, region.getMissCount());
+		assertEquals(0.5, region.getHitRatio());
+	}
+
+	@Test
+	@DisplayName("仔猫のコレクションもキャッシュから取得する")
+	void testCollectionCache() {
+
+		final Long id = catRepository.save(catTestUtil.initializeCat("ミケ", 5, 3)).getId();
+
+		assertEquals(3, inTransaction(() -> em.find(Cat.class, id).getKittens().size()));
+		statistics.clear();
+		assertEquals(3, inTransaction(() -> em.find(Cat.class, id).getKittens().size()));
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertTrue(cacheStatistics.region(CAT_REGION + ".kittens").getHitCount() > 0);
+	}
+
+	@Test
+	@DisplayName("リポジトリーで更新した猫は、キャッシュからも更新後の値を返す")
+	void testRepositoryUpdate() {
+
+		final Long id = catRepository.save(catTestUtil.initializeCat("クロ", 3, 0)).getId();
+		inTransaction(() -> em.find(Cat.class, id));
+
+		inTransaction(() -> {
+			em.find(Cat.class, id).setName("シロ");
+			return null;
+		});
+
+		assertEquals("シロ", inTransaction(() -> em.find(Cat.class, id).getName()));
+	}
+
+	@Test
+	@DisplayName("Blaze-Persistence の一括更新・一括削除の後は、キャッシュした猫を返さない")
+	void testBulkUpdate() {
+
+		final Long id = catRepository.save(catTestUtil.initializeCat("ハナ", 3, 0)).getId();
+		inTransaction(() -> em.find(Cat.class, id));
+
+		bulkOperations.incrementAge(2);
+		assertEquals(5, inTransaction(() -> em.find(Cat.class, id).getAge()).intValue());
+
+		bulkOperations.deleteOlderThan(4);
+		assertEquals(null, inTransaction(() -> em.find(Cat.class, id)));
+	}
+
+	@Test
+	@DisplayName("飼い猫に加えた猫は、キャッシュからも飼い主の ID を返す")
+	void testCollectionLinkEviction() {
+
+		final Long id = catRepository.save(catTestUtil.initializeCat("ソラ", 2, 0)).getId();
+		assertEquals(null, inTransaction(() -> em.find(Cat.class, id).getOwnerId()));
+
+		// @formatter:off
+		final Long ownerId = inTransaction(() -> personRepository.save(Person.builder()
+				.name("陽葵")
+				.kittens(new HashSet<>(Arrays.asList(em.find(Cat.class, id))))
+				.build())
+				.getId());
+		// @formatter:on
+
+		assertEquals(ownerId, inTransaction(() -> em.find(Cat.class, id).getOwnerId()));
+	}
+
+	@Test
+	@DisplayName("先頭のページはクエリー キャッシュから取得し、猫を登録すると取得し直す")
+	void testQueryCache() {
+
+		catTestUtil.initializeNameOrderedList(15);
+
+		inTransaction(() -> pagingService.firstPage(CatView.class, CatSortOrder.NAME, 10));
+		statistics.clear();
+		final List<CatView> cached = inTransaction(
+				() -> pagingService.firstPage(CatView.class, CatSortOrder.NAME, 10).getContent());
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(1, statistics.getQueryCacheHitCount());
+		// @formatter:off
+		assertTrue(cacheStatistics.regions().stream()
+				.anyMatch(region -> region.getRegionName().equals(SecondLevelCacheConfiguration.QUERY_RESULTS_REGION)
+						&& region.getHitCount() == 1));
+		// @formatter:on
+
+		catRepository.save(catTestUtil.initializeCat("Cat0", 1, 0));
+		statistics.clear();
+		final List<CatView> refreshed = inTransaction(
+				() -> pagingService.firstPage(CatView.class, CatSortOrder.NAME, 10).getContent());
+		assertEquals(0, statistics.getQueryCacheHitCount());
+		assertEquals("Cat1", cached.get(0).getName());
+		assertEquals("Cat0", refreshed.get(0).getName());
+	}
+
+	@Test
+	@DisplayName("2 ページ目以降はクエリー キャッシュに登録しない")
+	void testNextPageNotCached() {
+
+		catTestUtil.initializeNameOrderedList(15);
+
+		// @formatter:off
+		final String token = inTransaction(
+				() -> pagingService.firstPage(CatView.class, CatSortOrder.NAME, 10).getNextToken());
+		// @formatter:on
+		statistics.clear();
+		inTransaction(() -> pagingService.nextPage(CatView.class, token));
+		inTransaction(() -> pagingService.nextPage(CatView.class, token));
+
+		assertEquals(0, statistics.getQueryCachePutCount());
+		assertEquals(0, statistics.getQueryCacheHitCount());
+	}
+
+	@Test
+	@DisplayName("エンティティ・コレクション・クエリーの領域に件数の上限を設ける")
+	void testBoundedRegions() {
+
+		for (String region : SecondLevelCacheConfiguration.DOMAIN_REGIONS) {
+			assertEquals(OptionalLong.of(500), maximumSize(region), region);
+		}
+		assertEquals(OptionalLong.of(1000), maximumSize(SecondLevelCacheConfiguration.QUERY_RESULTS_REGION));
+		assertEquals(OptionalLong.empty(), maximumSize(SecondLevelCacheConfiguration.UPDATE_TIMESTAMPS_REGION));
+	}
+
+	@SuppressWarnings("unchecked")
+	private OptionalLong maximumSize(final String region) {
+		// @formatter:off
+		return secondLevelCacheManager.getCache(region)
+				.getConfiguration(CaffeineConfiguration.class)
+				.getMaximumSize();
+		// @formatter:on
+	}
+
+	private <T> T inTransaction(final Supplier<T> action) {
+		return new TransactionTemplate(transactionManager).execute(status -> action.get());
+	}
+}
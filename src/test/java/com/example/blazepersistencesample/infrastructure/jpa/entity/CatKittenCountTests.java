@@ -0,0 +1,140 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class })
+class CatKittenCountTests {
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Test
+	@DisplayName("登録時に仔猫の匹数が設定される")
+	void testKittenCountOnPersist() {
+
+		final Cat parent = catRepository.saveAndFlush(catTestUtil.initializeCat("ムギ", 5, 3));
+		final Cat single = catRepository.saveAndFlush(catTestUtil.initializeCat("ソラ", 4, 0));
+		em.clear();
+
+		assertEquals(3, catRepository.getById(parent.getId()).getKittenCount());
+		assertEquals(0, catRepository.getById(single.getId()).getKittenCount());
+	}
+
+	@Test
+	@DisplayName("仔猫を追加・削除すると匹数も更新される")
+	void testKittenCountOnUpdate() {
+
+		final Cat parent = catRepository.saveAndFlush(catTestUtil.initializeCat("ムギ", 5, 2));
+		final Cat newKitten = catRepository.saveAndFlush(catTestUtil.initializeCat("ソラ", 0, 0));
+		em.clear();
+
+		Cat managed = catRepository.getById(parent.getId());
+		managed.getKittens().add(catRepository.getById(newKitten.getId()));
+		catRepository.flush();
+		em.clear();
+		assertEquals(3, catRepository.getById(parent.getId()).getKittenCount());
+
+		managed = catRepository.getById(parent.getId());
+		managed.getKittens().clear();
+		catRepository.flush();
+		em.clear();
+		assertEquals(0, catRepository.getById(parent.getId()).getKittenCount());
+	}
+
+	@Test
+	@DisplayName("関連と食い違った匹数を一括で再計算する")
+	void testRecalculateKittenCounts() {
+
+		final Cat parent = catRepository.saveAndFlush(catTestUtil.initializeCat("ムギ", 5, 2));
+		// @formatter:off
+		em.createNativeQuery("update cat set kitten_count = 9 where id = ?")
+				.setParameter(1, parent.getId())
+				.executeUpdate();
+		// @formatter:on
+
+		assertEquals(1, bulkOperations.recalculateKittenCounts());
+		assertEquals(2, catRepository.getById(parent.getId()).getKittenCount());
+		assertEquals(0, bulkOperations.recalculateKittenCounts());
+	}
+
+	@Test
+	@DisplayName("仔猫を一括削除すると親猫の匹数も更新される")
+	void testKittenCountAfterBulkDelete() {
+
+		// 仔猫 2 匹の年齢は 0 歳、親猫は 5 歳
+		final Cat parent = catRepository.saveAndFlush(catTestUtil.initializeCat("ムギ", 5, 2));
+		final Cat oldKitten = catRepository.saveAndFlush(catTestUtil.initializeCat("老猫", 30, 0));
+		em.clear();
+		Cat managed = catRepository.getById(parent.getId());
+		managed.getKittens().add(catRepository.getById(oldKitten.getId()));
+		catRepository.flush();
+
+		bulkOperations.deleteOlderThan(10);
+
+		assertEquals(2, catRepository.getById(parent.getId()).getKittenCount());
+	}
+
+	@Test
+	@DisplayName("匹数の列による絞り込みと SIZE(kittens) による絞り込みの結果が一致する")
+	void testKittenCountMatchesSize() {
+
+		// @formatter:off
+		catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("3-牧野歴君", 5, 2)
+				, catTestUtil.initializeCat("2-きなこ", 6, 3)
+				, catTestUtil.initializeCat("1-さくら", 10, 2)
+				, catTestUtil.initializeCat("碧", 5, 1)
+				, catTestUtil.initializeCat("くるみ", 4, 2)
+				));
+		// @formatter:on
+		em.clear();
+
+		final List<Long> bySize = findIdsOfAge5to10With2OrMoreKittens("SIZE(c.kittens)");
+		final List<Long> byColumn = findIdsOfAge5to10With2OrMoreKittens("c.kittenCount");
+
+		assertEquals(3, byColumn.size());
+		assertEquals(bySize, byColumn);
+	}
+
+	private List<Long> findIdsOfAge5to10With2OrMoreKittens(final String kittenCountExpression) {
+		// @formatter:off
+		return cbf.create(em, Long.class)
+				.from(Cat.class, "c")
+				.select("c.id")
+				.where("c.age").betweenExpression("5").andExpression("10")
+				.where(kittenCountExpression).geExpression("2")
+				.orderByAsc("c.id")
+				.getResultList();
+		// @formatter:on
+	}
+}
@@ -0,0 +1,115 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class })
+class EntityIdentityTests {
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private EntityManager em;
+
+	@Test
+	@DisplayName("ID が同じ猫は、名前・年齢が異なっても等しく、ID が異なればハッシュ値も異なる")
+	void testEqualsById() {
+
+		final Cat tama = Cat.builder().id(1L).name("タマ").age(3).build();
+		final Cat renamed = Cat.builder().id(1L).name("タマ二世").age(4).build();
+		final Cat other = Cat.builder().id(2L).name("タマ").age(3).build();
+
+		assertEquals(tama, renamed);
+		assertEquals(tama.hashCode(), renamed.hashCode());
+		assertNotEquals(tama, other);
+		assertNotEquals(tama.hashCode(), other.hashCode());
+		assertNotEquals(tama, Person.builder().id(1L).name("タマ").build());
+	}
+
+	@Test
+	@DisplayName("未登録の猫は自分自身とだけ等しく、登録した後に作った HashSet から見つかる")
+	void testTransientCatInHashSet() {
+
+		final Cat mugi = Cat.builder().name("ムギ").age(1).build();
+		final Cat sameName = Cat.builder().name("ムギ").age(1).build();
+		assertNotEquals(mugi, sameName);
+		assertEquals(Cat.class.hashCode(), mugi.hashCode());
+
+		catRepository.saveAndFlush(mugi);
+		final Set<Cat> cats = new HashSet<>(Collections.singletonList(mugi));
+
+		assertTrue(cats.contains(mugi));
+		assertEquals(mugi.getId().hashCode(), mugi.hashCode());
+	}
+
+	@Test
+	@DisplayName("登録前にハッシュ値を求めた猫と、別の永続化コンテキストで読み込んだ同じ猫・プロキシーのハッシュ値が等しい")
+	void testHashCodeAcrossPersistenceContexts() {
+
+		final Cat hana = Cat.builder().name("ハナ").age(4).build();
+		assertEquals(Cat.class.hashCode(), hana.hashCode());
+		final Long id = catRepository.saveAndFlush(hana).getId();
+		em.clear();
+
+		final Cat loaded = em.find(Cat.class, id);
+		em.clear();
+		final Cat proxy = em.getReference(Cat.class, id);
+
+		assertEquals(hana, loaded);
+		assertEquals(hana.hashCode(), loaded.hashCode());
+		assertEquals(hana, proxy);
+		assertEquals(hana.hashCode(), proxy.hashCode());
+		assertTrue(new HashSet<>(Collections.singletonList(hana)).contains(loaded));
+		assertTrue(new HashSet<>(Collections.singletonList(loaded)).contains(proxy));
+	}
+
+	@Test
+	@DisplayName("遅延読み込みのプロキシーと読み込み済みの猫が等しい")
+	void testEqualsWithProxy() {
+
+		final Long id = catRepository.saveAndFlush(Cat.builder().name("ソラ").age(2).build()).getId();
+		em.clear();
+
+		final Cat loaded = em.find(Cat.class, id);
+		em.clear();
+		final Cat proxy = em.getReference(Cat.class, id);
+		assertFalse(Hibernate.isInitialized(proxy));
+
+		assertEquals(proxy, loaded);
+		assertEquals(loaded, proxy);
+		assertEquals(proxy.hashCode(), loaded.hashCode());
+	}
+
+	@Test
+	@DisplayName("循環した仔猫の関連があっても hashCode・toString が終了する")
+	void testCyclicKittens() {
+
+		final Cat parent = Cat.builder().id(1L).name("親").age(5).build();
+		final Cat kitten = Cat.builder().id(2L).name("子").age(1).build();
+		parent.setKittens(new HashSet<>(Collections.singletonList(kitten)));
+		kitten.setKittens(new HashSet<>(Collections.singletonList(parent)));
+
+		assertEquals(Long.valueOf(1L).hashCode(), parent.hashCode());
+		assertFalse(parent.toString().contains("子"), parent.toString());
+	}
+}
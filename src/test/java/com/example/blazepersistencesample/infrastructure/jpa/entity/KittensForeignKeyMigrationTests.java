@@ -0,0 +1,98 @@
+package com.example.blazepersistencesample.infrastructure.jpa.entity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+/**
+ * 結合テーブルから外部キーへの移行スクリプト（{@code db/kittens-foreign-key-migration.sql}）を、移行前のスキーマに適用する。
+ */
+class KittensForeignKeyMigrationTests {
+
+	private SingleConnectionDataSource dataSource;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		// @formatter:off
+		dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:migration;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", "", true);
+		// @formatter:on
+		jdbcTemplate = new JdbcTemplate(dataSource);
+
+		// 移行前のスキーマ（@OneToMany に @JoinColumn がなかったときに Hibernate が生成したもの）
+		// @formatter:off
+		jdbcTemplate.execute("create table cat (id bigint not null, age integer not null, kitten_count integer not null,"
+				+ " name varchar(255) not null, primary key (id))");
+		jdbcTemplate.execute("create table person (id bigint not null, name varchar(255), primary key (id))");
+		jdbcTemplate.execute("create table cat_kittens (cat_id bigint not null, kittens_id bigint not null,"
+				+ " primary key (cat_id, kittens_id), unique (kittens_id))");
+		jdbcTemplate.execute("create table person_kittens (person_id bigint not null, kittens_id bigint not null,"
+				+ " primary key (person_id, kittens_id), unique (kittens_id))");
+
+		jdbcTemplate.update("insert into cat values (1, 5, 2, 'ムギ'), (2, 0, 0, 'ムギ Jr.1'), (3, 0, 0, 'ムギ Jr.2'), (4, 3, 0, 'ソラ')");
+		jdbcTemplate.update("insert into person values (1, '陽葵')");
+		jdbcTemplate.update("insert into cat_kittens values (1, 2), (1, 3)");
+		jdbcTemplate.update("insert into person_kittens values (1, 1), (1, 4)");
+		// @formatter:on
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.execute("drop all objects");
+		dataSource.destroy();
+	}
+
+	@Test
+	@DisplayName("結合テーブルの関連が外部キーへ移され、結合テーブルが削除される")
+	void testMigrate() {
+
+		new ResourceDatabasePopulator(new ClassPathResource("db/kittens-foreign-key-migration.sql")).execute(dataSource);
+
+		// @formatter:off
+		final List<Map<String, Object>> cats = jdbcTemplate.queryForList(
+				"select id, parent_id, owner_id from cat order by id");
+		assertEquals(Arrays.asList(
+				row(1L, null, 1L)
+				, row(2L, 1L, null)
+				, row(3L, 1L, null)
+				, row(4L, null, 1L)
+				), cats);
+		// @formatter:on
+
+		// @formatter:off
+		final List<String> tables = jdbcTemplate.queryForList(
+				"select table_name from information_schema.tables where table_schema = 'public'", String.class);
+		// @formatter:on
+		assertEquals(Arrays.asList("cat", "person"), tables.stream().sorted().collect(Collectors.toList()));
+
+		// @formatter:off
+		final List<String> indexes = jdbcTemplate.queryForList(
+				"select index_name from information_schema.indexes where table_name = 'cat'", String.class);
+		// @formatter:on
+		assertTrue(indexes.containsAll(Arrays.asList("idx_cat_parent_id", "idx_cat_owner_id")), indexes.toString());
+	}
+
+	private Map<String, Object> row(final Long id, final Long parentId, final Long ownerId) {
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("id", id);
+		row.put("parent_id", parentId);
+		row.put("owner_id", ownerId);
+		return row;
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.blazepersistencesample.infrastructure.jpa.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.paging.CatSortOrder;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatWithKittenCountView;
+
+@DataJpaTest(properties = { "blaze-persistence-sample.export.fetch-size=7",
+		"blaze-persistence-sample.export.clear-interval=5" })
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		CatStreamService.class })
+class CatStreamServiceTests {
+
+	@Autowired
+	private CatStreamService streamService;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Test
+	@DisplayName("すべての猫を指定した順序で 1 件ずつ読み進める")
+	void testForEach() {
+
+		// @formatter:off
+		catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("ミケ", 5, 0)
+				, catTestUtil.initializeCat("クロ", 3, 0)
+				, catTestUtil.initializeCat("タマ", 5, 0)
+				));
+		// @formatter:on
+		em.clear();
+
+		final List<String> names = new ArrayList<>();
+		final long count = streamService.forEach(CatView.class, CatSortOrder.AGE, cat -> names.add(cat.getName()));
+
+		assertEquals(3, count);
+		assertEquals(Arrays.asList("クロ", "ミケ", "タマ"), names);
+	}
+
+	@Test
+	@DisplayName("フェッチ サイズを超える件数を読んでも、永続化コンテキストに猫が残らない")
+	void testForEachKeepsPersistenceContextEmpty() {
+
+		final int arbitraryCatListSize = 23;
+		catTestUtil.initializeNameOrderedList(arbitraryCatListSize);
+		em.clear();
+
+		final List<Integer> entityCounts = new ArrayList<>();
+		// @formatter:off
+		final long count = streamService.forEach(CatWithKittenCountView.class, CatSortOrder.NAME,
+				cat -> entityCounts.add(em.unwrap(Session.class).getStatistics().getEntityCount()));
+		// @formatter:on
+
+		assertEquals(arbitraryCatListSize, count);
+		assertEquals(arbitraryCatListSize, entityCounts.size());
+		entityCounts.forEach(entityCount -> assertEquals(0, entityCount.intValue()));
+	}
+}
@@ -0,0 +1,136 @@
+package com.example.blazepersistencesample.infrastructure.jpa.fetch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.ingest.BulkIngestService;
+
+@DataJpaTest(properties = { "spring.jpa.properties.hibernate.generate_statistics=true",
+		"blaze-persistence-sample.fetch.prefetch-chunk-size=400" })
+@Import(value = { BlazePersistenceConfiguration.class, BulkIngestService.class, KittenPrefetcher.class })
+class KittenPrefetcherTests {
+
+	private static final int NO_OF_PERSONS = 1000;
+
+	private static final int KITTENS_PER_PERSON = 2;
+
+	@Autowired
+	private KittenPrefetcher prefetcher;
+
+	@Autowired
+	private BulkIngestService ingestService;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		List<Person> persons = new ArrayList<>();
+		for (int i = 1; i <= NO_OF_PERSONS; i++) {
+			Set<Cat> kittens = new HashSet<>();
+			for (int j = 1; j <= KITTENS_PER_PERSON; j++) {
+				kittens.add(Cat.builder().name("Person" + i + " Cat" + j).age(j).build());
+			}
+			persons.add(Person.builder().name("Person" + i).kittens(kittens).build());
+		}
+		ingestService.ingestPersons(persons);
+
+		statistics = em.unwrap(Session.class).getSessionFactory().getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	@DisplayName("飼い猫をまとめて読み込むと、飼い主の件数に関わらずクエリーの数が一定になる")
+	void testPrefetchPersonKittens() {
+
+		final List<Person> persons = findPersons();
+
+		assertEquals(3, prefetcher.prefetchPersonKittens(persons));
+		assertEquals(NO_OF_PERSONS * KITTENS_PER_PERSON, countKittens(persons));
+		// 飼い主の取得 1 回 + 飼い猫の取得 3 回（400 件ずつ）
+		assertEquals(4, statistics.getPrepareStatementCount());
+
+		// 初期化済みのコレクションは読み込み直さない
+		assertEquals(0, prefetcher.prefetchPersonKittens(persons));
+	}
+
+	@Test
+	@DisplayName("仔猫をまとめて読み込むと、猫の件数に関わらずクエリーの数が一定になる")
+	void testPrefetchCatKittens() {
+
+		// @formatter:off
+		final List<Cat> cats = cbf.create(em, Cat.class, "c")
+				.orderByAsc("c.id")
+				.getResultList();
+		// @formatter:on
+
+		assertEquals(5, prefetcher.prefetchCatKittens(cats));
+		assertTrue(cats.stream().allMatch(cat -> Hibernate.isInitialized(cat.getKittens())));
+		assertEquals(6, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	@DisplayName("既定のバッチ フェッチで、飼い猫を遅延読み込みしても飼い主 1 件ごとにクエリーが発行されない")
+	void testBatchFetch() {
+
+		final List<Person> persons = findPersons();
+
+		assertEquals(NO_OF_PERSONS * KITTENS_PER_PERSON, countKittens(persons));
+		// 飼い主の取得 1 回 + 飼い猫の取得 10 回（hibernate.default_batch_fetch_size=100 件ずつ）
+		assertEquals(1 + NO_OF_PERSONS / 100, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	@DisplayName("toString・hashCode で仔猫が読み込まれない")
+	void testToStringDoesNotInitializeKittens() {
+
+		final List<Person> persons = findPersons();
+		persons.forEach(person -> {
+			person.toString();
+			person.hashCode();
+		});
+
+		assertFalse(persons.stream().anyMatch(person -> Hibernate.isInitialized(person.getKittens())));
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	private List<Person> findPersons() {
+		em.clear();
+		// @formatter:off
+		return cbf.create(em, Person.class, "person")
+				.orderByAsc("person.id")
+				.getResultList();
+		// @formatter:on
+	}
+
+	private int countKittens(final List<Person> persons) {
+		return persons.stream().mapToInt(person -> person.getKittens().size()).sum();
+	}
+}
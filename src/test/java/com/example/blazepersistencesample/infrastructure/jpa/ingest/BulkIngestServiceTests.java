@@ -0,0 +1,181 @@
+package com.example.blazepersistencesample.infrastructure.jpa.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		BulkIngestService.class })
+class BulkIngestServiceTests {
+
+	@Autowired
+	private BulkIngestService service;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Test
+	@DisplayName("大量の猫を登録しても、永続化コンテキストに猫が残らない")
+	void testIngestCats() {
+
+		final int noOfCats = 120;
+		List<Cat> cats = new ArrayList<>();
+		for (int i = 1; i <= noOfCats; i++) {
+			// @formatter:off
+			cats.add(Cat.builder()
+					.name("Cat" + i)
+					.age(i % 20)
+					.kittens(i % 10 == 0 ? newKittens("Cat" + i, 2) : null)
+					.build());
+			// @formatter:on
+		}
+
+		final long persisted = service.ingestCats(cats);
+
+		assertEquals(noOfCats + (noOfCats / 10) * 2, persisted);
+		assertEquals(persisted, catRepository.count());
+		assertEquals(0, em.unwrap(Session.class).getStatistics().getEntityCount());
+
+		// @formatter:off
+		final Long noOfLinks = cbf.create(em, Long.class)
+				.from(Cat.class, "c")
+				.select("COUNT(c.kittens)")
+				.getSingleResult();
+		// @formatter:on
+		assertEquals((noOfCats / 10) * 2, noOfLinks.longValue());
+	}
+
+	@Test
+	@DisplayName("孫猫までたどって登録する")
+	void testIngestNestedKittens() {
+
+		Set<Cat> grandkittens = newKittens("Tama Jr.1", 2);
+		Cat kitten = Cat.builder().name("Tama Jr.1").age(1).kittens(grandkittens).build();
+		// @formatter:off
+		Cat tama = Cat.builder()
+				.name("Tama")
+				.age(5)
+				.kittens(new HashSet<>(List.of(kitten)))
+				.build();
+		// @formatter:on
+
+		assertEquals(4, service.ingestCats(List.of(tama)));
+		assertEquals(4, catRepository.count());
+		// 登録前に作った grandkittens は採番前のハッシュ値のままのため、作り直された側から引く
+		assertTrue(tama.getKittens().contains(kitten));
+		assertTrue(kitten.getKittens().containsAll(grandkittens));
+
+		// @formatter:off
+		final List<String> names = cbf.create(em, String.class)
+				.from(Cat.class, "c")
+				.where("c.parentId").eq(kitten.getId())
+				.select("c.name")
+				.orderByAsc("c.name")
+				.getResultList();
+		// @formatter:on
+		assertEquals(List.of("Tama Jr.1 Jr.1", "Tama Jr.1 Jr.2"), names);
+	}
+
+	@Test
+	@DisplayName("仔猫が一覧にも含まれていれば、チャンクをまたいでも 1 度だけ登録する")
+	void testIngestRepeatedKittenAcrossChunks() {
+
+		Cat kitten = Cat.builder().name("Tama Jr.1").age(0).build();
+		List<Cat> cats = new ArrayList<>();
+		cats.add(Cat.builder().name("Tama").age(5).kittens(new HashSet<>(List.of(kitten))).build());
+		// チャンクの件数（50）を超えてから、同じ仔猫をもう一度渡す
+		for (int i = 1; i <= 58; i++) {
+			cats.add(catTestUtil.initializeCat("Cat" + i));
+		}
+		cats.add(kitten);
+
+		assertEquals(60, service.ingestCats(cats));
+		assertEquals(60, catRepository.count());
+	}
+
+	@Test
+	@DisplayName("pooled-lo のシーケンスで連続した ID が採番される")
+	void testIngestCatsWithPooledIds() {
+
+		final int noOfCats = 75;
+		List<Cat> cats = new ArrayList<>();
+		for (int i = 1; i <= noOfCats; i++) {
+			cats.add(catTestUtil.initializeCat("Cat" + i));
+		}
+
+		service.ingestCats(cats);
+
+		// @formatter:off
+		final Object[] range = cbf.create(em, Object[].class)
+				.from(Cat.class, "c")
+				.select("MIN(c.id)")
+				.select("MAX(c.id)")
+				.getSingleResult();
+		// @formatter:on
+		assertEquals(noOfCats - 1, ((Long) range[1]) - ((Long) range[0]));
+	}
+
+	@Test
+	@DisplayName("飼い主と未登録の飼い猫をまとめて登録する")
+	void testIngestPersons() {
+
+		List<Person> persons = new ArrayList<>();
+		for (int i = 1; i <= 30; i++) {
+			// @formatter:off
+			persons.add(Person.builder()
+					.name("Person" + i)
+					.kittens(newKittens("Person" + i, 3))
+					.build());
+			// @formatter:on
+		}
+
+		assertEquals(30, service.ingestPersons(persons));
+
+		// @formatter:off
+		final List<Cat> cats = cbf.create(em, Cat.class)
+				.from(Person.class, "person")
+				.select("person.kittens")
+				.getResultList();
+		// @formatter:on
+		assertEquals(90, cats.size());
+	}
+
+	private Set<Cat> newKittens(final String parentName, final int noOfKittens) {
+		Set<Cat> kittens = new HashSet<>();
+		for (int i = 1; i <= noOfKittens; i++) {
+			kittens.add(Cat.builder().name(parentName + " Jr." + i).age(0).build());
+		}
+		return kittens;
+	}
+}
@@ -0,0 +1,347 @@
+package com.example.blazepersistencesample.infrastructure.jpa.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkModifiedEvent;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaPersonRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+@DataJpaTest(properties = { "blaze-persistence-sample.write-behind.writers=1",
+		"blaze-persistence-sample.write-behind.capacity=4",
+		"blaze-persistence-sample.write-behind.acquire-timeout=500ms" })
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		BulkIngestService.class, WriteBehindIngestService.class, WriteBehindIngestServiceTests.Blocker.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WriteBehindIngestServiceTests {
+
+	@Autowired
+	private WriteBehindIngestService service;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Autowired
+	private Blocker blocker;
+
+	@Autowired
+	private BulkIngestService ingestService;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void tearDown() {
+		blocker.release();
+		catTestUtil.deleteAllCats();
+		personRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("複数の呼び出し元から受け付けた猫を、コミット後に完了させる")
+	void testConcurrentProducers() throws Exception {
+
+		final int producers = 8;
+		final int catsPerProducer = 50;
+		final ExecutorService executor = Executors.newFixedThreadPool(producers);
+		try {
+			final List<CompletableFuture<List<CompletableFuture<Cat>>>> submissions = new ArrayList<>();
+			for (int p = 0; p < producers; p++) {
+				final String prefix = "Cat" + p + "-";
+				// @formatter:off
+				submissions.add(CompletableFuture.supplyAsync(() -> {
+					final List<CompletableFuture<Cat>> submitted = new ArrayList<>();
+					for (int i = 0; i < catsPerProducer; i++) {
+						submitted.add(service.submitCat(catTestUtil.initializeCat(prefix + i, i % 20, 0)));
+					}
+					return submitted;
+				}, executor));
+				// @formatter:on
+			}
+
+			final List<Cat> cats = new ArrayList<>();
+			submissions.forEach(submission -> submission.join().forEach(future -> cats.add(future.join())));
+			cats.forEach(cat -> assertNotNull(cat.getId()));
+			assertEquals(producers * catsPerProducer, new HashSet<>(cats).size());
+			assertEquals(producers * catsPerProducer, catRepository.count());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("飼い主・親猫と関連付け、仔猫の移る前後の親猫の匹数を合わせる")
+	void testLinks() {
+
+		final Cat kitten = catTestUtil.initializeCat("コタマ", 0, 0);
+		// @formatter:off
+		final Cat tama = service.submitCat(Cat.builder()
+				.name("タマ")
+				.age(3)
+				.kittens(new HashSet<>(Arrays.asList(kitten)))
+				.build()).join();
+		// @formatter:on
+		final Cat mike = service.submitCat(catTestUtil.initializeCat("ミケ", 5, 0)).join();
+		final Person owner = service.submitPerson(Person.builder().name("太郎").build()).join();
+		blocker.events.clear();
+
+		// @formatter:off
+		CompletableFuture.allOf(
+				service.linkOwner(kitten.getId(), owner.getId()),
+				service.linkParent(kitten.getId(), mike.getId())
+				).join();
+		// @formatter:on
+
+		final Cat linked = catRepository.findById(kitten.getId()).orElseThrow();
+		assertEquals(owner.getId(), linked.getOwnerId());
+		assertEquals(mike.getId(), linked.getParentId());
+		assertEquals(0, catRepository.findById(tama.getId()).orElseThrow().getKittenCount());
+		assertEquals(1, catRepository.findById(mike.getId()).orElseThrow().getKittenCount());
+
+		// 関連付けた猫と前後の親猫、猫が移った飼い主、親猫の年齢だけを知らせる
+		assertTrue(blocker.events.stream().allMatch(CatBulkModifiedEvent::isTargeted));
+		assertEquals(Set.of(kitten.getId(), tama.getId(), mike.getId()), union(CatBulkModifiedEvent::getCatIds));
+		assertEquals(Set.of(owner.getId()), union(CatBulkModifiedEvent::getOwnerIds));
+		assertEquals(Set.of(3, 5), union(CatBulkModifiedEvent::getAges));
+	}
+
+	@Test
+	@DisplayName("まとめた書き込みが失敗すると 1 件ずつ書き直し、失敗したものだけを失敗させる")
+	void testFailureIsolation() {
+
+		final Cat tama = service.submitCat(catTestUtil.initializeCat("タマ", 3, 0)).join();
+		final Person owner = service.submitPerson(Person.builder().name("太郎").build()).join();
+
+		// 書き込みスレッドを止め、以降の受け付けを 1 つのトランザクションにまとめさせる
+		blocker.block();
+		final CompletableFuture<Void> blocking = service.linkOwner(tama.getId(), owner.getId());
+		blocker.awaitBlocked();
+
+		final CompletableFuture<Cat> mike = service.submitCat(catTestUtil.initializeCat("ミケ", 5, 0));
+		final CompletableFuture<Void> missingCat = service.linkOwner(Long.MAX_VALUE, tama.getId());
+		final CompletableFuture<Cat> kuro = service.submitCat(catTestUtil.initializeCat("クロ", 10, 0));
+		blocker.release();
+
+		blocking.join();
+		assertNotNull(mike.join().getId());
+		assertNotNull(kuro.join().getId());
+		final CompletionException failure = assertThrows(CompletionException.class, missingCat::join);
+		assertTrue(failure.getCause() instanceof EntityNotFoundException, failure::toString);
+		assertEquals(3, catRepository.count());
+	}
+
+	@Test
+	@DisplayName("仔猫を共有する受け付けの一方だけが失敗しても、仔猫は 1 度だけ登録され、受け付けた猫に ID が戻る")
+	void testFailureWithSharedKitten() {
+
+		final Cat tama = service.submitCat(catTestUtil.initializeCat("タマ", 3, 0)).join();
+		final Person owner = service.submitPerson(Person.builder().name("太郎").build()).join();
+
+		blocker.block();
+		final CompletableFuture<Void> blocking = service.linkOwner(tama.getId(), owner.getId());
+		blocker.awaitBlocked();
+
+		final Cat kitten = Cat.builder().name("コミケ").age(0).build();
+		// @formatter:off
+		final CompletableFuture<Cat> mike = service.submitCat(Cat.builder()
+				.name("ミケ")
+				.age(5)
+				.kittens(new HashSet<>(Arrays.asList(kitten)))
+				.build());
+		// 名前が空のため登録できない
+		final CompletableFuture<Cat> invalid = service.submitCat(Cat.builder()
+				.name("")
+				.age(5)
+				.kittens(new HashSet<>(Arrays.asList(kitten)))
+				.build());
+		// @formatter:on
+		blocker.release();
+
+		blocking.join();
+		final Cat written = mike.join();
+		assertThrows(CompletionException.class, invalid::join);
+
+		assertEquals(3, catRepository.count());
+		// 親猫の ID は登録後の UPDATE 文で書き込まれ、二次キャッシュに載らないため、問い合わせで確かめる
+		// @formatter:off
+		final Long parentId = cbf.create(em, Long.class)
+				.from(Cat.class, "c")
+				.select("c.parentId")
+				.where("c.id").eq(kitten.getId())
+				.getSingleResult();
+		// @formatter:on
+		assertEquals(written.getId(), parentId);
+		assertTrue(written.getKittens().contains(kitten));
+		assertEquals(1, catRepository.findById(written.getId()).orElseThrow().getKittenCount());
+	}
+
+	@Test
+	@DisplayName("待ち行列が一杯のときは空きを待ち、空かなければ失敗させる")
+	void testBackPressure() {
+
+		final Cat tama = service.submitCat(catTestUtil.initializeCat("タマ", 3, 0)).join();
+		final Person owner = service.submitPerson(Person.builder().name("太郎").build()).join();
+
+		blocker.block();
+		final CompletableFuture<Void> blocking = service.linkOwner(tama.getId(), owner.getId());
+		blocker.awaitBlocked();
+
+		// 書き込み中の関連付けを含めて 4 件まで
+		final List<CompletableFuture<Cat>> accepted = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			accepted.add(service.submitCat(catTestUtil.initializeCat("Cat" + i, i, 0)));
+		}
+		final CompletableFuture<Cat> rejected = service.submitCat(catTestUtil.initializeCat("ミケ", 5, 0));
+		final CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+		assertTrue(failure.getCause() instanceof RejectedExecutionException, failure::toString);
+
+		blocker.release();
+		blocking.join();
+		accepted.forEach(CompletableFuture::join);
+		assertEquals(4, catRepository.count());
+	}
+
+	@Test
+	@DisplayName("停止と並行して受け付けたものも、書き込まれるか拒否されて必ず完了する")
+	void testSubmitDuringShutdown() throws Exception {
+
+		// @formatter:off
+		final WriteBehindIngestService stopping = new WriteBehindIngestService(ingestService, cbf, em, eventPublisher,
+				transactionManager, 2, 1000, 10, Duration.ofSeconds(1));
+		// @formatter:on
+		final int producers = 4;
+		final ExecutorService executor = Executors.newFixedThreadPool(producers);
+		try {
+			final List<CompletableFuture<Cat>> submitted = new CopyOnWriteArrayList<>();
+			final CountDownLatch started = new CountDownLatch(producers);
+			final List<Future<?>> producing = new ArrayList<>();
+			for (int p = 0; p < producers; p++) {
+				final String prefix = "Cat" + p + "-";
+				producing.add(executor.submit(() -> {
+					started.countDown();
+					for (int i = 0; i < 100; i++) {
+						submitted.add(stopping.submitCat(Cat.builder().name(prefix + i).age(i % 20).build()));
+					}
+				}));
+			}
+			started.await();
+			stopping.destroy();
+			for (Future<?> future : producing) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+
+			int written = 0;
+			for (CompletableFuture<Cat> future : submitted) {
+				assertTrue(future.isDone());
+				if (!future.isCompletedExceptionally()) {
+					written++;
+				} else {
+					final ExecutionException failure = assertThrows(ExecutionException.class, future::get);
+					assertTrue(failure.getCause() instanceof RejectedExecutionException, failure::toString);
+				}
+			}
+			assertEquals(written, catRepository.count());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private <T> Set<T> union(final Function<CatBulkModifiedEvent, Set<T>> values) {
+		return blocker.events.stream().flatMap(event -> values.apply(event).stream()).collect(Collectors.toSet());
+	}
+
+	/**
+	 * 関連付けの書き込み中に発行されるイベントを記録し、書き込みスレッドを止める。
+	 */
+	@TestConfiguration
+	static class Blocker {
+
+		private final List<CatBulkModifiedEvent> events = new CopyOnWriteArrayList<>();
+
+		private volatile CountDownLatch release = new CountDownLatch(0);
+
+		private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+		void block() {
+			blocked = new CountDownLatch(1);
+			release = new CountDownLatch(1);
+		}
+
+		void awaitBlocked() {
+			try {
+				assertTrue(blocked.await(10, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		void release() {
+			release.countDown();
+		}
+
+		@EventListener
+		void onBulkModified(final CatBulkModifiedEvent event) throws InterruptedException {
+			events.add(event);
+			blocked.countDown();
+			release.await(10, TimeUnit.SECONDS);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package com.example.blazepersistencesample.infrastructure.jpa.lineage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatLineageService.class })
+class CatLineageServiceTests {
+
+	@Autowired
+	private CatLineageService service;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private EntityManager em;
+
+	private Cat greatGrandKitten;
+
+	private Cat grandKitten;
+
+	private Cat kitten;
+
+	private Cat otherKitten;
+
+	private Cat root;
+
+	/**
+	 * 初代 ─┬─ 二代目 ── 三代目 ── 四代目
+	 *        └─ 二代目の妹
+	 */
+	@BeforeEach
+	void setUp() {
+		greatGrandKitten = newCat("四代目", 1);
+		grandKitten = newCat("三代目", 3, greatGrandKitten);
+		kitten = newCat("二代目", 6, grandKitten);
+		otherKitten = newCat("二代目の妹", 4);
+		root = newCat("初代", 10, kitten, otherKitten);
+		// @formatter:off
+		catRepository.saveAllAndFlush(Arrays.asList(
+				greatGrandKitten, grandKitten, kitten, otherKitten, root));
+		// @formatter:on
+		em.clear();
+	}
+
+	@Test
+	@DisplayName("子孫を世代数付きで 1 クエリーで取得する")
+	void testDescendants() {
+
+		final List<CatLineageEntry> descendants = service.descendants(root.getId(), 10);
+
+		// @formatter:off
+		assertEquals(Arrays.asList("初代", kitten.getName(), otherKitten.getName(), "三代目", "四代目"),
+				names(descendants));
+		assertEquals(Arrays.asList(0, 1, 1, 2, 3),
+				descendants.stream().map(CatLineageEntry::getDepth).collect(Collectors.toList()));
+		assertEquals(Arrays.asList(null, root.getId(), root.getId(), kitten.getId(), grandKitten.getId()),
+				descendants.stream().map(CatLineageEntry::getViaId).collect(Collectors.toList()));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("指定した世代数で再帰を打ち切る")
+	void testDescendantsWithMaxDepth() {
+
+		assertEquals(Collections.singletonList("初代"), names(service.descendants(root.getId(), 0)));
+		assertEquals(Arrays.asList("初代", "二代目", "二代目の妹", "三代目"), names(service.descendants(root.getId(), 2)));
+		assertThrows(IllegalArgumentException.class, () -> service.descendants(root.getId(), -1));
+	}
+
+	@Test
+	@DisplayName("祖先を世代数付きで 1 クエリーで取得する")
+	void testAncestors() {
+
+		final List<CatLineageEntry> ancestors = service.ancestors(greatGrandKitten.getId(), 10);
+
+		assertEquals(Arrays.asList("四代目", "三代目", "二代目", "初代"), names(ancestors));
+		// @formatter:off
+		assertEquals(Arrays.asList(0, 1, 2, 3),
+				ancestors.stream().map(CatLineageEntry::getDepth).collect(Collectors.toList()));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("子孫を世代ごとに集計する")
+	void testDescendantLevels() {
+
+		// @formatter:off
+		assertEquals(Arrays.asList(
+				new CatLineageLevel(0, 1L, 10.0)
+				, new CatLineageLevel(1, 2L, 5.0)
+				, new CatLineageLevel(2, 1L, 3.0)
+				, new CatLineageLevel(3, 1L, 1.0)
+				),
+				service.descendantLevels(root.getId(), 10));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("関連が循環していても、同じ猫を二度たどらずに終了する")
+	void testDescendantsWithCycle() {
+
+		// 四代目の仔猫を初代にして循環させる（循環した Cat は hashCode が再帰するため、外部キーを直接更新する）
+		// @formatter:off
+		em.createNativeQuery("update cat set parent_id = ? where id = ?")
+				.setParameter(1, greatGrandKitten.getId())
+				.setParameter(2, root.getId())
+				.executeUpdate();
+		// @formatter:on
+
+		assertEquals(Arrays.asList("初代", "二代目", "二代目の妹", "三代目", "四代目"), names(service.descendants(root.getId(), 100)));
+		assertEquals(Arrays.asList("四代目", "三代目", "二代目", "初代"), names(service.ancestors(greatGrandKitten.getId(), 100)));
+	}
+
+	private Cat newCat(final String name, final int age, final Cat... kittens) {
+		// @formatter:off
+		return Cat.builder()
+				.name(name)
+				.age(age)
+				.kittens(new HashSet<>(Arrays.asList(kittens)))
+				.build();
+		// @formatter:on
+	}
+
+	private List<String> names(final List<CatLineageEntry> entries) {
+		return entries.stream().map(CatLineageEntry::getName).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,166 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.TestLogUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+import lombok.extern.slf4j.Slf4j;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		CatKeysetPagingService.class })
+@Slf4j
+class CatKeysetPagingServiceTests {
+
+	private static final int MAX_CATS_SIZE = 23;
+
+	private static final int PAGING_SIZE = 10;
+
+	@Autowired
+	private CatKeysetPagingService service;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	private TestLogUtility testLogUtil = new TestLogUtility(log);
+
+	@BeforeEach
+	void setup() {
+		catTestUtil.initializeNameOrderedList(MAX_CATS_SIZE);
+	}
+
+	@ParameterizedTest
+	@EnumSource(CatSortOrder.class)
+	@DisplayName("キーセット ページングで先頭から末尾まで順に取得できる")
+	void testNavigateForward(CatSortOrder sortOrder) {
+
+		final List<Long> expectedIds = findAllIds(sortOrder);
+
+		List<Long> actualIds = new ArrayList<>();
+		CatKeysetPage<CatView> page = service.firstPage(CatView.class, sortOrder, PAGING_SIZE);
+		assertFalse(page.hasPrevious());
+		actualIds.addAll(idsOf(page));
+		int noOfPages = 1;
+		while (page.hasNext()) {
+			page = service.nextPage(CatView.class, page.getNextToken());
+			actualIds.addAll(idsOf(page));
+			noOfPages++;
+		}
+
+		assertEquals(expectedIds, actualIds);
+		assertEquals(3, noOfPages);
+		assertEquals(20, page.getFirstResult());
+		assertEquals(MAX_CATS_SIZE - 20, page.getContent().size());
+
+		final String processName = "Select last cat page by keyset paging ordered by " + sortOrder;
+		testLogUtil.outputResultList(processName, page.getContent());
+	}
+
+	@ParameterizedTest
+	@EnumSource(CatSortOrder.class)
+	@DisplayName("キーセット ページングで前のページに戻れる")
+	void testNavigateBackward(CatSortOrder sortOrder) {
+
+		final List<Long> expectedIds = findAllIds(sortOrder);
+
+		CatKeysetPage<CatView> first = service.firstPage(CatView.class, sortOrder, PAGING_SIZE);
+		CatKeysetPage<CatView> second = service.nextPage(CatView.class, first.getNextToken());
+		CatKeysetPage<CatView> third = service.nextPage(CatView.class, second.getNextToken());
+
+		CatKeysetPage<CatView> backToSecond = service.previousPage(CatView.class, third.getPreviousToken());
+		assertEquals(10, backToSecond.getFirstResult());
+		assertEquals(expectedIds.subList(10, 20), idsOf(backToSecond));
+
+		CatKeysetPage<CatView> backToFirst = service.previousPage(CatView.class, backToSecond.getPreviousToken());
+		assertEquals(0, backToFirst.getFirstResult());
+		assertEquals(expectedIds.subList(0, 10), idsOf(backToFirst));
+		assertFalse(backToFirst.hasPrevious());
+		assertTrue(backToFirst.hasNext());
+	}
+
+	@Test
+	@DisplayName("任意の位置のページから前後に移動できる")
+	void testNavigateFromArbitraryPosition() {
+
+		final List<Long> expectedIds = findAllIds(CatSortOrder.NAME);
+
+		CatKeysetPage<CatView> page = service.pageAt(CatView.class, CatSortOrder.NAME, 5, PAGING_SIZE);
+		assertEquals(expectedIds.subList(5, 15), idsOf(page));
+
+		CatKeysetPage<CatView> next = service.nextPage(CatView.class, page.getNextToken());
+		assertEquals(expectedIds.subList(15, MAX_CATS_SIZE), idsOf(next));
+		assertFalse(next.hasNext());
+
+		CatKeysetPage<CatView> previous = service.previousPage(CatView.class, page.getPreviousToken());
+		assertEquals(expectedIds.subList(0, 5), idsOf(previous).subList(0, 5));
+	}
+
+	@Test
+	@DisplayName("件数がページ サイズで割り切れる場合、最後の次のページは空になる")
+	void testNavigateBeyondLastPage() {
+
+		catTestUtil.initializeNameOrderedList(PAGING_SIZE * 2);
+
+		CatKeysetPage<CatView> first = service.firstPage(CatView.class, CatSortOrder.AGE, PAGING_SIZE);
+		CatKeysetPage<CatView> second = service.nextPage(CatView.class, first.getNextToken());
+		CatKeysetPage<CatView> empty = service.nextPage(CatView.class, second.getNextToken());
+
+		assertTrue(empty.getContent().isEmpty());
+		assertFalse(empty.hasNext());
+		assertEquals(idsOf(second), idsOf(service.previousPage(CatView.class, empty.getPreviousToken())));
+	}
+
+	@Test
+	@DisplayName("改ざんされたトークンは例外になる")
+	void testThrownExceptionWhenUsingMalformedToken() {
+
+		assertThrows(IllegalArgumentException.class, () -> service.nextPage(CatView.class, "not-a-token"));
+		assertThrows(IllegalArgumentException.class, () -> service.nextPage(CatView.class, ""));
+	}
+
+	private List<Long> findAllIds(final CatSortOrder sortOrder) {
+		// @formatter:off
+		return sortOrder.applyTo(cbf.create(em, Long.class).from(Cat.class, "c"), "c")
+				.select("c.id")
+				.getResultList();
+		// @formatter:on
+	}
+
+	private List<Long> idsOf(final CatKeysetPage<CatView> page) {
+		// @formatter:off
+		return page.getContent().stream()
+				.map(CatView::getId)
+				.collect(Collectors.toList());
+		// @formatter:on
+	}
+}
@@ -0,0 +1,95 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CatPageCountCacheTests {
+
+	private final MutableClock clock = new MutableClock();
+
+	private CatPageCountCache cache;
+
+	@BeforeEach
+	void setUp() {
+		cache = new CatPageCountCache(null, Duration.ofSeconds(30), 2, clock);
+	}
+
+	@Test
+	@DisplayName("保持期間が過ぎた総件数は返さない")
+	void testExpiry() {
+
+		cache.put(key("a"), 23, cache.generation());
+		clock.advance(Duration.ofSeconds(29));
+		assertEquals(23L, cache.get(key("a")));
+
+		clock.advance(Duration.ofSeconds(1));
+		assertNull(cache.get(key("a")));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	@DisplayName("数え始めた後に破棄されていれば、数えた総件数を保持しない")
+	void testInvalidatedWhileCounting() {
+
+		final long generation = cache.generation();
+		cache.invalidateAll();
+		cache.put(key("a"), 23, generation);
+
+		assertNull(cache.get(key("a")));
+	}
+
+	@Test
+	@DisplayName("上限の件数に達したら、期限切れの総件数を取り除いてから保持する")
+	void testMaxEntries() {
+
+		cache.put(key("a"), 1, cache.generation());
+		clock.advance(Duration.ofSeconds(30));
+		cache.put(key("b"), 2, cache.generation());
+		cache.put(key("c"), 3, cache.generation());
+		cache.put(key("d"), 4, cache.generation());
+
+		assertEquals(2, cache.size());
+		assertEquals(2L, cache.get(key("b")));
+		assertEquals(3L, cache.get(key("c")));
+		assertNull(cache.get(key("d")));
+	}
+
+	private CatPageCountCache.Key key(final String query) {
+		return new CatPageCountCache.Key(query, new TreeMap<>());
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now = Instant.EPOCH;
+
+		void advance(final Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(final ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+package com.example.blazepersistencesample.infrastructure.jpa.paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.PagedList;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.async.AsyncQueryExecutor;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * キャッシュした総件数はコミット後に破棄されるため、テストのトランザクションを使わずに猫をコミットする。
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		CatPageCountCache.class, CatPagedListFetcher.class, AsyncQueryExecutor.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatPagedListFetcherTests {
+
+	private static final int MAX_CATS_SIZE = 23;
+
+	private static final int PAGING_SIZE = 10;
+
+	@Autowired
+	private CatPagedListFetcher fetcher;
+
+	@Autowired
+	private CatPageCountCache countCache;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityViewManager evm;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		catTestUtil.initializeNameOrderedList(MAX_CATS_SIZE);
+		countCache.invalidateAll();
+
+		statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@AfterEach
+	void tearDown() {
+		catTestUtil.deleteAllCats();
+	}
+
+	@Test
+	@DisplayName("既定では COUNT クエリーで総件数を数える")
+	void testExactCount() {
+
+		final PagedList<CatView> page = fetch(0, 0, PageCount.exact());
+
+		assertEquals(PAGING_SIZE, page.size());
+		assertEquals(MAX_CATS_SIZE, page.getTotalSize());
+		assertEquals(3, page.getTotalPages());
+	}
+
+	@Test
+	@DisplayName("総件数を数えなければ、ページの取得だけを実行する")
+	void testNoCount() {
+
+		final PagedList<CatView> page = fetch(PAGING_SIZE, 0, PageCount.none());
+
+		assertEquals(PAGING_SIZE, page.size());
+		assertEquals(PAGING_SIZE * 2, page.getTotalSize());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	@DisplayName("総件数を上限まで数え、上限に達したかを判定できる")
+	void testBoundedCount() {
+
+		final PageCount bounded = PageCount.bounded(15);
+
+		final PagedList<CatView> truncated = fetch(0, 0, bounded);
+		assertEquals(15, truncated.getTotalSize());
+		assertTrue(bounded.isTruncated(truncated));
+
+		final PagedList<CatView> filtered = fetch(0, 30, bounded);
+		assertEquals(countCats(30), filtered.getTotalSize());
+		assertFalse(bounded.isTruncated(filtered));
+	}
+
+	@Test
+	@DisplayName("同じクエリー・パラメーターの総件数はキャッシュから返し、COUNT クエリーを発行しない")
+	void testCachedCount() {
+
+		final PagedList<CatView> first = fetch(0, 0, PageCount.cached());
+		assertEquals(MAX_CATS_SIZE, first.getTotalSize());
+
+		// エンティティを経由せずに追加した猫は、キャッシュした総件数に反映されない
+		insertCatWithoutEntity();
+		final PagedList<CatView> second = fetch(PAGING_SIZE, 0, PageCount.cached());
+		assertEquals(MAX_CATS_SIZE, second.getTotalSize());
+		assertEquals(MAX_CATS_SIZE + 1, fetch(PAGING_SIZE, 0, PageCount.exact()).getTotalSize());
+		assertEquals(3, second.getTotalPages());
+		assertEquals(2, second.getPage());
+		assertEquals(PAGING_SIZE, second.size());
+		assertFalse(idsOf(first).contains(second.get(0).getId()));
+
+		// パラメーターが異なれば数え直す
+		assertEquals(countCats(30), fetch(0, 30, PageCount.cached()).getTotalSize());
+		assertEquals(2, countCache.size());
+	}
+
+	@Test
+	@DisplayName("猫を登録・一括更新すると、キャッシュした総件数を破棄する")
+	void testCachedCountInvalidation() {
+
+		assertEquals(MAX_CATS_SIZE, fetch(0, 0, PageCount.cached()).getTotalSize());
+
+		catRepository.saveAndFlush(catTestUtil.initializeCat("新入り", 1, 0));
+		assertEquals(0, countCache.size());
+		assertEquals(MAX_CATS_SIZE + 1, fetch(0, 0, PageCount.cached()).getTotalSize());
+
+		bulkOperations.incrementAge(1);
+		assertEquals(0, countCache.size());
+	}
+
+	@Test
+	@DisplayName("ページと総件数を同時に取得しても、順に取得した場合と同じ結果になる")
+	void testAsync() {
+
+		// @formatter:off
+		for (PageCount count : Arrays.asList(
+				PageCount.exact()
+				, PageCount.none()
+				, PageCount.bounded(15)
+				, PageCount.bounded(5)
+				, PageCount.cached())) {
+			// @formatter:on
+			final PagedList<CatView> expected = fetch(PAGING_SIZE, 0, count);
+			final PagedList<CatView> actual = fetchAsync(PAGING_SIZE, 0, count);
+
+			assertEquals(idsOf(expected), idsOf(actual), count::toString);
+			assertEquals(expected.getTotalSize(), actual.getTotalSize(), count::toString);
+			assertEquals(expected.getTotalPages(), actual.getTotalPages(), count::toString);
+			assertEquals(expected.getPage(), actual.getPage(), count::toString);
+		}
+		assertEquals(countCats(30), fetchAsync(0, 30, PageCount.exact()).getTotalSize());
+	}
+
+	private PagedList<CatView> fetchAsync(final int firstResult, final int minAge, final PageCount count) {
+		// @formatter:off
+		return fetcher.getResultListAsync(em -> evm.applySetting(
+				EntityViewSetting.create(CatView.class, firstResult, PAGING_SIZE),
+				CatSortOrder.NAME.applyTo(cbf.create(em, Cat.class, "c"), "c")
+					.where("c.age").ge(minAge)),
+				count)
+				.join();
+		// @formatter:on
+	}
+
+	private PagedList<CatView> fetch(final int firstResult, final int minAge, final PageCount count) {
+		final TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+		readOnlyTx.setReadOnly(true);
+		// @formatter:off
+		return readOnlyTx.execute(status -> fetcher.getResultList(evm.applySetting(
+				EntityViewSetting.create(CatView.class, firstResult, PAGING_SIZE),
+				CatSortOrder.NAME.applyTo(cbf.create(em, Cat.class, "c"), "c")
+					.where("c.age").ge(minAge)),
+				count));
+		// @formatter:on
+	}
+
+	private void insertCatWithoutEntity() {
+		jdbcTemplate.update("insert into cat (id, name, age, kitten_count) values (?, ?, ?, ?)", 999_999_999L, "野良",
+				1, 0);
+	}
+
+	private long countCats(final int minAge) {
+		// @formatter:off
+		return catRepository.findAll().stream()
+				.filter(cat -> cat.getAge() >= minAge)
+				.count();
+		// @formatter:on
+	}
+
+	private List<Long> idsOf(final List<CatView> cats) {
+		return cats.stream().map(CatView::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,164 @@
+package com.example.blazepersistencesample.infrastructure.jpa.partition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.view.CatView;
+
+/**
+ * 範囲ごとのクエリーは別スレッド・別コネクションで実行されるため、テストのトランザクションを使わずに猫をコミットする。
+ */
+@DataJpaTest(properties = "blaze-persistence-sample.partition.threads=3")
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		CatPartitionedScanner.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatPartitionedScannerTests {
+
+	@Autowired
+	private CatPartitionedScanner scanner;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@AfterEach
+	void tearDown() {
+		catTestUtil.deleteAllCats();
+	}
+
+	@Test
+	@DisplayName("ID の範囲を、すき間・重なりなく等分する")
+	void testSplit() {
+
+		catTestUtil.initializeNameOrderedList(10);
+
+		final List<CatIdRange> ranges = scanner.split(4);
+
+		assertEquals(4, ranges.size());
+		for (int i = 1; i < ranges.size(); i++) {
+			assertEquals(ranges.get(i - 1).getToExclusive(), ranges.get(i).getFromInclusive());
+		}
+		assertEquals(3, ranges.get(0).getToExclusive() - ranges.get(0).getFromInclusive());
+
+		catTestUtil.deleteAllCats();
+		assertEquals(Collections.emptyList(), scanner.split(4));
+	}
+
+	@Test
+	@DisplayName("範囲ごとのクエリーを別々のスレッドで実行し、範囲の順に結果を返す")
+	void testScan() {
+
+		final int arbitraryCatListSize = 100;
+		catTestUtil.initializeNameOrderedList(arbitraryCatListSize);
+		final Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+
+		// @formatter:off
+		final List<Long> counts = scanner.scan(5, range -> {
+			threadNames.add(Thread.currentThread().getName());
+			return range.applyTo(cbf.create(em, Long.class).from(Cat.class, "c"), "c")
+					.select("COUNT(c.id)")
+					.getSingleResult();
+		});
+		// @formatter:on
+
+		assertEquals(5, counts.size());
+		assertEquals(arbitraryCatListSize, counts.stream().mapToLong(Long::longValue).sum());
+		assertTrue(threadNames.stream().allMatch(name -> name.startsWith("cat-partition-")), threadNames::toString);
+	}
+
+	@Test
+	@DisplayName("スレッド数より多い範囲に分けても、すべての猫を ID の昇順に 1 度ずつ処理する")
+	void testForEachOrdered() {
+
+		final int arbitraryCatListSize = 100;
+		catTestUtil.initializeNameOrderedList(arbitraryCatListSize);
+		final String callerThreadName = Thread.currentThread().getName();
+
+		final List<Long> ids = new ArrayList<>();
+		// @formatter:off
+		final long count = scanner.forEachOrdered(CatView.class, 7, cat -> {
+			assertEquals(callerThreadName, Thread.currentThread().getName());
+			ids.add(cat.getId());
+		});
+		// @formatter:on
+
+		assertEquals(arbitraryCatListSize, count);
+		assertEquals(ids.stream().sorted().distinct().collect(Collectors.toList()), ids);
+		assertEquals(arbitraryCatListSize, ids.size());
+	}
+
+	@Test
+	@DisplayName("範囲ごとの処理が失敗すると、その例外をそのまま投げる")
+	void testScanFailure() {
+
+		catTestUtil.initializeNameOrderedList(10);
+		final IllegalStateException failure = new IllegalStateException("failure");
+
+		// @formatter:off
+		assertSame(failure, assertThrows(IllegalStateException.class, () -> scanner.scan(3, range -> {
+			throw failure;
+		})));
+		// @formatter:on
+		assertThrows(IllegalArgumentException.class, () -> scanner.split(0));
+	}
+
+	@Test
+	@DisplayName("範囲ごとの処理が失敗すると、実行中の範囲に割り込んで取り消す")
+	void testScanFailureInterruptsRunningRanges() throws InterruptedException {
+
+		catTestUtil.initializeNameOrderedList(9);
+		final long firstId = scanner.split(3).get(0).getFromInclusive();
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch interrupted = new CountDownLatch(2);
+
+		// @formatter:off
+		assertThrows(IllegalStateException.class, () -> scanner.scan(3, range -> {
+			try {
+				if (range.getFromInclusive() == firstId) {
+					// 残りの範囲が実行中になってから失敗する
+					started.await(10, TimeUnit.SECONDS);
+					throw new IllegalStateException("failure");
+				}
+				started.countDown();
+				Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return null;
+		}));
+		// @formatter:on
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.blazepersistencesample.infrastructure.jpa.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.ExpectQueries;
+
+/**
+ * {@link _01_Getting_started}・{@link _03_From_clause} のうち、テストの中でデータを登録するクエリーの SQL の本数を検証する。
+ * データは {@code @BeforeEach} で登録するため、数えられない。
+ */
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class })
+class RepositoryQueryCountTests {
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	private List<Cat> expected;
+
+	@BeforeEach
+	void setUp() {
+		// @formatter:off
+		final List<Cat> cats = catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("3-牧野歴君", 5, 2)
+				, catTestUtil.initializeCat("2-きなこ", 6, 3)
+				, catTestUtil.initializeCat("1-さくら", 10, 2)
+				, catTestUtil.initializeCat("2-きなこ", 9, 3)
+				// 年齢か仔猫の匹数の片方だけ該当する
+				, catTestUtil.initializeCat("碧", 5, 1)
+				, catTestUtil.initializeCat("モカ", 11, 2)
+				));
+		// @formatter:on
+		expected = Arrays.asList(cats.get(2), cats.get(1), cats.get(3), cats.get(0));
+
+		personRepository.saveAndFlush(Person.builder().name("陽葵").kittens(new HashSet<>(cats.subList(4, 6))).build());
+	}
+
+	@Test
+	@ExpectQueries(value = 1, maxRows = 4)
+	@DisplayName("年齢が5～10歳・2匹以上の仔猫がいる猫を、SQL 1 本で取得する")
+	void testGetCatListWith_Age5to10_GreaterThanEquals2Kittens() {
+
+		// @formatter:off
+		final List<Cat> cats = cbf.create(em, Cat.class, "c")
+				.where("c.age").betweenExpression("5").andExpression("10")
+				.where("c.kittenCount").geExpression("2")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.getResultList();
+		// @formatter:on
+
+		assertEquals(expected, cats);
+	}
+
+	@Test
+	@ExpectQueries(value = 1, maxRows = 2)
+	@DisplayName("飼い猫のリストを、SQL 1 本で取得する")
+	void testGetPetCatList() {
+
+		// @formatter:off
+		final List<Cat> cats = cbf.create(em, Cat.class)
+				.from(Person.class, "person")
+				.select("person.kittens")
+				.getResultList();
+		// @formatter:on
+
+		assertEquals(2, cats.size());
+	}
+}
@@ -25,13 +25,15 @@ import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.blazebit.persistence.PagedList;
 import com.example.blazepersistencesample.TestLogUtility;
 import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
 import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
 import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.ExpectQueries;
 
 import lombok.extern.slf4j.Slf4j;
 
 @DataJpaTest
-@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class })
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class })
 @Slf4j
 class _01_Getting_started {
 
@@ -57,6 +59,7 @@ class _01_Getting_started {
 	}
 
 	@Test
+	@ExpectQueries(1)
 	@DisplayName("猫のリストを取得できる（JPA版）")
 	void testGetCatListByJpa() {
 
@@ -69,6 +72,7 @@ class _01_Getting_started {
 	}
 
 	@Test
+	@ExpectQueries(1)
 	@DisplayName("猫のリストを取得できる（Blaze Persistence版）")
 	void testGetCatListByBlazePersistence() {
 
@@ -82,6 +86,7 @@ class _01_Getting_started {
 	}
 
 	@Test
+	@ExpectQueries(1)
 	@DisplayName("猫の年齢のみを取得する（エイリアスなし）")
 	void testGetCatAgeListWithoutAlias() {
 
@@ -100,6 +105,7 @@ class _01_Getting_started {
 	}
 
 	@Test
+	@ExpectQueries(1)
 	@DisplayName("猫の年齢のみを取得する（エイリアスあり）")
 	void testGetCatAgeListWithAlias() {
 
@@ -121,7 +127,7 @@ class _01_Getting_started {
 	@DisplayName("年齢が5～10歳・2匹以上の仔猫がいる猫を取得する")
 	void testGetCatListWith_Age5to10_GreaterThanEquals2Kittens() {
 
-		repository.deleteAll();
+		catTestUtil.deleteAllCats();
 
 		// 年齢も仔猫の匹数も該当する
 		// @formatter:off
@@ -152,7 +158,7 @@ class _01_Getting_started {
 		// @formatter:off
 		CriteriaBuilder<Cat> cb = cbf.create(em, Cat.class, "c")
 				.where("c.age").betweenExpression("5").andExpression("10")
-				.where("SIZE(c.kittens)").geExpression("2")
+				.where("c.kittenCount").geExpression("2")
 				.orderByAsc("c.name")
 				.orderByAsc("c.id");
 		// @formatter:on
@@ -166,6 +172,7 @@ class _01_Getting_started {
 	}
 
 	@RepeatedTest(value = 3, name = "{displayName} {currentRepetition}/{totalRepetitions}")
+	@ExpectQueries(value = 1, maxRows = 10)
 	@DisplayName("ページングを利用した猫のリストを取得する")
 	void testGetCatListWithPaging(RepetitionInfo repetitionInfo) {
 
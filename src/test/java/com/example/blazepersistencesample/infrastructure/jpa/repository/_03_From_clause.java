@@ -21,14 +21,16 @@ import com.blazebit.persistence.CriteriaBuilder;
 import com.blazebit.persistence.CriteriaBuilderFactory;
 import com.example.blazepersistencesample.TestLogUtility;
 import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
 import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
 import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
 import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.ExpectQueries;
 
 import lombok.extern.slf4j.Slf4j;
 
 @DataJpaTest
-@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class })
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class })
 @Slf4j
 class _03_From_clause {
 
@@ -102,6 +104,7 @@ class _03_From_clause {
 	}
 
 	@Test
+	@ExpectQueries(1)
 	@DisplayName("クエリー ルートに別名を付与できる`create`メソッドのオーバーロードを使うことにより、明示的にクエリー ルートを指定する（短縮版）")
 	void testGetCatListWithAliasedRootWithShorthand() {
 
@@ -119,6 +122,7 @@ class _03_From_clause {
 	}
 
 	@Test
+	@ExpectQueries(1)
 	@DisplayName("クエリー ルートに別名を付与できる`create`メソッドのオーバーロードを使うことにより、明示的にクエリー ルートを指定する（非短縮版）")
 	void testGetCatListWithAliasedRootWithoutShorthand() {
 
@@ -140,6 +144,7 @@ class _03_From_clause {
 	}
 
 	@Test
+	@ExpectQueries(1)
 	@DisplayName("相対パスの表現を使う（単一のルート エンティティのため、クエリー ルートの指定は不要）")
 	void testGetCatNameListWithRelativePath() {
 
@@ -161,6 +166,7 @@ class _03_From_clause {
 	}
 
 	@Test
+	@ExpectQueries(0)
 	@DisplayName("複数のクエリー ルートを使用している時に、相対パスを使うと例外が発生する")
 	void testThownExceptionWhenUsingRelativePathWithMultipleQueryRoots() {
 
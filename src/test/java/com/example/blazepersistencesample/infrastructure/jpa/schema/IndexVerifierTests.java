@@ -0,0 +1,74 @@
+package com.example.blazepersistencesample.infrastructure.jpa.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.blazepersistencesample.infrastructure.jpa.schema.IndexVerifier.ExpectedIndex;
+
+@DataJpaTest
+@Import(IndexVerifier.class)
+class IndexVerifierTests {
+
+	@Autowired
+	private IndexVerifier verifier;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	@DisplayName("宣言したインデックスの列は、属性名から列名に変換する")
+	void testExpectedIndexes() {
+
+		// @formatter:off
+		final List<ExpectedIndex> cat = verifier.expectedIndexes().stream()
+				.filter(index -> index.getTable().equals("cat"))
+				.collect(Collectors.toList());
+		// @formatter:on
+		assertEquals(5, cat.size());
+		// @formatter:off
+		assertEquals(Arrays.asList("age", "kitten_count"), cat.stream()
+				.filter(index -> index.getName().equals("idx_cat_age_kitten_count"))
+				.findFirst()
+				.orElseThrow(AssertionError::new)
+				.getColumns());
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("宣言したインデックスがすべてあれば、何も報告しない")
+	void testAllIndexesExist() throws Exception {
+
+		assertEquals(Collections.emptyList(), verifier.verify());
+	}
+
+	@Test
+	@DisplayName("なくなったインデックスを報告し、宣言した列を先頭に持つ別のインデックスがあれば報告しない")
+	void testMissingIndex() throws Exception {
+
+		jdbcTemplate.execute("drop index idx_cat_name_id");
+		try {
+			final List<ExpectedIndex> missing = verifier.verify();
+			assertEquals(1, missing.size());
+			assertEquals("idx_cat_name_id", missing.get(0).getName());
+			assertEquals(Arrays.asList("name", "id"), missing.get(0).getColumns());
+
+			jdbcTemplate.execute("create index idx_cat_name_id_age on cat (name, id, age)");
+			assertTrue(verifier.verify().isEmpty());
+		} finally {
+			jdbcTemplate.execute("drop index if exists idx_cat_name_id_age");
+			jdbcTemplate.execute("create index if not exists idx_cat_name_id on cat (name, id)");
+		}
+	}
+}
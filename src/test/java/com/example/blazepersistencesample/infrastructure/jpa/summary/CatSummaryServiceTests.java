@@ -0,0 +1,276 @@
+package com.example.blazepersistencesample.infrastructure.jpa.summary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkModifiedEvent;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaPersonRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+/**
+ * 集計済みの表は別のスレッドで定期的に集計し直されるため、間隔を長くして、テストの中で {@link CatSummaryService#refresh()} を呼ぶ。
+ */
+@DataJpaTest(properties = "blaze-persistence-sample.summary.refresh-interval=1h")
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		CatSummaryService.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatSummaryServiceTests {
+
+	@Autowired
+	private CatSummaryService service;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CatBulkOperations bulkOperations;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	private List<Cat> cats;
+
+	private Person sato;
+
+	@BeforeEach
+	void setUp() {
+		// @formatter:off
+		cats = catRepository.saveAll(Arrays.asList(
+				catTestUtil.initializeCat("タマ", 3, 2)
+				, catTestUtil.initializeCat("ミケ", 5, 0)
+				, catTestUtil.initializeCat("クロ", 10, 1)
+				));
+		personRepository.saveAll(Arrays.asList(
+				Person.builder().name("山田").kittens(new HashSet<>(cats.subList(0, 2))).build()
+				, Person.builder().name("鈴木").kittens(new HashSet<>(cats.subList(2, 3))).build()
+				));
+		sato = personRepository.save(Person.builder().name("佐藤").kittens(new HashSet<>()).build());
+		// @formatter:on
+	}
+
+	@AfterEach
+	void tearDown() {
+		catTestUtil.deleteAllCats();
+		personRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("集計済みの表から求めた集計が、猫・飼い主の表を GROUP BY した集計と一致する")
+	void testRebuild() {
+
+		service.requestRebuild();
+		// すべて集計し直すまでは、猫・飼い主の表を GROUP BY する
+		assertEquals(service.queryRaw(CatStatisticsRequest.of(CatStatistic.CATS_PER_AGE)),
+				service.query(CatStatisticsRequest.of(CatStatistic.CATS_PER_AGE)));
+		service.refresh();
+		assertMatchesRaw();
+
+		final List<CatStatisticsRow> owners = service.query(CatStatisticsRequest.of(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET));
+		// 佐藤は 0 匹、鈴木は 1 匹、山田は 2 匹
+		// @formatter:off
+		assertEquals(Arrays.asList(
+				new CatStatisticsRow(0, 1)
+				, new CatStatisticsRow(1, 1)
+				, new CatStatisticsRow(2, 1)
+				), owners);
+		// @formatter:on
+		final List<CatStatisticsRow> averages = service.query(CatStatisticsRequest.of(CatStatistic.AVERAGE_KITTENS_PER_AGE));
+		assertEquals(new CatStatisticsRow(3, 2), averages.stream().filter(row -> row.getGroup() == 3).findFirst().orElseThrow());
+	}
+
+	@Test
+	@DisplayName("登録・更新・削除された猫と飼い主の分だけ集計し直し、GROUP BY した集計と一致する")
+	void testIncrementalRefresh() {
+
+		service.refresh();
+		assertEquals(0, service.pendingChanges());
+
+		final Cat mike = cats.get(1);
+		mike.setAge(6);
+		catRepository.save(mike);
+		final Cat kitten = cats.get(0).getKittens().iterator().next();
+		catRepository.delete(catRepository.findById(kitten.getId()).orElseThrow());
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			final Person person = personRepository.findById(sato.getId()).orElseThrow();
+			person.getKittens().add(catRepository.save(catTestUtil.initializeCat("ブチ", 7, 0)));
+		});
+		assertTrue(service.pendingChanges() > 0);
+
+		service.refresh();
+		assertEquals(0, service.pendingChanges());
+		assertMatchesRaw();
+		// @formatter:off
+		assertEquals(Arrays.asList(
+				new CatStatisticsRow(1, 2)
+				, new CatStatisticsRow(2, 1)
+				), service.query(CatStatisticsRequest.of(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET)));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("一括更新の後は、すべて集計し直す")
+	void testRebuildAfterBulkOperation() {
+
+		service.refresh();
+
+		bulkOperations.incrementAge(1);
+
+		service.refresh();
+		assertMatchesRaw();
+		// @formatter:off
+		final CatStatisticsRequest request = CatStatisticsRequest.builder()
+				.statistic(CatStatistic.CATS_PER_AGE)
+				.minAge(11)
+				.maxAge(11)
+				.build();
+		// @formatter:on
+		assertEquals(Arrays.asList(new CatStatisticsRow(11, 1)), service.query(request));
+	}
+
+	@Test
+	@DisplayName("一括更新で集計が変わる年齢・飼い主がわかれば、その分だけ集計し直す")
+	void testTargetedRefreshAfterBulkOperation() {
+
+		service.refresh();
+
+		final Cat kuro = cats.get(2);
+		final Person suzuki = personRepository.findAll().stream()
+				.filter(person -> person.getName().equals("鈴木")).findFirst().orElseThrow();
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			// @formatter:off
+			cbf.update(em, Cat.class, "c")
+					.set("ownerId", sato.getId())
+					.where("c.id").eq(kuro.getId())
+					.executeUpdate();
+			eventPublisher.publishEvent(CatBulkModifiedEvent.of(
+					Collections.singleton(kuro.getId()),
+					Collections.emptySet(),
+					new HashSet<>(Arrays.asList(suzuki.getId(), sato.getId()))));
+			// @formatter:on
+		});
+		assertEquals(2, service.pendingChanges());
+
+		service.refresh();
+		assertMatchesRaw();
+		// 佐藤は 1 匹、鈴木は 0 匹になる
+		// @formatter:off
+		assertEquals(Arrays.asList(
+				new CatStatisticsRow(0, 1)
+				, new CatStatisticsRow(1, 1)
+				, new CatStatisticsRow(2, 1)
+				), service.query(CatStatisticsRequest.of(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET)));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("集計済みの表で答えられない条件は、猫・飼い主の表を GROUP BY する")
+	void testRouting() {
+
+		final Person yamada = personRepository.findAll().stream()
+				.filter(person -> person.getName().equals("山田")).findFirst().orElseThrow();
+		// @formatter:off
+		final CatStatisticsRequest byOwner = CatStatisticsRequest.builder()
+				.statistic(CatStatistic.CATS_PER_AGE)
+				.ownerId(yamada.getId())
+				.build();
+		final CatStatisticsRequest byAge = CatStatisticsRequest.builder()
+				.statistic(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET)
+				.minAge(4)
+				.build();
+		// @formatter:on
+
+		assertFalse(service.routesToSummary(byOwner));
+		assertFalse(service.routesToSummary(byAge));
+		assertEquals(Arrays.asList(new CatStatisticsRow(3, 1), new CatStatisticsRow(5, 1)), service.query(byOwner));
+		// 4 歳以上の飼い猫は、山田がミケの 1 匹、鈴木がクロの 1 匹
+		assertEquals(Arrays.asList(new CatStatisticsRow(0, 1), new CatStatisticsRow(1, 2)), service.query(byAge));
+	}
+
+	@Test
+	@DisplayName("飼い猫が区分の上限より多い飼い主は、上限の区分に数える")
+	void testMaxBucket() {
+
+		final List<Cat> many = new ArrayList<>();
+		for (int i = 1; i <= CatSummaryService.MAX_BUCKET + 2; i++) {
+			many.add(catTestUtil.initializeCat("Cat" + i, i, 0));
+		}
+		final Person tanaka = personRepository.save(
+				Person.builder().name("田中").kittens(new HashSet<>(catRepository.saveAll(many))).build());
+		service.requestRebuild();
+		service.refresh();
+
+		assertMatchesRaw();
+		// @formatter:off
+		assertEquals(Arrays.asList(
+				new CatStatisticsRow(0, 1)
+				, new CatStatisticsRow(1, 1)
+				, new CatStatisticsRow(2, 1)
+				, new CatStatisticsRow(CatSummaryService.MAX_BUCKET, 1)
+				), service.queryRaw(CatStatisticsRequest.of(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET)));
+		final CatStatisticsRequest byOwner = CatStatisticsRequest.builder()
+				.statistic(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET)
+				.ownerId(tanaka.getId())
+				.maxAge(3)
+				.build();
+		// @formatter:on
+		assertEquals(Arrays.asList(new CatStatisticsRow(3, 1)), service.query(byOwner));
+	}
+
+	private void assertMatchesRaw() {
+		// @formatter:off
+		final List<CatStatisticsRequest> requests = Arrays.asList(
+				CatStatisticsRequest.of(CatStatistic.CATS_PER_AGE)
+				, CatStatisticsRequest.of(CatStatistic.AVERAGE_KITTENS_PER_AGE)
+				, CatStatisticsRequest.of(CatStatistic.OWNERS_PER_KITTEN_COUNT_BUCKET)
+				, CatStatisticsRequest.builder().statistic(CatStatistic.AVERAGE_KITTENS_PER_AGE).minAge(1).maxAge(6).build()
+				);
+		// @formatter:on
+		for (CatStatisticsRequest request : requests) {
+			assertTrue(service.routesToSummary(request));
+			assertEquals(service.queryRaw(request), service.query(request), request.toString());
+		}
+	}
+}
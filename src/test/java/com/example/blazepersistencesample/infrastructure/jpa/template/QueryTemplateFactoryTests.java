@@ -0,0 +1,161 @@
+package com.example.blazepersistencesample.infrastructure.jpa.template;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.CatLineage;
+import com.example.blazepersistencesample.infrastructure.jpa.lineage.CatLineageEntry;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class })
+class QueryTemplateFactoryTests {
+
+	@Autowired
+	private QueryTemplateFactory templates;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Test
+	@DisplayName("1 度組み立てたクエリーを、パラメーターだけを変えて繰り返し実行する")
+	void testReuse() {
+
+		// @formatter:off
+		catRepository.saveAllAndFlush(Arrays.asList(
+				catTestUtil.initializeCat("3-牧野歴君", 5, 2)
+				, catTestUtil.initializeCat("2-きなこ", 6, 3)
+				, catTestUtil.initializeCat("1-さくら", 10, 2)
+				, catTestUtil.initializeCat("碧", 5, 1)
+				, catTestUtil.initializeCat("モカ", 11, 2)
+				));
+		final QueryTemplate<String> template = templates.create(String.class, cb -> cb
+				.from(Cat.class, "c")
+				.select("c.name")
+				.where("c.age").betweenExpression(":minAge").andExpression(":maxAge")
+				.where("SIZE(c.kittens)").geExpression(":minKittens")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id"));
+		// @formatter:on
+
+		assertEquals(new TreeSet<>(Arrays.asList("maxAge", "minAge", "minKittens")), template.getParameterNames());
+		assertEquals(Arrays.asList("1-さくら", "2-きなこ", "3-牧野歴君"), findNames(template, 5, 10, 2));
+		assertEquals(Arrays.asList("2-きなこ", "3-牧野歴君", "碧"), findNames(template, 5, 6, 1));
+
+		// 同じ形のクエリーを毎回組み立てた場合と同じ結果
+		// @formatter:off
+		assertEquals(cbf.create(em, String.class)
+				.from(Cat.class, "c")
+				.select("c.name")
+				.where("c.age").between(5).and(11)
+				.where("SIZE(c.kittens)").ge(2)
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.getResultList(),
+				findNames(template, 5, 11, 2));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("組み立て時に値で指定したパラメーターと件数は固定される")
+	void testFixedParameters() {
+
+		catTestUtil.initializeNameOrderedList(10);
+		// @formatter:off
+		final QueryTemplate<Cat> template = templates.create(Cat.class, cb -> cb
+				.from(Cat.class, "c")
+				.where("c.age").ge(0)
+				.where("c.name").notEqExpression(":excluded")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.setFirstResult(1)
+				.setMaxResults(3));
+		// @formatter:on
+
+		assertEquals(Collections.singleton("excluded"), template.getParameterNames());
+		// @formatter:off
+		final List<Cat> expected = cbf.create(em, Cat.class, "c")
+				.where("c.name").notEq("")
+				.orderByAsc("c.name")
+				.orderByAsc("c.id")
+				.setFirstResult(1)
+				.setMaxResults(3)
+				.getResultList();
+		// @formatter:on
+		assertEquals(expected, template.getResultList(em, Collections.singletonMap("excluded", "")));
+	}
+
+	@Test
+	@DisplayName("パラメーターの過不足は実行前に検出する")
+	void testParameterMismatch() {
+
+		// @formatter:off
+		final QueryTemplate<Cat> template = templates.create(Cat.class, cb -> cb
+				.from(Cat.class, "c")
+				.where("c.age").eqExpression(":age"));
+		// @formatter:on
+
+		assertThrows(IllegalArgumentException.class, () -> template.getResultList(em));
+		assertThrows(IllegalArgumentException.class,
+				() -> template.getResultList(em, Map.of("age", 1, "name", "タマ")));
+	}
+
+	@Test
+	@DisplayName("結果の変換が必要な selectNew や、SQL の書き換えが必要な CTE はテンプレートにできない")
+	void testRejectNonJpqlQueries() {
+
+		// @formatter:off
+		assertThrows(IllegalArgumentException.class, () -> templates.create(CatLineageEntry.class, cb -> cb
+				.from(Cat.class, "c")
+				.selectNew(CatLineageEntry.class)
+					.with("c.id")
+					.with("c.name")
+					.with("c.age")
+					.with("c.parentId")
+					.with("c.age")
+				.end()));
+		assertThrows(IllegalArgumentException.class, () -> templates.create(CatLineage.class, cb -> cb
+				.with(CatLineage.class)
+					.from(Cat.class, "origin")
+					.bind("catId").select("origin.id")
+					.bind("viaId").select("origin.parentId")
+					.bind("depth").select("0")
+					.bind("path").select("origin.name")
+				.end()
+				.from(CatLineage.class, "l")));
+		// @formatter:on
+	}
+
+	private List<String> findNames(final QueryTemplate<String> template, final int minAge, final int maxAge,
+			final int minKittens) {
+		return template.getResultList(em, Map.of("minAge", minAge, "maxAge", maxAge, "minKittens", minKittens));
+	}
+}
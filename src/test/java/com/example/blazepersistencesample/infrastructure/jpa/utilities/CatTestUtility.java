@@ -13,6 +13,7 @@ import java.util.Set;
 import org.apache.commons.math3.random.RandomDataGenerator;
 import org.springframework.stereotype.Component;
 
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
 import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
 import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
 
@@ -31,6 +32,8 @@ public final class CatTestUtility {
 
 	private final JpaCatRepository repository;
 
+	private final CatBulkOperations bulkOperations;
+
 	private RandomDataGenerator randomDataGenerator = new RandomDataGenerator();
 
 	public Cat initializeCat(final String name) {
@@ -39,7 +42,7 @@ public final class CatTestUtility {
 
 	public Cat initializeCat(final String name, final Integer age, final Integer noOfKittens) {
 
-		Set<Cat> kittens = initializeKittens(name, noOfKittens);
+		Set<Cat> kittens = QueryCountExtension.excluding(() -> initializeKittens(name, noOfKittens));
 
 		// @formatter:off
 		return Cat.builder()
@@ -75,8 +78,12 @@ public final class CatTestUtility {
 	}
 
 	public void initializeNameOrderedList(final int maxSize) {
+		QueryCountExtension.excluding(() -> saveNameOrderedList(maxSize));
+	}
 
-		repository.deleteAll();
+	private void saveNameOrderedList(final int maxSize) {
+
+		deleteAllCats();
 		List<Cat> catsList = new ArrayList<>();
 		// @formatter:off
 		for (int i = 1; i <= maxSize; i++) {
@@ -91,6 +98,20 @@ public final class CatTestUtility {
 		repository.saveAllAndFlush(catsList);
 	}
 
+	/**
+	 * エンティティを読み込まずに、DELETE 文で猫と関連をすべて削除する。
+	 */
+	public void deleteAllCats() {
+		QueryCountExtension.excluding(() -> bulkOperations.deleteAll());
+	}
+
+	/**
+	 * テスト データを準備する。{@link ExpectQueries} の検証では、ここで発行された SQL を数えない。
+	 */
+	public void prepare(final Runnable setup) {
+		QueryCountExtension.excluding(setup);
+	}
+
 	private Integer randomAge() {
 		return Integer.valueOf(randomDataGenerator.nextInt(AGE_MIN, AGE_MAX));
 	}
@@ -0,0 +1,36 @@
+package com.example.blazepersistencesample.infrastructure.jpa.utilities;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * テスト メソッドの本体で発行された SQL の数・クエリーで取得した行数・読み込んだエンティティの数が、指定した範囲に収まることを検証する。
+ * <p>
+ * {@code @BeforeEach} と、{@link CatTestUtility} によるテスト データの準備で発行された SQL は数えない。
+ * クラスに付与すると、付与していないメソッドにも適用される。負の値を指定した項目は検証しない。
+ *
+ * @see QueryCountExtension
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ExtendWith(QueryCountExtension.class)
+public @interface ExpectQueries {
+
+	/** 発行された SQL の数（完全一致） */
+	int value() default -1;
+
+	/** 発行された SQL の数の上限 */
+	int max() default -1;
+
+	/** JPQL・HQL のクエリーで取得した行数の上限 */
+	long maxRows() default -1;
+
+	/** 読み込んだエンティティ（2 次キャッシュからの読み込みを除く）の数の上限 */
+	long maxEntitiesLoaded() default -1;
+}
@@ -0,0 +1,58 @@
+package com.example.blazepersistencesample.infrastructure.jpa.utilities;
+
+import java.util.Arrays;
+
+import org.hibernate.stat.Statistics;
+
+import lombok.Value;
+
+/**
+ * Hibernate の統計から取り出した、SQL・行・エンティティの数。
+ */
+@Value
+public class QueryCount {
+
+	public static final QueryCount ZERO = new QueryCount(0, 0, 0, 0);
+
+	/** 発行された SQL（JDBC の文）の数 */
+	long statements;
+
+	/** JPQL・HQL のクエリーで取得した行数 */
+	long rows;
+
+	/** 読み込んだエンティティの数 */
+	long entitiesLoaded;
+
+	/** 読み込んだコレクションの数 */
+	long collectionsFetched;
+
+	static QueryCount of(final Statistics statistics) {
+		// @formatter:off
+		final long rows = Arrays.stream(statistics.getQueries())
+				.mapToLong(query -> statistics.getQueryStatistics(query).getExecutionRowCount())
+				.sum();
+		// @formatter:on
+		return new QueryCount(statistics.getPrepareStatementCount(), rows, statistics.getEntityLoadCount(),
+				statistics.getCollectionFetchCount());
+	}
+
+	QueryCount plus(final QueryCount other) {
+		// @formatter:off
+		return new QueryCount(
+				statements + other.statements,
+				rows + other.rows,
+				entitiesLoaded + other.entitiesLoaded,
+				collectionsFetched + other.collectionsFetched);
+		// @formatter:on
+	}
+
+	QueryCount minus(final QueryCount other) {
+		// @formatter:off
+		return new QueryCount(
+				statements - other.statements,
+				rows - other.rows,
+				entitiesLoaded - other.entitiesLoaded,
+				collectionsFetched - other.collectionsFetched);
+		// @formatter:on
+	}
+}
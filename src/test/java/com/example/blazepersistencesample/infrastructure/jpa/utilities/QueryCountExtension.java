@@ -0,0 +1,154 @@
+package com.example.blazepersistencesample.infrastructure.jpa.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import org.opentest4j.AssertionFailedError;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ExpectQueries} を付与したテストの本体で発行された SQL などを、Hibernate の統計から数えて検証する。
+ * <p>
+ * 統計はセッション ファクトリー全体で集計されるため、テストを並列に実行しない前提で、テストの前後の差分を数える。
+ * {@link #excluding(Supplier)} の中で発行された SQL は、テスト データの準備として差し引く。
+ */
+@Slf4j
+public class QueryCountExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+	private static final ThreadLocal<Measurement> CURRENT = new ThreadLocal<>();
+
+	/**
+	 * {@code action} で発行された SQL を、実行中のテストの数から除く。計測中でなければ、そのまま実行する。
+	 */
+	public static <T> T excluding(final Supplier<T> action) {
+		final Measurement measurement = CURRENT.get();
+		if (measurement == null || measurement.excluding) {
+			return action.get();
+		}
+
+		measurement.excluding = true;
+		final QueryCount before = QueryCount.of(measurement.statistics);
+		try {
+			return action.get();
+		} finally {
+			measurement.excluded = measurement.excluded.plus(QueryCount.of(measurement.statistics).minus(before));
+			measurement.excluding = false;
+		}
+	}
+
+	/**
+	 * 実行中のテストの本体で、ここまでに発行された SQL などの数。
+	 *
+	 * @throws IllegalStateException {@link ExpectQueries} を付与したテストの実行中でない場合
+	 */
+	public static QueryCount current() {
+		final Measurement measurement = CURRENT.get();
+		if (measurement == null) {
+			throw new IllegalStateException("not in a test annotated with @" + ExpectQueries.class.getSimpleName());
+		}
+		return measurement.count();
+	}
+
+	public static void excluding(final Runnable action) {
+		excluding(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	@Override
+	public void beforeTestExecution(final ExtensionContext context) {
+		final Statistics statistics = SpringExtension.getApplicationContext(context).getBean(EntityManagerFactory.class)
+				.unwrap(SessionFactory.class).getStatistics();
+		final boolean statisticsEnabled = statistics.isStatisticsEnabled();
+		statistics.setStatisticsEnabled(true);
+		CURRENT.set(new Measurement(statistics, statisticsEnabled, QueryCount.of(statistics)));
+	}
+
+	@Override
+	public void afterTestExecution(final ExtensionContext context) {
+		final Measurement measurement = CURRENT.get();
+		CURRENT.remove();
+		if (measurement == null) {
+			return;
+		}
+
+		final QueryCount actual = measurement.count();
+		measurement.statistics.setStatisticsEnabled(measurement.statisticsEnabled);
+		log.info("{}: {}", context.getDisplayName(), actual);
+		final Optional<ExpectQueries> expected = findExpectation(context);
+		if (expected.isEmpty() || context.getExecutionException().isPresent()) {
+			return;
+		}
+
+		final List<String> violations = violationsOf(expected.get(), actual);
+		if (!violations.isEmpty()) {
+			throw new AssertionFailedError(String.join(", ", violations) + " (" + actual + ")");
+		}
+	}
+
+	private static Optional<ExpectQueries> findExpectation(final ExtensionContext context) {
+		final Optional<ExpectQueries> onMethod = AnnotationSupport.findAnnotation(context.getTestMethod(),
+				ExpectQueries.class);
+		if (onMethod.isPresent()) {
+			return onMethod;
+		}
+		return AnnotationSupport.findAnnotation(context.getTestClass(), ExpectQueries.class);
+	}
+
+	static List<String> violationsOf(final ExpectQueries expected, final QueryCount actual) {
+		List<String> violations = new ArrayList<>();
+		if (expected.value() >= 0 && actual.getStatements() != expected.value()) {
+			violations.add("expected " + expected.value() + " statements but was " + actual.getStatements());
+		}
+		if (expected.max() >= 0 && actual.getStatements() > expected.max()) {
+			violations.add("expected at most " + expected.max() + " statements but was " + actual.getStatements());
+		}
+		if (expected.maxRows() >= 0 && actual.getRows() > expected.maxRows()) {
+			violations.add("expected at most " + expected.maxRows() + " rows but was " + actual.getRows());
+		}
+		if (expected.maxEntitiesLoaded() >= 0 && actual.getEntitiesLoaded() > expected.maxEntitiesLoaded()) {
+			// @formatter:off
+			violations.add("expected at most " + expected.maxEntitiesLoaded() + " entities loaded but was "
+					+ actual.getEntitiesLoaded());
+			// @formatter:on
+		}
+		return violations;
+	}
+
+	private static final class Measurement {
+
+		private final Statistics statistics;
+
+		/** 計測を始める前に統計が有効だったか */
+		private final boolean statisticsEnabled;
+
+		private final QueryCount start;
+
+		private QueryCount excluded = QueryCount.ZERO;
+
+		private boolean excluding;
+
+		private Measurement(final Statistics statistics, final boolean statisticsEnabled, final QueryCount start) {
+			this.statistics = statistics;
+			this.statisticsEnabled = statisticsEnabled;
+			this.start = start;
+		}
+
+		private QueryCount count() {
+			return QueryCount.of(statistics).minus(start).minus(excluded);
+		}
+	}
+}
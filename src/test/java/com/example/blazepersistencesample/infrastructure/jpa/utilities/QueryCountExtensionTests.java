@@ -0,0 +1,158 @@
+package com.example.blazepersistencesample.infrastructure.jpa.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.fetch.KittenPrefetcher;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaPersonRepository;
+
+/**
+ * 飼い猫の遅延読み込みが 1 件ずつになるよう、バッチ フェッチを無効にして N+1 を再現する。
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.default_batch_fetch_size=1")
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class,
+		KittenPrefetcher.class })
+class QueryCountExtensionTests {
+
+	private static final int NO_OF_PERSONS = 10;
+
+	@Autowired
+	private KittenPrefetcher prefetcher;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	@Test
+	@ExpectQueries(value = 2, maxRows = NO_OF_PERSONS * 3, maxEntitiesLoaded = NO_OF_PERSONS * 3)
+	@DisplayName("テスト データの準備を除き、飼い主と飼い猫をまとめて読み込むクエリーだけを数える")
+	void testPrefetchedKittens() {
+
+		catTestUtil.prepare(this::initializePersons);
+
+		final List<Person> persons = findPersons();
+		prefetcher.prefetchPersonKittens(persons);
+
+		assertEquals(NO_OF_PERSONS * 2, persons.stream().mapToInt(person -> person.getKittens().size()).sum());
+	}
+
+	@Test
+	@ExpectQueries
+	@DisplayName("飼い猫を 1 件ずつ遅延読み込みすると、上限を超えたことを検出する")
+	void testDetectNPlusOne() {
+
+		catTestUtil.prepare(this::initializePersons);
+
+		final List<Person> persons = findPersons();
+		persons.forEach(person -> person.getKittens().size());
+
+		final QueryCount count = QueryCountExtension.current();
+		assertEquals(1 + NO_OF_PERSONS, count.getStatements());
+		// @formatter:off
+		assertEquals(Collections.singletonList("expected at most 2 statements but was " + (1 + NO_OF_PERSONS)),
+				QueryCountExtension.violationsOf(expectation("atMostTwo"), count));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("上限・件数を超えた項目をすべて報告する")
+	void testViolations() throws NoSuchMethodException {
+
+		final QueryCount count = new QueryCount(3, 40, 50, 0);
+
+		assertEquals(Collections.emptyList(), QueryCountExtension.violationsOf(expectation("unchecked"), count));
+		// @formatter:off
+		assertEquals(Arrays.asList(
+				"expected 1 statements but was 3",
+				"expected at most 2 statements but was 3",
+				"expected at most 30 rows but was 40",
+				"expected at most 30 entities loaded but was 50"),
+				QueryCountExtension.violationsOf(expectation("strict"), count));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("ExpectQueries を付与していないテストでは、数を参照できない")
+	void testCurrentOutsideMeasurement() {
+
+		assertThrows(IllegalStateException.class, QueryCountExtension::current);
+	}
+
+	private void initializePersons() {
+		for (int i = 1; i <= NO_OF_PERSONS; i++) {
+			// @formatter:off
+			personRepository.save(Person.builder()
+					.name("Person" + i)
+					.kittens(new HashSet<>(catRepository.saveAll(Arrays.asList(
+							catTestUtil.initializeCat("Person" + i + " Cat1"),
+							catTestUtil.initializeCat("Person" + i + " Cat2")))))
+					.build());
+			// @formatter:on
+		}
+		em.flush();
+		em.clear();
+	}
+
+	private List<Person> findPersons() {
+		// @formatter:off
+		return new ArrayList<>(cbf.create(em, Person.class, "person")
+				.orderByAsc("person.id")
+				.getResultList());
+		// @formatter:on
+	}
+
+	private static ExpectQueries expectation(final String methodName) {
+		try {
+			return Expectations.class.getDeclaredMethod(methodName).getAnnotation(ExpectQueries.class);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(methodName, e);
+		}
+	}
+
+	@SuppressWarnings("unused")
+	private static final class Expectations {
+
+		@ExpectQueries
+		void unchecked() {
+		}
+
+		@ExpectQueries(max = 2)
+		void atMostTwo() {
+		}
+
+		@ExpectQueries(value = 1, max = 2, maxRows = 30, maxEntitiesLoaded = 30)
+		void strict() {
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.blazepersistencesample.infrastructure.jpa.view;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import com.blazebit.persistence.CriteriaBuilder;
+import com.blazebit.persistence.CriteriaBuilderFactory;
+import com.blazebit.persistence.view.EntityViewManager;
+import com.blazebit.persistence.view.EntityViewSetting;
+import com.example.blazepersistencesample.TestLogUtility;
+import com.example.blazepersistencesample.infrastructure.jpa.BlazePersistenceConfiguration;
+import com.example.blazepersistencesample.infrastructure.jpa.bulk.CatBulkOperations;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Person;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaPersonRepository;
+import com.example.blazepersistencesample.infrastructure.jpa.utilities.CatTestUtility;
+
+import lombok.extern.slf4j.Slf4j;
+
+@DataJpaTest
+@Import(value = { BlazePersistenceConfiguration.class, CatTestUtility.class, CatBulkOperations.class })
+@Slf4j
+class EntityViewTests {
+
+	@Autowired
+	private CriteriaBuilderFactory cbf;
+
+	@Autowired
+	private EntityViewManager evm;
+
+	@Autowired
+	private EntityManager em;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	@Autowired
+	private JpaPersonRepository personRepository;
+
+	@Autowired
+	private CatTestUtility catTestUtil;
+
+	private TestLogUtility testLogUtil = new TestLogUtility(log);
+
+	@Test
+	@DisplayName("猫のリストを射影で取得すると、仔猫を結合せずエンティティも管理されない")
+	void testGetCatViewList() {
+
+		final int arbitraryCatListSize = 10;
+		catTestUtil.initializeNameOrderedList(arbitraryCatListSize);
+		em.clear();
+
+		// @formatter:off
+		CriteriaBuilder<CatView> cb = evm.applySetting(
+				EntityViewSetting.create(CatView.class),
+				cbf.create(em, Cat.class, "c").orderByAsc("c.id"));
+		// @formatter:on
+
+		final String queryString = cb.getQueryString();
+		assertFalse(queryString.contains("kittens"), queryString);
+
+		final List<CatView> cats = cb.getResultList();
+		assertEquals(arbitraryCatListSize, cats.size());
+		assertEquals(0, em.unwrap(Session.class).getStatistics().getEntityCount(),
+				"entity views must not be attached to the persistence context");
+
+		final String processName = "Select cat view list by Blaze Persistence";
+		testLogUtil.outputResultList(processName, cats);
+	}
+
+	@Test
+	@DisplayName("年齢が5～10歳・2匹以上の仔猫がいる猫を、仔猫の匹数付きの射影で取得する")
+	void testGetCatWithKittenCountViewList() {
+
+		// @formatter:off
+		List<Cat> entries = Arrays.asList(
+				catTestUtil.initializeCat("3-牧野歴君", 5, 2)
+				, catTestUtil.initializeCat("2-きなこ", 6, 3)
+				, catTestUtil.initializeCat("1-さくら", 10, 2)
+				, catTestUtil.initializeCat("碧", 5, 1)
+				, catTestUtil.initializeCat("モカ", 11, 2)
+				);
+		// @formatter:on
+		catRepository.saveAllAndFlush(entries);
+		em.clear();
+
+		// @formatter:off
+		CriteriaBuilder<CatWithKittenCountView> cb = evm.applySetting(
+				EntityViewSetting.create(CatWithKittenCountView.class),
+				cbf.create(em, Cat.class, "c")
+					.where("c.age").betweenExpression("5").andExpression("10")
+					.where("SIZE(c.kittens)").geExpression("2")
+					.orderByAsc("c.name")
+					.orderByAsc("c.id"));
+		// @formatter:on
+
+		final List<CatWithKittenCountView> cats = cb.getResultList();
+
+		// @formatter:off
+		assertEquals(Arrays.asList("1-さくら", "2-きなこ", "3-牧野歴君"),
+				cats.stream().map(CatView::getName).collect(Collectors.toList()));
+		assertEquals(Arrays.asList(2, 3, 2),
+				cats.stream().map(CatWithKittenCountView::getKittenCount).collect(Collectors.toList()));
+		// @formatter:on
+
+		final String processName = "Select cat view list with kitten count by Blaze Persistence";
+		testLogUtil.outputResultList(processName, cats);
+	}
+
+	@Test
+	@DisplayName("飼い主と飼い猫を射影で取得する")
+	void testGetPersonViewList() {
+
+		List<Cat> cats = new ArrayList<>();
+		cats.add(catTestUtil.initializeCat("ムギ"));
+		cats.add(catTestUtil.initializeCat("ソラ"));
+		cats = catRepository.saveAllAndFlush(cats);
+		// @formatter:off
+		personRepository.saveAndFlush(Person.builder()
+				.name("陽葵")
+				.kittens(new HashSet<Cat>(cats))
+				.build());
+		// @formatter:on
+		em.clear();
+
+		// @formatter:off
+		final List<PersonView> persons = evm.applySetting(
+				EntityViewSetting.create(PersonView.class),
+				cbf.create(em, Person.class))
+				.getResultList();
+		// @formatter:on
+
+		assertEquals(1, persons.size());
+		// @formatter:off
+		assertEquals(new HashSet<>(Arrays.asList("ムギ", "ソラ")),
+				persons.get(0).getKittens().stream().map(CatView::getName).collect(Collectors.toSet()));
+		// @formatter:on
+
+		final String processName = "Select person view list by Blaze Persistence";
+		testLogUtil.outputResultList(processName, persons);
+	}
+}
@@ -0,0 +1,74 @@
+package com.example.blazepersistencesample.presentation.export;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.blazepersistencesample.infrastructure.jpa.entity.Cat;
+import com.example.blazepersistencesample.infrastructure.jpa.repository.JpaCatRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class CatExportControllerTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JpaCatRepository catRepository;
+
+	private List<Cat> cats;
+
+	@BeforeEach
+	void setUp() {
+		// @formatter:off
+		cats = catRepository.saveAllAndFlush(Arrays.asList(
+				Cat.builder().name("タマ").age(3).build()
+				, Cat.builder().name("Tom \"the\" cat, Jr.").age(5).build()
+				));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("猫を名前順の NDJSON でダウンロードする")
+	void testExportNdjson() throws Exception {
+
+		// @formatter:off
+		mvc.perform(get("/cats/export"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+				.andExpect(header().string("Content-Disposition", "attachment; filename=\"cats.ndjson\""))
+				.andExpect(content().string(
+						"{\"id\":" + cats.get(1).getId() + ",\"name\":\"Tom \\\"the\\\" cat, Jr.\",\"age\":5}\n"
+						+ "{\"id\":" + cats.get(0).getId() + ",\"name\":\"タマ\",\"age\":3}\n"));
+		// @formatter:on
+	}
+
+	@Test
+	@DisplayName("猫を年齢順の CSV でダウンロードする")
+	void testExportCsv() throws Exception {
+
+		// @formatter:off
+		mvc.perform(get("/cats/export").param("format", "CSV").param("sort", "AGE"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("text/csv;charset=UTF-8"))
+				.andExpect(content().string("id,name,age\r\n"
+						+ cats.get(0).getId() + ",タマ,3\r\n"
+						+ cats.get(1).getId() + ",\"Tom \"\"the\"\" cat, Jr.\",5\r\n"));
+		// @formatter:on
+	}
+}